@@ -82,6 +82,19 @@ public class DefaultPattern implements Pattern {
 		return null;
 	}
 
+	/**
+	 * Fill the errors given the network outputs, subtracting in place.
+	 * 
+	 * @param networkOutputs The list of network outputs.
+	 * @param errors The errors to fill.
+	 */
+	@Override
+	public void getErrors(double[] networkOutputs, double[] errors) {
+		for (int i = 0; i < errors.length; i++) {
+			errors[i] = outputs[i] - networkOutputs[i];
+		}
+	}
+
 	/**
 	 * Set the pattern outputs.
 	 * 
@@ -64,6 +64,18 @@ public interface Pattern {
 	 */
 	double[] getErrors(double[] networkOutputs);
 
+	/**
+	 * Fill the errors given the network outputs in an array reused between patterns. By default copies the errors
+	 * returned by <code>getErrors</code>.
+	 * 
+	 * @param networkOutputs The list of network outputs.
+	 * @param errors The errors to fill.
+	 */
+	default void getErrors(double[] networkOutputs, double[] errors) {
+		double[] patternErrors = getErrors(networkOutputs);
+		System.arraycopy(patternErrors, 0, errors, 0, errors.length);
+	}
+
 	/**
 	 * Return the optional label.
 	 * 
@@ -38,6 +38,41 @@ public abstract class PatternSource {
 	 */
 	public abstract Pattern get(int index);
 
+	/**
+	 * Fill the inputs of the pattern at the given index into a reusable buffer.
+	 * 
+	 * @param index The index.
+	 * @param inputs The inputs to fill.
+	 */
+	public void getInputs(int index, double[] inputs) {
+		getInputs(index, inputs, 0);
+	}
+
+	/**
+	 * Fill the inputs of the pattern at the given index into a block, for instance a row of a batch, starting at the
+	 * offset. Sources that decode the inputs on demand should override it to avoid creating the pattern.
+	 * 
+	 * @param index The index.
+	 * @param block The block to fill.
+	 * @param offset The offset in the block.
+	 */
+	public void getInputs(int index, double[] block, int offset) {
+		double[] inputs = get(index).getInputs();
+		System.arraycopy(inputs, 0, block, offset, inputs.length);
+	}
+
+	/**
+	 * Fill the errors of the pattern at the given index, given the network outputs. Sources that decode the patterns
+	 * on demand should override it to avoid creating the pattern.
+	 * 
+	 * @param index The index.
+	 * @param networkOutputs The network outputs.
+	 * @param errors The errors to fill.
+	 */
+	public void getErrors(int index, double[] networkOutputs, double[] errors) {
+		get(index).getErrors(networkOutputs, errors);
+	}
+
 	/**
 	 * Returns the size or number of patterns in the source.
 	 * 
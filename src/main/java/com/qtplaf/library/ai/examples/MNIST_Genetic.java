@@ -17,6 +17,7 @@ package com.qtplaf.library.ai.examples;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import com.qtplaf.library.ai.data.PatternSource;
 import com.qtplaf.library.ai.function.activation.ActivationTANH;
@@ -32,6 +33,7 @@ import com.qtplaf.library.ai.learning.genetic.selectors.RandomSelector;
 import com.qtplaf.library.ai.learning.genetic.selectors.RouletteWheelSelector;
 import com.qtplaf.library.ai.learning.genetic.selectors.TournamentSelector;
 import com.qtplaf.library.ai.learning.genetic.selectors.TruncationSelector;
+import com.qtplaf.library.ai.mnist.IDXPatternSource;
 import com.qtplaf.library.ai.mnist.NumberImage;
 import com.qtplaf.library.ai.mnist.NumberImageUtils;
 import com.qtplaf.library.ai.neural.Network;
@@ -48,6 +50,9 @@ import com.qtplaf.library.util.file.FileUtils;
  */
 public class MNIST_Genetic {
 
+	/** Random generator of the score samples. */
+	private static Random random = new Random();
+
 	private static Network createNetwork() {
 		int inputLayerSize = NumberImage.ROWS * NumberImage.COLUMNS;
 		int hiddenLayerSize = 100;
@@ -116,10 +121,8 @@ public class MNIST_Genetic {
 		return b.toString();
 	}
 
-	private static PatternSource getSource(List<NumberImage> srcImg, int size) throws Exception {
-		List<NumberImage> images = NumberImageUtils.getNumberImages(srcImg, size);
-		PatternSource source = NumberImageUtils.getPatternSource(images, true);
-		return source;
+	private static PatternSource getSource(IDXPatternSource srcImg, int size) throws Exception {
+		return srcImg.getSample(size, random);
 	}
 
 	/**
@@ -132,7 +135,7 @@ public class MNIST_Genetic {
 		TextServer.addBaseResource("StringsLibrary.xml");
 
 		// Pattern source to score.
-		List<NumberImage> srcImg = NumberImageUtils.getNumberImagesTest();
+		IDXPatternSource srcImg = NumberImageUtils.getPatternSourceTest(true);
 		int sourceSize = 100;
 		ScoreMNIST scoreFunction = new ScoreMNIST();
 		scoreFunction.setPatternSource(getSource(srcImg, sourceSize));
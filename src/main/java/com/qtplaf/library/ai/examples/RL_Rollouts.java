@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.examples;
+
+import java.util.Random;
+
+import com.qtplaf.library.ai.function.activation.ActivationSigmoid;
+import com.qtplaf.library.ai.function.activation.ActivationTANH;
+import com.qtplaf.library.ai.learning.propagation.BackPropagation;
+import com.qtplaf.library.ai.learning.reinforcement.Action;
+import com.qtplaf.library.ai.learning.reinforcement.Agent;
+import com.qtplaf.library.ai.learning.reinforcement.Environment;
+import com.qtplaf.library.ai.learning.reinforcement.ReinforcementLearning;
+import com.qtplaf.library.ai.learning.reinforcement.ReplayMemory;
+import com.qtplaf.library.ai.learning.reinforcement.Reward;
+import com.qtplaf.library.ai.learning.reinforcement.State;
+import com.qtplaf.library.ai.neural.Network;
+import com.qtplaf.library.ai.neural.NetworkUtils;
+import com.qtplaf.library.util.NumberUtils;
+import com.qtplaf.library.util.Properties;
+
+/**
+ * Reinforcement learning with parallel rollout workers. The environment delivers pairs of random numbers, and the
+ * agent decides whether to act or to pass, being rewarded when it acts on pairs whose first number is greater and
+ * passes on the others. Decisions are grouped in episodes of four, and the workers feed a prioritized replay memory
+ * from which the learner trains the policy network.
+ *
+ * @author Miquel Sas
+ */
+public class RL_Rollouts {
+
+	/** Agent state key of the decision. */
+	private static final String ACT = "act";
+	/** Number of decisions of an episode. */
+	private static final int EPISODE_SIZE = 4;
+
+	/**
+	 * The decision, to act or to pass, sampled from the output of the policy network.
+	 */
+	static class Decision implements Action {
+
+		/** Sequence of the decision. */
+		private int sequence;
+		/** The decision, 1 to act and 0 to pass. */
+		private double decision;
+		/** The output of the network, the probability of acting. */
+		private double output;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param sequence The sequence of the decision.
+		 * @param decision The decision, 1 to act and 0 to pass.
+		 * @param output The output of the network.
+		 */
+		Decision(int sequence, double decision, double output) {
+			super();
+			this.sequence = sequence;
+			this.decision = decision;
+			this.output = output;
+		}
+
+		@Override
+		public boolean isStartEpisode() {
+			return sequence % EPISODE_SIZE == 0;
+		}
+
+		@Override
+		public boolean isEndEpisode() {
+			return sequence % EPISODE_SIZE == EPISODE_SIZE - 1;
+		}
+
+		@Override
+		public double[] getGradientsEncourage() {
+			return new double[] { decision - output };
+		}
+
+		@Override
+		public double[] getGradientsDiscourage() {
+			return new double[] { (1 - decision) - output };
+		}
+	}
+
+	/**
+	 * The agent, that samples its decision from the output of the network.
+	 */
+	static class DecisionAgent extends Agent {
+
+		/** Random generator to sample decisions. */
+		private Random random;
+		/** Sequence of decisions. */
+		private int sequence;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param network The policy network.
+		 * @param random The random generator.
+		 */
+		DecisionAgent(Network network, Random random) {
+			super(network);
+			this.random = random;
+		}
+
+		@Override
+		public Action processState(State state) {
+			Network network = getNetwork();
+			double output = Network.forward(network, state.getInputs()).getOutputs(network.getLayers() - 1)[0];
+			boolean act = random.nextDouble() < output;
+			state.getAgentState().setBoolean(ACT, act);
+			return new Decision(sequence++, act ? 1 : 0, output);
+		}
+
+		@Override
+		public Properties getState() {
+			return new Properties();
+		}
+
+		@Override
+		public Agent copy(Network network) {
+			return new DecisionAgent(network, new Random(random.nextLong()));
+		}
+	}
+
+	/**
+	 * The environment, a series of pairs of random numbers.
+	 */
+	static class Pairs extends Environment {
+
+		/** Random generator. */
+		private Random random;
+		/** Number of pairs of a rollout. */
+		private int size;
+		/** Number of pairs delivered. */
+		private int count;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param random The random generator.
+		 * @param size The number of pairs of a rollout.
+		 */
+		Pairs(Random random, int size) {
+			super();
+			this.random = random;
+			this.size = size;
+		}
+
+		@Override
+		public Properties getState() {
+			return new Properties();
+		}
+
+		@Override
+		public void rewind() {
+			count = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return count < size;
+		}
+
+		@Override
+		public double[] next() {
+			count++;
+			return new double[] { random.nextDouble(), random.nextDouble() };
+		}
+
+		@Override
+		public Environment copy() {
+			return new Pairs(new Random(random.nextLong()), size);
+		}
+	}
+
+	/**
+	 * The reward, +1 for right decisions and -1 for wrong ones. It has no state, so copies are itself.
+	 */
+	static class DecisionReward implements Reward {
+
+		@Override
+		public double getReward(State previous, State current) {
+			double[] inputs = current.getInputs();
+			boolean act = current.getAgentState().getBoolean(ACT);
+			return (act == (inputs[0] > inputs[1]) ? 1 : -1);
+		}
+
+		@Override
+		public Reward copy() {
+			return this;
+		}
+	}
+
+	/**
+	 * Returns the percentage of right greedy decisions of the network over random pairs.
+	 * 
+	 * @param network The network.
+	 * @param random The random generator.
+	 * @return The percentage of right decisions.
+	 */
+	private static double getPerformance(Network network, Random random) {
+		int right = 0;
+		int count = 10000;
+		for (int i = 0; i < count; i++) {
+			double[] inputs = new double[] { random.nextDouble(), random.nextDouble() };
+			double output = Network.forward(network, inputs).getOutputs(network.getLayers() - 1)[0];
+			if ((output > 0.5) == (inputs[0] > inputs[1])) {
+				right++;
+			}
+		}
+		return 100.0 * right / count;
+	}
+
+	/**
+	 * @param args Startup args.
+	 */
+	public static void main(String[] args) {
+
+		Random random = new Random(1);
+		Network network = new Network();
+		network.addLayer(2);
+		network.addLayer(4, new ActivationTANH(), 1.0);
+		network.addLayer(1, new ActivationSigmoid(), 1.0);
+		NetworkUtils.randomizeWeights(network);
+
+		ReinforcementLearning learning = new ReinforcementLearning();
+		learning.setAgent(new DecisionAgent(network, random));
+		learning.setEnvironment(new Pairs(random, 2000));
+		learning.setRewardFunction(new DecisionReward());
+		learning.setPropagation(new BackPropagation(network, 0.1, 0.1));
+		learning.setRandom(random);
+
+		// One worker per processor, feeding a prioritized replay memory.
+		int workers = Runtime.getRuntime().availableProcessors();
+		ReplayMemory replayMemory = new ReplayMemory(20000);
+		replayMemory.setPrioritized(true);
+		learning.setRolloutWorkers(workers, replayMemory);
+
+		System.out.println("Workers " + workers + ", initial performance " + getPerformance(network, random) + "%");
+		learning.initialize();
+		for (int i = 1; i <= 20; i++) {
+			learning.iteration();
+			StringBuilder b = new StringBuilder();
+			b.append("Iteration " + i);
+			b.append(", reward " + NumberUtils.getBigDecimal(learning.getReward(), 0));
+			b.append(", transitions " + replayMemory.getCount());
+			b.append(", performance " + getPerformance(network, random) + "%");
+			System.out.println(b.toString());
+		}
+	}
+}
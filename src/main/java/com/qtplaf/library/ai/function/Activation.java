@@ -26,9 +26,21 @@ public interface Activation {
 	 * 
 	 * @param triggers The trigger (weighted sum plus bias) values.
 	 * @param outputs The outputs to set.
-	 * @return The output values.
 	 */
-	void activations(double[] triggers, double[] outputs);
+	default void activations(double[] triggers, double[] outputs) {
+		activations(triggers, outputs, 0, triggers.length);
+	}
+
+	/**
+	 * Set the output values of the function given the input values, in the range of indexes, for instance the used
+	 * rows of a batch block.
+	 * 
+	 * @param triggers The trigger (weighted sum plus bias) values.
+	 * @param outputs The outputs to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
+	 */
+	void activations(double[] triggers, double[] outputs, int from, int to);
 
 	/**
 	 * Returns the first derivatives of the function, given the signals and the outputs. Some activations require the
@@ -37,7 +49,20 @@ public interface Activation {
 	 * @param triggers The triggers applied to <i>getOutputs</i>.
 	 * @param outputs The outputs obtained applying the signals to <i>getOutputs</i>.
 	 * @param derivatives The derivatives to set.
-	 * @return The first derivatives.
 	 */
-	void derivatives(double[] triggers, double[] outputs, double[] derivatives);
+	default void derivatives(double[] triggers, double[] outputs, double[] derivatives) {
+		derivatives(triggers, outputs, derivatives, 0, triggers.length);
+	}
+
+	/**
+	 * Set the first derivatives of the function, given the signals and the outputs, in the range of indexes. Some
+	 * activations require the output and some the signal.
+	 * 
+	 * @param triggers The triggers applied to <i>getOutputs</i>.
+	 * @param outputs The outputs obtained applying the signals to <i>getOutputs</i>.
+	 * @param derivatives The derivatives to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
+	 */
+	void derivatives(double[] triggers, double[] outputs, double[] derivatives, int from, int to);
 }
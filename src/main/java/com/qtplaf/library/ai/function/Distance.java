@@ -29,4 +29,23 @@ public interface Distance {
 	 * @return The distance.
 	 */
 	double calculate(double[] a, double[] b);
+
+	/**
+	 * Returns the distance between two vectors that are ranges of arrays, like the rows of flat row major matrices. By
+	 * default the ranges are copied, implementations should override it to calculate the distance in place.
+	 * 
+	 * @param a The array of vector a.
+	 * @param offsetA The offset of vector a.
+	 * @param b The array of vector b.
+	 * @param offsetB The offset of vector b.
+	 * @param length The length of the vectors.
+	 * @return The distance.
+	 */
+	default double calculate(double[] a, int offsetA, double[] b, int offsetB, int length) {
+		double[] vectorA = new double[length];
+		double[] vectorB = new double[length];
+		System.arraycopy(a, offsetA, vectorA, 0, length);
+		System.arraycopy(b, offsetB, vectorB, 0, length);
+		return calculate(vectorA, vectorB);
+	}
 }
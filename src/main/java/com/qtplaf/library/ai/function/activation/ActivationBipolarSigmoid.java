@@ -22,20 +22,46 @@ import com.qtplaf.library.ai.function.Activation;
  */
 public class ActivationBipolarSigmoid implements Activation {
 
+	/** A boolean that indicates if the fast approximation is used. */
+	private boolean approximate = false;
+
 	/**
 	 * Default constructor.
 	 */
 	public ActivationBipolarSigmoid() {
 	}
 
+	/**
+	 * Check if the fast approximation, a linear interpolation of a table, is used. The absolute error is below 6E-6.
+	 * 
+	 * @return A boolean.
+	 */
+	public boolean isApproximate() {
+		return approximate;
+	}
+
+	/**
+	 * Set if the fast approximation, a linear interpolation of a table, is used. The absolute error is below 6E-6.
+	 * 
+	 * @param approximate A boolean.
+	 */
+	public void setApproximate(boolean approximate) {
+		this.approximate = approximate;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void activations(double[] triggers, double[] outputs) {
-		int length = triggers.length;
-		for (int i = 0; i < length; i++) {
-			outputs[i] = (2 / (1 + Math.exp(-triggers[i]))) - 1;
+	public void activations(double[] triggers, double[] outputs, int from, int to) {
+		if (approximate) {
+			for (int i = from; i < to; i++) {
+				outputs[i] = TanhTable.tanh(0.5 * triggers[i]);
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				outputs[i] = (2 / (1 + Math.exp(-triggers[i]))) - 1;
+			}
 		}
 	}
 
@@ -46,12 +72,13 @@ public class ActivationBipolarSigmoid implements Activation {
 	 * @param triggers The triggers applied to <i>getOutputs</i>.
 	 * @param outputs The outputs obtained applying the signals to <i>getOutputs</i>.
 	 * @param derivatives The derivatives to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
 	 * @return The first derivatives.
 	 */
 	@Override
-	public void derivatives(double[] triggers, double[] outputs, double[] derivatives) {
-		int length = triggers.length;
-		for (int i = 0; i < length; i++) {
+	public void derivatives(double[] triggers, double[] outputs, double[] derivatives, int from, int to) {
+		for (int i = from; i < to; i++) {
 			derivatives[i] = (1 - (outputs[i] * outputs[i])) / 2;
 		}
 	}
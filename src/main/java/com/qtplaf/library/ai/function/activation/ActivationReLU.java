@@ -52,12 +52,13 @@ public class ActivationReLU implements Activation {
 	 * 
 	 * @param triggers The trigger (weighted sum plus bias) values.
 	 * @param outputs The outputs to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
 	 * @return The output values.
 	 */
 	@Override
-	public void activations(double[] triggers, double[] outputs) {
-		int length = triggers.length;
-		for (int i = 0; i < length; i++) {
+	public void activations(double[] triggers, double[] outputs, int from, int to) {
+		for (int i = from; i < to; i++) {
 			if (triggers[i] <= threshold) {
 				outputs[i] = low;
 			} else {
@@ -73,12 +74,13 @@ public class ActivationReLU implements Activation {
 	 * @param triggers The triggers applied to <i>getOutputs</i>.
 	 * @param outputs The outputs obtained applying the signals to <i>getOutputs</i>.
 	 * @param derivatives The derivatives to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
 	 * @return The first derivatives.
 	 */
 	@Override
-	public void derivatives(double[] triggers, double[] outputs, double[] derivatives) {
-		int length = triggers.length;
-		for (int i = 0; i < length; i++) {
+	public void derivatives(double[] triggers, double[] outputs, double[] derivatives, int from, int to) {
+		for (int i = from; i < to; i++) {
 			if (triggers[i] <= threshold) {
 				derivatives[i] = 0.0;
 			} else {
@@ -22,24 +22,52 @@ import com.qtplaf.library.ai.function.Activation;
  */
 public class ActivationSigmoid implements Activation {
 
+	/** A boolean that indicates if the fast approximation is used. */
+	private boolean approximate = false;
+
 	/**
 	 * Default constructor.
 	 */
 	public ActivationSigmoid() {
 	}
 
+	/**
+	 * Check if the fast approximation, a linear interpolation of a table, is used. The absolute error is below 6E-6.
+	 * 
+	 * @return A boolean.
+	 */
+	public boolean isApproximate() {
+		return approximate;
+	}
+
+	/**
+	 * Set if the fast approximation, a linear interpolation of a table, is used. The absolute error is below 6E-6.
+	 * 
+	 * @param approximate A boolean.
+	 */
+	public void setApproximate(boolean approximate) {
+		this.approximate = approximate;
+	}
+
 	/**
 	 * Returns the output values of the function given the input values or triggers.
 	 * 
 	 * @param triggers The trigger (weighted sum plus bias) values.
 	 * @param outputs The output values to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
 	 * @return The output values.
 	 */
 	@Override
-	public void activations(double[] triggers, double[] outputs) {
-		int length = triggers.length;
-		for (int i = 0; i < length; i++) {
-			outputs[i] = 1 / (1 + Math.exp(-triggers[i]));
+	public void activations(double[] triggers, double[] outputs, int from, int to) {
+		if (approximate) {
+			for (int i = from; i < to; i++) {
+				outputs[i] = 0.5 + 0.5 * TanhTable.tanh(0.5 * triggers[i]);
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				outputs[i] = 1 / (1 + Math.exp(-triggers[i]));
+			}
 		}
 	}
 
@@ -50,12 +78,13 @@ public class ActivationSigmoid implements Activation {
 	 * @param triggers The triggers applied to <i>getOutputs</i>.
 	 * @param outputs The outputs obtained applying the signals to <i>getOutputs</i>.
 	 * @param derivatives The derivatives to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
 	 * @return The first derivatives.
 	 */
 	@Override
-	public void derivatives(double[] triggers, double[] outputs, double[] derivatives) {
-		int length = triggers.length;
-		for (int i = 0; i < length; i++) {
+	public void derivatives(double[] triggers, double[] outputs, double[] derivatives, int from, int to) {
+		for (int i = from; i < to; i++) {
 			derivatives[i] = outputs[i] * (1 - outputs[i]);
 		}
 	}
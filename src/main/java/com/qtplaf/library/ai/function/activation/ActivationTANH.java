@@ -24,24 +24,52 @@ import com.qtplaf.library.ai.function.Activation;
  */
 public class ActivationTANH implements Activation {
 
+	/** A boolean that indicates if the fast approximation is used. */
+	private boolean approximate = false;
+
 	/**
 	 * Default constructor.
 	 */
 	public ActivationTANH() {
 	}
 
+	/**
+	 * Check if the fast approximation, a linear interpolation of a table, is used. The absolute error is below 6E-6.
+	 * 
+	 * @return A boolean.
+	 */
+	public boolean isApproximate() {
+		return approximate;
+	}
+
+	/**
+	 * Set if the fast approximation, a linear interpolation of a table, is used. The absolute error is below 6E-6.
+	 * 
+	 * @param approximate A boolean.
+	 */
+	public void setApproximate(boolean approximate) {
+		this.approximate = approximate;
+	}
+
 	/**
 	 * Returns the output values of the function given the input values.
 	 * 
 	 * @param triggers The trigger (weighted sum plus bias) values.
 	 * @param outputs The outputs to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
 	 * @return The output values.
 	 */
 	@Override
-	public void activations(double[] triggers, double[] outputs) {
-		int length = triggers.length;
-		for (int i = 0; i < length; i++) {
-			outputs[i] = Math.tanh(triggers[i]);
+	public void activations(double[] triggers, double[] outputs, int from, int to) {
+		if (approximate) {
+			for (int i = from; i < to; i++) {
+				outputs[i] = TanhTable.tanh(triggers[i]);
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				outputs[i] = Math.tanh(triggers[i]);
+			}
 		}
 	}
 
@@ -52,12 +80,13 @@ public class ActivationTANH implements Activation {
 	 * @param triggers The triggers applied to <i>getOutputs</i>.
 	 * @param outputs The outputs obtained applying the signals to <i>getOutputs</i>.
 	 * @param derivatives The derivatives to set.
+	 * @param from Start index (inclusive).
+	 * @param to End index (exclusive).
 	 * @return The first derivatives.
 	 */
 	@Override
-	public void derivatives(double[] triggers, double[] outputs, double[] derivatives) {
-		int length = triggers.length;
-		for (int i = 0; i < length; i++) {
+	public void derivatives(double[] triggers, double[] outputs, double[] derivatives, int from, int to) {
+		for (int i = from; i < to; i++) {
 			derivatives[i] = (1.0 - outputs[i] * outputs[i]);
 		}
 	}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.function.activation;
+
+/**
+ * Fast approximation of the hyperbolic tangent by linear interpolation of a table, used by the approximate mode of the
+ * sigmoid and tanh activations. The table covers [-8, 8] with 128 steps per unit (16 KB), the absolute error of the
+ * interpolation is below 6E-6 and beyond the range the value saturates to -1 or 1, with an error below 3E-7.
+ *
+ * @author Miquel Sas
+ */
+class TanhTable {
+
+	/** Range covered by the table, [-RANGE, RANGE]. */
+	private static final double RANGE = 8;
+	/** Steps per unit. */
+	private static final double SCALE = 128;
+	/** The table. */
+	private static final double[] TABLE = createTable();
+
+	/**
+	 * Creates the table, with an additional trailing value so the interpolation never reads out of bounds.
+	 *
+	 * @return The table.
+	 */
+	private static double[] createTable() {
+		int steps = (int) (2 * RANGE * SCALE);
+		double[] table = new double[steps + 2];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = Math.tanh(i / SCALE - RANGE);
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the approximate hyperbolic tangent.
+	 *
+	 * @param x The argument.
+	 * @return The approximate hyperbolic tangent.
+	 */
+	static double tanh(double x) {
+		if (x >= RANGE) {
+			return 1;
+		}
+		if (x <= -RANGE) {
+			return -1;
+		}
+		if (Double.isNaN(x)) {
+			return x;
+		}
+		double position = (x + RANGE) * SCALE;
+		int index = (int) position;
+		double fraction = position - index;
+		double low = TABLE[index];
+		return low + fraction * (TABLE[index + 1] - low);
+	}
+}
@@ -43,4 +43,24 @@ public class EuclideanDistance implements Distance {
 		return Matrix.distanceEuclidean(a, b);
 	}
 
+	/**
+	 * Returns the distance between two vectors that are ranges of arrays, calculated in place.
+	 * 
+	 * @param a The array of vector a.
+	 * @param offsetA The offset of vector a.
+	 * @param b The array of vector b.
+	 * @param offsetB The offset of vector b.
+	 * @param length The length of the vectors.
+	 * @return The distance.
+	 */
+	@Override
+	public double calculate(double[] a, int offsetA, double[] b, int offsetB, int length) {
+		double distance = 0;
+		for (int i = 0; i < length; i++) {
+			double diff = a[offsetA + i] - b[offsetB + i];
+			distance += diff * diff;
+		}
+		return Math.sqrt(distance);
+	}
+
 }
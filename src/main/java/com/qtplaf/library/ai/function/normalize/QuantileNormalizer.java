@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.function.normalize;
+
+import com.qtplaf.library.util.math.QuantileSketch;
+
+/**
+ * Normalizer that maps the values between a low and a high quantile of a quantile sketch to the normalized range,
+ * clipping values out of that range. Robust to outliers and fat tails.
+ *
+ * @author Miquel Sas
+ */
+public class QuantileNormalizer extends StdNormalizer {
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sketch The quantile sketch of the data.
+	 * @param quantileLow The quantile mapped to the normalized low, for instance 0.005.
+	 * @param quantileHigh The quantile mapped to the normalized high, for instance 0.995.
+	 * @param normalizedHigh Normalized high.
+	 * @param normalizedLow Normalized low.
+	 */
+	public QuantileNormalizer(
+		QuantileSketch sketch,
+		double quantileLow,
+		double quantileHigh,
+		double normalizedHigh,
+		double normalizedLow) {
+		super(sketch.quantile(quantileHigh), sketch.quantile(quantileLow), normalizedHigh, normalizedLow);
+		if (quantileLow >= quantileHigh) {
+			throw new IllegalArgumentException("The low quantile must be less than the high quantile");
+		}
+	}
+}
@@ -15,13 +15,17 @@
 package com.qtplaf.library.ai.fuzzy;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-
-import com.qtplaf.library.ai.function.normalize.StdNormalizer;
-import com.qtplaf.library.util.list.ListUtils;
+import java.util.Map;
 
 /**
  * A fuzzy control.
+ * <p>
+ * The control is compiled at construction: the minimums and maximums of the segments, that are strictly ascending, are
+ * kept in arrays to locate values with a binary search, and labels are resolved to segment indexes through a map. The
+ * checks accept either labels or the indexes returned by <code>getIndex(String)</code>, and <code>classify</code> and
+ * <code>factors</code> process arrays of values.
  *
  * @author Miquel Sas
  */
@@ -38,6 +42,12 @@ public class Control {
 	 * The list of control segments.
 	 */
 	private List<Segment> segments = new ArrayList<>();
+	/** The minimums of the segments, ascending. */
+	private double[] minimums;
+	/** The maximums of the segments, ascending. */
+	private double[] maximums;
+	/** The map of labels to segment indexes. */
+	private Map<String, Integer> indexes = new HashMap<>();
 
 	/**
 	 * Constructor.
@@ -48,6 +58,23 @@ public class Control {
 		super();
 		validateSegments(segments);
 		this.segments.addAll(segments);
+		compile();
+	}
+
+	/**
+	 * Compile the arrays of minimums and maximums and the map of labels.
+	 */
+	private void compile() {
+		minimums = new double[segments.size()];
+		maximums = new double[segments.size()];
+		for (int i = 0; i < segments.size(); i++) {
+			Segment segment = segments.get(i);
+			minimums[i] = segment.getMinimum();
+			maximums[i] = segment.getMaximum();
+			if (!indexes.containsKey(segment.getLabel())) {
+				indexes.put(segment.getLabel(), i);
+			}
+		}
 	}
 
 	/**
@@ -61,6 +88,17 @@ public class Control {
 		return check(value, label, Condition.GT);
 	}
 
+	/**
+	 * Check if the value is in the range of the segment index or GT.
+	 * 
+	 * @param value The value to check.
+	 * @param index The segment index.
+	 * @return A boolean.
+	 */
+	public boolean checkGT(double value, int index) {
+		return check(value, index, Condition.GT);
+	}
+
 	/**
 	 * Check if the value is in the range of the label or GE.
 	 * 
@@ -72,6 +110,17 @@ public class Control {
 		return check(value, label, Condition.GE);
 	}
 
+	/**
+	 * Check if the value is in the range of the segment index or GE.
+	 * 
+	 * @param value The value to check.
+	 * @param index The segment index.
+	 * @return A boolean.
+	 */
+	public boolean checkGE(double value, int index) {
+		return check(value, index, Condition.GE);
+	}
+
 	/**
 	 * Check if the value is in the range of the label or EQ.
 	 * 
@@ -83,6 +132,17 @@ public class Control {
 		return check(value, label, Condition.EQ);
 	}
 
+	/**
+	 * Check if the value is in the range of the segment index or EQ.
+	 * 
+	 * @param value The value to check.
+	 * @param index The segment index.
+	 * @return A boolean.
+	 */
+	public boolean checkEQ(double value, int index) {
+		return check(value, index, Condition.EQ);
+	}
+
 	/**
 	 * Check if the value is in the list of labels.
 	 * 
@@ -99,6 +159,24 @@ public class Control {
 		return false;
 	}
 
+	/**
+	 * Check if the value is in the list of segment indexes.
+	 * 
+	 * @param value The value to check.
+	 * @param indexes The list of segment indexes.
+	 * @return A boolean.
+	 */
+	public boolean checkIn(double value, int... indexes) {
+		int first = getFirstIndex(value);
+		int last = getLastIndex(value);
+		for (int index : indexes) {
+			if (first == index || last == index) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Check if the value is in the range of the label or LE.
 	 * 
@@ -110,6 +188,17 @@ public class Control {
 		return check(value, label, Condition.LE);
 	}
 
+	/**
+	 * Check if the value is in the range of the segment index or LE.
+	 * 
+	 * @param value The value to check.
+	 * @param index The segment index.
+	 * @return A boolean.
+	 */
+	public boolean checkLE(double value, int index) {
+		return check(value, index, Condition.LE);
+	}
+
 	/**
 	 * Check if the value is in the range of the label or LT.
 	 * 
@@ -121,6 +210,17 @@ public class Control {
 		return check(value, label, Condition.LT);
 	}
 
+	/**
+	 * Check if the value is in the range of the segment index or LT.
+	 * 
+	 * @param value The value to check.
+	 * @param index The segment index.
+	 * @return A boolean.
+	 */
+	public boolean checkLT(double value, int index) {
+		return check(value, index, Condition.LT);
+	}
+
 	/**
 	 * Check if the value is in the range of the label applying the condition (GT, GE, EQ, LE, LT)
 	 * 
@@ -130,31 +230,41 @@ public class Control {
 	 * @return A boolean.
 	 */
 	private boolean check(double value, String label, Condition condition) {
-		int labelIndex = getIndex(label);
-		List<Integer> valueIndexes = getIndexes(value);
+		return check(value, getIndex(label), condition);
+	}
+
+	/**
+	 * Check if the value is in the range of the segment index applying the condition (GT, GE, EQ, LE, LT)
+	 * 
+	 * @param value The value to check.
+	 * @param index The segment index.
+	 * @param condition The comparison condition.
+	 * @return A boolean.
+	 */
+	private boolean check(double value, int index, Condition condition) {
 		switch (condition) {
 		case GT:
-			if (ListUtils.getFirst(valueIndexes) > labelIndex) {
+			if (getFirstIndex(value) > index) {
 				return true;
 			}
 			break;
 		case GE:
-			if (ListUtils.getFirst(valueIndexes) >= labelIndex) {
+			if (getFirstIndex(value) >= index) {
 				return true;
 			}
 			break;
 		case EQ:
-			if (ListUtils.getFirst(valueIndexes) == labelIndex || ListUtils.getLast(valueIndexes) == labelIndex) {
+			if (getFirstIndex(value) == index || getLastIndex(value) == index) {
 				return true;
 			}
 			break;
 		case LE:
-			if (ListUtils.getLast(valueIndexes) <= labelIndex) {
+			if (getLastIndex(value) <= index) {
 				return true;
 			}
 			break;
 		case LT:
-			if (ListUtils.getLast(valueIndexes) < labelIndex) {
+			if (getLastIndex(value) < index) {
 				return true;
 			}
 			break;
@@ -181,12 +291,11 @@ public class Control {
 	 * @return The index of the label.
 	 */
 	public int getIndex(String label) {
-		for (int i = 0; i < segments.size(); i++) {
-			if (segments.get(i).getLabel().equals(label)) {
-				return i;
-			}
+		Integer index = indexes.get(label);
+		if (index == null) {
+			throw new IllegalArgumentException();
 		}
-		throw new IllegalArgumentException();
+		return index;
 	}
 
 	/**
@@ -198,28 +307,109 @@ public class Control {
 	 */
 	public List<Integer> getIndexes(double value) {
 		List<Integer> indexes = new ArrayList<>();
-		if (value < getMinimum()) {
-			indexes.add(0);
+		int last = getLastIndex(value);
+		for (int i = getFirstIndex(value); i <= last; i++) {
+			indexes.add(i);
 		}
-		for (int i = 0; i < segments.size(); i++) {
-			if (segments.get(i).inRange(value)) {
-				indexes.add(i);
+		return indexes;
+	}
+
+	/**
+	 * Returns the index of the first segment where the value should be included. Values below the minimum are
+	 * included in the first segment and values above the maximum in the last.
+	 * 
+	 * @param value The value.
+	 * @return The index of the first segment.
+	 */
+	public int getFirstIndex(double value) {
+		// First segment with a maximum GE the value.
+		int low = 0;
+		int high = maximums.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (maximums[middle] < value) {
+				low = middle + 1;
+			} else {
+				high = middle;
 			}
 		}
-		if (value > getMaximum()) {
-			indexes.add(segments.size() - 1);
+		return low;
+	}
+
+	/**
+	 * Returns the index of the last segment where the value should be included. Values below the minimum are included
+	 * in the first segment and values above the maximum in the last.
+	 * 
+	 * @param value The value.
+	 * @return The index of the last segment.
+	 */
+	public int getLastIndex(double value) {
+		// Last segment with a minimum LE the value.
+		int low = 0;
+		int high = minimums.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (minimums[middle] <= value) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
 		}
-		return indexes;
+		return low;
 	}
 
 	/**
-	 * Returns the global factor.
+	 * Classify an array of values, setting the index of the first segment where each value should be included.
+	 * 
+	 * @param values The values.
+	 * @param out The segment indexes, with at least the length of the values.
+	 */
+	public void classify(double[] values, int[] out) {
+		for (int i = 0; i < values.length; i++) {
+			out[i] = getFirstIndex(values[i]);
+		}
+	}
+
+	/**
+	 * Returns the global factor, the value clamped to the range of the segments.
 	 * 
 	 * @param value The value to check.
 	 * @return The global factor.
 	 */
 	public double getFactor(double value) {
-		return new StdNormalizer(getMaximum(), getMinimum()).normalize(value);
+		return getFactor(value, getMinimum(), getMaximum());
+	}
+
+	/**
+	 * Set the global factors of an array of values.
+	 * 
+	 * @param values The values.
+	 * @param out The global factors, with at least the length of the values.
+	 */
+	public void factors(double[] values, double[] out) {
+		double minimum = getMinimum();
+		double maximum = getMaximum();
+		for (int i = 0; i < values.length; i++) {
+			out[i] = getFactor(values[i], minimum, maximum);
+		}
+	}
+
+	/**
+	 * Returns the global factor, the value clamped to the range of minimum and maximum.
+	 * 
+	 * @param value The value.
+	 * @param minimum The minimum.
+	 * @param maximum The maximum.
+	 * @return The global factor.
+	 */
+	private double getFactor(double value, double minimum, double maximum) {
+		if (value > maximum) {
+			return maximum;
+		}
+		if (value < minimum) {
+			return minimum;
+		}
+		return value;
 	}
 
 	/**
@@ -228,7 +418,7 @@ public class Control {
 	 * @return The minimum value.
 	 */
 	public double getMinimum() {
-		return ListUtils.getFirst(segments).getMinimum();
+		return minimums[0];
 	}
 
 	/**
@@ -247,7 +437,7 @@ public class Control {
 	 * @return The maximum value.
 	 */
 	public double getMaximum() {
-		return ListUtils.getLast(segments).getMaximum();
+		return maximums[maximums.length - 1];
 	}
 
 	/**
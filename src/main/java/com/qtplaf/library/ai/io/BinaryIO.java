@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Static helpers of the binary formats, little-endian, written and read through file channels and memory maps.
+ *
+ * @author Miquel Sas
+ */
+public class BinaryIO {
+
+	/** Size of the buffer used to write blocks of doubles. */
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * Allocate a little-endian heap buffer.
+	 *
+	 * @param capacity The capacity.
+	 * @return The buffer.
+	 */
+	public static ByteBuffer allocate(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Map the whole file of the channel read only, little-endian.
+	 *
+	 * @param channel The file channel.
+	 * @return The mapped buffer.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static ByteBuffer map(FileChannel channel) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Returns the number of bytes a string takes in the buffer.
+	 *
+	 * @param string The string.
+	 * @return The number of bytes.
+	 */
+	public static int sizeOf(String string) {
+		return 4 + string.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	/**
+	 * Put a string, the length of its UTF-8 bytes followed by the bytes.
+	 *
+	 * @param buffer The buffer.
+	 * @param string The string.
+	 */
+	public static void putString(ByteBuffer buffer, String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Get a string written with <code>putString</code>.
+	 *
+	 * @param buffer The buffer.
+	 * @return The string.
+	 */
+	public static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a block of doubles, advancing the position of the buffer.
+	 *
+	 * @param buffer The buffer, little-endian.
+	 * @param values The values to fill.
+	 */
+	public static void getDoubles(ByteBuffer buffer, double[] values) {
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + values.length * 8);
+	}
+
+	/**
+	 * Write the buffer, flipped, fully to the channel.
+	 *
+	 * @param channel The channel.
+	 * @param buffer The buffer.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		write(channel, buffer, null);
+	}
+
+	/**
+	 * Write the buffer, flipped, fully to the channel, updating the checksum with the bytes written.
+	 *
+	 * @param channel The channel.
+	 * @param buffer The buffer.
+	 * @param crc The checksum to update, or null.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+		buffer.flip();
+		if (crc != null) {
+			crc.update(buffer.duplicate());
+		}
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Write a block of doubles as raw little-endian values.
+	 *
+	 * @param channel The channel.
+	 * @param values The values.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static void writeDoubles(FileChannel channel, double[] values) throws IOException {
+		writeDoubles(channel, values, null);
+	}
+
+	/**
+	 * Write a block of doubles as raw little-endian values, updating the checksum with the bytes written.
+	 *
+	 * @param channel The channel.
+	 * @param values The values.
+	 * @param crc The checksum to update, or null.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static void writeDoubles(FileChannel channel, double[] values, CRC32 crc) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		int count = BLOCK_SIZE / 8;
+		for (int offset = 0; offset < values.length; offset += count) {
+			int length = Math.min(count, values.length - offset);
+			buffer.clear();
+			buffer.asDoubleBuffer().put(values, offset, length);
+			buffer.position(length * 8);
+			write(channel, buffer, crc);
+		}
+	}
+
+	/**
+	 * Read from the channel until the buffer is full, flip it and update the checksum with the bytes read.
+	 *
+	 * @param channel The channel.
+	 * @param buffer The buffer, cleared before reading.
+	 * @param crc The checksum to update, or null.
+	 * @return A boolean indicating whether the buffer could be filled before the end of the file.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static boolean read(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+		buffer.clear();
+		return fill(channel, buffer, crc);
+	}
+
+	/**
+	 * Read a block of doubles written with <code>writeDoubles</code>, updating the checksum with the bytes read.
+	 *
+	 * @param channel The channel.
+	 * @param values The values to fill.
+	 * @param crc The checksum to update, or null.
+	 * @return A boolean indicating whether all the values could be read before the end of the file.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static boolean readDoubles(FileChannel channel, double[] values, CRC32 crc) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		int count = BLOCK_SIZE / 8;
+		for (int offset = 0; offset < values.length; offset += count) {
+			int length = Math.min(count, values.length - offset);
+			buffer.clear();
+			buffer.limit(length * 8);
+			if (!fill(channel, buffer, crc)) {
+				return false;
+			}
+			buffer.asDoubleBuffer().get(values, offset, length);
+		}
+		return true;
+	}
+
+	/**
+	 * Read from the channel up to the limit of the buffer, flip it and update the checksum with the bytes read.
+	 *
+	 * @param channel The channel.
+	 * @param buffer The buffer.
+	 * @param crc The checksum to update, or null.
+	 * @return A boolean indicating whether the buffer could be filled up to its limit.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private static boolean fill(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+		int limit = buffer.limit();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		if (crc != null) {
+			crc.update(buffer.duplicate());
+		}
+		return buffer.limit() == limit;
+	}
+}
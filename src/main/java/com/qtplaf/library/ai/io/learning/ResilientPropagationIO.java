@@ -76,7 +76,7 @@ public class ResilientPropagationIO extends DataIO {
 					double lastGradient = Double.parseDouble(attributes.getValue("v"));
 					int out = Integer.parseInt(attributes.getValue("o"));
 					int in = Integer.parseInt(attributes.getValue("i"));
-					rprop.getLastGradients(layerIndex)[out][in] = lastGradient;
+					rprop.getLastGradients()[rprop.getNetwork().getWeightIndex(layerIndex, out, in)] = lastGradient;
 					return;
 				}
 
@@ -85,7 +85,7 @@ public class ResilientPropagationIO extends DataIO {
 					double lastWeightChange = Double.parseDouble(attributes.getValue("v"));
 					int out = Integer.parseInt(attributes.getValue("o"));
 					int in = Integer.parseInt(attributes.getValue("i"));
-					rprop.getLastWeightChanges(layerIndex)[out][in] = lastWeightChange;
+					rprop.getLastWeightChanges()[rprop.getNetwork().getWeightIndex(layerIndex, out, in)] = lastWeightChange;
 					return;
 				}
 
@@ -94,7 +94,7 @@ public class ResilientPropagationIO extends DataIO {
 					double lastDelta = Double.parseDouble(attributes.getValue("v"));
 					int out = Integer.parseInt(attributes.getValue("o"));
 					int in = Integer.parseInt(attributes.getValue("i"));
-					rprop.getLastDeltas(layerIndex)[out][in] = lastDelta;
+					rprop.getLastDeltas()[rprop.getNetwork().getWeightIndex(layerIndex, out, in)] = lastDelta;
 					return;
 				}
 
@@ -169,6 +169,7 @@ public class ResilientPropagationIO extends DataIO {
 
 			int neuronsOut = rprop.getNetwork().getNeurons(layer);
 			int neuronsIn = rprop.getNetwork().getNeurons(layer - 1);
+			int offset = rprop.getNetwork().getWeightOffset(layer);
 
 			// Last gradients
 			{
@@ -176,13 +177,13 @@ public class ResilientPropagationIO extends DataIO {
 				wr.increaseTabLevel();
 
 				// Iterate last gradients.
-				double[][] lastGradients = rprop.getLastGradients(layer);
+				double[] lastGradients = rprop.getLastGradients();
 				pos = 0;
 				for (int out = 0; out < neuronsOut; out++) {
 					for (int in = 0; in < neuronsIn; in++) {
 						XMLAttribute output = new XMLAttribute("o", out);
 						XMLAttribute input = new XMLAttribute("i", in);
-						XMLAttribute value = new XMLAttribute("v", lastGradients[out][in]);
+						XMLAttribute value = new XMLAttribute("v", lastGradients[offset + out * neuronsIn + in]);
 						if (pos % 4 == 0) {
 							if (pos != 0) {
 								wr.println();
@@ -206,13 +207,13 @@ public class ResilientPropagationIO extends DataIO {
 				wr.increaseTabLevel();
 
 				// Iterate last gradients.
-				double[][] lastWeightChanges = rprop.getLastWeightChanges(layer);
+				double[] lastWeightChanges = rprop.getLastWeightChanges();
 				pos = 0;
 				for (int out = 0; out < neuronsOut; out++) {
 					for (int in = 0; in < neuronsIn; in++) {
 						XMLAttribute output = new XMLAttribute("o", out);
 						XMLAttribute input = new XMLAttribute("i", in);
-						XMLAttribute value = new XMLAttribute("v", lastWeightChanges[out][in]);
+						XMLAttribute value = new XMLAttribute("v", lastWeightChanges[offset + out * neuronsIn + in]);
 						if (pos % 4 == 0) {
 							if (pos != 0) {
 								wr.println();
@@ -236,13 +237,13 @@ public class ResilientPropagationIO extends DataIO {
 				wr.increaseTabLevel();
 
 				// Iterate last gradients.
-				double[][] lastDeltas = rprop.getLastDeltas(layer);
+				double[] lastDeltas = rprop.getLastDeltas();
 				pos = 0;
 				for (int out = 0; out < neuronsOut; out++) {
 					for (int in = 0; in < neuronsIn; in++) {
 						XMLAttribute output = new XMLAttribute("o", out);
 						XMLAttribute input = new XMLAttribute("i", in);
-						XMLAttribute value = new XMLAttribute("v", lastDeltas[out][in]);
+						XMLAttribute value = new XMLAttribute("v", lastDeltas[offset + out * neuronsIn + in]);
 						if (pos % 4 == 0) {
 							if (pos != 0) {
 								wr.println();
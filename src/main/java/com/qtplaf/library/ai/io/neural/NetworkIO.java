@@ -14,10 +14,16 @@
 
 package com.qtplaf.library.ai.io.neural;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,6 +33,7 @@ import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
 import com.qtplaf.library.ai.function.Activation;
+import com.qtplaf.library.ai.io.BinaryIO;
 import com.qtplaf.library.ai.io.DataIO;
 import com.qtplaf.library.ai.neural.Network;
 import com.qtplaf.library.ai.neural.NetworkUtils;
@@ -37,7 +44,11 @@ import com.qtplaf.library.util.xml.XMLAttribute;
 import com.qtplaf.library.util.xml.XMLWriter;
 
 /**
- * Utility to save and restore network data.
+ * Utility to save and restore network data, in XML format for import/export or in a compact versioned binary format.
+ * <p>
+ * The binary format, little-endian, is a header with the magic number, the version, the number of layers, the neurons
+ * of each layer and the activation identifier and bias of each subsequent layer, followed by the number of weights and
+ * the raw weights. The binary format is never deflated.
  *
  * @author Miquel Sas
  */
@@ -118,6 +129,11 @@ public class NetworkIO extends DataIO {
 		}
 	}
 
+	/** Magic number of the binary format, "QNET". */
+	public static final int BINARY_MAGIC = 0x54454E51;
+	/** Version of the binary format. */
+	public static final int BINARY_VERSION = 1;
+
 	/** The network. */
 	private Network network;
 
@@ -216,4 +232,200 @@ public class NetworkIO extends DataIO {
 		wr.close();
 	}
 
+	/**
+	 * Write the network to a file in binary format.
+	 * 
+	 * @param file The file.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public void toBinary(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(
+			file.toPath(),
+			StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeBinary(channel);
+		}
+	}
+
+	/**
+	 * Read the network from a file in binary format.
+	 * 
+	 * @param file The file.
+	 * @throws IOException If an IO error occurs, the file is truncated or the format is not valid.
+	 */
+	public void fromBinary(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			readBinary(channel);
+		}
+	}
+
+	/**
+	 * Write the network in binary format at the current position of the channel.
+	 * 
+	 * @param channel The file channel.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public void writeBinary(FileChannel channel) throws IOException {
+
+		// Header size.
+		int size = 4 * 4;
+		for (int layer = 0; layer < network.getLayers(); layer++) {
+			size += 4;
+			if (layer > 0) {
+				size += BinaryIO.sizeOf(NetworkUtils.getActivationId(network.getActivation(layer))) + 8;
+			}
+		}
+
+		// Header.
+		ByteBuffer header = BinaryIO.allocate(size);
+		header.putInt(BINARY_MAGIC);
+		header.putInt(BINARY_VERSION);
+		header.putInt(network.getLayers());
+		for (int layer = 0; layer < network.getLayers(); layer++) {
+			header.putInt(network.getNeurons(layer));
+			if (layer > 0) {
+				BinaryIO.putString(header, NetworkUtils.getActivationId(network.getActivation(layer)));
+				header.putDouble(network.getBias(layer));
+			}
+		}
+		header.putInt(network.getWeightCount());
+		BinaryIO.write(channel, header);
+
+		// Weights.
+		BinaryIO.writeDoubles(channel, network.getWeights());
+	}
+
+	/**
+	 * Read the network in binary format from the current position of the channel, the header in small reads and the
+	 * weights directly into the network.
+	 * 
+	 * @param channel The file channel.
+	 * @throws IOException If an IO error occurs, the channel ends before the network or the format is not valid.
+	 */
+	public void readBinary(FileChannel channel) throws IOException {
+
+		// Magic and version.
+		ByteBuffer buffer = read(channel, 4 * 3);
+		if (buffer.getInt() != BINARY_MAGIC) {
+			throw new IOException("Not a binary network");
+		}
+		int version = buffer.getInt();
+		if (version != BINARY_VERSION) {
+			throw new IOException("Unsupported binary network version " + version);
+		}
+
+		// Structure.
+		int layers = buffer.getInt();
+		if (layers < 0) {
+			throw new IOException("Invalid number of layers " + layers);
+		}
+		int[] sizes = new int[layers];
+		Activation[] activations = new Activation[layers];
+		double[] biases = new double[layers];
+		for (int layer = 0; layer < layers; layer++) {
+			sizes[layer] = read(channel, 4).getInt();
+			if (layer > 0) {
+				int length = read(channel, 4).getInt();
+				if (length < 0 || length > Integer.MAX_VALUE - 8) {
+					throw new IOException("Invalid activation identifier length " + length);
+				}
+				buffer = read(channel, length + 8);
+				byte[] bytes = new byte[length];
+				buffer.get(bytes);
+				activations[layer] = NetworkUtils.getActivation(new String(bytes, StandardCharsets.UTF_8));
+				biases[layer] = buffer.getDouble();
+			}
+		}
+		network.createStructure(sizes);
+		for (int layer = 1; layer < layers; layer++) {
+			network.setActivation(layer, activations[layer]);
+			network.setBias(layer, biases[layer]);
+		}
+
+		// Weights, read directly into the network.
+		int count = read(channel, 4).getInt();
+		if (count != network.getWeightCount()) {
+			throw new IOException("Invalid number of weights " + count);
+		}
+		if (!BinaryIO.readDoubles(channel, network.getWeights(), null)) {
+			throw new IOException("Unexpected end of binary network");
+		}
+	}
+
+	/**
+	 * Read the given number of bytes from the channel.
+	 * 
+	 * @param channel The file channel.
+	 * @param size The number of bytes.
+	 * @return The little-endian buffer with the bytes read.
+	 * @throws IOException If an IO error occurs or the channel ends before.
+	 */
+	private ByteBuffer read(FileChannel channel, int size) throws IOException {
+		if (size > channel.size() - channel.position()) {
+			throw new IOException("Unexpected end of binary network");
+		}
+		ByteBuffer buffer = BinaryIO.allocate(size);
+		if (!BinaryIO.read(channel, buffer, null)) {
+			throw new IOException("Unexpected end of binary network");
+		}
+		return buffer;
+	}
+
+	/**
+	 * Read the network in binary format from the current position of the buffer, that is advanced.
+	 * 
+	 * @param buffer The little-endian buffer, usually memory mapped.
+	 * @throws IOException If the format is not valid or the buffer ends before the network.
+	 */
+	public void readBinary(ByteBuffer buffer) throws IOException {
+		try {
+			readBuffer(buffer);
+		} catch (BufferUnderflowException exc) {
+			throw new IOException("Unexpected end of binary network", exc);
+		}
+	}
+
+	/**
+	 * Read the network in binary format from the current position of the buffer, that is advanced.
+	 * 
+	 * @param buffer The little-endian buffer.
+	 * @throws IOException If the format is not valid.
+	 */
+	private void readBuffer(ByteBuffer buffer) throws IOException {
+
+		// Magic and version.
+		if (buffer.getInt() != BINARY_MAGIC) {
+			throw new IOException("Not a binary network");
+		}
+		int version = buffer.getInt();
+		if (version != BINARY_VERSION) {
+			throw new IOException("Unsupported binary network version " + version);
+		}
+
+		// Structure.
+		int layers = buffer.getInt();
+		int[] sizes = new int[layers];
+		Activation[] activations = new Activation[layers];
+		double[] biases = new double[layers];
+		for (int layer = 0; layer < layers; layer++) {
+			sizes[layer] = buffer.getInt();
+			if (layer > 0) {
+				activations[layer] = NetworkUtils.getActivation(BinaryIO.getString(buffer));
+				biases[layer] = buffer.getDouble();
+			}
+		}
+		network.createStructure(sizes);
+		for (int layer = 1; layer < layers; layer++) {
+			network.setActivation(layer, activations[layer]);
+			network.setBias(layer, biases[layer]);
+		}
+
+		// Weights, read directly into the network.
+		int count = buffer.getInt();
+		if (count != network.getWeightCount()) {
+			throw new IOException("Invalid number of weights " + count);
+		}
+		BinaryIO.getDoubles(buffer, network.getWeights());
+	}
 }
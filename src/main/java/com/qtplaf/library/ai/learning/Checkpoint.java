@@ -0,0 +1,450 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.qtplaf.library.ai.io.BinaryIO;
+
+/**
+ * Periodic checkpoints of the state of a learning method, registered as a strategy of the method. After the
+ * configured number of iterations or time, the state vectors of the learning method (<code>getState()</code>) are
+ * copied into one of two snapshot buffers and written asynchronously in binary format by a background thread, so
+ * training only stalls for the memory copy. If both buffers are still being written the checkpoint is skipped.
+ * <p>
+ * Each checkpoint is written to a temporary file and then moved to <i>name-sequence.chk</i>, with a trailing CRC32 of
+ * the content, and only the most recent ones are kept. <code>resume()</code> restores the newest valid checkpoint.
+ * Sequences continue after the highest existing file, so files left by an earlier run never outrank new checkpoints.
+ *
+ * @author Miquel Sas
+ */
+public class Checkpoint implements Strategy {
+
+	/** Logger instance. */
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	/** Magic number of the checkpoint format, "QCHK". */
+	public static final int MAGIC = 0x4B484351;
+	/** Version of the checkpoint format. */
+	public static final int VERSION = 1;
+	/** Extension of checkpoint files. */
+	private static final String EXTENSION = ".chk";
+
+	/**
+	 * A snapshot buffer, the copy of the state vectors and the pending write.
+	 */
+	class Snapshot {
+		/** Copy of the state vectors. */
+		List<double[]> vectors = new ArrayList<>();
+		/** Iteration of the snapshot. */
+		long iteration;
+		/** Pending write, null if none. */
+		Future<?> write;
+
+		/**
+		 * Check whether the buffer is being written.
+		 *
+		 * @return A boolean.
+		 */
+		boolean isBusy() {
+			return write != null && !write.isDone();
+		}
+	}
+
+	/** The learning method. */
+	private LearningMethod learningMethod;
+	/** Directory of the checkpoint files. */
+	private File directory;
+	/** Name, prefix of the checkpoint files. */
+	private String name;
+	/** Number of iterations between checkpoints, zero for no iteration interval. */
+	private int iterationInterval = 100;
+	/** Milliseconds between checkpoints, zero for no time interval. */
+	private long timeInterval = 0;
+	/** Number of checkpoint files to keep. */
+	private int keep = 2;
+
+	/** Current iteration. */
+	private long iteration = 0;
+	/** Iteration of the last checkpoint. */
+	private long lastIteration = 0;
+	/** Time of the last checkpoint. */
+	private long lastTime = System.currentTimeMillis();
+	/** Sequence of the last checkpoint file, initially the highest existing one. */
+	private long sequence = 0;
+	/** The two snapshot buffers. */
+	private Snapshot[] snapshots = new Snapshot[] { new Snapshot(), new Snapshot() };
+	/** Index of the next snapshot buffer to use. */
+	private int next = 0;
+	/** Background writer. */
+	private ExecutorService writer;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param learningMethod The learning method.
+	 * @param directory The directory of the checkpoint files.
+	 * @param name The name, prefix of the checkpoint files.
+	 */
+	public Checkpoint(LearningMethod learningMethod, File directory, String name) {
+		super();
+		this.learningMethod = learningMethod;
+		this.directory = directory;
+		this.name = name;
+
+		// Continue after the existing files, resumed or not.
+		List<File> files = getFiles();
+		if (!files.isEmpty()) {
+			sequence = getSequence(files.get(files.size() - 1));
+		}
+	}
+
+	/**
+	 * Set the number of iterations between checkpoints.
+	 *
+	 * @param iterationInterval The number of iterations, zero for no iteration interval.
+	 */
+	public void setIterationInterval(int iterationInterval) {
+		this.iterationInterval = iterationInterval;
+	}
+
+	/**
+	 * Set the time between checkpoints.
+	 *
+	 * @param timeInterval The milliseconds, zero for no time interval.
+	 */
+	public void setTimeInterval(long timeInterval) {
+		this.timeInterval = timeInterval;
+	}
+
+	/**
+	 * Set the number of checkpoint files to keep.
+	 *
+	 * @param keep The number of files, at least one.
+	 */
+	public void setKeep(int keep) {
+		this.keep = Math.max(1, keep);
+	}
+
+	/**
+	 * Returns the current iteration, counted from the resumed checkpoint if any.
+	 *
+	 * @return The iteration.
+	 */
+	public long getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * Called before the learning method starts the first iteration.
+	 */
+	@Override
+	public void initialize() {
+		lastTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Called before the iteration.
+	 */
+	@Override
+	public void beforeIteration() {
+	}
+
+	/**
+	 * Called after the iteration, takes a checkpoint if due.
+	 */
+	@Override
+	public void afterIteration() {
+		iteration++;
+		boolean due = false;
+		if (iterationInterval > 0 && iteration - lastIteration >= iterationInterval) {
+			due = true;
+		}
+		if (timeInterval > 0 && System.currentTimeMillis() - lastTime >= timeInterval) {
+			due = true;
+		}
+		if (due) {
+			checkpoint();
+		}
+	}
+
+	/**
+	 * Take a checkpoint now, copying the state into a free snapshot buffer and writing it asynchronously. Returns false
+	 * if both buffers are being written and the checkpoint has been skipped.
+	 *
+	 * @return A boolean that indicates if the checkpoint has been taken.
+	 */
+	public boolean checkpoint() {
+		Snapshot snapshot = snapshots[next];
+		if (snapshot.isBusy()) {
+			return false;
+		}
+		next = 1 - next;
+
+		// Copy the state, reusing the buffer vectors.
+		List<double[]> state = learningMethod.getState();
+		if (snapshot.vectors.size() != state.size()) {
+			snapshot.vectors.clear();
+			for (double[] vector : state) {
+				snapshot.vectors.add(new double[vector.length]);
+			}
+		}
+		for (int i = 0; i < state.size(); i++) {
+			double[] vector = state.get(i);
+			if (snapshot.vectors.get(i).length != vector.length) {
+				snapshot.vectors.set(i, new double[vector.length]);
+			}
+			System.arraycopy(vector, 0, snapshot.vectors.get(i), 0, vector.length);
+		}
+		snapshot.iteration = iteration;
+		lastIteration = iteration;
+		lastTime = System.currentTimeMillis();
+
+		// Write asynchronously.
+		long fileSequence = ++sequence;
+		snapshot.write = getWriter().submit(() -> write(snapshot, fileSequence));
+		return true;
+	}
+
+	/**
+	 * Wait for the pending writes and stop the background writer.
+	 */
+	public void close() {
+		if (writer != null) {
+			writer.shutdown();
+			try {
+				writer.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException exc) {
+				LOGGER.catching(exc);
+				Thread.currentThread().interrupt();
+			}
+			writer = null;
+		}
+	}
+
+	/**
+	 * Resume from the newest valid checkpoint, copying its vectors into the state of the learning method. Invalid or
+	 * incomplete checkpoints are ignored.
+	 *
+	 * @return The iteration of the restored checkpoint, or -1 if there was no valid checkpoint.
+	 */
+	public long resume() {
+		List<File> files = getFiles();
+		List<double[]> state = learningMethod.getState();
+		for (int i = files.size() - 1; i >= 0; i--) {
+			File file = files.get(i);
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				List<double[]> vectors = new ArrayList<>();
+				long fileIteration = read(channel, state, vectors);
+				if (fileIteration < 0) {
+					continue;
+				}
+				for (int j = 0; j < state.size(); j++) {
+					double[] vector = state.get(j);
+					System.arraycopy(vectors.get(j), 0, vector, 0, vector.length);
+				}
+				learningMethod.stateRestored();
+				iteration = fileIteration;
+				lastIteration = fileIteration;
+				return fileIteration;
+			} catch (IOException exc) {
+				LOGGER.catching(exc);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Read a checkpoint into copies of the state vectors, checking that it is complete, that it matches the state
+	 * vectors and that the trailing checksum is valid.
+	 *
+	 * @param channel The channel.
+	 * @param state The state vectors.
+	 * @param vectors The list to add the copies read.
+	 * @return The iteration of the checkpoint, or -1 if it is not valid.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private long read(FileChannel channel, List<double[]> state, List<double[]> vectors) throws IOException {
+		long size = 20 + 8;
+		for (double[] vector : state) {
+			size += 4 + vector.length * 8L;
+		}
+		if (channel.size() != size) {
+			return -1;
+		}
+		CRC32 crc = new CRC32();
+		ByteBuffer header = BinaryIO.allocate(20);
+		if (!BinaryIO.read(channel, header, crc) || header.getInt() != MAGIC || header.getInt() != VERSION) {
+			return -1;
+		}
+		long fileIteration = header.getLong();
+		if (header.getInt() != state.size()) {
+			return -1;
+		}
+		ByteBuffer length = BinaryIO.allocate(4);
+		for (double[] vector : state) {
+			if (!BinaryIO.read(channel, length, crc) || length.getInt() != vector.length) {
+				return -1;
+			}
+			double[] copy = new double[vector.length];
+			if (!BinaryIO.readDoubles(channel, copy, crc)) {
+				return -1;
+			}
+			vectors.add(copy);
+		}
+		ByteBuffer trailer = BinaryIO.allocate(8);
+		if (!BinaryIO.read(channel, trailer, null) || trailer.getLong() != crc.getValue()) {
+			return -1;
+		}
+		return fileIteration;
+	}
+
+	/**
+	 * Write the snapshot to a temporary file, move it to its final name and remove old checkpoints.
+	 *
+	 * @param snapshot The snapshot.
+	 * @param fileSequence The file sequence.
+	 */
+	private void write(Snapshot snapshot, long fileSequence) {
+		File file = getFile(fileSequence);
+		File temporary = new File(directory, file.getName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(
+				temporary.toPath(),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+
+				// Header and vectors, with the checksum updated as they are written.
+				CRC32 crc = new CRC32();
+				ByteBuffer header = BinaryIO.allocate(20);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.putLong(snapshot.iteration);
+				header.putInt(snapshot.vectors.size());
+				BinaryIO.write(channel, header, crc);
+				for (double[] vector : snapshot.vectors) {
+					ByteBuffer length = BinaryIO.allocate(4);
+					length.putInt(vector.length);
+					BinaryIO.write(channel, length, crc);
+					BinaryIO.writeDoubles(channel, vector, crc);
+				}
+
+				// Trailing checksum of the content.
+				ByteBuffer trailer = BinaryIO.allocate(8);
+				trailer.putLong(crc.getValue());
+				BinaryIO.write(channel, trailer);
+				channel.force(true);
+			}
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+			// Remove old checkpoints.
+			List<File> files = getFiles();
+			for (int i = 0; i < files.size() - keep; i++) {
+				Files.deleteIfExists(files.get(i).toPath());
+			}
+		} catch (IOException exc) {
+			LOGGER.catching(exc);
+		}
+	}
+
+	/**
+	 * Returns the background writer, creating it if necessary.
+	 *
+	 * @return The writer.
+	 */
+	private ExecutorService getWriter() {
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Checkpoint-" + name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return writer;
+	}
+
+	/**
+	 * Returns the checkpoint file of the sequence.
+	 *
+	 * @param fileSequence The sequence.
+	 * @return The file.
+	 */
+	private File getFile(long fileSequence) {
+		return new File(directory, String.format("%s-%010d%s", name, fileSequence, EXTENSION));
+	}
+
+	/**
+	 * Returns the sequence of a checkpoint file.
+	 *
+	 * @param file The file.
+	 * @return The sequence.
+	 */
+	private long getSequence(File file) {
+		String fileName = file.getName();
+		return Long.parseLong(fileName.substring(name.length() + 1, fileName.length() - EXTENSION.length()));
+	}
+
+	/**
+	 * Returns the checkpoint files, sorted from the oldest to the newest.
+	 *
+	 * @return The list of files.
+	 */
+	private List<File> getFiles() {
+		List<File> files = new ArrayList<>();
+		File[] all = directory.listFiles();
+		if (all != null) {
+			for (File file : all) {
+				String fileName = file.getName();
+				if (fileName.startsWith(name + "-") && fileName.endsWith(EXTENSION)) {
+					try {
+						getSequence(file);
+						files.add(file);
+					} catch (NumberFormatException exc) {
+						continue;
+					}
+				}
+			}
+		}
+		files.sort((f1, f2) -> Long.compare(getSequence(f1), getSequence(f2)));
+		return files;
+	}
+
+	/**
+	 * Returns a string representation.
+	 *
+	 * @return A string.
+	 */
+	@Override
+	public String toString() {
+		return name + " (" + iteration + ")";
+	}
+}
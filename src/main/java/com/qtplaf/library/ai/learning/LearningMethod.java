@@ -127,6 +127,22 @@ public abstract class LearningMethod {
 		afterIteration();
 	}
 
+	/**
+	 * Returns the live state vectors of the learning method that a <code>Checkpoint</code> saves and restores, like the
+	 * network weights and the optimizer state. By default there is no state.
+	 * 
+	 * @return The list of state vectors.
+	 */
+	public List<double[]> getState() {
+		return new ArrayList<>();
+	}
+
+	/**
+	 * Called after a <code>Checkpoint</code> has restored the state vectors. By default does nothing.
+	 */
+	public void stateRestored() {
+	}
+
 	/**
 	 * Perform one training iteration.
 	 */
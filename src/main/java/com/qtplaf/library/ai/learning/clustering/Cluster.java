@@ -113,6 +113,13 @@ public abstract class Cluster {
 		return patterns.size();
 	}
 
+	/**
+	 * Remove all the patterns.
+	 */
+	public void clearPatterns() {
+		patterns.clear();
+	}
+
 	/**
 	 * Check whether the cluster contains the pattern.
 	 * 
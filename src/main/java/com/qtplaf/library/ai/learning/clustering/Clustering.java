@@ -121,6 +121,15 @@ public abstract class Clustering extends LearningMethod {
 		return changes;
 	}
 
+	/**
+	 * Set the number of changes performed, for extenders that perform the iteration in their own way.
+	 * 
+	 * @param changes The number of changes.
+	 */
+	protected void setChanges(int changes) {
+		this.changes = changes;
+	}
+
 	/**
 	 * Called after an iteration ends, to allow any internal after iteration processing.
 	 */
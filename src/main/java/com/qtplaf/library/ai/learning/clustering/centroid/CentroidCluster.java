@@ -47,6 +47,24 @@ public class CentroidCluster extends Cluster {
 		this.distanceFunction = distanceFunction;
 	}
 
+	/**
+	 * Returns the centroid.
+	 * 
+	 * @return The centroid.
+	 */
+	public double[] getCentroid() {
+		return centroid;
+	}
+
+	/**
+	 * Set the centroid, when calculated externally.
+	 * 
+	 * @param centroid The centroid.
+	 */
+	public void setCentroid(double[] centroid) {
+		this.centroid = centroid;
+	}
+
 	/**
 	 * Calculate the centroid.
 	 */
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.clustering.centroid.kmeans;
+
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.qtplaf.library.util.NumberUtils;
+
+/**
+ * Lloyd KMeans accelerated with the Hamerly bounds. Each pattern keeps an upper bound of the distance to its assigned
+ * centroid and a lower bound of the distance to the second nearest, and each centroid half the distance to its nearest
+ * other centroid. When the triangle inequality proves that the assigned centroid is still the nearest, the distances
+ * of the pattern are not calculated. Bounds are relaxed by the centroid movements after each iteration.
+ * <p>
+ * Centroids are seeded with KMeans++, each new seed chosen with a probability proportional to the squared distance to
+ * the nearest seed already chosen. After each iteration a learning event reports the ratio of skipped distances.
+ *
+ * @author Miquel Sas
+ */
+public class HamerlyKMeansClustering extends LloydKMeansClustering {
+
+	/** Upper bounds of the distance of each pattern to its assigned centroid. */
+	private double[] upper;
+	/** Lower bounds of the distance of each pattern to its second nearest centroid. */
+	private double[] lower;
+	/** Half the distance of each centroid to its nearest other centroid. */
+	private double[] separations;
+	/** Number of distances calculated in the current iteration. */
+	private LongAdder calculated = new LongAdder();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param clusters The numbers of desired clusters.
+	 */
+	public HamerlyKMeansClustering(int clusters) {
+		super(clusters);
+	}
+
+	/**
+	 * Initialize the centroids with KMeans++ seeding, assigning each pattern to its nearest seed.
+	 */
+	@Override
+	protected void initializeCentroids() {
+		int patternCount = getPatternCount();
+		int clusterCount = getClusterCount();
+		int dimension = getDimension();
+		double[] data = getData();
+		double[] centroids = getCentroids();
+		int[] assignments = getAssignments();
+		Random random = getRandom();
+
+		upper = new double[patternCount];
+		lower = new double[patternCount];
+		separations = new double[clusterCount];
+		if (patternCount == 0) {
+			return;
+		}
+
+		// Squared distance of each pattern to its nearest seed.
+		double[] nearest = new double[patternCount];
+		int seed = random.nextInt(patternCount);
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			System.arraycopy(data, seed * dimension, centroids, cluster * dimension, dimension);
+			double total = 0;
+			for (int pattern = 0; pattern < patternCount; pattern++) {
+				double distance = distanceSquared(pattern, cluster);
+				if (cluster == 0 || distance < nearest[pattern]) {
+					nearest[pattern] = distance;
+					assignments[pattern] = cluster;
+				}
+				total += nearest[pattern];
+			}
+			if (cluster == clusterCount - 1) {
+				break;
+			}
+
+			// Next seed with probability proportional to the squared distance, uniform if all patterns coincide.
+			if (total == 0) {
+				seed = random.nextInt(patternCount);
+				continue;
+			}
+			double target = random.nextDouble() * total;
+			double accumulated = 0;
+			seed = patternCount - 1;
+			for (int pattern = 0; pattern < patternCount; pattern++) {
+				accumulated += nearest[pattern];
+				if (accumulated > target) {
+					seed = pattern;
+					break;
+				}
+			}
+		}
+
+		// Upper bounds are exact, lower bounds unknown.
+		for (int pattern = 0; pattern < patternCount; pattern++) {
+			upper[pattern] = Math.sqrt(nearest[pattern]);
+			lower[pattern] = 0;
+		}
+
+		// Move the seeds to the means of their patterns, relaxing the bounds, so the first iteration starts as Lloyd.
+		double[] sums = new double[clusterCount * dimension];
+		int[] counts = new int[clusterCount];
+		for (int pattern = 0; pattern < patternCount; pattern++) {
+			accumulate(pattern, assignments[pattern], sums, counts);
+		}
+		updateCentroids(sums, counts);
+	}
+
+	/**
+	 * Calculate the half distance of each centroid to its nearest other centroid.
+	 */
+	private void calculateSeparations() {
+		int clusterCount = getClusterCount();
+		int dimension = getDimension();
+		double[] centroids = getCentroids();
+		for (int i = 0; i < clusterCount; i++) {
+			separations[i] = NumberUtils.MAX_DOUBLE;
+		}
+		for (int i = 0; i < clusterCount; i++) {
+			for (int j = i + 1; j < clusterCount; j++) {
+				double distance = 0;
+				for (int d = 0; d < dimension; d++) {
+					double diff = centroids[i * dimension + d] - centroids[j * dimension + d];
+					distance += diff * diff;
+				}
+				distance = Math.sqrt(distance) / 2;
+				separations[i] = Math.min(separations[i], distance);
+				separations[j] = Math.min(separations[j], distance);
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the nearest cluster to the pattern, skipping the distance calculations when the bounds prove
+	 * that the assigned cluster is still the nearest.
+	 *
+	 * @param pattern The pattern index.
+	 * @return The cluster index.
+	 */
+	@Override
+	protected int assign(int pattern) {
+		int assigned = getAssignments()[pattern];
+		double bound = Math.max(separations[assigned], lower[pattern]);
+		if (upper[pattern] <= bound) {
+			return assigned;
+		}
+
+		// Tighten the upper bound and check again.
+		upper[pattern] = Math.sqrt(distanceSquared(pattern, assigned));
+		calculated.increment();
+		if (upper[pattern] <= bound) {
+			return assigned;
+		}
+
+		// Full search of the nearest and second nearest.
+		int clusterCount = getClusterCount();
+		int best = assigned;
+		double bestDistance = upper[pattern] * upper[pattern];
+		double secondDistance = NumberUtils.MAX_DOUBLE;
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			if (cluster == assigned) {
+				continue;
+			}
+			double distance = distanceSquared(pattern, cluster);
+			if (distance < bestDistance) {
+				secondDistance = bestDistance;
+				bestDistance = distance;
+				best = cluster;
+			} else if (distance < secondDistance) {
+				secondDistance = distance;
+			}
+		}
+		calculated.add(clusterCount - 1);
+		upper[pattern] = Math.sqrt(bestDistance);
+		lower[pattern] = Math.sqrt(secondDistance);
+		return best;
+	}
+
+	/**
+	 * Update the centroids and relax the bounds by the centroid movements.
+	 *
+	 * @param sums The sums by cluster and dimension.
+	 * @param counts The counts by cluster.
+	 */
+	@Override
+	protected void updateCentroids(double[] sums, int[] counts) {
+		int clusterCount = getClusterCount();
+		int dimension = getDimension();
+		double[] centroids = getCentroids();
+		double[] previous = centroids.clone();
+		super.updateCentroids(sums, counts);
+		if (upper == null) {
+			return;
+		}
+
+		// Centroid movements, the largest and the second largest.
+		double[] movements = new double[clusterCount];
+		int largest = 0;
+		double second = 0;
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			double distance = 0;
+			for (int d = 0; d < dimension; d++) {
+				double diff = centroids[cluster * dimension + d] - previous[cluster * dimension + d];
+				distance += diff * diff;
+			}
+			movements[cluster] = Math.sqrt(distance);
+			if (movements[cluster] > movements[largest]) {
+				second = movements[largest];
+				largest = cluster;
+			} else if (cluster != largest && movements[cluster] > second) {
+				second = movements[cluster];
+			}
+		}
+
+		// Relax the bounds.
+		int[] assignments = getAssignments();
+		for (int pattern = 0; pattern < getPatternCount(); pattern++) {
+			int assigned = assignments[pattern];
+			upper[pattern] += movements[assigned];
+			lower[pattern] -= (assigned == largest ? second : movements[largest]);
+		}
+		calculateSeparations();
+	}
+
+	/**
+	 * The centroid index is not built, the assignment relies on the bounds and never searches the index.
+	 */
+	@Override
+	protected void buildCentroidIndex() {
+	}
+
+	/**
+	 * Perform an iteration and report the ratio of skipped distances.
+	 */
+	@Override
+	public void performIteration() {
+		calculated.reset();
+		super.performIteration();
+		double total = (double) getPatternCount() * getClusterCount();
+		double skipped = (total == 0 ? 0 : 1.0 - calculated.sum() / total);
+		fireLearningEvent("Skipped distances " + NumberUtils.getBigDecimal(skipped * 100, 2) + "%");
+	}
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.clustering.centroid.kmeans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.qtplaf.library.ai.data.Pattern;
+import com.qtplaf.library.ai.data.PatternSource;
+import com.qtplaf.library.ai.function.centroid.BasicCentroid;
+import com.qtplaf.library.ai.function.distance.EuclideanDistance;
+import com.qtplaf.library.ai.learning.clustering.Cluster;
+import com.qtplaf.library.ai.learning.clustering.Clustering;
+import com.qtplaf.library.ai.learning.clustering.centroid.CentroidCluster;
+import com.qtplaf.library.ai.learning.clustering.index.KDTree;
+import com.qtplaf.library.ai.learning.clustering.index.NeighbourIndex;
+import com.qtplaf.library.ai.learning.clustering.index.VPTree;
+import com.qtplaf.library.util.task.Executor;
+
+/**
+ * KMeans clustering with the Lloyd algorithm over primitive arrays. Pattern inputs are held in a contiguous array,
+ * assignments in an array of cluster indexes, and each iteration assigns all the patterns to the nearest centroid in
+ * parallel chunks, each chunk accumulating partial sums from which the centroids are updated at the end of the
+ * iteration. The distance is the euclidean distance, and centroids the means of the cluster patterns. With many
+ * clusters the nearest centroid is searched with an index of the centroids, rebuilt when they are updated.
+ * <p>
+ * The pattern lists of the clusters are rebuilt after each iteration, so the results are read as with any other
+ * clustering.
+ *
+ * @author Miquel Sas
+ */
+public class LloydKMeansClustering extends Clustering {
+
+	/** Minimum number of clusters to search the nearest centroid with an index instead of scanning the centroids. */
+	private static final int INDEX_MINIMUM_CLUSTERS = 32;
+	/** Maximum dimension to index the centroids with a KD-tree, above it a VP-tree prunes better. */
+	private static final int KDTREE_MAXIMUM_DIMENSION = 16;
+
+	/**
+	 * Assign task over a chunk of patterns.
+	 */
+	class TaskAssign extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** Start pattern, inclusive. */
+		int start;
+		/** End pattern, exclusive. */
+		int end;
+		/** Partial sums by cluster and dimension. */
+		double[] sums;
+		/** Partial counts by cluster. */
+		int[] counts;
+		/** Number of changes in the chunk. */
+		int changes;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param start Start pattern, inclusive.
+		 * @param end End pattern, exclusive.
+		 */
+		TaskAssign(int start, int end) {
+			super();
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Compute the task.
+		 */
+		@Override
+		protected void compute() {
+			sums = new double[clusterCount * dimension];
+			counts = new int[clusterCount];
+			changes = 0;
+			for (int pattern = start; pattern < end; pattern++) {
+				int cluster = assign(pattern);
+				if (cluster != assignments[pattern]) {
+					assignments[pattern] = cluster;
+					changes++;
+				}
+				accumulate(pattern, cluster, sums, counts);
+			}
+		}
+	}
+
+	/** Number of clusters. */
+	private int clusterCount;
+	/** Dimension, the number of inputs of the patterns. */
+	private int dimension;
+	/** Number of patterns. */
+	private int patternCount;
+	/** The list of patterns. */
+	private List<Pattern> patterns;
+	/** Pattern inputs, pattern after pattern. */
+	private double[] data;
+	/** Cluster index assigned to each pattern. */
+	private int[] assignments;
+	/** Centroids, cluster after cluster. */
+	private double[] centroids;
+	/** Index of the centroids, null if there are not enough clusters. */
+	private NeighbourIndex centroidIndex;
+	/** Number of parallel chunks. */
+	private int chunks = Runtime.getRuntime().availableProcessors() * 4;
+	/** Random generator for the initial assignment. */
+	private Random random = new Random();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param clusters The numbers of desired clusters.
+	 */
+	public LloydKMeansClustering(int clusters) {
+		super();
+		this.clusterCount = clusters;
+		for (int i = 0; i < clusters; i++) {
+			addCluster(new CentroidCluster(new BasicCentroid(), new EuclideanDistance()));
+		}
+	}
+
+	/**
+	 * Set the number of parallel chunks of patterns of an iteration.
+	 *
+	 * @param chunks The number of chunks.
+	 */
+	public void setChunks(int chunks) {
+		this.chunks = Math.max(1, chunks);
+	}
+
+	/**
+	 * Set the random generator, for instance with a fixed seed to reproduce results.
+	 *
+	 * @param random The random generator.
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Returns the random generator.
+	 *
+	 * @return The random generator.
+	 */
+	protected Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Returns the dimension.
+	 *
+	 * @return The dimension.
+	 */
+	protected int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * Returns the number of patterns.
+	 *
+	 * @return The number of patterns.
+	 */
+	protected int getPatternCount() {
+		return patternCount;
+	}
+
+	/**
+	 * Returns the pattern inputs, pattern after pattern.
+	 *
+	 * @return The pattern inputs.
+	 */
+	protected double[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns the cluster index assigned to each pattern.
+	 *
+	 * @return The assignments.
+	 */
+	protected int[] getAssignments() {
+		return assignments;
+	}
+
+	/**
+	 * Returns the centroids, cluster after cluster.
+	 *
+	 * @return The centroids.
+	 */
+	protected double[] getCentroids() {
+		return centroids;
+	}
+
+	/**
+	 * Returns the cluster index assigned to the pattern.
+	 *
+	 * @param pattern The pattern index.
+	 * @return The cluster index.
+	 */
+	public int getAssignment(int pattern) {
+		return assignments[pattern];
+	}
+
+	/**
+	 * Initialize the clustering process, copying the pattern inputs and randomly distributing the patterns.
+	 *
+	 * @param source The list of patterns.
+	 */
+	@Override
+	public void initializeClustering(PatternSource source) {
+		patternCount = source.size();
+		patterns = new ArrayList<>(patternCount);
+		for (int i = 0; i < patternCount; i++) {
+			patterns.add(source.get(i));
+		}
+		dimension = (patternCount > 0 ? patterns.get(0).getInputs().length : 0);
+		data = new double[patternCount * dimension];
+		for (int i = 0; i < patternCount; i++) {
+			System.arraycopy(patterns.get(i).getInputs(), 0, data, i * dimension, dimension);
+		}
+		assignments = new int[patternCount];
+		centroids = new double[clusterCount * dimension];
+
+		fireLearningEvent("Initializing centroids");
+		initializeCentroids();
+		updateClusters();
+	}
+
+	/**
+	 * Initialize the centroids. By default, patterns are distributed randomly and evenly among the clusters, and the
+	 * centroids calculated.
+	 */
+	protected void initializeCentroids() {
+		int[] order = new int[patternCount];
+		for (int i = 0; i < patternCount; i++) {
+			order[i] = i;
+		}
+		for (int i = patternCount - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		double[] sums = new double[clusterCount * dimension];
+		int[] counts = new int[clusterCount];
+		for (int i = 0; i < patternCount; i++) {
+			int cluster = i % clusterCount;
+			assignments[order[i]] = cluster;
+			accumulate(order[i], cluster, sums, counts);
+		}
+		updateCentroids(sums, counts);
+	}
+
+	/**
+	 * Accumulate the pattern inputs in the sums of the cluster.
+	 *
+	 * @param pattern The pattern index.
+	 * @param cluster The cluster index.
+	 * @param sums The sums by cluster and dimension.
+	 * @param counts The counts by cluster.
+	 */
+	protected void accumulate(int pattern, int cluster, double[] sums, int[] counts) {
+		int p = pattern * dimension;
+		int c = cluster * dimension;
+		for (int d = 0; d < dimension; d++) {
+			sums[c + d] += data[p + d];
+		}
+		counts[cluster]++;
+	}
+
+	/**
+	 * Update the centroids with the sums and counts. Clusters that became empty keep their centroid.
+	 *
+	 * @param sums The sums by cluster and dimension.
+	 * @param counts The counts by cluster.
+	 */
+	protected void updateCentroids(double[] sums, int[] counts) {
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			if (counts[cluster] == 0) {
+				continue;
+			}
+			int c = cluster * dimension;
+			for (int d = 0; d < dimension; d++) {
+				centroids[c + d] = sums[c + d] / counts[cluster];
+			}
+		}
+	}
+
+	/**
+	 * Rebuild the pattern lists of the clusters from the assignments and set the centroids.
+	 */
+	protected void updateClusters() {
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			CentroidCluster centroidCluster = (CentroidCluster) getCluster(cluster);
+			centroidCluster.clearPatterns();
+			double[] centroid = new double[dimension];
+			System.arraycopy(centroids, cluster * dimension, centroid, 0, dimension);
+			centroidCluster.setCentroid(centroid);
+		}
+		for (int pattern = 0; pattern < patternCount; pattern++) {
+			getCluster(assignments[pattern]).addPattern(patterns.get(pattern));
+		}
+		buildCentroidIndex();
+	}
+
+	/**
+	 * Build the index of the updated centroids, if there are enough clusters for the index to be faster than a scan.
+	 */
+	protected void buildCentroidIndex() {
+		centroidIndex = null;
+		if (clusterCount >= INDEX_MINIMUM_CLUSTERS && dimension > 0) {
+			if (dimension <= KDTREE_MAXIMUM_DIMENSION) {
+				centroidIndex = new KDTree(centroids, dimension);
+			} else {
+				centroidIndex = new VPTree(centroids, dimension, new EuclideanDistance());
+			}
+		}
+	}
+
+	/**
+	 * Returns the squared euclidean distance between the pattern and the centroid.
+	 *
+	 * @param pattern The pattern index.
+	 * @param cluster The cluster index.
+	 * @return The squared distance.
+	 */
+	protected double distanceSquared(int pattern, int cluster) {
+		int p = pattern * dimension;
+		int c = cluster * dimension;
+		double distance = 0;
+		for (int d = 0; d < dimension; d++) {
+			double diff = data[p + d] - centroids[c + d];
+			distance += diff * diff;
+		}
+		return distance;
+	}
+
+	/**
+	 * Returns the index of the nearest cluster to the pattern.
+	 *
+	 * @param pattern The pattern index.
+	 * @return The cluster index.
+	 */
+	protected int assign(int pattern) {
+		if (centroidIndex != null) {
+			return centroidIndex.nearestIndex(data, pattern * dimension);
+		}
+		int best = 0;
+		double bestDistance = distanceSquared(pattern, 0);
+		for (int cluster = 1; cluster < clusterCount; cluster++) {
+			double distance = distanceSquared(pattern, cluster);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				best = cluster;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the best mathing cluster for the pattern, the one with the nearest centroid.
+	 *
+	 * @param pattern The pattern.
+	 * @return The best matching cluster.
+	 */
+	@Override
+	public Cluster getBestMatchingCluster(Pattern pattern) {
+		double[] inputs = pattern.getInputs();
+		if (centroidIndex != null) {
+			return getCluster(centroidIndex.nearestIndex(inputs, 0));
+		}
+		Cluster bestCluster = null;
+		double bestDistance = Double.MAX_VALUE;
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			int c = cluster * dimension;
+			double distance = 0;
+			for (int d = 0; d < dimension; d++) {
+				double diff = inputs[d] - centroids[c + d];
+				distance += diff * diff;
+			}
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				bestCluster = getCluster(cluster);
+			}
+		}
+		return bestCluster;
+	}
+
+	/**
+	 * Perform an iteration: assign in parallel chunks, reduce the partial sums and update the centroids and clusters.
+	 */
+	@Override
+	public void performIteration() {
+
+		// Call any before iteration processing.
+		beforeIteration();
+
+		// Assign in parallel chunks.
+		List<TaskAssign> tasks = new ArrayList<>();
+		int chunkSize = Math.max(1, (patternCount + chunks - 1) / chunks);
+		for (int start = 0; start < patternCount; start += chunkSize) {
+			tasks.add(new TaskAssign(start, Math.min(patternCount, start + chunkSize)));
+		}
+		ForkJoinPool.commonPool().invoke(new Executor(tasks));
+
+		// Reduce the partial sums.
+		double[] sums = new double[clusterCount * dimension];
+		int[] counts = new int[clusterCount];
+		int changes = 0;
+		for (TaskAssign task : tasks) {
+			for (int i = 0; i < sums.length; i++) {
+				sums[i] += task.sums[i];
+			}
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += task.counts[i];
+			}
+			changes += task.changes;
+		}
+		updateCentroids(sums, counts);
+		updateClusters();
+		setChanges(changes);
+
+		// Call any after iteration processing.
+		afterIteration();
+	}
+
+	/**
+	 * Initialize the iteration. The iteration is performed in parallel chunks.
+	 */
+	@Override
+	protected void initializeIteration() {
+	}
+
+	/**
+	 * Returns false, the iteration is performed in parallel chunks.
+	 *
+	 * @return A boolean.
+	 */
+	@Override
+	protected boolean hasMoreIterationPatterns() {
+		return false;
+	}
+
+	/**
+	 * Not used, the iteration is performed in parallel chunks.
+	 *
+	 * @return Null.
+	 */
+	@Override
+	protected Pattern nextIterationPattern() {
+		return null;
+	}
+}
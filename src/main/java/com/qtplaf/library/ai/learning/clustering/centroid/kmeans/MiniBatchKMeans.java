@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.clustering.centroid.kmeans;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mini-batch KMeans, to cluster sources that do not fit in memory. Batches of inputs are streamed through
+ * <code>update</code>, each batch is assigned to the nearest centroids and the centroids moved towards the assigned
+ * inputs with a per centroid learning rate, the inverse of the number of inputs it has received. Memory use is bound to
+ * the centroids, the batch being owned by the caller.
+ * <p>
+ * Centroids are initialized with distinct random inputs of the first batch, or explicitly with
+ * <code>initialize</code>, for instance to take the centroids a first pass starts from.
+ * <p>
+ * The rates decay across passes over the same source unless the counts are reset with <code>resetCounts</code> at the
+ * start of each pass. Resetting, each pass moves every centroid to the running mean of the inputs assigned to it along
+ * the pass, like a streamed Lloyd iteration, and the shift between passes measures convergence instead of the decay of
+ * the rates.
+ *
+ * @author Miquel Sas
+ */
+public class MiniBatchKMeans {
+
+	/** Number of clusters. */
+	private int clusterCount;
+	/** Dimension, the number of inputs. */
+	private int dimension;
+	/** Centroids, cluster after cluster. */
+	private double[] centroids;
+	/** Number of inputs received by each centroid. */
+	private long[] counts;
+	/** A boolean that indicates whether the centroids have been initialized. */
+	private boolean initialized = false;
+	/** Assignments of the current batch, reused between batches. */
+	private int[] assignments = new int[0];
+	/** Random generator. */
+	private Random random = new Random();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param clusters The number of clusters.
+	 * @param dimension The dimension or number of inputs.
+	 */
+	public MiniBatchKMeans(int clusters, int dimension) {
+		super();
+		this.clusterCount = clusters;
+		this.dimension = dimension;
+		this.centroids = new double[clusters * dimension];
+		this.counts = new long[clusters];
+	}
+
+	/**
+	 * Set the random generator, for instance with a fixed seed to reproduce results.
+	 *
+	 * @param random The random generator.
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Returns the number of clusters.
+	 *
+	 * @return The number of clusters.
+	 */
+	public int getClusterCount() {
+		return clusterCount;
+	}
+
+	/**
+	 * Returns the centroid of the cluster.
+	 *
+	 * @param cluster The cluster index.
+	 * @return A copy of the centroid.
+	 */
+	public double[] getCentroid(int cluster) {
+		double[] centroid = new double[dimension];
+		System.arraycopy(centroids, cluster * dimension, centroid, 0, dimension);
+		return centroid;
+	}
+
+	/**
+	 * Returns the number of inputs received by the cluster.
+	 *
+	 * @param cluster The cluster index.
+	 * @return The number of inputs.
+	 */
+	public long getCount(int cluster) {
+		return counts[cluster];
+	}
+
+	/**
+	 * Check whether the centroids have been initialized.
+	 *
+	 * @return A boolean.
+	 */
+	public boolean isInitialized() {
+		return initialized;
+	}
+
+	/**
+	 * Initialize the centroids with distinct random inputs of the batch.
+	 *
+	 * @param inputs The batch of inputs.
+	 * @param size The number of valid rows of the batch.
+	 */
+	public void initialize(double[][] inputs, int size) {
+		if (size < clusterCount) {
+			throw new IllegalArgumentException("The first batch must have at least one input per cluster");
+		}
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			int j = cluster + random.nextInt(size - cluster);
+			int tmp = order[cluster];
+			order[cluster] = order[j];
+			order[j] = tmp;
+			System.arraycopy(inputs[order[cluster]], 0, centroids, cluster * dimension, dimension);
+		}
+		initialized = true;
+	}
+
+	/**
+	 * Reset the number of inputs received by the centroids, to restart the learning rates at the start of a pass.
+	 */
+	public void resetCounts() {
+		Arrays.fill(counts, 0);
+	}
+
+	/**
+	 * Update the centroids with a batch of inputs.
+	 *
+	 * @param inputs The batch of inputs, one row per input.
+	 * @param size The number of valid rows of the batch.
+	 */
+	public void update(double[][] inputs, int size) {
+		if (size == 0) {
+			return;
+		}
+		if (!initialized) {
+			initialize(inputs, size);
+		}
+		if (assignments.length < size) {
+			assignments = new int[size];
+		}
+
+		// Assign against the centroids at the start of the batch.
+		for (int i = 0; i < size; i++) {
+			assignments[i] = assign(inputs[i]);
+		}
+
+		// Move the centroids with a learning rate that decreases with the inputs received.
+		for (int i = 0; i < size; i++) {
+			int cluster = assignments[i];
+			counts[cluster]++;
+			double rate = 1.0 / counts[cluster];
+			int c = cluster * dimension;
+			double[] input = inputs[i];
+			for (int d = 0; d < dimension; d++) {
+				centroids[c + d] += rate * (input[d] - centroids[c + d]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the nearest cluster to the inputs.
+	 *
+	 * @param inputs The inputs.
+	 * @return The cluster index.
+	 */
+	public int assign(double[] inputs) {
+		int best = 0;
+		double bestDistance = Double.MAX_VALUE;
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			int c = cluster * dimension;
+			double distance = 0;
+			for (int d = 0; d < dimension; d++) {
+				double diff = inputs[d] - centroids[c + d];
+				distance += diff * diff;
+			}
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				best = cluster;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the maximum euclidean distance between the current centroids and the argument ones, to check
+	 * convergence between passes.
+	 *
+	 * @param previous The previous centroids, as returned by <code>getCentroids()</code>.
+	 * @return The maximum centroid shift.
+	 */
+	public double getShift(double[] previous) {
+		double shift = 0;
+		for (int cluster = 0; cluster < clusterCount; cluster++) {
+			int c = cluster * dimension;
+			double distance = 0;
+			for (int d = 0; d < dimension; d++) {
+				double diff = centroids[c + d] - previous[c + d];
+				distance += diff * diff;
+			}
+			shift = Math.max(shift, Math.sqrt(distance));
+		}
+		return shift;
+	}
+
+	/**
+	 * Returns a copy of all the centroids, cluster after cluster.
+	 *
+	 * @return The centroids.
+	 */
+	public double[] getCentroids() {
+		return centroids.clone();
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.clustering.index;
+
+/**
+ * A KD-tree over Euclidean distances, for vectors of low dimension. Each node splits its range at the median of the
+ * dimension of maximum spread, and a query visits first the side of the query vector and then the other side only if
+ * the split plane is within the current bound. Ranges of up to <code>LEAF_SIZE</code> vectors are scanned.
+ * <p>
+ * With many dimensions most planes are within the bound and the search degrades to a scan, then a
+ * <code>VPTree</code> usually prunes better.
+ *
+ * @author Miquel Sas
+ */
+public class KDTree extends NeighbourIndex {
+
+	/** The split dimension of each node, by the median position of its range. */
+	private int[] splits;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param vectors The vectors, the rows of the matrix, all of the same length.
+	 */
+	public KDTree(double[][] vectors) {
+		super(vectors);
+		build();
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param data The vectors, flat and row major.
+	 * @param dimension The dimension, the length of the vectors.
+	 */
+	public KDTree(double[] data, int dimension) {
+		super(data, dimension);
+		build();
+	}
+
+	/**
+	 * Build the tree.
+	 */
+	private void build() {
+		splits = new int[order.length];
+		build(new double[order.length], 0, order.length);
+	}
+
+	/**
+	 * Build the tree of a range.
+	 *
+	 * @param keys Work area for the keys.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 */
+	private void build(double[] keys, int from, int to) {
+		if (to - from <= LEAF_SIZE) {
+			return;
+		}
+		int split = getSplitDimension(from, to);
+		for (int i = from; i < to; i++) {
+			keys[i] = data[order[i] * dimension + split];
+		}
+		int median = (from + to) >>> 1;
+		select(keys, from, to, median);
+		splits[median] = split;
+		build(keys, from, median);
+		build(keys, median + 1, to);
+	}
+
+	/**
+	 * Returns the dimension of maximum spread of a range.
+	 *
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @return The split dimension.
+	 */
+	private int getSplitDimension(int from, int to) {
+		int split = 0;
+		double maximumSpread = -1;
+		for (int d = 0; d < dimension; d++) {
+			double minimum = Double.POSITIVE_INFINITY;
+			double maximum = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				double value = data[order[i] * dimension + d];
+				minimum = Math.min(minimum, value);
+				maximum = Math.max(maximum, value);
+			}
+			if (maximum - minimum > maximumSpread) {
+				maximumSpread = maximum - minimum;
+				split = d;
+			}
+		}
+		return split;
+	}
+
+	/**
+	 * Search the range of the tree collecting the neighbours in the queue.
+	 *
+	 * @param query The query vector.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param queue The queue.
+	 */
+	@Override
+	void search(double[] query, int from, int to, NeighbourQueue queue) {
+		if (to - from <= LEAF_SIZE) {
+			scan(query, from, to, queue);
+			return;
+		}
+		int median = (from + to) >>> 1;
+		int index = order[median];
+		queue.add(index, distance(query, 0, index));
+
+		// Vectors before the median are LE in the split dimension, and after GE.
+		int split = splits[median];
+		double difference = query[split] - data[index * dimension + split];
+		if (difference < 0) {
+			search(query, from, median, queue);
+			if (-difference <= queue.getBound()) {
+				search(query, median + 1, to, queue);
+			}
+		} else {
+			search(query, median + 1, to, queue);
+			if (difference <= queue.getBound()) {
+				search(query, from, median, queue);
+			}
+		}
+	}
+
+	/**
+	 * Search the range of the tree for the nearest vector to the query, nearer than the current best. The far side is
+	 * visited when the split plane is within the bound inclusive, so equally distant vectors with lower indexes are not
+	 * missed.
+	 *
+	 * @param query The array that holds the query vector.
+	 * @param offset The offset of the query vector in the array.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param best The index of the current best, -1 if none.
+	 * @param bound The distance of the current best.
+	 * @return The index of the new best, or the current one.
+	 */
+	@Override
+	int nearestIndex(double[] query, int offset, int from, int to, int best, double bound) {
+		if (to - from <= LEAF_SIZE) {
+			return scan(query, offset, from, to, best, bound);
+		}
+		int median = (from + to) >>> 1;
+		int index = order[median];
+		double distance = distance(query, offset, index);
+		if (isNearer(distance, index, bound, best)) {
+			best = index;
+			bound = distance;
+		}
+
+		// Vectors before the median are LE in the split dimension, and after GE.
+		int split = splits[median];
+		double difference = query[offset + split] - data[index * dimension + split];
+		int nearest;
+		if (difference < 0) {
+			nearest = nearestIndex(query, offset, from, median, best, bound);
+		} else {
+			nearest = nearestIndex(query, offset, median + 1, to, best, bound);
+		}
+		if (nearest != best) {
+			best = nearest;
+			bound = distance(query, offset, best);
+		}
+		if (Math.abs(difference) <= bound) {
+			if (difference < 0) {
+				best = nearestIndex(query, offset, median + 1, to, best, bound);
+			} else {
+				best = nearestIndex(query, offset, from, median, best, bound);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the Euclidean distance of the query vector to a vector of the index.
+	 *
+	 * @param query The array that holds the query vector.
+	 * @param offset The offset of the query vector in the array.
+	 * @param index The index of the vector.
+	 * @return The distance.
+	 */
+	@Override
+	double distance(double[] query, int offset, int index) {
+		int position = index * dimension;
+		double distance = 0;
+		for (int i = 0; i < dimension; i++) {
+			double difference = query[offset + i] - data[position + i];
+			distance += difference * difference;
+		}
+		return Math.sqrt(distance);
+	}
+}
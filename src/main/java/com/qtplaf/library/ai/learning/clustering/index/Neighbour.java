@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.clustering.index;
+
+/**
+ * A neighbour found by a query of a <code>NeighbourIndex</code>, the index of the vector in the source matrix and its
+ * distance to the query vector. Neighbours are ordered by distance and then by index.
+ *
+ * @author Miquel Sas
+ */
+public class Neighbour implements Comparable<Neighbour> {
+
+	/** The index of the vector. */
+	private int index;
+	/** The distance to the query vector. */
+	private double distance;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param index The index of the vector.
+	 * @param distance The distance to the query vector.
+	 */
+	public Neighbour(int index, double distance) {
+		super();
+		this.index = index;
+		this.distance = distance;
+	}
+
+	/**
+	 * Returns the index of the vector in the source matrix.
+	 *
+	 * @return The index.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the distance to the query vector.
+	 *
+	 * @return The distance.
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Compare by distance and then by index.
+	 *
+	 * @param neighbour The neighbour to compare with.
+	 * @return The comparison result.
+	 */
+	@Override
+	public int compareTo(Neighbour neighbour) {
+		int compare = Double.compare(distance, neighbour.distance);
+		if (compare != 0) {
+			return compare;
+		}
+		return Integer.compare(index, neighbour.index);
+	}
+
+	/**
+	 * Returns a string representation.
+	 */
+	@Override
+	public String toString() {
+		return index + ", " + distance;
+	}
+}
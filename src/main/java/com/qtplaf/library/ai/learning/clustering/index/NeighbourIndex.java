@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.clustering.index;
+
+import java.util.List;
+
+/**
+ * A nearest neighbour index over the rows of a matrix, like the inputs of a list of patterns or the centroids of a
+ * list of clusters, to answer k-nearest and radius queries without comparing the query with every vector.
+ * <p>
+ * The index is built in bulk at construction, copying the matrix to a flat row major array and arranging the row
+ * indexes in a tree laid out in an array, each node being the median position of its range. Once built the index is
+ * not modified, and queries only use local state, so any number of threads can query it concurrently.
+ *
+ * @author Miquel Sas
+ */
+public abstract class NeighbourIndex {
+
+	/** Maximum size of a range scanned linearly instead of split. */
+	static final int LEAF_SIZE = 8;
+
+	/** The vectors, flat and row major. */
+	final double[] data;
+	/** The dimension, the length of the vectors. */
+	final int dimension;
+	/** The row indexes, arranged as a tree. */
+	final int[] order;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param vectors The vectors, the rows of the matrix, all of the same length.
+	 */
+	NeighbourIndex(double[][] vectors) {
+		super();
+		dimension = (vectors.length == 0 ? 0 : vectors[0].length);
+		data = new double[vectors.length * dimension];
+		for (int i = 0; i < vectors.length; i++) {
+			if (vectors[i].length != dimension) {
+				throw new IllegalArgumentException("Invalid vector length at row " + i);
+			}
+			System.arraycopy(vectors[i], 0, data, i * dimension, dimension);
+		}
+		order = new int[vectors.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param data The vectors, flat and row major.
+	 * @param dimension The dimension, the length of the vectors.
+	 */
+	NeighbourIndex(double[] data, int dimension) {
+		super();
+		if (dimension <= 0 || data.length % dimension != 0) {
+			throw new IllegalArgumentException("Invalid dimension " + dimension);
+		}
+		this.data = data.clone();
+		this.dimension = dimension;
+		order = new int[data.length / dimension];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+	}
+
+	/**
+	 * Returns the number of vectors.
+	 *
+	 * @return The number of vectors.
+	 */
+	public int size() {
+		return order.length;
+	}
+
+	/**
+	 * Returns the dimension, the length of the vectors.
+	 *
+	 * @return The dimension.
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * Returns a copy of a vector.
+	 *
+	 * @param index The index of the vector in the source matrix.
+	 * @return The vector.
+	 */
+	public double[] getVector(int index) {
+		double[] vector = new double[dimension];
+		System.arraycopy(data, index * dimension, vector, 0, dimension);
+		return vector;
+	}
+
+	/**
+	 * Returns the nearest neighbour of the query vector.
+	 *
+	 * @param query The query vector.
+	 * @return The nearest neighbour, null if the index is empty.
+	 */
+	public Neighbour nearest(double[] query) {
+		List<Neighbour> neighbours = nearest(query, 1);
+		return (neighbours.isEmpty() ? null : neighbours.get(0));
+	}
+
+	/**
+	 * Returns the index of the nearest vector to the query, that starts at the offset of an array like the flat inputs
+	 * of a list of patterns, without allocating. Of equally distant vectors the one with the lowest index is returned,
+	 * as a linear scan would do.
+	 *
+	 * @param query The array that holds the query vector.
+	 * @param offset The offset of the query vector in the array.
+	 * @return The index of the nearest vector, -1 if the index is empty.
+	 */
+	public int nearestIndex(double[] query, int offset) {
+		if (offset < 0 || offset + dimension > query.length) {
+			throw new IllegalArgumentException("Invalid query offset " + offset);
+		}
+		return nearestIndex(query, offset, 0, order.length, -1, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Returns the k nearest neighbours of the query vector.
+	 *
+	 * @param query The query vector.
+	 * @param k The number of neighbours.
+	 * @return The list of neighbours sorted by distance.
+	 */
+	public List<Neighbour> nearest(double[] query, int k) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("Invalid number of neighbours " + k);
+		}
+		return search(query, new NeighbourQueue(k, Double.POSITIVE_INFINITY));
+	}
+
+	/**
+	 * Returns the neighbours of the query vector within a radius, inclusive.
+	 *
+	 * @param query The query vector.
+	 * @param radius The radius.
+	 * @return The list of neighbours sorted by distance.
+	 */
+	public List<Neighbour> radius(double[] query, double radius) {
+		return search(query, new NeighbourQueue(Integer.MAX_VALUE, radius));
+	}
+
+	/**
+	 * Search the tree collecting the neighbours in the queue.
+	 *
+	 * @param query The query vector.
+	 * @param queue The queue.
+	 * @return The list of neighbours sorted by distance.
+	 */
+	private List<Neighbour> search(double[] query, NeighbourQueue queue) {
+		if (query.length != dimension) {
+			throw new IllegalArgumentException("Invalid query length " + query.length);
+		}
+		search(query, 0, order.length, queue);
+		return queue.getNeighbours();
+	}
+
+	/**
+	 * Search the range of the tree for the nearest vector to the query, nearer than the current best.
+	 *
+	 * @param query The array that holds the query vector.
+	 * @param offset The offset of the query vector in the array.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param best The index of the current best, -1 if none.
+	 * @param bound The distance of the current best.
+	 * @return The index of the new best, or the current one.
+	 */
+	abstract int nearestIndex(double[] query, int offset, int from, int to, int best, double bound);
+
+	/**
+	 * Search the range of the tree collecting the neighbours in the queue.
+	 *
+	 * @param query The query vector.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param queue The queue.
+	 */
+	abstract void search(double[] query, int from, int to, NeighbourQueue queue);
+
+	/**
+	 * Returns the distance of the query vector to a vector of the index.
+	 *
+	 * @param query The array that holds the query vector.
+	 * @param offset The offset of the query vector in the array.
+	 * @param index The index of the vector.
+	 * @return The distance.
+	 */
+	abstract double distance(double[] query, int offset, int index);
+
+	/**
+	 * Check whether a vector is nearer than the current best, or as near with a lower index.
+	 *
+	 * @param distance The distance of the vector.
+	 * @param index The index of the vector.
+	 * @param bound The distance of the current best.
+	 * @param best The index of the current best, -1 if none.
+	 * @return A boolean.
+	 */
+	static boolean isNearer(double distance, int index, double bound, int best) {
+		return distance < bound || (distance == bound && index < best);
+	}
+
+	/**
+	 * Offer all the vectors of a range to the queue.
+	 *
+	 * @param query The query vector.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param queue The queue.
+	 */
+	void scan(double[] query, int from, int to, NeighbourQueue queue) {
+		for (int i = from; i < to; i++) {
+			queue.add(order[i], distance(query, 0, order[i]));
+		}
+	}
+
+	/**
+	 * Scan all the vectors of a range for the nearest to the query, nearer than the current best.
+	 *
+	 * @param query The array that holds the query vector.
+	 * @param offset The offset of the query vector in the array.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param best The index of the current best, -1 if none.
+	 * @param bound The distance of the current best.
+	 * @return The index of the new best, or the current one.
+	 */
+	int scan(double[] query, int offset, int from, int to, int best, double bound) {
+		for (int i = from; i < to; i++) {
+			int index = order[i];
+			double distance = distance(query, offset, index);
+			if (isNearer(distance, index, bound, best)) {
+				best = index;
+				bound = distance;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Partially sort a range of the order by the keys, that are at the same positions, so the key at the position k
+	 * is the one of a full sort, those before are less or equal and those after greater or equal.
+	 *
+	 * @param keys The keys, by position.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param k The position to select.
+	 */
+	void select(double[] keys, int from, int to, int k) {
+		int left = from;
+		int right = to - 1;
+		while (left < right) {
+			double pivot = keys[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(keys, i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Swap two positions of the order and the keys.
+	 *
+	 * @param keys The keys.
+	 * @param i Position i.
+	 * @param j Position j.
+	 */
+	void swap(double[] keys, int i, int j) {
+		double key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		int index = order[i];
+		order[i] = order[j];
+		order[j] = index;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.clustering.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The neighbours collected by a query, at most a capacity within a radius, kept in a heap with the farthest on top so
+ * the bound to prune the search is the distance of the farthest when the queue is full.
+ *
+ * @author Miquel Sas
+ */
+class NeighbourQueue {
+
+	/** The maximum number of neighbours. */
+	private int capacity;
+	/** The maximum distance of the neighbours, inclusive. */
+	private double radius;
+	/** The heap, farthest first. */
+	private PriorityQueue<Neighbour> heap = new PriorityQueue<>(Collections.reverseOrder());
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity The maximum number of neighbours.
+	 * @param radius The maximum distance of the neighbours, inclusive.
+	 */
+	NeighbourQueue(int capacity, double radius) {
+		super();
+		this.capacity = capacity;
+		this.radius = radius;
+	}
+
+	/**
+	 * Returns the bound, the maximum distance a vector can have to enter the queue.
+	 *
+	 * @return The bound.
+	 */
+	double getBound() {
+		if (heap.size() < capacity) {
+			return radius;
+		}
+		return Math.min(radius, heap.peek().getDistance());
+	}
+
+	/**
+	 * Offer a vector to the queue.
+	 *
+	 * @param index The index of the vector.
+	 * @param distance The distance to the query vector.
+	 */
+	void add(int index, double distance) {
+		if (distance > radius) {
+			return;
+		}
+		if (heap.size() == capacity) {
+			if (distance >= heap.peek().getDistance()) {
+				return;
+			}
+			heap.poll();
+		}
+		heap.add(new Neighbour(index, distance));
+	}
+
+	/**
+	 * Returns the list of neighbours sorted by distance.
+	 *
+	 * @return The list of neighbours.
+	 */
+	List<Neighbour> getNeighbours() {
+		List<Neighbour> neighbours = new ArrayList<>(heap);
+		Collections.sort(neighbours);
+		return neighbours;
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.clustering.index;
+
+import java.util.Random;
+
+import com.qtplaf.library.ai.function.Distance;
+
+/**
+ * A vantage point tree, for any <code>Distance</code> that is a metric, that is, that satisfies the triangle
+ * inequality. Each node takes a random vantage point of its range and splits the rest at the median distance to it,
+ * the inside with distances LE the median and the outside with distances GE. A query visits first the side of the
+ * query vector and then the other side only if the median is within the current bound of the distance of the query to
+ * the vantage point. Ranges of up to <code>LEAF_SIZE</code> vectors are scanned.
+ * <p>
+ * The distance is called concurrently by queries from different threads, so it must not keep state, and it is called
+ * with offsets into the flat array of vectors, so it should override the offset version of <code>calculate</code> to
+ * avoid copying the vectors.
+ *
+ * @author Miquel Sas
+ */
+public class VPTree extends NeighbourIndex {
+
+	/** The distance. */
+	private Distance distance;
+	/** The median distance of each node, by the position of its vantage point. */
+	private double[] thresholds;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param vectors The vectors, the rows of the matrix, all of the same length.
+	 * @param distance The distance.
+	 */
+	public VPTree(double[][] vectors, Distance distance) {
+		super(vectors);
+		this.distance = distance;
+		build();
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param data The vectors, flat and row major.
+	 * @param dimension The dimension, the length of the vectors.
+	 * @param distance The distance.
+	 */
+	public VPTree(double[] data, int dimension, Distance distance) {
+		super(data, dimension);
+		this.distance = distance;
+		build();
+	}
+
+	/**
+	 * Returns the distance.
+	 *
+	 * @return The distance.
+	 */
+	public Distance getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Build the tree, with a fixed seed so the same vectors always build the same tree.
+	 */
+	private void build() {
+		thresholds = new double[order.length];
+		build(new double[order.length], 0, order.length, new Random(0));
+	}
+
+	/**
+	 * Build the tree of a range.
+	 *
+	 * @param keys Work area for the keys.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param random The random generator to choose vantage points.
+	 */
+	private void build(double[] keys, int from, int to, Random random) {
+		if (to - from <= LEAF_SIZE) {
+			return;
+		}
+		swap(keys, from, from + random.nextInt(to - from));
+		int vantage = order[from] * dimension;
+		for (int i = from + 1; i < to; i++) {
+			keys[i] = distance.calculate(data, vantage, data, order[i] * dimension, dimension);
+		}
+		int median = (from + 1 + to) >>> 1;
+		select(keys, from + 1, to, median);
+		thresholds[from] = keys[median];
+		build(keys, from + 1, median + 1, random);
+		build(keys, median + 1, to, random);
+	}
+
+	/**
+	 * Search the range of the tree collecting the neighbours in the queue.
+	 *
+	 * @param query The query vector.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param queue The queue.
+	 */
+	@Override
+	void search(double[] query, int from, int to, NeighbourQueue queue) {
+		if (to - from <= LEAF_SIZE) {
+			scan(query, from, to, queue);
+			return;
+		}
+		int vantage = order[from];
+		double d = distance(query, 0, vantage);
+		queue.add(vantage, d);
+
+		// The inside is the range up to the median position, the outside the rest.
+		double threshold = thresholds[from];
+		int median = (from + 1 + to) >>> 1;
+		if (d < threshold) {
+			search(query, from + 1, median + 1, queue);
+			if (d + queue.getBound() >= threshold) {
+				search(query, median + 1, to, queue);
+			}
+		} else {
+			search(query, median + 1, to, queue);
+			if (d - queue.getBound() <= threshold) {
+				search(query, from + 1, median + 1, queue);
+			}
+		}
+	}
+
+	/**
+	 * Search the range of the tree for the nearest vector to the query, nearer than the current best. The other side
+	 * is visited when the median is within the bound inclusive, so equally distant vectors with lower indexes are not
+	 * missed.
+	 *
+	 * @param query The array that holds the query vector.
+	 * @param offset The offset of the query vector in the array.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, exclusive.
+	 * @param best The index of the current best, -1 if none.
+	 * @param bound The distance of the current best.
+	 * @return The index of the new best, or the current one.
+	 */
+	@Override
+	int nearestIndex(double[] query, int offset, int from, int to, int best, double bound) {
+		if (to - from <= LEAF_SIZE) {
+			return scan(query, offset, from, to, best, bound);
+		}
+		int vantage = order[from];
+		double d = distance(query, offset, vantage);
+		if (isNearer(d, vantage, bound, best)) {
+			best = vantage;
+			bound = d;
+		}
+
+		// The inside is the range up to the median position, the outside the rest.
+		double threshold = thresholds[from];
+		int median = (from + 1 + to) >>> 1;
+		int nearest;
+		if (d < threshold) {
+			nearest = nearestIndex(query, offset, from + 1, median + 1, best, bound);
+		} else {
+			nearest = nearestIndex(query, offset, median + 1, to, best, bound);
+		}
+		if (nearest != best) {
+			best = nearest;
+			bound = distance(query, offset, best);
+		}
+		if (d < threshold) {
+			if (d + bound >= threshold) {
+				best = nearestIndex(query, offset, median + 1, to, best, bound);
+			}
+		} else {
+			if (d - bound <= threshold) {
+				best = nearestIndex(query, offset, from + 1, median + 1, best, bound);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the distance of the query vector to a vector of the index.
+	 *
+	 * @param query The array that holds the query vector.
+	 * @param offset The offset of the query vector in the array.
+	 * @param index The index of the vector.
+	 * @return The distance.
+	 */
+	@Override
+	double distance(double[] query, int offset, int index) {
+		return distance.calculate(query, offset, data, index * dimension, dimension);
+	}
+}
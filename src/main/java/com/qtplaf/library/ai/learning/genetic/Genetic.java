@@ -15,13 +15,24 @@
 package com.qtplaf.library.ai.learning.genetic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.qtplaf.library.ai.learning.LearningMethod;
 import com.qtplaf.library.ai.neural.Network;
 import com.qtplaf.library.ai.neural.NetworkUtils;
+import com.qtplaf.library.util.NumberUtils;
 import com.qtplaf.library.util.list.ListUtils;
 import com.qtplaf.library.util.task.Executor;
 
@@ -63,22 +74,86 @@ public class Genetic extends LearningMethod {
 		protected void compute() {
 			List<Genome> sample = selector.select(genomes);
 			selected = chooser.choose(sample);
-			mutated = mutator.mutate(selected);
-			mutated.setScore(scoreFunction.calculate(mutated));
+			mutated = offspring(selected);
+			mutator.mutate(mutated);
+			mutated.parametersChanged();
+			score(mutated);
 
+			// Offsprings discarded while propagating are recycled, the selected genome of the population is not.
 			boolean minimize = scoreFunction.isMinimize();
+			boolean selectedOffspring = false;
 			while (ScoreUtils.compare(selected.getScore(), mutated.getScore(), minimize) > 0) {
 				Genome tmp = propagateMutation(selected, mutated);
-				tmp.setScore(scoreFunction.calculate(tmp));
+				score(tmp);
 				if (ScoreUtils.compare(mutated.getScore(), tmp.getScore(), minimize) > 0) {
+					if (selectedOffspring) {
+						recycle(selected);
+					}
 					selected = mutated;
+					selectedOffspring = true;
 					mutated = tmp;
 				} else {
+					recycle(tmp);
 					break;
 				}
 			}
+			if (selectedOffspring) {
+				recycle(selected);
+			}
+		}
+
+	}
+
+	/**
+	 * Score task.
+	 */
+	class TaskScore extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The genome to score. */
+		Genome genome;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param genome The genome to score.
+		 */
+		TaskScore(Genome genome) {
+			super();
+			this.genome = genome;
 		}
 
+		/**
+		 * Compute the task
+		 */
+		@Override
+		protected void compute() {
+			score(genome);
+		}
+	}
+
+	/**
+	 * Memoized score, with a copy of the parameters to discard hash collisions.
+	 */
+	static class ScoreEntry {
+
+		/** The copy of the parameters scored. */
+		double[] parameters;
+		/** The score. */
+		double score;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param parameters The parameters, copied.
+		 * @param score The score.
+		 */
+		ScoreEntry(double[] parameters, double score) {
+			super();
+			this.parameters = parameters.clone();
+			this.score = score;
+		}
 	}
 
 	/** List of choosers. */
@@ -98,6 +173,19 @@ public class Genetic extends LearningMethod {
 
 	/** Score function. */
 	private Score scoreFunction;
+	/** Pool of parameter vectors of discarded genomes, recycled for new offsprings. */
+	private Deque<double[]> parametersPool = new ConcurrentLinkedDeque<>();
+
+	/** Memoized scores by parameter hash, of the genomes of the current population and generation. */
+	private Map<Long, ScoreEntry> scoreCache = new ConcurrentHashMap<>();
+	/** Number of scores calculated in the current generation. */
+	private LongAdder scoreCount = new LongAdder();
+	/** Number of scores found valid in the genome, not calculated, in the current generation. */
+	private LongAdder scoreHits = new LongAdder();
+	/** Cumulated nanoseconds calculating scores in the current generation, of all the threads. */
+	private LongAdder scoreNanos = new LongAdder();
+	/** Elapsed nanoseconds of the last generation. */
+	private long generationNanos;
 
 	/**
 	 * Constructor.
@@ -134,7 +222,8 @@ public class Genetic extends LearningMethod {
 	}
 
 	/**
-	 * Initialize with a list of known (perhaps randomized) networks.
+	 * Initialize with a list of known (perhaps randomized) networks. The genomes become owned by the learning method:
+	 * the parameter vectors, the weights of their networks, are recycled when they do not survive a generation.
 	 * 
 	 * @param initialGenomes The list of initial networks.
 	 */
@@ -144,15 +233,103 @@ public class Genetic extends LearningMethod {
 	}
 
 	/**
-	 * Re-score the networks and sort.
+	 * Re-score the networks in parallel and sort, for instance because the score function has changed.
 	 */
 	public void scoreNetworks() {
-		for (Genome network : genomes) {
-			network.setScore(scoreFunction.calculate(network));
+		scoreCache.clear();
+		for (Genome genome : genomes) {
+			genome.invalidateScore();
 		}
+		scoreGenomes(genomes);
 		genomes.sort(new ScoreUtils.Comparator(scoreFunction.isMinimize()));
 	}
 
+	/**
+	 * Score the list of genomes in parallel. Genomes with a valid score are not scored again.
+	 * 
+	 * @param genomesToScore The list of genomes to score.
+	 */
+	private void scoreGenomes(List<Genome> genomesToScore) {
+		List<TaskScore> tasks = new ArrayList<>();
+		for (Genome genome : genomesToScore) {
+			tasks.add(new TaskScore(genome));
+		}
+		ForkJoinPool.commonPool().invoke(new Executor(tasks));
+	}
+
+	/**
+	 * Score the genome unless its score is still valid or a genome with the same parameters has already been scored,
+	 * registering the statistics.
+	 * 
+	 * @param genome The genome to score.
+	 */
+	private void score(Genome genome) {
+		if (genome.isScoreValid()) {
+			scoreHits.increment();
+			return;
+		}
+		long hash = genome.getParameterHash();
+		ScoreEntry cached = scoreCache.get(hash);
+		if (cached != null && Arrays.equals(cached.parameters, genome.getParameters())) {
+			genome.setScore(cached.score);
+			scoreHits.increment();
+			return;
+		}
+		long time = System.nanoTime();
+		double score = scoreFunction.calculate(genome);
+		genome.setScore(score);
+		scoreCache.put(hash, new ScoreEntry(genome.getParameters(), score));
+		scoreNanos.add(System.nanoTime() - time);
+		scoreCount.increment();
+	}
+
+	/**
+	 * Retain in the score cache only the scores of the current population.
+	 */
+	private void retainScores() {
+		Set<Long> hashes = new HashSet<>();
+		for (Genome genome : genomes) {
+			hashes.add(genome.getParameterHash());
+		}
+		scoreCache.keySet().retainAll(hashes);
+	}
+
+	/**
+	 * Returns the number of scores calculated in the last generation.
+	 * 
+	 * @return The number of scores calculated.
+	 */
+	public long getScoreCount() {
+		return scoreCount.sum();
+	}
+
+	/**
+	 * Returns the number of scores not calculated because they were still valid in the last generation.
+	 * 
+	 * @return The number of memoized scores used.
+	 */
+	public long getScoreHits() {
+		return scoreHits.sum();
+	}
+
+	/**
+	 * Returns the milliseconds spent calculating scores in the last generation, cumulated for all the threads.
+	 * 
+	 * @return The milliseconds.
+	 */
+	public double getScoreTime() {
+		return scoreNanos.sum() / 1000000.0;
+	}
+
+	/**
+	 * Returns the elapsed milliseconds of the last generation.
+	 * 
+	 * @return The milliseconds.
+	 */
+	public double getGenerationTime() {
+		return generationNanos / 1000000.0;
+	}
+
 	/**
 	 * Set the score function.
 	 * 
@@ -189,30 +366,44 @@ public class Genetic extends LearningMethod {
 	 */
 	private Genome propagateMutation(Genome selected, Genome mutated) {
 
-		Genome result = new Genome(mutated.getNetwork().clone());
+		Genome result = offspring(mutated);
 
-		// Subsequent layers.
-		for (int layer = 1; layer < result.getNetwork().getLayers(); layer++) {
+		// Weights, all the networks share the same layout.
+		double[] sweights = selected.getParameters();
+		double[] mweights = mutated.getParameters();
+		double[] rweights = result.getParameters();
 
-			// Weights.
-			double[][] sweights = selected.getNetwork().getWeights(layer);
-			double[][] mweights = mutated.getNetwork().getWeights(layer);
-			double[][] rweights = result.getNetwork().getWeights(layer);
+		for (int index = 0; index < rweights.length; index++) {
+			double delta = mutationFactor * (mweights[index] - sweights[index]);
+			rweights[index] += delta;
+		}
+		result.parametersChanged();
 
-			// Rows (neurons layer out)
-			int rows = result.getNetwork().getNeurons(layer);
-			// Columns (neurons layer in)
-			int cols = result.getNetwork().getNeurons(layer - 1);
+		return result;
+	}
 
-			for (int row = 0; row < rows; row++) {
-				for (int col = 0; col < cols; col++) {
-					double delta = mutationFactor * (mweights[row][col] - sweights[row][col]);
-					rweights[row][col] += delta;
-				}
-			}
+	/**
+	 * Create an offspring of the parent, a copy of its parameters in a recycled vector if available.
+	 * 
+	 * @param parent The parent genome.
+	 * @return The offspring.
+	 */
+	private Genome offspring(Genome parent) {
+		int length = parent.getParameters().length;
+		double[] parameters = parametersPool.poll();
+		if (parameters == null || parameters.length != length) {
+			parameters = new double[length];
 		}
+		return new Genome(parent, parameters);
+	}
 
-		return result;
+	/**
+	 * Recycle the parameter vector of a discarded genome, that must not be used any more.
+	 * 
+	 * @param genome The discarded genome.
+	 */
+	private void recycle(Genome genome) {
+		parametersPool.push(genome.getParameters());
 	}
 
 	/**
@@ -234,14 +425,15 @@ public class Genetic extends LearningMethod {
 	}
 
 	/**
-	 * Return the list of networks.
+	 * Return the list of networks, copies because the parameter vectors of the genomes are recycled in subsequent
+	 * generations.
 	 * 
 	 * @return The list of networks.
 	 */
 	public List<Network> getNetworks() {
 		List<Network> networks = new ArrayList<>();
 		for (Genome genome : genomes) {
-			networks.add(genome.getNetwork());
+			networks.add(genome.getNetwork().clone());
 		}
 		return networks;
 	}
@@ -253,6 +445,12 @@ public class Genetic extends LearningMethod {
 	@Override
 	protected void performIteration() {
 
+		// Reset statistics.
+		long time = System.nanoTime();
+		scoreCount.reset();
+		scoreHits.reset();
+		scoreNanos.reset();
+
 		// Create the list of tasks. All tasks will use the same configuration in this iteration.
 		List<RecursiveAction> tasks = new ArrayList<>();
 		for (int i = 0; i < genomes.size(); i++) {
@@ -287,12 +485,44 @@ public class Genetic extends LearningMethod {
 
 		int countRandomize = (int) (generation.size() * randomizeFactor);
 		int index = generation.size() - 1;
+		List<Genome> randomized = new ArrayList<>();
 		while (countRandomize-- > 0) {
-			NetworkUtils.randomizeWeights(generation.get(index--).getNetwork());
+			Genome genome = generation.get(index--);
+			NetworkUtils.randomizeWeights(genome.getNetwork());
+			genome.parametersChanged();
+			randomized.add(genome);
+		}
+		if (!randomized.isEmpty()) {
+			scoreGenomes(randomized);
+			generation.sort(new ScoreUtils.Comparator(scoreFunction.isMinimize()));
+		}
+
+		// Recycle the genomes that do not survive.
+		Set<Genome> survivors = Collections.newSetFromMap(new IdentityHashMap<>());
+		survivors.addAll(generation);
+		for (Genome genome : genomes) {
+			if (!survivors.contains(genome)) {
+				recycle(genome);
+			}
+		}
+		for (Genome genome : mutated) {
+			if (!survivors.contains(genome)) {
+				recycle(genome);
+			}
 		}
 
 		// Accept the new generation.
 		genomes = generation;
+		retainScores();
+
+		// Statistics.
+		generationNanos = System.nanoTime() - time;
+		StringBuilder b = new StringBuilder();
+		b.append("Scored " + getScoreCount());
+		b.append(", memoized " + getScoreHits());
+		b.append(", scoring " + NumberUtils.getBigDecimal(getScoreTime(), 1) + " ms");
+		b.append(", generation " + NumberUtils.getBigDecimal(getGenerationTime(), 1) + " ms");
+		fireLearningEvent(b.toString());
 	}
 
 }
@@ -17,16 +17,27 @@ package com.qtplaf.library.ai.learning.genetic;
 import com.qtplaf.library.ai.neural.Network;
 
 /**
- * A genome, a network with a score.
+ * A genome, a flat parameter vector (the weights) with a score. The network of the genome is a view over the parameter
+ * vector that shares the structure of the network of its ancestor, so creating an offspring only requires a parameter
+ * vector, that can be recycled. The score and the hash of the parameters are kept until the parameters are changed, and
+ * whoever changes the parameter vector must notify it calling <i>parametersChanged</i>.
  *
  * @author Miquel Sas
  */
 public class Genome {
 
-	/** The network. */
+	/** The parameter vector. */
+	private final double[] parameters;
+	/** The network, a view over the parameter vector. */
 	private final Network network;
 	/** The score . */
 	private double score;
+	/** A boolean that indicates whether the score has been set. */
+	private boolean scored = false;
+	/** Cached hash of the parameters. */
+	private long parameterHash;
+	/** A boolean that indicates whether the cached hash of the parameters is valid. */
+	private volatile boolean hashed = false;
 
 	/**
 	 * Constructor.
@@ -36,10 +47,33 @@ public class Genome {
 	public Genome(Network network) {
 		super();
 		this.network = network;
+		this.parameters = network.getWeights();
 	}
 
 	/**
-	 * Return the network.
+	 * Constructor of an offspring, copying the parameters of the parent into the argument vector.
+	 * 
+	 * @param parent The parent genome.
+	 * @param parameters The vector that will hold the parameters, usually recycled.
+	 */
+	Genome(Genome parent, double[] parameters) {
+		super();
+		System.arraycopy(parent.parameters, 0, parameters, 0, parameters.length);
+		this.parameters = parameters;
+		this.network = parent.network.view(parameters);
+	}
+
+	/**
+	 * Return the parameter vector, the weights of the network.
+	 * 
+	 * @return The parameter vector.
+	 */
+	public double[] getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Return the network, a view over the parameter vector.
 	 * 
 	 * @return The network.
 	 */
@@ -63,6 +97,50 @@ public class Genome {
 	 */
 	public void setScore(double score) {
 		this.score = score;
+		this.scored = true;
+	}
+
+	/**
+	 * Check whether the score has been set and the parameters have not changed since then.
+	 * 
+	 * @return A boolean.
+	 */
+	public boolean isScoreValid() {
+		return scored;
+	}
+
+	/**
+	 * Invalidate the score, for instance because the score function has changed.
+	 */
+	public void invalidateScore() {
+		scored = false;
+	}
+
+	/**
+	 * Notify that the parameter vector has been changed, invalidating the score and the cached hash.
+	 */
+	public void parametersChanged() {
+		scored = false;
+		hashed = false;
+	}
+
+	/**
+	 * Returns a 64 bits hash of the parameter vector (weights) of the network, calculated once until the parameters
+	 * change.
+	 * 
+	 * @return The hash.
+	 */
+	public long getParameterHash() {
+		if (!hashed) {
+			long hash = 1125899906842597L;
+			for (int i = 0; i < parameters.length; i++) {
+				hash = 31 * hash + Double.doubleToLongBits(parameters[i]);
+				hash ^= (hash >>> 29);
+			}
+			parameterHash = hash;
+			hashed = true;
+		}
+		return parameterHash;
 	}
 
 }
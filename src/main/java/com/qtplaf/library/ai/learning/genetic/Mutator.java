@@ -15,17 +15,16 @@
 package com.qtplaf.library.ai.learning.genetic;
 
 /**
- * Mutate a network, weights, biases and perhaps activations.
+ * Mutate the parameters of a genome in place.
  *
  * @author Miquel Sas
  */
 public interface Mutator {
 
 	/**
-	 * Mutate the argument network.
+	 * Mutate in place the parameters of the argument genome, an offspring owned by the caller.
 	 * 
-	 * @param genome The network to mutate.
-	 * @return The mutated network.
+	 * @param genome The genome to mutate.
 	 */
-	Genome mutate(Genome genome);
+	void mutate(Genome genome);
 }
@@ -14,9 +14,9 @@
 
 package com.qtplaf.library.ai.learning.genetic.mutators;
 
-import com.qtplaf.library.ai.function.normalize.StdNormalizer;
 import com.qtplaf.library.ai.learning.genetic.Genome;
 import com.qtplaf.library.ai.learning.genetic.Mutator;
+import com.qtplaf.library.ai.neural.Network;
 import com.qtplaf.library.util.Random;
 
 /**
@@ -44,50 +44,39 @@ public class PerturbMutator implements Mutator {
 	}
 
 	/**
-	 * Mutate the argument genome.
+	 * Mutate in place the argument genome.
 	 * 
 	 * @param genome The genome to mutate.
-	 * @return The mutated network.
 	 */
 	@Override
-	public Genome mutate(Genome genome) {
+	public void mutate(Genome genome) {
 
-		// Clone the genome.
-		Genome mutated = new Genome(genome.getNetwork().clone());
-		
-		// Use a normalizer to calculate the delta to apply.
-		StdNormalizer normalizer = new StdNormalizer();
-		normalizer.setDataHigh(1.0);
-		normalizer.setDataLow(0.0);
+		Network network = genome.getNetwork();
+		double[] weights = genome.getParameters();
 
 		// Subsequent layers.
-		for (int layer = 1; layer < mutated.getNetwork().getLayers(); layer++) {
-			
-			// Weights.
-			double[][] weights = mutated.getNetwork().getWeights(layer);
+		for (int layer = 1; layer < network.getLayers(); layer++) {
+
+			// Offset of the layer weights.
+			int offset = network.getWeightOffset(layer);
 
 			// Rows (neurons layer out)
-			int rows = mutated.getNetwork().getNeurons(layer);
+			int rows = network.getNeurons(layer);
 			// Columns (neurons layer in)
-			int cols = mutated.getNetwork().getNeurons(layer - 1);
-			
+			int cols = network.getNeurons(layer - 1);
+
 			// Size (number of weights) to perturb.
 			int size = Double.valueOf(Double.valueOf(rows * cols) * perturbSize).intValue();
 			for (int i = 0; i < size; i++) {
 				int row = Random.nextInt(rows);
 				int col = Random.nextInt(cols);
-				double value = weights[row][col];
-				double normalizedHigh = Math.abs(value) * Math.abs(perturbFactor);
-				double normalizedLow = (-1.0) * normalizedHigh;
-				normalizer.setNormalizedHigh(normalizedHigh);
-				normalizer.setNormalizedLow(normalizedLow);
-				double delta = normalizer.normalize(Random.nextDouble());
-				weights[row][col] += delta;
-			}
+				int index = offset + row * cols + col;
 
+				// Delta uniformly distributed within plus/minus the perturbed proportion of the value.
+				double range = Math.abs(weights[index]) * Math.abs(perturbFactor);
+				double delta = (2 * Random.nextDouble() - 1) * range;
+				weights[index] += delta;
+			}
 		}
-
-		return mutated;
 	}
-
 }
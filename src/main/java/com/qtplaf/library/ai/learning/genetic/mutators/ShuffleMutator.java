@@ -16,6 +16,7 @@ package com.qtplaf.library.ai.learning.genetic.mutators;
 
 import com.qtplaf.library.ai.learning.genetic.Genome;
 import com.qtplaf.library.ai.learning.genetic.Mutator;
+import com.qtplaf.library.ai.neural.Network;
 import com.qtplaf.library.util.Random;
 
 /**
@@ -46,44 +47,42 @@ public class ShuffleMutator implements Mutator {
 	}
 
 	/**
-	 * Mutate the argument network.
-	 * 
+	 * Mutate in place the argument genome.
+	 *
 	 * @param genome The genome to mutate.
-	 * @return The mutated network.
 	 */
 	@Override
-	public Genome mutate(Genome genome) {
+	public void mutate(Genome genome) {
 
-		// Clone the network.
-		Genome mutated = new Genome(genome.getNetwork().clone());
+		Network network = genome.getNetwork();
+		double[] weights = genome.getParameters();
 
 		// Subsequent layers.
-		for (int layer = 1; layer < mutated.getNetwork().getLayers(); layer++) {
-			
-			// Weights.
-			double[][] weights = mutated.getNetwork().getWeights(layer);
+		for (int layer = 1; layer < network.getLayers(); layer++) {
+
+			// Offset of the layer weights.
+			int offset = network.getWeightOffset(layer);
 
 			// Rows (neurons layer out)
-			int rows = mutated.getNetwork().getNeurons(layer);
+			int rows = network.getNeurons(layer);
 			// Columns (neurons layer in)
-			int cols = mutated.getNetwork().getNeurons(layer - 1);
-			
+			int cols = network.getNeurons(layer - 1);
+
 			for (int flip = 0; flip < flips; flip++) {
-				
+
 				// Flips rows and columns.
 				int r1 = Random.nextInt(rows);
 				int c1 = Random.nextInt(cols);
 				int r2 = Random.nextInt(rows);
 				int c2 = Random.nextInt(cols);
-				
+
 				// Do flip.
-				double w = weights[r1][c1];
-				weights[r1][c1] = weights[r2][c2];
-				weights[r2][c2] = w;
+				int i1 = offset + r1 * cols + c1;
+				int i2 = offset + r2 * cols + c2;
+				double w = weights[i1];
+				weights[i1] = weights[i2];
+				weights[i2] = w;
 			}
 		}
-		
-		return mutated;
 	}
-
 }
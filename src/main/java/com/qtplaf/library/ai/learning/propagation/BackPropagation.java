@@ -18,7 +18,6 @@ import java.util.List;
 
 import com.qtplaf.library.ai.learning.propagation.strategy.SmartLearningRate;
 import com.qtplaf.library.ai.neural.Network;
-import com.qtplaf.library.ai.neural.NetworkUtils;
 
 /**
  * Batch back propagation with learning rate and momentum.
@@ -27,8 +26,8 @@ import com.qtplaf.library.ai.neural.NetworkUtils;
  */
 public class BackPropagation extends Propagation {
 
-	/** List of last weights updates. */
-	private List<double[][]> lastWeightChanges;
+	/** Last weights updates, with the layout of the network weights. */
+	private double[] lastWeightChanges;
 	/** Learning rate. */
 	private double learningRate;
 	/** Momentum. */
@@ -56,7 +55,7 @@ public class BackPropagation extends Propagation {
 		super(network);
 		this.learningRate = learningRate;
 		this.momentum = momentum;
-		this.lastWeightChanges = NetworkUtils.createLayerMatrices(getNetwork());
+		this.lastWeightChanges = new double[getNetwork().getWeightCount()];
 	}
 
 	/**
@@ -98,36 +97,43 @@ public class BackPropagation extends Propagation {
 	/**
 	 * Return the weight change to apply. Updates the last weight change and does nothing with last gradients.
 	 * 
-	 * @param layer The layer.
-	 * @param gradients The gradients of the layer.
-	 * @param out The output neuron of the weights matrix.
-	 * @param in The input neuron of the weights matrix.
+	 * @param index The index of the weight in the network parameter vector.
+	 * @param gradients The gradients, with the layout of the network weights.
 	 * @return The weight update to apply.
 	 */
 	@Override
-	protected double getWeightChange(int layer, double[][] gradients, int out, int in) {
+	protected double getWeightChange(int index, double[] gradients) {
 
-		double[][] lastWeightChanges = getLastWeightChanges(layer);
-
-		double gradient = gradients[out][in];
+		double gradient = gradients[index];
 		double learningRate = this.learningRate;
-		double lastChange = lastWeightChanges[out][in];
+		double lastChange = lastWeightChanges[index];
 		double momentum = this.momentum;
 		double weightChange = (gradient * learningRate) + (lastChange * momentum);
 
-		lastWeightChanges[out][in] = weightChange;
+		lastWeightChanges[index] = weightChange;
 
 		return weightChange;
 	}
 
 	/**
-	 * Return the last weight changes of the layer.
+	 * Return the last weight changes, with the layout of the network weights.
 	 * 
-	 * @param layer The layer.
 	 * @return The last weight changes.
 	 */
-	public double[][] getLastWeightChanges(int layer) {
-		return lastWeightChanges.get(layer);
+	public double[] getLastWeightChanges() {
+		return lastWeightChanges;
+	}
+
+	/**
+	 * Returns the live state vectors, the network weights and the last weight changes.
+	 * 
+	 * @return The list of state vectors.
+	 */
+	@Override
+	public List<double[]> getState() {
+		List<double[]> state = super.getState();
+		state.add(lastWeightChanges);
+		return state;
 	}
 
 }
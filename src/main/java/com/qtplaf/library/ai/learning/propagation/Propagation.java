@@ -16,6 +16,7 @@ package com.qtplaf.library.ai.learning.propagation;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
 
@@ -25,7 +26,6 @@ import com.qtplaf.library.ai.function.IterationError;
 import com.qtplaf.library.ai.function.error.iteration.MeanSquared;
 import com.qtplaf.library.ai.learning.LearningMethod;
 import com.qtplaf.library.ai.neural.Network;
-import com.qtplaf.library.ai.neural.NetworkUtils;
 import com.qtplaf.library.util.list.ListUtils;
 import com.qtplaf.library.util.math.Matrix;
 import com.qtplaf.library.util.task.Executor;
@@ -38,15 +38,40 @@ import com.qtplaf.library.util.task.Executor;
 public abstract class Propagation extends LearningMethod {
 
 	/**
-	 * Gradients calculator.
+	 * Gradients calculator. Patterns are processed in blocks of <code>BLOCK_SIZE</code> rows with the batch forward and
+	 * backward of the network. The task processes a range of the source, optionally through an order of indexes, and
+	 * its gradients are a thread local buffer that is reset at each execution.
 	 */
 	class TaskGradients extends RecursiveAction {
 
 		PatternSource source;
-		List<double[][]> gradients;
+		/** Optional order of the indexes of the source, null to process the source in natural order. */
+		int[] order;
+		/** Start (inclusive) of the range to process. */
+		int start;
+		/** End (exclusive) of the range to process. */
+		int end;
+		/** Forward batch workspace, reused along iterations. */
+		Network.ForwardBatch forward;
+		/** Backward batch workspace, reused along iterations, that cumulates the gradients. */
+		Network.BackwardBatch backward;
+		/** Network outputs of a pattern. */
+		double[] outputs;
+		/** Errors of a pattern. */
+		double[] errors;
+		/** Errors of the block, one row per pattern. */
+		double[] blockErrors;
 
 		TaskGradients(PatternSource source) {
 			this.source = source;
+			this.start = 0;
+			this.end = source.size();
+			int neurons = getNetwork().getNeurons(getNetwork().getLayers() - 1);
+			this.forward = new Network.ForwardBatch(getNetwork(), BLOCK_SIZE);
+			this.backward = new Network.BackwardBatch(getNetwork(), BLOCK_SIZE);
+			this.outputs = new double[neurons];
+			this.errors = new double[neurons];
+			this.blockErrors = new double[BLOCK_SIZE * neurons];
 		}
 
 		/**
@@ -57,37 +82,85 @@ public abstract class Propagation extends LearningMethod {
 
 			// Network and backward data.
 			Network network = getNetwork();
-			Network.Backward backward = new Network.Backward(network);
+			int outputLayer = network.getLayers() - 1;
+			int neurons = network.getNeurons(outputLayer);
+			int inputs = network.getNeurons(0);
+			double[] blockInputs = forward.getOutputs(0);
+			backward.reset();
+
+			// Iterate learning data by blocks.
+			for (int block = start; block < end; block += BLOCK_SIZE) {
+				int size = Math.min(BLOCK_SIZE, end - block);
+
+				// Fill the block inputs directly from the source.
+				for (int row = 0; row < size; row++) {
+					source.getInputs(getIndex(block + row), blockInputs, row * inputs);
+				}
 
-			// Iterate learning data.
-			for (int i = 0; i < source.size(); i++) {
+				// Process inputs.
+				Network.forward(network, forward, size);
+
+				// Calculate and cumulate the output errors.
+				for (int row = 0; row < size; row++) {
+					forward.getOutputs(outputLayer, row, outputs);
+					source.getErrors(getIndex(block + row), outputs, errors);
+					double error = getIterationErrorFunction().getError(errors);
+					getIterationErrorFunction().addError(error);
+					System.arraycopy(errors, 0, blockErrors, row * neurons, neurons);
+				}
 
-				// Retrieve the pattern.
-				Pattern pattern = source.get(i);
-				double[] patternInputs = pattern.getInputs();
+				// Process backward.
+				Network.backward(network, forward, backward, blockErrors, size);
+			}
+		}
 
-				// Process inputs.
-				Network.Forward forward = Network.forward(network, patternInputs);
+		/**
+		 * Returns the index in the source of the position of the range.
+		 * 
+		 * @param position The position.
+		 * @return The index in the source.
+		 */
+		int getIndex(int position) {
+			return (order == null ? position : order[position]);
+		}
+	}
 
-				// Network outputs.
-				double[] networkOutputs = ListUtils.getLast(forward.getOutputs());
+	/**
+	 * Parallel tree sum of the gradients of a range of tasks into the gradients of the first task of the range. Each
+	 * half is reduced concurrently and then the second half is cumulated into the first, so no buffer is shared
+	 * between threads and no locks are required.
+	 */
+	class TaskReduce extends RecursiveAction {
 
-				// Calculate the output error.
-				double[] errors = pattern.getErrors(networkOutputs);
+		private static final long serialVersionUID = 1L;
 
-				// Cumulate error.
-				double error = getIterationErrorFunction().getError(errors);
-				getIterationErrorFunction().addError(error);
+		/** Start (inclusive) of the range of tasks. */
+		int start;
+		/** End (exclusive) of the range of tasks. */
+		int end;
 
-				// Process backward.
-				Network.backward(network, forward, backward, errors);
-			}
+		TaskReduce(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
 
-			// Retrieve the gradients from the backward data.
-			gradients = backward.getGradients();
+		/**
+		 * Compute the task.
+		 */
+		@Override
+		protected void compute() {
+			if (end - start < 2) {
+				return;
+			}
+			int middle = (start + end) / 2;
+			invokeAll(new TaskReduce(start, middle), new TaskReduce(middle, end));
+			Matrix.cumulate(tasks.get(middle).backward.getGradients(), tasks.get(start).backward.getGradients());
 		}
 	}
 
+	/** Number of patterns processed at once by the gradients tasks. */
+	private static final int BLOCK_SIZE = 64;
+
 	/** The neural network. */
 	private Network network;
 	/** Learning/training data source. */
@@ -99,13 +172,19 @@ public abstract class Propagation extends LearningMethod {
 	/** Last calculated error. */
 	private double lastError = 1.0;
 
-	/** List of weight gradients of subsequent layers (number of layers-1). */
-	private List<double[][]> gradients;
 	/** List of tasks for parallel process. */
 	private List<TaskGradients> tasks = new ArrayList<>();
 
 	/** A boolean that indicates if pattern should be processed in batch mode. */
 	private boolean batchMode = true;
+	/** Mini-batch size, zero to process all the patterns in one batch. */
+	private int miniBatchSize = 0;
+	/** A boolean that indicates if patterns should be shuffled each epoch in mini-batch mode. */
+	private boolean shuffle = true;
+	/** Random generator to shuffle patterns. */
+	private Random random = new Random();
+	/** Order of the patterns in mini-batch mode. */
+	private int[] order;
 
 	/**
 	 * Constructor.
@@ -135,6 +214,56 @@ public abstract class Propagation extends LearningMethod {
 		this.batchMode = batchMode;
 	}
 
+	/**
+	 * Returns the mini-batch size, zero if all the patterns are processed in one batch.
+	 * 
+	 * @return The mini-batch size.
+	 */
+	public int getMiniBatchSize() {
+		return miniBatchSize;
+	}
+
+	/**
+	 * Set the mini-batch size. When greater than zero and in batch mode, each iteration is an epoch that updates the
+	 * weights after each mini-batch, the patterns of the mini-batch processed concurrently.
+	 * 
+	 * @param miniBatchSize The mini-batch size, zero to process all the patterns in one batch.
+	 */
+	public void setMiniBatchSize(int miniBatchSize) {
+		if (miniBatchSize < 0) {
+			throw new IllegalArgumentException("Invalid mini-batch size " + miniBatchSize);
+		}
+		this.miniBatchSize = miniBatchSize;
+		this.tasks.clear();
+	}
+
+	/**
+	 * Check if patterns are shuffled each epoch in mini-batch mode.
+	 * 
+	 * @return A boolean.
+	 */
+	public boolean isShuffle() {
+		return shuffle;
+	}
+
+	/**
+	 * Set if patterns are shuffled each epoch in mini-batch mode.
+	 * 
+	 * @param shuffle A boolean.
+	 */
+	public void setShuffle(boolean shuffle) {
+		this.shuffle = shuffle;
+	}
+
+	/**
+	 * Set the random generator used to shuffle, for instance with a fixed seed to reproduce results.
+	 * 
+	 * @param random The random generator.
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
 	/**
 	 * Returns the underlying network.
 	 * 
@@ -144,6 +273,18 @@ public abstract class Propagation extends LearningMethod {
 		return network;
 	}
 
+	/**
+	 * Returns the live state vectors, the network weights.
+	 * 
+	 * @return The list of state vectors.
+	 */
+	@Override
+	public List<double[]> getState() {
+		List<double[]> state = super.getState();
+		state.add(network.getWeights());
+		return state;
+	}
+
 	/**
 	 * Returns the learning data.
 	 * 
@@ -160,6 +301,8 @@ public abstract class Propagation extends LearningMethod {
 	 */
 	public void setLearningData(PatternSource learningData) {
 		this.learningData = learningData;
+		this.tasks.clear();
+		this.order = null;
 	}
 
 	/**
@@ -220,51 +363,34 @@ public abstract class Propagation extends LearningMethod {
 	 * Ask extenders (back and resilient propagation) to return the weight change to apply. It is also responsibility of
 	 * the extender to update last gradients and weight changes, because it is the extender that defines their use.
 	 * 
-	 * @param layer The layer.
-	 * @param gradients The gradients of the layer.
-	 * @param out The output neuron of the weights matrix.
-	 * @param in The input neuron of the weights matrix.
+	 * @param index The index of the weight in the network parameter vector.
+	 * @param gradients The gradients, with the layout of the network weights.
 	 * @return The weight update to apply.
 	 */
-	protected abstract double getWeightChange(int layer, double[][] gradients, int out, int in);
+	protected abstract double getWeightChange(int index, double[] gradients);
 
 	/**
 	 * Update the weights of the network, applying the weight update of the extender. It is the resposibility of the
 	 * extender to update last gradients and weight changes, because it is the extender that defines their use.
+	 * 
+	 * @param gradients The gradients, with the layout of the network weights.
 	 */
-	protected void updateWeights(List<double[][]> gradients) {
-
-		for (int layer = 1; layer < getNetwork().getLayers(); layer++) {
-
-			int layerOut = layer;
-			int layerIn = layer - 1;
-			int neuronsOut = getNetwork().getNeurons(layerOut);
-			int neuronsIn = getNetwork().getNeurons(layerIn);
-
-			double[][] weights = getNetwork().getWeights(layerOut);
-
-			for (int out = 0; out < neuronsOut; out++) {
-				for (int in = 0; in < neuronsIn; in++) {
-					// Query the weight change.
-					double weightChange = getWeightChange(layer, gradients.get(layer), out, in);
-					// Apply it to the weight.
-					weights[out][in] += weightChange;
-				}
-			}
+	protected void updateWeights(double[] gradients) {
+		double[] weights = getNetwork().getWeights();
+		for (int index = 0; index < weights.length; index++) {
+			weights[index] += getWeightChange(index, gradients);
 		}
 	}
 
 	/**
-	 * Update gradients from tasks and set task gradients to zero.
+	 * Reduce the gradients of the first tasks with a parallel tree sum.
+	 * 
+	 * @param count The number of tasks executed, starting with the first.
+	 * @return The gradients, held in the buffer of the first task.
 	 */
-	private void updateGradients() {
-		gradients = NetworkUtils.createLayerMatrices(getNetwork());
-		for (int layer = 1; layer < getNetwork().getLayers(); layer++) {
-			for (int i = 0; i < tasks.size(); i++) {
-				TaskGradients task = tasks.get(i);
-				Matrix.cumulate(task.gradients.get(layer), gradients.get(layer));
-			}
-		}
+	private double[] reduceGradients(int count) {
+		ForkJoinPool.commonPool().invoke(new TaskReduce(0, count));
+		return tasks.get(0).backward.getGradients();
 	}
 
 	/**
@@ -277,7 +403,11 @@ public abstract class Propagation extends LearningMethod {
 		fireLearningEvent("Start propagation iteration");
 
 		if (isBatchMode()) {
-			performIterationBatch();
+			if (getMiniBatchSize() > 0) {
+				performIterationMiniBatch();
+			} else {
+				performIterationBatch();
+			}
 		} else {
 			performIterationOnline();
 		}
@@ -315,13 +445,76 @@ public abstract class Propagation extends LearningMethod {
 
 		// Update gradients from tasks.
 		fireLearningEvent("Batch: update gradients");
-		updateGradients();
+		double[] gradients = reduceGradients(tasks.size());
 
 		// Update weights (do learn).
 		fireLearningEvent("Batch: update weights");
 		updateWeights(gradients);
 	}
 
+	/**
+	 * Perform the iteration in mini-batch mode, an epoch over all the patterns, shuffled if so configured. Each
+	 * mini-batch is split among the tasks, one per available processor but no more than patterns in the mini-batch,
+	 * its gradients reduced and applied.
+	 */
+	private void performIterationMiniBatch() {
+
+		// If the list of tasks is empty, build it.
+		PatternSource source = getLearningData();
+		if (tasks.isEmpty()) {
+			int processors = Runtime.getRuntime().availableProcessors();
+			for (int i = 0; i < processors; i++) {
+				TaskGradients task = new TaskGradients(source);
+				tasks.add(task);
+			}
+		}
+
+		// Order of the patterns.
+		if (order == null || order.length != source.size()) {
+			order = new int[source.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+		}
+		if (isShuffle()) {
+			for (int i = order.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int index = order[i];
+				order[i] = order[j];
+				order[j] = index;
+			}
+		}
+
+		// Reset the error function.
+		getIterationErrorFunction().reset();
+
+		// Notify start processing mini-batches.
+		fireLearningEvent("Mini-batch: processing epoch of " + source.size() + " patterns");
+
+		int taskCount = tasks.size();
+		for (int start = 0; start < source.size(); start += miniBatchSize) {
+			int end = Math.min(start + miniBatchSize, source.size());
+
+			// Split the mini-batch among the tasks, none empty.
+			int size = end - start;
+			int count = Math.min(taskCount, size);
+			for (int i = 0; i < count; i++) {
+				TaskGradients task = tasks.get(i);
+				task.reinitialize();
+				task.order = order;
+				task.start = start + (int) ((long) size * i / count);
+				task.end = start + (int) ((long) size * (i + 1) / count);
+			}
+
+			// Wait completion, reduce and update weights.
+			ForkJoinPool.commonPool().invoke(new Executor(tasks.subList(0, count)));
+			updateWeights(reduceGradients(count));
+		}
+
+		// Save last error.
+		setLastError(getIterationErrorFunction().getTotalError());
+	}
+
 	/**
 	 * Perform the iteration in online mode.
 	 */
@@ -330,10 +523,14 @@ public abstract class Propagation extends LearningMethod {
 		// Reset the error function.
 		getIterationErrorFunction().reset();
 
-		// Network and backward data.
+		// Network and workspaces, reused pattern after pattern.
 		Network network = getNetwork();
+		Network.Forward forward = new Network.Forward(network);
+		Network.Backward backward = new Network.Backward(network);
+		double[] errors = new double[network.getNeurons(network.getLayers() - 1)];
 
 		// Iterate patterns.
+		fireLearningEvent("Online: processing patterns");
 		for (int i = 0; i < getLearningData().size(); i++) {
 
 			// Retrieve the pattern.
@@ -341,27 +538,27 @@ public abstract class Propagation extends LearningMethod {
 			double[] patternInputs = pattern.getInputs();
 
 			// Process inputs.
-			fireLearningEvent("Online: process forward pattern " + i);
-			Network.Forward forward = Network.forward(network, patternInputs);
+			Network.forward(network, patternInputs, forward);
 
 			// Network outputs.
 			double[] networkOutputs = ListUtils.getLast(forward.getOutputs());
 
 			// Calculate the output error.
-			double[] errors = pattern.getErrors(networkOutputs);
+			pattern.getErrors(networkOutputs, errors);
 
 			// Accumulate error.
 			double error = getIterationErrorFunction().getError(errors);
 			getIterationErrorFunction().addError(error);
 
 			// Process backward.
-			fireLearningEvent("Online: process backward pattern " + i);
-			Network.Backward backward = new Network.Backward(network);
+			backward.reset();
 			Network.backward(network, forward, backward, errors);
 
 			// Update weights.
-			fireLearningEvent("Online: update weights pattern " + i);
 			updateWeights(backward.getGradients());
 		}
+
+		// Save last error.
+		setLastError(getIterationErrorFunction().getTotalError());
 	}
 }
@@ -14,15 +14,18 @@
 
 package com.qtplaf.library.ai.learning.propagation;
 
+import java.util.Arrays;
 import java.util.List;
 
 import com.qtplaf.library.ai.neural.Network;
-import com.qtplaf.library.ai.neural.NetworkUtils;
 import com.qtplaf.library.util.NumberUtils;
-import com.qtplaf.library.util.math.Matrix;
 
 /**
  * Resilient back propagation.
+ * <p>
+ * The iRPROP+ weight back tracking compares the error of the last two epochs, so it only applies in batch mode without
+ * mini-batches, where each update follows the gradients of the whole epoch. With mini-batches or online the error is
+ * only known at the end of the epoch, after many updates, and iRPROP+ behaves as iRPROP- without back tracking.
  *
  * @author Miquel Sas
  */
@@ -34,7 +37,10 @@ public class ResilientPropagation extends Propagation {
 	public static enum Type {
 		/** RPROP+ : The classic RPROP algorithm. Uses weight back tracking. */
 		RPROPp,
-		/** iRPROP+ : New weight back tracking method, some consider this to be the most advanced RPROP. */
+		/**
+		 * iRPROP+ : New weight back tracking method, some consider this to be the most advanced RPROP. Back tracking
+		 * only applies in batch mode without mini-batches.
+		 */
 		iRPROPp
 	}
 
@@ -69,12 +75,12 @@ public class ResilientPropagation extends Propagation {
 	/** The maximum amount a delta can reach. */
 	public static final double DEFAULT_MAX_STEP = 50;
 
-	/** List of layers last weight gradients). */
-	private List<double[][]> lastGradients;
-	/** List of layers last weights changes. */
-	private List<double[][]> lastWeightChanges;
-	/** List of layers deltas. */
-	private List<double[][]> lastDeltas;
+	/** Last weight gradients, with the layout of the network weights. */
+	private double[] lastGradients;
+	/** Last weights changes, with the layout of the network weights. */
+	private double[] lastWeightChanges;
+	/** Last deltas, with the layout of the network weights. */
+	private double[] lastDeltas;
 
 	/** Type of resilient propagation. */
 	private Type type = Type.RPROPp;
@@ -90,14 +96,12 @@ public class ResilientPropagation extends Propagation {
 	 */
 	public ResilientPropagation(Network network) {
 		super(network);
-		lastGradients = NetworkUtils.createLayerMatrices(getNetwork());
-		lastWeightChanges = NetworkUtils.createLayerMatrices(getNetwork());
-		lastDeltas = NetworkUtils.createLayerMatrices(getNetwork());
+		lastGradients = new double[getNetwork().getWeightCount()];
+		lastWeightChanges = new double[getNetwork().getWeightCount()];
+		lastDeltas = new double[getNetwork().getWeightCount()];
 
 		// Initialize lastDeltas to DEFAULT_INITIAL_UPDATE
-		for (int i = 1; i < lastDeltas.size(); i++) {
-			Matrix.set(lastDeltas.get(i), DEFAULT_INITIAL_UPDATE);
-		}
+		Arrays.fill(lastDeltas, DEFAULT_INITIAL_UPDATE);
 	}
 
 	/**
@@ -134,72 +138,63 @@ public class ResilientPropagation extends Propagation {
 	/**
 	 * Return the weight update to apply.
 	 * 
-	 * @param layer The layer.
-	 * @param gradients The gradients of the layer.
-	 * @param out The output neuron of the weights matrix.
-	 * @param in The input neuron of the weights matrix.
+	 * @param index The index of the weight in the network parameter vector.
+	 * @param gradients The gradients, with the layout of the network weights.
 	 * @return The weight update to apply.
 	 */
 	@Override
-	protected double getWeightChange(int layer, double[][] gradients, int out, int in) {
+	protected double getWeightChange(int index, double[] gradients) {
 		double weightChange = 0;
 		switch (type) {
 		case RPROPp:
-			weightChange = updateWeightPlus(layer, gradients, out, in);
+			weightChange = updateWeightPlus(index, gradients);
 			break;
 		case iRPROPp:
-			weightChange = updateWeightPlus_i(layer, gradients, out, in);
+			weightChange = updateWeightPlus_i(index, gradients);
 			break;
 		default:
 			throw new IllegalArgumentException();
 		}
-		double[][] lastWeightChanges = getLastWeightChanges(layer);
-		lastWeightChanges[out][in] = weightChange;
+		lastWeightChanges[index] = weightChange;
 		return weightChange;
 	}
 
 	/**
 	 * The classic RPROP algorithm. Uses weight back tracking.
 	 * 
-	 * @param layer The layer.
-	 * @param gradients The gradients of the layer.
-	 * @param out The output neuron of the weights matrix.
-	 * @param in The input neuron of the weights matrix.
+	 * @param index The index of the weight in the network parameter vector.
+	 * @param gradients The gradients, with the layout of the network weights.
 	 * @return The weight update to apply.
 	 */
-	private double updateWeightPlus(int layer, double[][] gradients, int out, int in) {
-
-		double[][] lastWeightChanges = getLastWeightChanges(layer);
-		double[][] lastGradients = getLastGradients(layer);
-		double[][] lastDeltas = getLastDeltas(layer);
+	private double updateWeightPlus(int index, double[] gradients) {
 
 		double weightChange = 0;
 
 		// We want to see if the gradient has changed its sign.
-		int signum = signum(gradients[out][in] * lastGradients[out][in]);
+		int signum = signum(gradients[index] * lastGradients[index]);
 
 		// If the gradient has retained its sign, then we increase the delta so that it will converge faster.
 		if (signum > 0) {
-			double delta = Math.min(lastDeltas[out][in] * POSITIVE_ETA, maximumStep);
-			weightChange = signum(gradients[out][in]) * delta;
-			lastDeltas[out][in] = delta;
-			lastGradients[out][in] = gradients[out][in];
+			double delta = Math.min(lastDeltas[index] * POSITIVE_ETA, maximumStep);
+			weightChange = signum(gradients[index]) * delta;
+			lastDeltas[index] = delta;
+			lastGradients[index] = gradients[index];
 		}
 
 		// If signum < 0, then the sign has changed, and the last delta was too big. Set the previous gradent to zero so
 		// that there will be no adjustment the next iteration.
 		if (signum < 0) {
-			double delta = Math.max(lastDeltas[out][in] * NEGATIVE_ETA, DELTA_MIN);
-			weightChange = -lastWeightChanges[out][in];
-			lastDeltas[out][in] = delta;
-			lastGradients[out][in] = 0;
+			double delta = Math.max(lastDeltas[index] * NEGATIVE_ETA, DELTA_MIN);
+			weightChange = -lastWeightChanges[index];
+			lastDeltas[index] = delta;
+			lastGradients[index] = 0;
 		}
 
 		// If signum == 0 then there is no change to the delta.
 		if (signum == 0) {
-			double delta = lastDeltas[out][in];
-			weightChange = signum(gradients[out][in]) * delta;
-			lastGradients[out][in] = gradients[out][in];
+			double delta = lastDeltas[index];
+			weightChange = signum(gradients[index]) * delta;
+			lastGradients[index] = gradients[index];
 		}
 
 		return weightChange;
@@ -208,79 +203,101 @@ public class ResilientPropagation extends Propagation {
 	/**
 	 * The classic RPROP algorithm. Uses weight back tracking.
 	 * 
-	 * @param layer The layer.
-	 * @param gradients The gradients of the layer.
-	 * @param out The output neuron of the weights matrix.
-	 * @param in The input neuron of the weights matrix.
+	 * @param index The index of the weight in the network parameter vector.
+	 * @param gradients The gradients, with the layout of the network weights.
 	 * @return The weight update to apply.
 	 */
-	private double updateWeightPlus_i(int layer, double[][] gradients, int out, int in) {
-
-		double[][] lastWeightChanges = getLastWeightChanges(layer);
-		double[][] lastGradients = getLastGradients(layer);
-		double[][] lastDeltas = getLastDeltas(layer);
+	private double updateWeightPlus_i(int index, double[] gradients) {
 
 		double weightChange = 0;
 
 		// We want to see if the gradient has changed its sign.
-		int signum = signum(gradients[out][in] * lastGradients[out][in]);
+		int signum = signum(gradients[index] * lastGradients[index]);
 
 		// If the gradient has retained its sign, then we increase the delta so that it will converge faster.
 		if (signum > 0) {
-			double delta = Math.min(lastDeltas[out][in] * POSITIVE_ETA, maximumStep);
-			weightChange = signum(gradients[out][in]) * delta;
-			lastDeltas[out][in] = delta;
-			lastGradients[out][in] = gradients[out][in];
+			double delta = Math.min(lastDeltas[index] * POSITIVE_ETA, maximumStep);
+			weightChange = signum(gradients[index]) * delta;
+			lastDeltas[index] = delta;
+			lastGradients[index] = gradients[index];
 		}
 
 		// If signum < 0, then the sign has changed, and the last delta was too big. Set the previous gradent to zero so
 		// that there will be no adjustment the next iteration.
 		if (signum < 0) {
-			double delta = Math.max(lastDeltas[out][in] * NEGATIVE_ETA, DELTA_MIN);
-			if (getLastError() > lastError) {
-				weightChange = -lastWeightChanges[out][in];
+			double delta = Math.max(lastDeltas[index] * NEGATIVE_ETA, DELTA_MIN);
+			if (isBackTracking() && getLastError() > lastError) {
+				weightChange = -lastWeightChanges[index];
 			}
-			lastDeltas[out][in] = delta;
-			lastGradients[out][in] = 0;
+			lastDeltas[index] = delta;
+			lastGradients[index] = 0;
 		}
 
 		// If signum == 0 then there is no change to the delta.
 		if (signum == 0) {
-			double delta = lastDeltas[out][in];
-			weightChange = signum(gradients[out][in]) * delta;
-			lastGradients[out][in] = gradients[out][in];
+			double delta = lastDeltas[index];
+			weightChange = signum(gradients[index]) * delta;
+			lastGradients[index] = gradients[index];
 		}
 
 		return weightChange;
 	}
 
 	/**
-	 * Return the last weight changes of the layer.
+	 * Check whether the iRPROP+ weight back tracking applies, that is, whether each update follows an epoch error.
+	 * 
+	 * @return A boolean.
+	 */
+	private boolean isBackTracking() {
+		return isBatchMode() && getMiniBatchSize() == 0;
+	}
+
+	/**
+	 * Return the last weight changes, with the layout of the network weights.
 	 * 
-	 * @param layer The layer.
 	 * @return The last weight changes.
 	 */
-	public double[][] getLastWeightChanges(int layer) {
-		return lastWeightChanges.get(layer);
+	public double[] getLastWeightChanges() {
+		return lastWeightChanges;
 	}
 
 	/**
-	 * Returns the last weight gradients.
+	 * Returns the last weight gradients, with the layout of the network weights.
 	 * 
-	 * @param layer The layer.
 	 * @return The last gradients.
 	 */
-	public double[][] getLastGradients(int layer) {
-		return lastGradients.get(layer);
+	public double[] getLastGradients() {
+		return lastGradients;
 	}
 
 	/**
-	 * Returns the last applied deltas.
+	 * Returns the last applied deltas, with the layout of the network weights.
 	 * 
-	 * @param layer The layer.
 	 * @return The last deltas.
 	 */
-	public double[][] getLastDeltas(int layer) {
-		return lastDeltas.get(layer);
+	public double[] getLastDeltas() {
+		return lastDeltas;
+	}
+
+	/**
+	 * Returns the live state vectors, the network weights, the last gradients, weight changes and deltas.
+	 * 
+	 * @return The list of state vectors.
+	 */
+	@Override
+	public List<double[]> getState() {
+		List<double[]> state = super.getState();
+		state.add(lastGradients);
+		state.add(lastWeightChanges);
+		state.add(lastDeltas);
+		return state;
+	}
+
+	/**
+	 * Called after the state has been restored, resets the last error so the first iteration does not revert.
+	 */
+	@Override
+	public void stateRestored() {
+		lastError = NumberUtils.MAX_DOUBLE;
 	}
 }
@@ -61,4 +61,13 @@ public abstract class Agent {
 	 * @return The agent state properties.
 	 */
 	public abstract Properties getState();
+
+	/**
+	 * Returns an independent copy of this agent that uses the given network, a read-only snapshot of the network of
+	 * this agent, for a parallel rollout worker. The copy must not share any mutable state with this agent.
+	 * 
+	 * @param network The network of the copy.
+	 * @return The copy.
+	 */
+	public abstract Agent copy(Network network);
 }
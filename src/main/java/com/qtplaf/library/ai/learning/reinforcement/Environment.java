@@ -56,4 +56,12 @@ public abstract class Environment {
 	 * @return The next input.
 	 */
 	public abstract double[] next();
+
+	/**
+	 * Returns an independent instance of this environment, for a parallel rollout worker. The copy must not share any
+	 * mutable state with this environment.
+	 * 
+	 * @return The copy.
+	 */
+	public abstract Environment copy();
 }
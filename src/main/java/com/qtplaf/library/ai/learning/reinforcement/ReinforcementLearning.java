@@ -16,9 +16,16 @@ package com.qtplaf.library.ai.learning.reinforcement;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.qtplaf.library.ai.data.ListPatternSource;
+import com.qtplaf.library.ai.data.Pattern;
 import com.qtplaf.library.ai.learning.LearningMethod;
 import com.qtplaf.library.ai.learning.propagation.Propagation;
+import com.qtplaf.library.ai.neural.Network;
 import com.qtplaf.library.util.list.ListUtils;
 
 /**
@@ -81,10 +88,66 @@ import com.qtplaf.library.util.list.ListUtils;
  * 
  * The reward function receives the previous and current state and returns the reward.
  * 
+ * <h3>Parallel rollouts</h3>
+ * 
+ * With rollout workers, each worker runs its own copies of the environment, the reward function and the agent, the
+ * agent over a read-only snapshot of the network refreshed at each iteration, and adds the transitions of the episodes
+ * to a replay memory as they end. Meanwhile the learner trains the network with mini-batches sampled from the memory,
+ * waiting on the memory while it has not enough transitions.
+ * 
  * @author Miquel Sas
  */
 public class ReinforcementLearning extends LearningMethod {
 
+	/** Maximum milliseconds the learner waits on the replay memory before checking again the workers. */
+	private static final long WAIT_MILLIS = 100;
+
+	/**
+	 * A rollout worker, with its own environment, reward function and agent over the snapshot of the network.
+	 */
+	class TaskRollout extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The environment of the worker. */
+		private Environment environment;
+		/** The reward function of the worker. */
+		private Reward reward;
+		/** The agent of the worker. */
+		private Agent agent;
+		/** The episodes of the current rollout. */
+		private List<Episode> episodes = new ArrayList<>();
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param environment The environment of the worker.
+		 * @param reward The reward function of the worker.
+		 * @param agent The agent of the worker.
+		 */
+		TaskRollout(Environment environment, Reward reward, Agent agent) {
+			super();
+			this.environment = environment;
+			this.reward = reward;
+			this.agent = agent;
+		}
+
+		/**
+		 * Compute the task, and signal the learner when done.
+		 */
+		@Override
+		protected void compute() {
+			try {
+				episodes.clear();
+				environment.rewind();
+				rollout(agent, environment, reward, episodes);
+			} finally {
+				running.decrementAndGet();
+				replayMemory.signal();
+			}
+		}
+	}
+
 	/** The agent, a neural network. */
 	private Agent agent;
 	/** The environment. */
@@ -95,6 +158,22 @@ public class ReinforcementLearning extends LearningMethod {
 	private List<Episode> episodes = new ArrayList<>();
 	/** The back propagation learning method (BPROP or RPROP) */
 	private Propagation propagation;
+	/** The rollout workers, null to run the environment sequentially. */
+	private List<TaskRollout> workers;
+	/** The number of rollout workers running. */
+	private AtomicInteger running = new AtomicInteger();
+	/** The read-only snapshot of the network used by the agents of the rollout workers. */
+	private Network snapshot;
+	/** The replay memory of the rollout workers. */
+	private ReplayMemory replayMemory;
+	/** The size of the mini-batches sampled from the replay memory. */
+	private int miniBatchSize = 32;
+	/** The mini-batch, refilled in place from the replay memory. */
+	private List<Pattern> batch = new ArrayList<>();
+	/** The pattern source of the mini-batch, set once as the learning data of the propagation. */
+	private ListPatternSource batchSource = new ListPatternSource(batch);
+	/** Random generator of the learner to sample mini-batches. */
+	private Random random = new Random();
 
 	/**
 	 * Constructor.
@@ -139,6 +218,55 @@ public class ReinforcementLearning extends LearningMethod {
 		this.propagation = propagation;
 	}
 
+	/**
+	 * Set parallel rollout workers, each with its own copy of the environment, the reward function and the agent, that
+	 * add the transitions of their episodes to the replay memory. The agent, the environment and the reward function
+	 * must be set before.
+	 * 
+	 * @param count The number of workers, normally the number of available processors.
+	 * @param replayMemory The replay memory.
+	 */
+	public void setRolloutWorkers(int count, ReplayMemory replayMemory) {
+		if (agent == null || environment == null || rewardFunction == null) {
+			throw new IllegalStateException("The agent, the environment and the reward function must be set");
+		}
+		this.replayMemory = replayMemory;
+		Network network = agent.getNetwork();
+		snapshot = network.view(network.getWeights().clone());
+		workers = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			workers.add(new TaskRollout(environment.copy(), rewardFunction.copy(), agent.copy(snapshot)));
+		}
+	}
+
+	/**
+	 * Returns the replay memory, null if there are no rollout workers.
+	 * 
+	 * @return The replay memory.
+	 */
+	public ReplayMemory getReplayMemory() {
+		return replayMemory;
+	}
+
+	/**
+	 * Set the size of the mini-batches sampled from the replay memory. The propagation learns each mini-batch in
+	 * mini-batch mode with this size.
+	 * 
+	 * @param miniBatchSize The size of the mini-batches.
+	 */
+	public void setMiniBatchSize(int miniBatchSize) {
+		this.miniBatchSize = miniBatchSize;
+	}
+
+	/**
+	 * Set the random generator used to sample mini-batches.
+	 * 
+	 * @param random The random generator.
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
 	/**
 	 * Returns the total reward of the current series of episodes.
 	 * 
@@ -162,12 +290,88 @@ public class ReinforcementLearning extends LearningMethod {
 		if (agent == null || environment == null || rewardFunction == null || propagation == null) {
 			throw new IllegalStateException();
 		}
+		if (workers != null) {
+			performIterationParallel();
+			return;
+		}
 
 		// Clear episodes and rewind the environment.
 		episodes.clear();
 		environment.rewind();
 
 		// Loop through all inputs the environment can provide. Record episodes.
+		rollout(agent, environment, rewardFunction, episodes);
+
+		// All inputs have been delivered to the agent, it's time to analyze episodes and apply gradient corrections.
+		EpisodePatternSource patternSource = new EpisodePatternSource(episodes);
+		propagation.setLearningData(patternSource);
+		propagation.setBatchMode(true);
+		propagation.iteration();
+	}
+
+	/**
+	 * Perform one training iteration with the rollout workers. The workers run forked on the fork-join pool over the
+	 * snapshot of the network, while the learner trains the network with mini-batches of the replay memory until the
+	 * workers end.
+	 */
+	private void performIterationParallel() {
+
+		// Refresh the snapshot of the network, read-only for the agents of the workers, that are not running.
+		double[] weights = agent.getNetwork().getWeights();
+		System.arraycopy(weights, 0, snapshot.getWeights(), 0, weights.length);
+		running.set(workers.size());
+		for (TaskRollout worker : workers) {
+			worker.reinitialize();
+			worker.fork();
+		}
+
+		// Learn from the replay memory while the workers run, waiting on the memory while it is too small, and at
+		// least once if the memory is large enough.
+		boolean learned = false;
+		while (running.get() > 0 && !Thread.currentThread().isInterrupted()) {
+			if (replayMemory.size() >= miniBatchSize) {
+				learn();
+				learned = true;
+			} else {
+				replayMemory.await(miniBatchSize, WAIT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (!learned && replayMemory.size() >= miniBatchSize) {
+			learn();
+		}
+
+		// Collect the episodes of the workers.
+		episodes.clear();
+		for (TaskRollout worker : workers) {
+			worker.join();
+			episodes.addAll(worker.episodes);
+		}
+	}
+
+	/**
+	 * Train the network with a mini-batch sampled from the replay memory. The mini-batch is refilled in place and its
+	 * source is set only once, so the propagation reuses its tasks and workspaces.
+	 */
+	private void learn() {
+		replayMemory.sample(miniBatchSize, random, batch);
+		if (propagation.getLearningData() != batchSource || propagation.getMiniBatchSize() != miniBatchSize) {
+			propagation.setLearningData(batchSource);
+			propagation.setMiniBatchSize(miniBatchSize);
+		}
+		propagation.setBatchMode(true);
+		propagation.iteration();
+	}
+
+	/**
+	 * Run the agent through all the inputs the environment can provide, recording the episodes. When there are
+	 * rollout workers, the transitions of each episode are added to the replay memory when the episode ends.
+	 * 
+	 * @param agent The agent.
+	 * @param environment The environment, rewound.
+	 * @param reward The reward function.
+	 * @param episodes The list of episodes to record.
+	 */
+	private void rollout(Agent agent, Environment environment, Reward reward, List<Episode> episodes) {
 		boolean recording = false;
 		State previousState = null;
 		while (environment.hasNext()) {
@@ -187,24 +391,25 @@ public class ReinforcementLearning extends LearningMethod {
 			// If in recording mode, do it.
 			if (recording) {
 				Episode episode = ListUtils.getLast(episodes);
-				double reward = rewardFunction.getReward(previousState, currentState);
-				episode.add(currentState, action, reward);
+				episode.add(currentState, action, reward.getReward(previousState, currentState));
 			}
 
 			// Check whether recording mode terminates.
 			if (recording && action.isEndEpisode()) {
 				recording = false;
+				if (workers != null) {
+					replayMemory.add(ListUtils.getLast(episodes));
+				}
 			}
 
 			// Record previous state.
 			previousState = currentState;
 		}
 
-		// All inputs have been delivered to the agent, it's time to analyze episodes and apply gradient corrections.
-		EpisodePatternSource patternSource = new EpisodePatternSource(episodes);
-		propagation.setLearningData(patternSource);
-		propagation.setBatchMode(true);
-		propagation.iteration();
+		// An episode still recording when the inputs end is also remembered.
+		if (recording && workers != null) {
+			replayMemory.add(ListUtils.getLast(episodes));
+		}
 	}
 
 }
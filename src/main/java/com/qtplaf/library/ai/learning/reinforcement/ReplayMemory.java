@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.reinforcement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.qtplaf.library.ai.data.Pattern;
+
+/**
+ * A replay memory of transitions, a lock-free ring buffer where rollout workers add the transitions of their episodes
+ * concurrently and the learner samples mini-batches. When the buffer is full, the oldest transitions are overwritten.
+ * <p>
+ * Each slot has a sequence, negative while the slot is being written and the number of the write once written. A
+ * sampler reads the sequence before and after the transition and its priority, so it skips slots being written and
+ * never pairs the transition of a write with the priority of another.
+ * <p>
+ * Sampling is uniform or prioritized. Prioritized sampling draws transitions with a probability proportional to their
+ * priority by rejection: a uniform candidate is accepted with probability its priority over the maximum priority, so
+ * it needs no lock or tree of sums. The number of attempts per transition is limited and the last candidate is
+ * accepted.
+ * <p>
+ * One thread, normally the learner, can wait for transitions with <code>await</code>, and is woken up by each add or
+ * by <code>signal</code>.
+ *
+ * @author Miquel Sas
+ */
+public class ReplayMemory {
+
+	/** Minimum priority, so every transition can be sampled. */
+	private static final double MINIMUM_PRIORITY = 1e-6;
+	/** Maximum number of rejection attempts per sampled transition. */
+	private static final int MAXIMUM_ATTEMPTS = 64;
+
+	/** The ring of transitions. */
+	private final AtomicReferenceArray<Transition> transitions;
+	/** The priorities, as double bits. */
+	private final AtomicLongArray priorities;
+	/** The sequence of each slot, zero if never written and negative while being written. */
+	private final AtomicLongArray sequences;
+	/** The number of writes started, the sequence of the last write. */
+	private final AtomicLong count = new AtomicLong();
+	/** The number of writes completed. */
+	private final AtomicLong written = new AtomicLong();
+	/** The maximum priority, as double bits. */
+	private final AtomicLong maximumPriority = new AtomicLong(Double.doubleToLongBits(MINIMUM_PRIORITY));
+	/** A boolean that indicates if sampling is prioritized. */
+	private boolean prioritized = false;
+	/** The thread waiting for transitions, if any. */
+	private volatile Thread waiter;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity The capacity.
+	 */
+	public ReplayMemory(int capacity) {
+		super();
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Invalid capacity " + capacity);
+		}
+		transitions = new AtomicReferenceArray<>(capacity);
+		priorities = new AtomicLongArray(capacity);
+		sequences = new AtomicLongArray(capacity);
+	}
+
+	/**
+	 * Returns the capacity.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return transitions.length();
+	}
+
+	/**
+	 * Returns the number of transitions available to sample.
+	 *
+	 * @return The size.
+	 */
+	public int size() {
+		return (int) Math.min(written.get(), transitions.length());
+	}
+
+	/**
+	 * Returns the number of transitions ever added.
+	 *
+	 * @return The count.
+	 */
+	public long getCount() {
+		return written.get();
+	}
+
+	/**
+	 * Check if sampling is prioritized.
+	 *
+	 * @return A boolean.
+	 */
+	public boolean isPrioritized() {
+		return prioritized;
+	}
+
+	/**
+	 * Set if sampling is prioritized.
+	 *
+	 * @param prioritized A boolean.
+	 */
+	public void setPrioritized(boolean prioritized) {
+		this.prioritized = prioritized;
+	}
+
+	/**
+	 * Add a transition with a priority.
+	 *
+	 * @param transition The transition.
+	 * @param priority The priority, a positive number.
+	 */
+	public void add(Transition transition, double priority) {
+		long bits = Double.doubleToLongBits(Math.max(priority, MINIMUM_PRIORITY));
+		long sequence = count.incrementAndGet();
+		int index = (int) ((sequence - 1) % transitions.length());
+
+		// Publish the slot only once the transition and its priority are set.
+		sequences.set(index, -sequence);
+		priorities.set(index, bits);
+		transitions.set(index, transition);
+		sequences.set(index, sequence);
+
+		// The bits of positive doubles are ordered as their values.
+		maximumPriority.accumulateAndGet(bits, Math::max);
+		written.incrementAndGet();
+		signal();
+	}
+
+	/**
+	 * Add the transitions of an episode, each with its return, the sum of the rewards from the transition to the end
+	 * of the episode, and the absolute return as priority.
+	 *
+	 * @param episode The episode.
+	 */
+	public void add(Episode episode) {
+		List<EpisodePattern> episodePatterns = episode.getEpisodePatterns();
+		double[] returns = new double[episodePatterns.size()];
+		double reward = 0;
+		for (int i = returns.length - 1; i >= 0; i--) {
+			reward += episodePatterns.get(i).getReward();
+			returns[i] = reward;
+		}
+		for (int i = 0; i < returns.length; i++) {
+			add(new Transition(episodePatterns.get(i), returns[i]), Math.abs(returns[i]));
+		}
+	}
+
+	/**
+	 * Sample a mini-batch of transitions, with replacement.
+	 *
+	 * @param size The number of transitions to sample.
+	 * @param random The random generator, not shared with other threads.
+	 * @return The list of transitions, empty if the memory is empty.
+	 */
+	public List<Pattern> sample(int size, Random random) {
+		List<Pattern> batch = new ArrayList<>(size);
+		sample(size, random, batch);
+		return batch;
+	}
+
+	/**
+	 * Sample a mini-batch of transitions, with replacement, into a list that is reused: the elements are replaced in
+	 * place and the list is only resized if its size is not the size of the mini-batch.
+	 *
+	 * @param size The number of transitions to sample.
+	 * @param random The random generator, not shared with other threads.
+	 * @param batch The list to fill, left empty if the memory is empty.
+	 */
+	public void sample(int size, Random random, List<Pattern> batch) {
+		int range = (int) Math.min(count.get(), transitions.length());
+		if (size() == 0) {
+			batch.clear();
+			return;
+		}
+		double maximum = Double.longBitsToDouble(maximumPriority.get());
+		for (int i = 0; i < size; i++) {
+			Transition transition = sample(range, maximum, random);
+			if (i < batch.size()) {
+				batch.set(i, transition);
+			} else {
+				batch.add(transition);
+			}
+		}
+		while (batch.size() > size) {
+			batch.remove(batch.size() - 1);
+		}
+	}
+
+	/**
+	 * Sample one transition among the slots of the range.
+	 *
+	 * @param range The number of slots that have been or are being written.
+	 * @param maximum The maximum priority.
+	 * @param random The random generator.
+	 * @return The transition.
+	 */
+	private Transition sample(int range, double maximum, Random random) {
+		for (int attempt = 1;; attempt++) {
+			int index = random.nextInt(range);
+			long sequence = sequences.get(index);
+			if (sequence <= 0) {
+				continue;
+			}
+			double priority = Double.longBitsToDouble(priorities.get(index));
+			Transition candidate = transitions.get(index);
+			if (sequences.get(index) != sequence) {
+				continue;
+			}
+			if (!prioritized || attempt >= MAXIMUM_ATTEMPTS || random.nextDouble() * maximum < priority) {
+				return candidate;
+			}
+		}
+	}
+
+	/**
+	 * Wait until the number of transitions ever added reaches the count, the timeout elapses, the waiting thread is
+	 * signaled or interrupted. Only one thread can wait at a time.
+	 *
+	 * @param count The count to wait for.
+	 * @param timeout The timeout.
+	 * @param unit The unit of the timeout.
+	 */
+	public void await(long count, long timeout, TimeUnit unit) {
+		Thread thread = Thread.currentThread();
+		waiter = thread;
+		try {
+			if (getCount() < count && !thread.isInterrupted()) {
+				LockSupport.parkNanos(this, unit.toNanos(timeout));
+			}
+		} finally {
+			waiter = null;
+		}
+	}
+
+	/**
+	 * Wake up the waiting thread, if any, for instance when a producer ends.
+	 */
+	public void signal() {
+		Thread thread = waiter;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+}
@@ -29,4 +29,12 @@ public interface Reward {
 	 * @return The reward.
 	 */
 	double getReward(State previous, State current);
+
+	/**
+	 * Returns an independent instance of this reward function, for a parallel rollout worker. A reward function
+	 * without mutable state can return itself.
+	 * 
+	 * @return The copy.
+	 */
+	Reward copy();
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.learning.reinforcement;
+
+import com.qtplaf.library.ai.data.Pattern;
+import com.qtplaf.library.util.Properties;
+
+/**
+ * A transition of an episode kept in the replay memory: the inputs of the state, the errors that encourage or
+ * discourage the action taken, and the return, the sum of the rewards from the transition to the end of the episode.
+ * <p>
+ * Unlike an episode pattern, a transition does not refer to its episode, so the memory does not retain whole episodes,
+ * and the action is encouraged or discouraged by its own return instead of the total reward of the episode, that
+ * includes the rewards of the steps before the action.
+ *
+ * @author Miquel Sas
+ */
+public class Transition implements Pattern {
+
+	/** The inputs of the state. */
+	private final double[] inputs;
+	/** The errors, the gradients that encourage or discourage the action. */
+	private final double[] errors;
+	/** The return from this transition to the end of the episode. */
+	private final double reward;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param episodePattern The episode pattern.
+	 * @param reward The return from the pattern to the end of the episode.
+	 */
+	public Transition(EpisodePattern episodePattern, double reward) {
+		super();
+		Action action = episodePattern.getAction();
+		this.inputs = episodePattern.getInputs();
+		this.errors = (reward > 0 ? action.getGradientsEncourage() : action.getGradientsDiscourage());
+		this.reward = reward;
+	}
+
+	/**
+	 * Return the return from this transition to the end of the episode.
+	 * 
+	 * @return The return.
+	 */
+	public double getReward() {
+		return reward;
+	}
+
+	/**
+	 * Return the pattern inputs.
+	 * 
+	 * @return The pattern inputs.
+	 */
+	@Override
+	public double[] getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * Return the optional pattern outputs, not applicable.
+	 * 
+	 * @return The pattern outputs.
+	 */
+	@Override
+	public double[] getOutputs() {
+		return null;
+	}
+
+	/**
+	 * Return the errors, the gradients that encourage the action if the return is positive, or discourage it.
+	 * 
+	 * @param networkOutputs The list of network outputs.
+	 * @return The errors.
+	 */
+	@Override
+	public double[] getErrors(double[] networkOutputs) {
+		return errors;
+	}
+
+	/**
+	 * Return the optional label.
+	 * 
+	 * @return The label.
+	 */
+	@Override
+	public String getLabel() {
+		return null;
+	}
+
+	/**
+	 * Return the additional properties.
+	 * 
+	 * @return The additional properties.
+	 */
+	@Override
+	public Properties getProperties() {
+		return null;
+	}
+}
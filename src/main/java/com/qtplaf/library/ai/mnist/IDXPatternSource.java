@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.ai.mnist;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.qtplaf.library.ai.data.Pattern;
+import com.qtplaf.library.ai.data.PatternSource;
+import com.qtplaf.library.ai.function.Normalizer;
+import com.qtplaf.library.ai.function.normalize.StdNormalizer;
+import com.qtplaf.library.util.Properties;
+import com.qtplaf.library.util.math.Matrix;
+
+/**
+ * A pattern source over MNIST label and image files in IDX format, memory mapped. Pixels are decoded to normalized
+ * doubles on demand through a lookup table, so the heap does not hold the decoded images. Batches and samples are
+ * views that share the mapped files and only hold index ranges or arrays.
+ * <p>
+ * Image file: 32 bit magic number (0x803), number of images, rows and columns, then the unsigned bytes of the images.
+ * Label file: 32 bit magic number (0x801) and number of labels, then the unsigned byte labels. Integers are big-endian.
+ *
+ * @author Miquel Sas
+ */
+public class IDXPatternSource extends PatternSource {
+
+	/** Magic number of the label file. */
+	private static final int LABELS_MAGIC = 0x801;
+	/** Magic number of the image file. */
+	private static final int IMAGES_MAGIC = 0x803;
+	/** Offset of the first label. */
+	private static final int LABELS_OFFSET = 8;
+	/** Offset of the first image. */
+	private static final int IMAGES_OFFSET = 16;
+
+	/**
+	 * A pattern of a record of the source, that decodes the inputs when requested.
+	 */
+	class IDXPattern implements Pattern {
+		/** The record in the files. */
+		private int record;
+		/** Decoded inputs. */
+		private double[] inputs;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param record The record in the files.
+		 */
+		IDXPattern(int record) {
+			super();
+			this.record = record;
+		}
+
+		/**
+		 * Return the pattern inputs, decoded on first access.
+		 *
+		 * @return The pattern inputs.
+		 */
+		@Override
+		public double[] getInputs() {
+			if (inputs == null) {
+				inputs = new double[imageSize];
+				decode(record, inputs, 0);
+			}
+			return inputs;
+		}
+
+		/**
+		 * Return the pattern outputs, shared by all the patterns of the same number.
+		 *
+		 * @return The pattern outputs.
+		 */
+		@Override
+		public double[] getOutputs() {
+			return outputs[getRecordNumber(record)];
+		}
+
+		/**
+		 * Return the errors given the network outputs.
+		 *
+		 * @return The errors.
+		 */
+		@Override
+		public double[] getErrors(double[] networkOutputs) {
+			return Matrix.subtract(getOutputs(), networkOutputs);
+		}
+
+		/**
+		 * Fill the errors given the network outputs, subtracting in place.
+		 *
+		 * @param networkOutputs The network outputs.
+		 * @param errors The errors to fill.
+		 */
+		@Override
+		public void getErrors(double[] networkOutputs, double[] errors) {
+			double[] outputs = getOutputs();
+			for (int i = 0; i < errors.length; i++) {
+				errors[i] = outputs[i] - networkOutputs[i];
+			}
+		}
+
+		/**
+		 * Return the label.
+		 *
+		 * @return The label.
+		 */
+		@Override
+		public String getLabel() {
+			return Integer.toString(getRecordNumber(record));
+		}
+
+		/**
+		 * Return the additional properties, not supported by this pattern.
+		 *
+		 * @return The additional properties.
+		 */
+		@Override
+		public Properties getProperties() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/** Mapped labels. */
+	private ByteBuffer labels;
+	/** Mapped images. */
+	private ByteBuffer images;
+	/** Image size, rows by columns. */
+	private int imageSize;
+	/** Normalized value of each image byte. */
+	private double[] pixels;
+	/** Normalized outputs of each number. */
+	private double[][] outputs;
+	/** Start of the view, a record or an index of the records. */
+	private int start;
+	/** Size of the view. */
+	private int size;
+	/** Records of the view, or null if the view is the range from start. */
+	private int[] records;
+
+	/**
+	 * Constructor mapping the files.
+	 *
+	 * @param labelFile The label file.
+	 * @param imageFile The image file.
+	 * @param bipolar A boolean that indicates if inputs and outputs must be bipolar.
+	 * @throws IOException If an IO error occurs or the files are not valid.
+	 */
+	public IDXPatternSource(File labelFile, File imageFile, boolean bipolar) throws IOException {
+		super();
+		labels = map(labelFile);
+		images = map(imageFile);
+		if (labels.getInt(0) != LABELS_MAGIC || images.getInt(0) != IMAGES_MAGIC) {
+			throw new IOException("Invalid IDX files " + labelFile + ", " + imageFile);
+		}
+		int numLabels = labels.getInt(4);
+		int numImages = images.getInt(4);
+		if (numImages != numLabels) {
+			throw new IOException(
+				"The number of images " + numImages + " has to be equals to the numeber of labels " + numLabels);
+		}
+		imageSize = images.getInt(8) * images.getInt(12);
+		if (labels.capacity() < LABELS_OFFSET + numLabels
+			|| images.capacity() < IMAGES_OFFSET + (long) numImages * imageSize) {
+			throw new IOException("Truncated IDX files " + labelFile + ", " + imageFile);
+		}
+
+		// Lookup tables, with the same normalization and inversion as the number image patterns.
+		Normalizer normalizer = new StdNormalizer(255, 0, 1, (bipolar ? -1 : 0));
+		pixels = new double[256];
+		for (int i = 0; i < 256; i++) {
+			pixels[i] = normalizer.normalize(255 - i);
+		}
+		normalizer = new StdNormalizer(1, 0, 1, (bipolar ? -1 : 0));
+		outputs = new double[10][10];
+		for (int number = 0; number < 10; number++) {
+			for (int i = 0; i < 10; i++) {
+				outputs[number][i] = normalizer.normalize(i == number ? 1.0 : 0.0);
+			}
+		}
+
+		start = 0;
+		size = numImages;
+	}
+
+	/**
+	 * Constructor of a view of the parent source.
+	 *
+	 * @param parent The parent source.
+	 * @param start Start of the range, a record or an index of the records.
+	 * @param size Size of the view.
+	 * @param records Records of the view, or null for the range from start.
+	 */
+	private IDXPatternSource(IDXPatternSource parent, int start, int size, int[] records) {
+		super();
+		this.labels = parent.labels;
+		this.images = parent.images;
+		this.imageSize = parent.imageSize;
+		this.pixels = parent.pixels;
+		this.outputs = parent.outputs;
+		this.start = start;
+		this.size = size;
+		this.records = records;
+	}
+
+	/**
+	 * Map a file read only.
+	 *
+	 * @param file The file.
+	 * @return The mapped buffer, big-endian.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private static ByteBuffer map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Returns the record in the files of an index of the view.
+	 *
+	 * @param index The index.
+	 * @return The record.
+	 */
+	private int getRecord(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return (records != null ? records[start + index] : start + index);
+	}
+
+	/**
+	 * Returns the number of a record.
+	 *
+	 * @param record The record.
+	 * @return The number.
+	 */
+	private int getRecordNumber(int record) {
+		return Byte.toUnsignedInt(labels.get(LABELS_OFFSET + record));
+	}
+
+	/**
+	 * Decode the image of a record into the inputs. Uses absolute reads, so concurrent decoding is safe.
+	 *
+	 * @param record The record.
+	 * @param inputs The inputs to fill.
+	 * @param offset The offset in the inputs.
+	 */
+	private void decode(int record, double[] inputs, int offset) {
+		int position = IMAGES_OFFSET + record * imageSize;
+		for (int i = 0; i < imageSize; i++) {
+			inputs[offset + i] = pixels[Byte.toUnsignedInt(images.get(position + i))];
+		}
+	}
+
+	/**
+	 * Decode the normalized inputs of the pattern at the given index into a block, starting at the offset, without
+	 * creating the pattern.
+	 *
+	 * @param index The index.
+	 * @param block The block to fill.
+	 * @param offset The offset in the block.
+	 */
+	@Override
+	public void getInputs(int index, double[] block, int offset) {
+		decode(getRecord(index), block, offset);
+	}
+
+	/**
+	 * Fill the errors of the pattern at the given index, given the network outputs, without creating the pattern.
+	 *
+	 * @param index The index.
+	 * @param networkOutputs The network outputs.
+	 * @param errors The errors to fill.
+	 */
+	@Override
+	public void getErrors(int index, double[] networkOutputs, double[] errors) {
+		double[] patternOutputs = outputs[getRecordNumber(getRecord(index))];
+		for (int i = 0; i < errors.length; i++) {
+			errors[i] = patternOutputs[i] - networkOutputs[i];
+		}
+	}
+
+	/**
+	 * Returns the number of the pattern at the given index.
+	 *
+	 * @param index The index.
+	 * @return The number.
+	 */
+	public int getNumber(int index) {
+		return getRecordNumber(getRecord(index));
+	}
+
+	/**
+	 * Returns the number image of the pattern at the given index, for instance to view it.
+	 *
+	 * @param index The index.
+	 * @return The number image.
+	 */
+	public NumberImage getNumberImage(int index) {
+		int record = getRecord(index);
+		byte[] bytes = new byte[imageSize];
+		ByteBuffer image = images.duplicate();
+		image.position(IMAGES_OFFSET + record * imageSize);
+		image.get(bytes);
+		return new NumberImage(getRecordNumber(record), bytes);
+	}
+
+	/**
+	 * Returns the pattern at the given index.
+	 *
+	 * @param index The index.
+	 * @return The pattern.
+	 */
+	@Override
+	public Pattern get(int index) {
+		return new IDXPattern(getRecord(index));
+	}
+
+	/**
+	 * Returns the size or number of patterns in the source.
+	 *
+	 * @return The size.
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Check if the source is empty.
+	 *
+	 * @return A boolean.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns a list of pattern batches used to process patterns concurrently, one per available processor, as views
+	 * of index ranges.
+	 *
+	 * @return The list of sub-pattern sources.
+	 */
+	@Override
+	public List<PatternSource> getBatches() {
+		return getBatches(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns a list of size pattern batches, views of index ranges of this source.
+	 *
+	 * @param count The number of pattern batches.
+	 * @return The list of sub-pattern sources.
+	 */
+	private List<PatternSource> getBatches(int count) {
+		List<PatternSource> subSources = new ArrayList<>();
+		if (count > size) {
+			subSources.add(this);
+			return subSources;
+		}
+		int segmentSize = size / count;
+		for (int i = 0; i < count; i++) {
+			int from = i * segmentSize;
+			int to = (i == count - 1 ? size : from + segmentSize);
+			subSources.add(new IDXPatternSource(this, start + from, to - from, records));
+		}
+		return subSources;
+	}
+
+	/**
+	 * Returns a view with a random sample of size patterns, with an equal number of patterns per number.
+	 *
+	 * @param sampleSize The sample size.
+	 * @param random The random generator.
+	 * @return The sample view.
+	 */
+	public IDXPatternSource getSample(int sampleSize, Random random) {
+		int[][] numberRecords = new int[10][];
+		int[] counts = new int[10];
+		for (int index = 0; index < size; index++) {
+			counts[getNumber(index)]++;
+		}
+		for (int number = 0; number < 10; number++) {
+			numberRecords[number] = new int[counts[number]];
+			counts[number] = 0;
+		}
+		for (int index = 0; index < size; index++) {
+			int number = getNumber(index);
+			numberRecords[number][counts[number]++] = getRecord(index);
+		}
+		int numberSize = sampleSize / 10;
+		List<Integer> sample = new ArrayList<>();
+		for (int number = 0; number < 10; number++) {
+			if (counts[number] == 0) {
+				continue;
+			}
+			for (int i = 0; i < numberSize; i++) {
+				sample.add(numberRecords[number][random.nextInt(counts[number])]);
+			}
+		}
+		int[] sampleRecords = new int[sample.size()];
+		for (int i = 0; i < sampleRecords.length; i++) {
+			sampleRecords[i] = sample.get(i);
+		}
+		return new IDXPatternSource(this, 0, sampleRecords.length, sampleRecords);
+	}
+}
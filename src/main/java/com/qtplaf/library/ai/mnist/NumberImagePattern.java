@@ -102,6 +102,20 @@ public class NumberImagePattern implements Pattern {
 		return Matrix.subtract(getOutputs(), networkOutputs);
 	}
 
+	/**
+	 * Fill the errors given the network outputs, subtracting in place.
+	 * 
+	 * @param networkOutputs The network outputs.
+	 * @param errors The errors to fill.
+	 */
+	@Override
+	public void getErrors(double[] networkOutputs, double[] errors) {
+		double[] outputs = getOutputs();
+		for (int i = 0; i < errors.length; i++) {
+			errors[i] = outputs[i] - networkOutputs[i];
+		}
+	}
+
 	/**
 	 * Return the label.
 	 * 
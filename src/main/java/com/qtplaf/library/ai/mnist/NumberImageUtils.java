@@ -122,8 +122,8 @@ public class NumberImageUtils {
 	 * @return The pattern source.
 	 * @throws IOException If such an error occurs.
 	 */
-	public static PatternSource getPatternSourceTrain(boolean bipolar) throws IOException {
-		return getPatternSource(getNumberImagesTrain(), bipolar);
+	public static IDXPatternSource getPatternSourceTrain(boolean bipolar) throws IOException {
+		return getPatternSource(TRAIN_LABELS, TRAIN_IMAGES, bipolar);
 	}
 
 	/**
@@ -133,8 +133,24 @@ public class NumberImageUtils {
 	 * @return The pattern source.
 	 * @throws IOException If such an error occurs.
 	 */
-	public static PatternSource getPatternSourceTest(boolean bipolar) throws IOException {
-		return getPatternSource(getNumberImagesTest(), bipolar);
+	public static IDXPatternSource getPatternSourceTest(boolean bipolar) throws IOException {
+		return getPatternSource(TEST_LABELS, TEST_IMAGES, bipolar);
+	}
+
+	/**
+	 * Returns the memory mapped pattern source given the labels and the images file names.
+	 * 
+	 * @param labelsFileName The labels file name.
+	 * @param imagesFileName The images file name.
+	 * @param bipolar A boolean that indicates if normalization is bipolar.
+	 * @return The pattern source.
+	 * @throws IOException If such an error occurs.
+	 */
+	public static IDXPatternSource getPatternSource(String labelsFileName, String imagesFileName, boolean bipolar)
+		throws IOException {
+		File fileLabel = FileUtils.getFileFromClassPathEntries(labelsFileName);
+		File fileImage = FileUtils.getFileFromClassPathEntries(imagesFileName);
+		return new IDXPatternSource(fileLabel, fileImage, bipolar);
 	}
 
 	/**
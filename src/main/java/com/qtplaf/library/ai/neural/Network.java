@@ -14,7 +14,7 @@
 
 package com.qtplaf.library.ai.neural;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.qtplaf.library.ai.function.Activation;
@@ -23,10 +23,13 @@ import com.qtplaf.library.util.math.Matrix;
 /**
  * Feed forward neural network.
  * <p>
- * All weights and related matrices are [rows=output, columns=input].
+ * All weights and related matrices are [rows=output, columns=input]. The weights of all the layers are stored in a
+ * single flat parameter vector, layer after layer and row after row, so the weight of layer <i>l</i>, output neuron
+ * <i>o</i> and input neuron <i>i</i> is at <code>getWeightOffset(l) + o * getNeurons(l - 1) + i</code>. Gradients and
+ * any other per weight data of the learning methods follow the same layout.
  * <p>
  * This network version does not accept context layers.
- *
+ * 
  * @author Miquel Sas
  */
 public class Network {
@@ -35,17 +38,20 @@ public class Network {
 	 * Data generated during the back propagation.
 	 * <ul>
 	 * <li>Deltas or increases/decreases of the outputs, starting with the output error.</li>
-	 * <li>Gradients or increases/decreases of the weights.</li>
+	 * <li>Gradients or increases/decreases of the weights, with the layout of the network weights.</li>
 	 * </ul>
-	 *
+	 * A backward data is a workspace intended to be reused by the thread that created it, pattern after pattern.
+	 * 
 	 * @author Miquel Sas
 	 */
 	public static class Backward {
 
 		/** List of per layer deltas. */
 		private final List<double[]> deltas;
-		/** List of per layer gradients. */
-		private final List<double[][]> gradients;
+		/** List of per layer derivatives, a work area. */
+		private final List<double[]> derivatives;
+		/** Gradients, with the layout of the network weights. */
+		private final double[] gradients;
 
 		/**
 		 * Constructor.
@@ -55,7 +61,8 @@ public class Network {
 		public Backward(Network network) {
 			super();
 			this.deltas = NetworkUtils.createLayerVectors(network);
-			this.gradients = NetworkUtils.createLayerMatrices(network);
+			this.derivatives = NetworkUtils.createLayerVectors(network);
+			this.gradients = new double[network.getWeightCount()];
 		}
 
 		/**
@@ -68,23 +75,30 @@ public class Network {
 			return deltas.get(layer);
 		}
 
+		/**
+		 * Return the derivatives work area of the layer.
+		 * 
+		 * @param layer The layer.
+		 * @return The derivatives.
+		 */
+		public double[] getDerivatives(int layer) {
+			return derivatives.get(layer);
+		}
+
 		/**
 		 * Return all the gradients.
 		 * 
 		 * @return The gradients.
 		 */
-		public List<double[][]> getGradients() {
+		public double[] getGradients() {
 			return gradients;
 		}
 
 		/**
-		 * Return the gradients of the layer.
-		 * 
-		 * @param layer The layer.
-		 * @return The gradients.
+		 * Reset the cumulated gradients to zero.
 		 */
-		public double[][] getGradients(int layer) {
-			return gradients.get(layer);
+		public void reset() {
+			Arrays.fill(gradients, 0);
 		}
 	}
 
@@ -97,7 +111,9 @@ public class Network {
 	 * </ul>
 	 * Signals, triggers and outputs are recorded because in the back propagation process the derivative, depending on
 	 * the activation function, can require the trigger or input or the output.
-	 *
+	 * <p>
+	 * A forward data is a workspace intended to be reused by the thread that created it, pattern after pattern.
+	 * 
 	 * @author Miquel Sas
 	 */
 	public static class Forward {
@@ -161,6 +177,171 @@ public class Network {
 		}
 	}
 
+	/**
+	 * Forward data of a batch of patterns, the batch version of <code>Forward</code>. Signals, triggers and outputs of
+	 * each layer are blocks of <i>capacity</i> rows by the neurons of the layer, flat and row major, one row per
+	 * pattern. The outputs of the input layer are the network inputs of the batch.
+	 * <p>
+	 * A forward batch is a workspace intended to be reused by the thread that created it, batch after batch.
+	 * 
+	 * @author Miquel Sas
+	 */
+	public static class ForwardBatch {
+
+		/** Maximum number of patterns of the batch. */
+		private final int capacity;
+		/** List of per layer signals. */
+		private final List<double[]> signals;
+		/** List of per layer triggers. */
+		private final List<double[]> triggers;
+		/** List of per layer outputs. */
+		private final List<double[]> outputs;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param network The network.
+		 * @param capacity The maximum number of patterns of the batch.
+		 */
+		public ForwardBatch(Network network, int capacity) {
+			super();
+			this.capacity = capacity;
+			this.signals = NetworkUtils.createLayerBlocks(network, capacity);
+			this.triggers = NetworkUtils.createLayerBlocks(network, capacity);
+			this.outputs = NetworkUtils.createLayerBlocks(network, capacity);
+		}
+
+		/**
+		 * Returns the maximum number of patterns of the batch.
+		 * 
+		 * @return The capacity.
+		 */
+		public int getCapacity() {
+			return capacity;
+		}
+
+		/**
+		 * Set the network inputs of a row of the batch.
+		 * 
+		 * @param row The row or pattern index within the batch.
+		 * @param networkInputs The network inputs.
+		 */
+		public void setInputs(int row, double[] networkInputs) {
+			int neurons = networkInputs.length;
+			System.arraycopy(networkInputs, 0, outputs.get(0), row * neurons, neurons);
+		}
+
+		/**
+		 * Copy the outputs of a row of the layer to the argument vector.
+		 * 
+		 * @param layer The layer.
+		 * @param row The row or pattern index within the batch.
+		 * @param vector The destination vector, of the size of the layer.
+		 */
+		public void getOutputs(int layer, int row, double[] vector) {
+			int neurons = vector.length;
+			System.arraycopy(outputs.get(layer), row * neurons, vector, 0, neurons);
+		}
+
+		/**
+		 * Return the signals block of the layer.
+		 * 
+		 * @param layer The layer.
+		 * @return The signals.
+		 */
+		public double[] getSignals(int layer) {
+			return signals.get(layer);
+		}
+
+		/**
+		 * Return the triggers block of the layer.
+		 * 
+		 * @param layer The layer.
+		 * @return The triggers.
+		 */
+		public double[] getTriggers(int layer) {
+			return triggers.get(layer);
+		}
+
+		/**
+		 * Return the outputs block of the layer.
+		 * 
+		 * @param layer The layer.
+		 * @return The outputs.
+		 */
+		public double[] getOutputs(int layer) {
+			return outputs.get(layer);
+		}
+	}
+
+	/**
+	 * Backward data of a batch of patterns, the batch version of <code>Backward</code>. Deltas and derivatives of each
+	 * layer are blocks of <i>capacity</i> rows by the neurons of the layer, and gradients are cumulated for all the
+	 * patterns with the layout of the network weights.
+	 * <p>
+	 * A backward batch is a workspace intended to be reused by the thread that created it, batch after batch.
+	 * 
+	 * @author Miquel Sas
+	 */
+	public static class BackwardBatch {
+
+		/** List of per layer deltas. */
+		private final List<double[]> deltas;
+		/** List of per layer derivatives, a work area. */
+		private final List<double[]> derivatives;
+		/** Gradients, with the layout of the network weights. */
+		private final double[] gradients;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param network The network.
+		 * @param capacity The maximum number of patterns of the batch.
+		 */
+		public BackwardBatch(Network network, int capacity) {
+			super();
+			this.deltas = NetworkUtils.createLayerBlocks(network, capacity);
+			this.derivatives = NetworkUtils.createLayerBlocks(network, capacity);
+			this.gradients = new double[network.getWeightCount()];
+		}
+
+		/**
+		 * Return the deltas block of the layer.
+		 * 
+		 * @param layer The layer.
+		 * @return The deltas.
+		 */
+		public double[] getDeltas(int layer) {
+			return deltas.get(layer);
+		}
+
+		/**
+		 * Return the derivatives work area block of the layer.
+		 * 
+		 * @param layer The layer.
+		 * @return The derivatives.
+		 */
+		public double[] getDerivatives(int layer) {
+			return derivatives.get(layer);
+		}
+
+		/**
+		 * Return all the gradients.
+		 * 
+		 * @return The gradients.
+		 */
+		public double[] getGradients() {
+			return gradients;
+		}
+
+		/**
+		 * Reset the cumulated gradients to zero.
+		 */
+		public void reset() {
+			Arrays.fill(gradients, 0);
+		}
+	}
+
 	/** Flat spot to avoid near zero derivatives in the back propagation process. */
 	private static double flatSpot = 0.01;
 
@@ -218,7 +399,7 @@ public class Network {
 		double[] outputs = forward.getOutputs(layer);
 		double[] deltas = backward.getDeltas(layer);
 
-		double[] derivatives = new double[neurons];
+		double[] derivatives = backward.getDerivatives(layer);
 		Activation activation = network.getActivation(layer);
 		activation.derivatives(triggers, outputs, derivatives);
 
@@ -253,10 +434,11 @@ public class Network {
 		double[] deltasIn = backward.getDeltas(layerIn);
 		double[] deltasOut = backward.getDeltas(layerOut);
 
-		double[][] gradients = backward.getGradients(layerOut);
-		double[][] weights = network.getWeights(layerOut);
+		double[] gradients = backward.getGradients();
+		double[] weights = network.getWeights();
+		int offset = network.getWeightOffset(layerOut);
 
-		double[] derivativesIn = new double[neuronsIn];
+		double[] derivativesIn = backward.getDerivatives(layerIn);
 		Activation activationIn = network.getActivation(layerIn);
 		activationIn.derivatives(triggersIn, outputsIn, derivativesIn);
 
@@ -264,10 +446,11 @@ public class Network {
 			double output = outputsIn[in];
 			double weightedDelta = 0;
 			for (int out = 0; out < neuronsOut; out++) {
+				int index = offset + out * neuronsIn + in;
 				double delta = deltasOut[out];
-				double weight = weights[out][in];
+				double weight = weights[index];
 				weightedDelta += (delta * weight);
-				gradients[out][in] += (output * delta);
+				gradients[index] += (output * delta);
 			}
 			double delta = weightedDelta * (derivativesIn[in] + flatSpot);
 			deltasIn[in] = delta;
@@ -292,32 +475,46 @@ public class Network {
 		double[] outputs = forward.getOutputs(layerIn);
 		double[] deltas = backward.getDeltas(layerOut);
 
-		double[][] gradients = backward.getGradients(layerOut);
+		double[] gradients = backward.getGradients();
+		int offset = network.getWeightOffset(layerOut);
 
-		for (int in = 0; in < neuronsIn; in++) {
-			double output = outputs[in];
-			for (int out = 0; out < neuronsOut; out++) {
-				double delta = deltas[out];
-				gradients[out][in] += (output * delta);
+		for (int out = 0; out < neuronsOut; out++) {
+			double delta = deltas[out];
+			int row = offset + out * neuronsIn;
+			for (int in = 0; in < neuronsIn; in++) {
+				gradients[row + in] += (outputs[in] * delta);
 			}
 		}
 	}
 
 	/**
-	 * Process the inputs and store the outputs.
+	 * Process the inputs and store the outputs in a new forward data.
 	 * 
 	 * @param network The network.
 	 * @param networkInputs The inputs to process.
 	 * @return The forward data.
 	 */
 	public static Forward forward(Network network, double[] networkInputs) {
-
-		// Forward data.
 		Forward forward = new Forward(network);
+		forward(network, networkInputs, forward);
+		return forward;
+	}
+
+	/**
+	 * Process the inputs and store the outputs in the argument forward data, that is reused.
+	 * 
+	 * @param network The network.
+	 * @param networkInputs The inputs to process.
+	 * @param forward The forward data to fill.
+	 */
+	public static void forward(Network network, double[] networkInputs, Forward forward) {
 
 		// Input layer outputs are the network inputs.
 		Matrix.copy(networkInputs, forward.getOutputs(0));
 
+		// Network weights.
+		double[] weights = network.getWeights();
+
 		// Subsequent layers.
 		for (int i = 1; i < network.getLayers(); i++) {
 
@@ -331,19 +528,18 @@ public class Network {
 			double[] signals = forward.getSignals(layerOut);
 			double[] triggers = forward.getTriggers(layerOut);
 			double bias = network.getBias(layerOut);
-			double[][] weights = network.getWeights(layerOut);
+			int offset = network.getWeightOffset(layerOut);
 
-			double[] inputs = forward.getOutputs().get(layerIn);
+			double[] inputs = forward.getOutputs(layerIn);
 
 			// Weighted sum.
 			for (int out = 0; out < neuronsOut; out++) {
 
 				// Signal, weighted inputs.
+				int row = offset + out * neuronsIn;
 				double signal = 0;
 				for (int in = 0; in < neuronsIn; in++) {
-					double input = inputs[in];
-					double weight = weights[out][in];
-					signal += (input * weight);
+					signal += (inputs[in] * weights[row + in]);
 				}
 				signals[out] = signal;
 
@@ -356,18 +552,127 @@ public class Network {
 			Activation activation = network.getActivation(layerOut);
 			activation.activations(triggers, outputs);
 		}
+	}
 
-		return forward;
+	/**
+	 * Process a batch of inputs, previously set in the forward batch, layer by layer as blocked matrix products. The
+	 * results match those of processing the patterns one by one with <code>forward</code>.
+	 * 
+	 * @param network The network.
+	 * @param forward The forward batch, with the inputs set.
+	 * @param size The number of patterns of the batch, not greater than its capacity.
+	 */
+	public static void forward(Network network, ForwardBatch forward, int size) {
+
+		// Network weights.
+		double[] weights = network.getWeights();
+
+		// Subsequent layers.
+		for (int i = 1; i < network.getLayers(); i++) {
+
+			// Layers out and in.
+			int layerOut = i;
+			int layerIn = i - 1;
+
+			int neuronsOut = network.getNeurons(layerOut);
+			int neuronsIn = network.getNeurons(layerIn);
+
+			double[] signals = forward.getSignals(layerOut);
+			double[] triggers = forward.getTriggers(layerOut);
+			double bias = network.getBias(layerOut);
+			int offset = network.getWeightOffset(layerOut);
+
+			double[] inputs = forward.getOutputs(layerIn);
+
+			// Signals, the inputs block by the transposed weights.
+			Matrix.multiplyTransposed(inputs, weights, offset, signals, size, neuronsIn, neuronsOut);
+
+			// Triggers.
+			int length = size * neuronsOut;
+			for (int j = 0; j < length; j++) {
+				triggers[j] = signals[j] + bias;
+			}
+
+			// Activation over the used rows of the block.
+			double[] outputs = forward.getOutputs(layerOut);
+			Activation activation = network.getActivation(layerOut);
+			activation.activations(triggers, outputs, 0, length);
+		}
+	}
+
+	/**
+	 * Backward process the network deltas or errors of a batch, cumulating gradients with blocked matrix products. The
+	 * results match those of processing the patterns one by one with <code>backward</code>.
+	 * 
+	 * @param network The network.
+	 * @param forward The forward batch generated in the forward process.
+	 * @param backward The backward batch (gradients are cumulated)
+	 * @param networkDeltas The network deltas or errors, a block of one row per pattern.
+	 * @param size The number of patterns of the batch.
+	 */
+	public static void backward(
+		Network network,
+		ForwardBatch forward,
+		BackwardBatch backward,
+		double[] networkDeltas,
+		int size) {
+
+		double[] weights = network.getWeights();
+		double[] gradients = backward.getGradients();
+
+		// Output layer deltas.
+		int last = network.getLayers() - 1;
+		int length = size * network.getNeurons(last);
+		double[] deltasLast = backward.getDeltas(last);
+		double[] derivativesLast = backward.getDerivatives(last);
+		Activation activationLast = network.getActivation(last);
+		activationLast.derivatives(forward.getTriggers(last), forward.getOutputs(last), derivativesLast, 0, length);
+		for (int j = 0; j < length; j++) {
+			deltasLast[j] = networkDeltas[j] * (derivativesLast[j] + flatSpot);
+		}
+
+		// Subsequent layers backwards: cumulate the gradients of the layer and propagate the deltas to the layer in.
+		for (int layerOut = last; layerOut >= 1; layerOut--) {
+
+			int layerIn = layerOut - 1;
+			int neuronsOut = network.getNeurons(layerOut);
+			int neuronsIn = network.getNeurons(layerIn);
+			int offset = network.getWeightOffset(layerOut);
+
+			double[] outputsIn = forward.getOutputs(layerIn);
+			double[] deltasOut = backward.getDeltas(layerOut);
+
+			// Gradients, the transposed deltas block by the inputs block.
+			Matrix.cumulateTransposedProduct(deltasOut, outputsIn, gradients, offset, neuronsOut, size, neuronsIn);
+
+			// The input layer has no deltas.
+			if (layerIn == 0) {
+				break;
+			}
+
+			// Deltas of the layer in, the deltas block by the weights, times the derivatives.
+			double[] deltasIn = backward.getDeltas(layerIn);
+			double[] derivativesIn = backward.getDerivatives(layerIn);
+			Activation activationIn = network.getActivation(layerIn);
+			length = size * neuronsIn;
+			activationIn.derivatives(forward.getTriggers(layerIn), outputsIn, derivativesIn, 0, length);
+			Matrix.multiply(deltasOut, weights, offset, deltasIn, size, neuronsOut, neuronsIn);
+			for (int j = 0; j < length; j++) {
+				deltasIn[j] *= (derivativesIn[j] + flatSpot);
+			}
+		}
 	}
 
-	/** List of sizes of each layer. */
-	private List<Integer> layers = new ArrayList<>();
-	/** List of activations of neurons of subsequent layers (number of layers-1). */
-	private List<Activation> activations = new ArrayList<>();
-	/** List of biases of neurons of subsequent layers (number of layers-1). */
-	private List<Double> biases = new ArrayList<>();
-	/** List of weights of subsequent layers (number of layers-1). */
-	private List<double[][]> weights = new ArrayList<>();
+	/** Sizes of each layer. */
+	private int[] layers = new int[0];
+	/** Activations of neurons of subsequent layers (number of layers-1). */
+	private Activation[] activations = new Activation[0];
+	/** Biases of neurons of subsequent layers (number of layers-1). */
+	private double[] biases = new double[0];
+	/** Offsets of the weights of subsequent layers in the parameter vector (number of layers-1). */
+	private int[] offsets = new int[0];
+	/** The flat parameter vector of weights of subsequent layers. */
+	private double[] weights = new double[0];
 
 	/**
 	 * Constructor.
@@ -387,31 +692,19 @@ public class Network {
 	 */
 	public void createStructure(int... sizes) {
 
-		// Clear lists for reuse.
-		activations.clear();
-		biases.clear();
-		layers.clear();
-		weights.clear();
+		// Clear for reuse.
+		layers = new int[0];
+		activations = new Activation[0];
+		biases = new double[0];
+		offsets = new int[0];
+		weights = new double[0];
 
 		for (int i = 0; i < sizes.length; i++) {
-			int sizeOut = sizes[i];
-			int sizeIn = (i == 0 ? 0 : sizes[i - 1]);
-			createStructure(sizeOut, sizeIn);
-		}
-	}
-
-	/**
-	 * Creates an empty structure for a layer.
-	 * 
-	 * @param sizeOut Output size.
-	 * @param sizeIn Input size.
-	 */
-	private void createStructure(int sizeOut, int sizeIn) {
-		layers.add(sizeOut);
-		if (sizeIn > 0) {
-			activations.add(null);
-			biases.add(0d);
-			weights.add(new double[sizeOut][sizeIn]);
+			if (i == 0) {
+				addLayer(sizes[i]);
+			} else {
+				addLayer(sizes[i], null, 0);
+			}
 		}
 	}
 
@@ -421,10 +714,10 @@ public class Network {
 	 * @param neurons The number of neurons.
 	 */
 	public void addLayer(int neurons) {
-		if (!layers.isEmpty()) {
+		if (layers.length > 0) {
 			throw new IllegalStateException();
 		}
-		layers.add(neurons);
+		layers = new int[] { neurons };
 	}
 
 	/**
@@ -441,32 +734,89 @@ public class Network {
 		int layer = getLayers();
 
 		// Set neurons.
-		layers.add(neurons);
+		layers = Arrays.copyOf(layers, layer + 1);
+		layers[layer] = neurons;
 
 		// Activations.
-		activations.add(activation);
+		activations = Arrays.copyOf(activations, layer);
+		activations[layer - 1] = activation;
 
 		// Bias
-		biases.add(bias);
+		biases = Arrays.copyOf(biases, layer);
+		biases[layer - 1] = bias;
 
-		// Weights widths previous layer.
-		int sizeOut = neurons;
-		int sizeIn = getNeurons(layer - 1);
-		double[][] layerWeights = new double[sizeOut][sizeIn];
-		weights.add(layerWeights);
+		// Weights widths previous layer, appended to the parameter vector.
+		offsets = Arrays.copyOf(offsets, layer);
+		offsets[layer - 1] = weights.length;
+		weights = Arrays.copyOf(weights, weights.length + neurons * getNeurons(layer - 1));
 	}
 
 	/**
-	 * Returns the weights of the layer.
+	 * Returns the flat parameter vector of weights of all the layers. The vector is the one used by the network, any
+	 * change is a change in the network.
 	 * 
-	 * @param layer The layer.
 	 * @return The weights.
 	 */
-	public double[][] getWeights(int layer) {
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Returns the total number of weights.
+	 * 
+	 * @return The number of weights.
+	 */
+	public int getWeightCount() {
+		return weights.length;
+	}
+
+	/**
+	 * Returns the offset of the weights of the layer in the parameter vector.
+	 * 
+	 * @param layer The layer.
+	 * @return The offset.
+	 */
+	public int getWeightOffset(int layer) {
 		if (layer == 0) {
 			throw new ArrayIndexOutOfBoundsException();
 		}
-		return weights.get(layer - 1);
+		return offsets[layer - 1];
+	}
+
+	/**
+	 * Returns the index in the parameter vector of the weight of the layer, output and input neurons.
+	 * 
+	 * @param layer The layer.
+	 * @param out The output neuron.
+	 * @param in The input neuron.
+	 * @return The index of the weight.
+	 */
+	public int getWeightIndex(int layer, int out, int in) {
+		return getWeightOffset(layer) + out * getNeurons(layer - 1) + in;
+	}
+
+	/**
+	 * Returns the weight of the layer, output and input neurons.
+	 * 
+	 * @param layer The layer.
+	 * @param out The output neuron.
+	 * @param in The input neuron.
+	 * @return The weight.
+	 */
+	public double getWeight(int layer, int out, int in) {
+		return weights[getWeightIndex(layer, out, in)];
+	}
+
+	/**
+	 * Set the weight of the layer, output and input neurons.
+	 * 
+	 * @param layer The layer.
+	 * @param out The output neuron.
+	 * @param in The input neuron.
+	 * @param weight The weight.
+	 */
+	public void setWeight(int layer, int out, int in, double weight) {
+		weights[getWeightIndex(layer, out, in)] = weight;
 	}
 
 	/**
@@ -479,7 +829,7 @@ public class Network {
 		if (layer == 0) {
 			throw new ArrayIndexOutOfBoundsException();
 		}
-		return biases.get(layer - 1);
+		return biases[layer - 1];
 	}
 
 	/**
@@ -492,7 +842,7 @@ public class Network {
 		if (layer == 0) {
 			throw new ArrayIndexOutOfBoundsException();
 		}
-		biases.set(layer - 1, bias);
+		biases[layer - 1] = bias;
 	}
 
 	/**
@@ -501,7 +851,7 @@ public class Network {
 	 * @return The number of layers.
 	 */
 	public int getLayers() {
-		return layers.size();
+		return layers.length;
 	}
 
 	/**
@@ -511,7 +861,7 @@ public class Network {
 	 * @return The number of neurons of the layer.
 	 */
 	public int getNeurons(int layer) {
-		return layers.get(layer);
+		return layers[layer];
 	}
 
 	/**
@@ -524,7 +874,7 @@ public class Network {
 		if (layer == 0) {
 			throw new ArrayIndexOutOfBoundsException();
 		}
-		return activations.get(layer - 1);
+		return activations[layer - 1];
 	}
 
 	/**
@@ -534,7 +884,7 @@ public class Network {
 	 * @param activation The activation.
 	 */
 	public void setActivation(int layer, Activation activation) {
-		activations.set(layer - 1, activation);
+		activations[layer - 1] = activation;
 	}
 
 	/**
@@ -543,37 +893,33 @@ public class Network {
 	@Override
 	public Network clone() {
 		Network network = new Network();
-		for (int layer = 0; layer < getLayers(); layer++) {
-
-			// Layer size (number of neurons)
-			network.layers.add(new Integer(getNeurons(layer)));
-
-			// Layer 0 is done.
-			if (layer == 0) {
-				continue;
-			}
+		network.layers = layers.clone();
+		network.activations = activations.clone();
+		network.biases = biases.clone();
+		network.offsets = offsets.clone();
+		network.weights = weights.clone();
+		return network;
+	}
 
-			// Activation
-			network.activations.add(activations.get(layer));
-
-			// Bias
-			network.biases.add(biases.get(layer));
-
-			// Weights
-			double[][] layerWeights = weights.get(layer);
-			double[][] targetWeights = new double[][] {};
-			int neuronsOut = layerWeights.length;
-			if (neuronsOut > 0) {
-				int neuronsIn = layerWeights[0].length;
-				targetWeights = new double[neuronsOut][neuronsIn];
-				for (int out = 0; out < neuronsOut; out++) {
-					for (int in = 0; in < neuronsIn; in++) {
-						targetWeights[out][in] = layerWeights[out][in];
-					}
-				}
-			}
-			network.weights.add(targetWeights);
+	/**
+	 * Returns a view of this network over the argument parameter vector. The view shares the structure (layers,
+	 * activations, biases and offsets) of this network without copying it, and uses the argument vector as its weights,
+	 * also without copying, so changes in the vector are seen by the view and vice versa. The structure of the view
+	 * must not be modified.
+	 * 
+	 * @param parameters The parameter vector, with the weights layout of this network.
+	 * @return The view.
+	 */
+	public Network view(double[] parameters) {
+		if (parameters.length != weights.length) {
+			throw new IllegalArgumentException("Invalid parameter vector length " + parameters.length);
 		}
+		Network network = new Network();
+		network.layers = layers;
+		network.activations = activations;
+		network.biases = biases;
+		network.offsets = offsets;
+		network.weights = parameters;
 		return network;
 	}
 }
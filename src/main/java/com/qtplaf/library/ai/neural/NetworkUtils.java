@@ -16,10 +16,11 @@ package com.qtplaf.library.ai.neural;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import com.qtplaf.library.ai.data.Pattern;
 import com.qtplaf.library.ai.data.PatternSource;
@@ -29,9 +30,7 @@ import com.qtplaf.library.ai.function.activation.ActivationReLU;
 import com.qtplaf.library.ai.function.activation.ActivationSigmoid;
 import com.qtplaf.library.ai.function.activation.ActivationTANH;
 import com.qtplaf.library.util.NumberUtils;
-import com.qtplaf.library.util.list.ListUtils;
 import com.qtplaf.library.util.math.Matrix;
-import com.qtplaf.library.util.task.Executor;
 
 /**
  * Network utilities.
@@ -54,6 +53,22 @@ public class NetworkUtils {
 		return layerVectors;
 	}
 
+	/**
+	 * Creates a structure of layer blocks, one row per pattern of a batch and one column per neuron of the layer, flat
+	 * and row major.
+	 * 
+	 * @param network The network.
+	 * @param capacity The number of rows or patterns of the batch.
+	 * @return A structure of layer blocks.
+	 */
+	public static List<double[]> createLayerBlocks(Network network, int capacity) {
+		List<double[]> layerBlocks = new ArrayList<>();
+		for (int layer = 0; layer < network.getLayers(); layer++) {
+			layerBlocks.add(new double[capacity * network.getNeurons(layer)]);
+		}
+		return layerBlocks;
+	}
+
 	/**
 	 * Creates a structure of layer matrices valid for gradients and similar.
 	 * 
@@ -112,31 +127,13 @@ public class NetworkUtils {
 	}
 
 	/**
-	 * Returns the weights as an array of double values.
+	 * Returns a copy of the weights as an array of double values.
 	 * 
 	 * @param network The network.
 	 * @return All the weights.
 	 */
 	public static double[] getWeights(Network network) {
-		int size = 0;
-		for (int layer = 1; layer < network.getLayers(); layer++) {
-			int neuronsOut = network.getNeurons(layer);
-			int neuronsIn = network.getNeurons(layer - 1);
-			size += (neuronsOut * neuronsIn);
-		}
-		double[] data = new double[size];
-		int index = 0;
-		for (int layer = 1; layer < network.getLayers(); layer++) {
-			int neuronsOut = network.getNeurons(layer);
-			int neuronsIn = network.getNeurons(layer - 1);
-			double[][] weights = network.getWeights(layer);
-			for (int out = 0; out < neuronsOut; out++) {
-				for (int in = 0; in < neuronsIn; in++) {
-					data[index++] = weights[out][in];
-				}
-			}
-		}
-		return data;
+		return network.getWeights().clone();
 	}
 
 	/**
@@ -146,57 +143,88 @@ public class NetworkUtils {
 	 * @param data The array of double values.
 	 */
 	public static void setWeights(Network network, double[] data) {
-		int index = 0;
-		for (int layer = 1; layer < network.getLayers(); layer++) {
-			int neuronsOut = network.getNeurons(layer);
-			int neuronsIn = network.getNeurons(layer - 1);
-			double[][] weights = network.getWeights(layer);
-			for (int out = 0; out < neuronsOut; out++) {
-				for (int in = 0; in < neuronsIn; in++) {
-					weights[out][in] = data[index++];
-				}
-			}
+		if (data.length != network.getWeightCount()) {
+			throw new IllegalArgumentException("Invalid number of weights: " + data.length);
+		}
+		System.arraycopy(data, 0, network.getWeights(), 0, data.length);
+	}
+
+	/**
+	 * Set the weights of the target network to the average of the weights of the list of networks, that must have the
+	 * same structure.
+	 * 
+	 * @param target The target network.
+	 * @param networks The list of networks to average.
+	 */
+	public static void averageWeights(Network target, List<Network> networks) {
+		double[] weights = target.getWeights();
+		Arrays.fill(weights, 0);
+		for (Network network : networks) {
+			Matrix.cumulate(network.getWeights(), weights);
+		}
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] /= networks.size();
 		}
 	}
 
 	/**
-	 * Task to calculate performance in parallel.
+	 * Task to calculate performance in parallel. Ranges larger than a chunk are split in halves and forked, so idle
+	 * threads steal chunks of the patterns of an expensive score.
 	 */
-	private static class TaskPerformance extends RecursiveAction {
+	private static class TaskPerformance extends RecursiveTask<Integer> {
+		/** Number of patterns of a chunk processed without splitting. */
+		static final int CHUNK_SIZE = 256;
 		/** The network. */
 		Network network;
-		/** Number of matches. */
-		double matches;
 		/** The pattern source. */
 		PatternSource source;
+		/** Start (inclusive) of the range. */
+		int start;
+		/** End (exclusive) of the range. */
+		int end;
 
 		/**
 		 * Constructor.
 		 * 
+		 * @param network The network.
 		 * @param source The pattern source.
+		 * @param start Start (inclusive) of the range.
+		 * @param end End (exclusive) of the range.
 		 */
-		TaskPerformance(Network network, PatternSource source) {
+		TaskPerformance(Network network, PatternSource source, int start, int end) {
 			super();
 			this.network = network;
 			this.source = source;
+			this.start = start;
+			this.end = end;
 		}
 
 		/**
 		 * Compute the task.
+		 * 
+		 * @return The number of matches.
 		 */
 		@Override
-		protected void compute() {
-			matches = 0;
-			for (int i = 0; i < source.size(); i++) {
+		protected Integer compute() {
+			if (end - start > CHUNK_SIZE) {
+				int middle = (start + end) / 2;
+				TaskPerformance left = new TaskPerformance(network, source, start, middle);
+				TaskPerformance right = new TaskPerformance(network, source, middle, end);
+				left.fork();
+				int matches = right.compute();
+				return matches + left.join();
+			}
+			int matches = 0;
+			Network.Forward forward = new Network.Forward(network);
+			double[] networkOutputs = forward.getOutputs(network.getLayers() - 1);
+			for (int i = start; i < end; i++) {
 				Pattern pattern = source.get(i);
-				double[] patternInputs = pattern.getInputs();
-				double[] patternOutputs = pattern.getOutputs();
-				Network.Forward processOutputs = Network.forward(network, patternInputs);
-				double[] networkOutputs = ListUtils.getLast(processOutputs.getOutputs());
-				if (Matrix.areEqual(patternOutputs, networkOutputs, 0)) {
+				Network.forward(network, pattern.getInputs(), forward);
+				if (Matrix.areEqual(pattern.getOutputs(), networkOutputs, 0)) {
 					matches++;
 				}
 			}
+			return matches;
 		}
 	}
 
@@ -209,19 +237,8 @@ public class NetworkUtils {
 	 * @return The performance.
 	 */
 	public static double getPerformance(Network network, PatternSource source, int decimals) {
-		List<PatternSource> batches = source.getBatches();
-		List<TaskPerformance> tasks = new ArrayList<>();
-		for (PatternSource batch : batches) {
-			TaskPerformance task = new TaskPerformance(network, batch);
-			tasks.add(task);
-		}
-		ForkJoinPool.commonPool().invoke(new Executor(tasks));
-		double matches = 0;
-		double size = 0;
-		for (TaskPerformance task : tasks) {
-			matches += task.matches;
-			size += task.source.size();
-		}
+		double size = source.size();
+		double matches = ForkJoinPool.commonPool().invoke(new TaskPerformance(network, source, 0, source.size()));
 		BigDecimal performance = NumberUtils.getBigDecimal(matches / size, decimals);
 		return performance.doubleValue();
 	}
@@ -233,17 +250,12 @@ public class NetworkUtils {
 	 */
 	public static void randomizeWeights(Network network) {
 		Random random = new Random();
-		for (int layer = 1; layer < network.getLayers(); layer++) {
-			int neuronsOut = network.getNeurons(layer);
-			int neuronsIn = network.getNeurons(layer - 1);
-			double[][] weights = network.getWeights(layer);
-			for (int out = 0; out < neuronsOut; out++) {
-				for (int in = 0; in < neuronsIn; in++) {
-					weights[out][in] = random.nextGaussian();
-				}
-			}
+		double[] weights = network.getWeights();
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = random.nextGaussian();
 		}
 	}
+
 	/**
 	 * Returns the activation function given the id.
 	 * 
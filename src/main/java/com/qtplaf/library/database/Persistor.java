@@ -174,6 +174,15 @@ public interface Persistor {
 	 */
 	int insert(Record record) throws PersistorException;
 
+	/**
+	 * Insert a list of records in a single batch operation.
+	 * 
+	 * @param records The list of records to insert.
+	 * @return The number of inserted records.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	int insert(List<Record> records) throws PersistorException;
+
 	/**
 	 * Returns a record iterator to scan the records that agree with the criteria.
 	 * 
@@ -300,4 +309,15 @@ public interface Persistor {
 	 * @throws PersistorException If a persistor error occurs.
 	 */
 	int update(Criteria criteria, ValueMap map) throws PersistorException;
+
+	/**
+	 * Update a set of fields with given values for each filter criteria, in a single batch operation. Criteria and maps
+	 * are paired by position.
+	 * 
+	 * @param criterias The list of filter criteria.
+	 * @param maps The list of maps of field-values.
+	 * @return The number of updated records.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	int update(List<Criteria> criterias, List<ValueMap> maps) throws PersistorException;
 }
@@ -202,6 +202,97 @@ public class DBEngine {
 		return countModified;
 	}
 
+	/**
+	 * Executes a list of statements, not selects, as JDBC batches within a transaction. Consecutive statements that
+	 * share the same SQL are sent in a single batch using the same prepared statement.
+	 *
+	 * @param statements The list of statements.
+	 * @return The number of records modified.
+	 * @throws SQLException If such an error occurs.
+	 */
+	public int executeBatch(List<? extends Statement> statements) throws SQLException {
+		Connection cn = null;
+		int countModified = 0;
+		try {
+			cn = getConnection();
+			countModified = executeBatch(statements, cn);
+			cn.commit();
+		} catch (SQLException e) {
+			if (cn != null && !cn.isClosed()) {
+				cn.rollback();
+			}
+			throw e;
+		} finally {
+			if (cn != null && !cn.isClosed()) {
+				cn.close();
+			}
+		}
+		return countModified;
+	}
+
+	/**
+	 * Executes a list of statements, not selects, as JDBC batches. Consecutive statements that share the same SQL are
+	 * sent in a single batch using the same prepared statement.
+	 *
+	 * @param statements The list of statements.
+	 * @param cn The connection.
+	 * @return The number of records modified.
+	 * @throws SQLException If such an error occurs.
+	 */
+	public int executeBatch(List<? extends Statement> statements, Connection cn) throws SQLException {
+		int count = 0;
+		PreparedStatement ps = null;
+		String currentSql = null;
+		try {
+			for (Statement statement : statements) {
+				if (statement.getClass() == Select.class) {
+					throw new SQLException("Select statements not supported");
+				}
+				String sql = statement.toSQL();
+				if (!sql.equals(currentSql)) {
+					if (ps != null) {
+						count += getBatchCount(ps.executeBatch());
+						ps.close();
+					}
+					ps = cn.prepareStatement(sql);
+					currentSql = sql;
+				}
+				List<Value> values = statement.getValues();
+				for (int i = 0; i < values.size(); i++) {
+					Value value = values.get(i);
+					DBUtils.toPreparedStatement(value, i + 1, ps);
+				}
+				ps.addBatch();
+			}
+			if (ps != null) {
+				count += getBatchCount(ps.executeBatch());
+			}
+		} finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of records modified by a batch, given the batch result counts.
+	 *
+	 * @param counts The batch result counts.
+	 * @return The number of records modified.
+	 */
+	private int getBatchCount(int[] counts) {
+		int count = 0;
+		for (int c : counts) {
+			if (c > 0) {
+				count += c;
+			} else if (c == java.sql.Statement.SUCCESS_NO_INFO) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * Executes an add check statement.
 	 *
@@ -808,6 +899,22 @@ public class DBEngine {
 		return executeStatement(getDBEngineAdapter().getStatementInsert(table, record), cn);
 	}
 
+	/**
+	 * Executes the insert statements of a list of records as a batch, within a transaction.
+	 *
+	 * @param table The table.
+	 * @param records The list of records to insert.
+	 * @return The number of rows inserted.
+	 * @throws SQLException If such an error occurs.
+	 */
+	public int executeInsert(Table table, List<Record> records) throws SQLException {
+		List<Insert> inserts = new ArrayList<>();
+		for (Record record : records) {
+			inserts.add(getDBEngineAdapter().getStatementInsert(table, record));
+		}
+		return executeBatch(inserts);
+	}
+
 	/**
 	 * Executes the update statement.
 	 *
@@ -883,6 +990,27 @@ public class DBEngine {
 		return executeStatement(getDBEngineAdapter().getStatementUpdate(table, filter, map), cn);
 	}
 
+	/**
+	 * Execute a list of updates on table, each with a filter and a map of field-values, as a batch within a
+	 * transaction. Updates with the same filter and assignment structure share the prepared statement.
+	 * 
+	 * @param table The table.
+	 * @param filters The list of filters.
+	 * @param maps The list of maps of field-values, paired with the filters.
+	 * @return The number of records updated.
+	 * @throws SQLException If such an error occurs.
+	 */
+	public int executeUpdate(Table table, List<Filter> filters, List<ValueMap> maps) throws SQLException {
+		if (filters.size() != maps.size()) {
+			throw new IllegalArgumentException("Filters and maps must have the same size");
+		}
+		List<Update> updates = new ArrayList<>(filters.size());
+		for (int i = 0; i < filters.size(); i++) {
+			updates.add(getDBEngineAdapter().getStatementUpdate(table, filters.get(i), maps.get(i)));
+		}
+		return executeBatch(updates);
+	}
+
 	/**
 	 * Saves the record (insert if not exists, otherwise update)
 	 *
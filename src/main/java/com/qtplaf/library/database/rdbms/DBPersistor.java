@@ -15,6 +15,7 @@
 package com.qtplaf.library.database.rdbms;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.qtplaf.library.database.Criteria;
@@ -324,6 +325,26 @@ public class DBPersistor implements Persistor {
 		}
 	}
 
+	/**
+	 * Insert a list of records in a single batch operation.
+	 * 
+	 * @param records The list of records to insert.
+	 * @return The number of inserted records.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public int insert(List<Record> records) throws PersistorException {
+		try {
+			List<Record> masterRecords = new ArrayList<>(records.size());
+			for (Record record : records) {
+				masterRecords.add(view.getMasterTableRecord(record));
+			}
+			return dbEngine.executeInsert(view.getMasterTable(), masterRecords);
+		} catch (SQLException exc) {
+			throw new PersistorException(exc.getMessage(), exc);
+		}
+	}
+
 	/**
 	 * Returns a record iterator to scan the records that agree with the criteria.
 	 * 
@@ -553,4 +574,26 @@ public class DBPersistor implements Persistor {
 		}
 	}
 
+	/**
+	 * Update a set of fields with given values for each filter criteria, in a single batch operation. Criteria and maps
+	 * are paired by position.
+	 * 
+	 * @param criterias The list of filter criteria.
+	 * @param maps The list of maps of field-values.
+	 * @return The number of updated records.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public int update(List<Criteria> criterias, List<ValueMap> maps) throws PersistorException {
+		try {
+			List<Filter> filters = new ArrayList<>(criterias.size());
+			for (Criteria criteria : criterias) {
+				filters.add(new Filter(criteria));
+			}
+			return dbEngine.executeUpdate(view.getMasterTable(), filters, maps);
+		} catch (SQLException exc) {
+			throw new PersistorException(exc.getMessage(), exc);
+		}
+	}
+
 }
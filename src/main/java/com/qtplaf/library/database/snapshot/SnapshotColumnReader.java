@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.database.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.qtplaf.library.database.Types;
+import com.qtplaf.library.database.Value;
+
+/**
+ * A lazy decoder of a column chunk. Rows are inflated and decoded on demand, in order, so a read of the first rows of
+ * a row group does not decode the rest, and rows that are skipped are read from the stream without building their
+ * values.
+ *
+ * @author Miquel Sas
+ */
+class SnapshotColumnReader {
+
+	/** The column type. */
+	private Types type;
+	/** The decimals. */
+	private int decimals;
+	/** The format version. */
+	private int version;
+	/** The inflater. */
+	private Inflater inflater;
+	/** The decompressed input. */
+	private DataInputStream in;
+	/** The null bitmap, null if there are no nulls. */
+	private byte[] nulls;
+	/** The dictionary of string and decimal columns. */
+	private String[] dictionary;
+	/** The last long value, to add the deltas. */
+	private long previous;
+	/** The next row to read from the input. */
+	private int position;
+	/** The decoded values, null for rows not decoded. */
+	private Value[] values;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param type The column type.
+	 * @param decimals The decimals.
+	 * @param version The format version.
+	 * @param chunk The compressed chunk.
+	 * @param rows The number of rows.
+	 * @throws IOException If an IO error occurs.
+	 */
+	SnapshotColumnReader(Types type, int decimals, int version, byte[] chunk, int rows) throws IOException {
+		super();
+		this.type = type;
+		this.decimals = decimals;
+		this.version = version;
+		this.values = new Value[rows];
+		inflater = new Inflater();
+		in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(chunk), inflater, 65536));
+		if (in.readInt() > 0) {
+			nulls = new byte[(rows + 7) / 8];
+			in.readFully(nulls);
+		}
+		if (type == Types.STRING || type == Types.DECIMAL) {
+			dictionary = new String[in.readInt()];
+			for (int i = 0; i < dictionary.length; i++) {
+				dictionary[i] = SnapshotFormat.readString(in);
+			}
+		}
+	}
+
+	/**
+	 * Skip the rows up to the argument row, exclusive, without decoding their values.
+	 *
+	 * @param row The row.
+	 * @throws IOException If an IO error occurs.
+	 */
+	void skip(int row) throws IOException {
+		while (position < row) {
+			read(false);
+			position++;
+		}
+	}
+
+	/**
+	 * Returns the value of the row, decoding the rows up to it that have not been read.
+	 *
+	 * @param row The row.
+	 * @return The value.
+	 * @throws IOException If an IO error occurs.
+	 */
+	Value get(int row) throws IOException {
+		while (position <= row) {
+			values[position] = read(true);
+			position++;
+		}
+		if (values[row] == null) {
+			throw new IllegalStateException("Row " + row + " has been skipped");
+		}
+		return values[row];
+	}
+
+	/**
+	 * Read the next row from the input.
+	 *
+	 * @param decode A boolean that indicates whether to build the value.
+	 * @return The value or null if not decoded.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private Value read(boolean decode) throws IOException {
+		Value value = null;
+		switch (type) {
+		case BOOLEAN:
+			boolean b = in.readBoolean();
+			value = (decode ? new Value(b) : null);
+			break;
+		case DOUBLE:
+			double d = in.readDouble();
+			value = (decode ? new Value(d) : null);
+			break;
+		case STRING:
+		case DECIMAL:
+			int id;
+			if (dictionary.length <= 256) {
+				id = in.readUnsignedByte();
+			} else if (dictionary.length <= 65536) {
+				id = in.readUnsignedShort();
+			} else {
+				id = in.readInt();
+			}
+			if (decode && dictionary.length > 0) {
+				value = SnapshotFormat.fromString(type, decimals, dictionary[id]);
+			}
+			break;
+		case BYTEARRAY:
+			int length = in.readInt();
+			if (decode) {
+				byte[] bytes = new byte[length];
+				in.readFully(bytes);
+				value = new Value(bytes);
+			} else {
+				in.skipBytes(length);
+			}
+			break;
+		default:
+			previous += (version == 1 ? in.readLong() : SnapshotFormat.readVarLong(in));
+			value = (decode ? SnapshotFormat.fromLong(type, previous) : null);
+			break;
+		}
+		if (decode && nulls != null && (nulls[position >> 3] & (1 << (position & 7))) != 0) {
+			value = SnapshotFormat.nullValue(type, decimals);
+		}
+		return value;
+	}
+
+	/**
+	 * Release the inflater.
+	 */
+	void close() {
+		inflater.end();
+	}
+}
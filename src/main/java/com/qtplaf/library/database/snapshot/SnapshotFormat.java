@@ -0,0 +1,460 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.database.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.qtplaf.library.database.Field;
+import com.qtplaf.library.database.Types;
+import com.qtplaf.library.database.Value;
+import com.qtplaf.library.util.Date;
+import com.qtplaf.library.util.Time;
+import com.qtplaf.library.util.Timestamp;
+
+/**
+ * Encoding of the snapshot file and its column chunks.
+ * <p>
+ * A snapshot file has a header with the stored fields and the order of the rows, a sequence of row groups, each with
+ * one compressed chunk per column, and a footer with the row group index: the position and length of every chunk and
+ * the minimum and maximum values of the column in the group. The last bytes of the file are the position of the footer
+ * and the magic number.
+ * <p>
+ * Numeric, date and time columns are written as primitive arrays, integer and long ones as deltas from the previous
+ * row, zigzag and variable length encoded so the small deltas of times and sequences take one or two bytes. String and
+ * decimal columns are dictionary encoded per chunk. Chunks are decoded lazily by a {@link SnapshotColumnReader}.
+ *
+ * @author Miquel Sas
+ */
+class SnapshotFormat {
+
+	/** Magic number. */
+	static final int MAGIC = 0x51545353;
+	/** Format version, version 1 wrote the long deltas as fixed 8 byte longs. */
+	static final int VERSION = 2;
+	/** Length of the trailer, footer position and magic number. */
+	static final int TRAILER_LENGTH = 12;
+
+	/**
+	 * Check whether the type of the field can be stored in a snapshot.
+	 *
+	 * @param type The type.
+	 * @return A boolean.
+	 */
+	static boolean isSupported(Types type) {
+		switch (type) {
+		case BOOLEAN:
+		case STRING:
+		case DECIMAL:
+		case DOUBLE:
+		case INTEGER:
+		case LONG:
+		case DATE:
+		case TIME:
+		case TIMESTAMP:
+		case BYTEARRAY:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Check whether the field is stored in a snapshot, that is, it is persistent or virtual and its type is supported.
+	 *
+	 * @param field The field.
+	 * @return A boolean.
+	 */
+	static boolean isStored(Field field) {
+		return (field.isPersistent() || field.isVirtual()) && isSupported(field.getType());
+	}
+
+	/**
+	 * Check whether the column keeps minimum and maximum statistics in the row group index.
+	 *
+	 * @param type The type.
+	 * @return A boolean.
+	 */
+	static boolean hasStatistics(Types type) {
+		return type != Types.BOOLEAN && type != Types.BYTEARRAY;
+	}
+
+	/**
+	 * Write a string with its length, not limited in size as modified UTF.
+	 *
+	 * @param out The output.
+	 * @param s The string.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static void writeString(DataOutput out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Read a string written with {@link #writeString(DataOutput, String)}.
+	 *
+	 * @param in The input.
+	 * @return The string.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the string used to store a string or decimal value.
+	 *
+	 * @param type The type.
+	 * @param value The value.
+	 * @return The string.
+	 */
+	private static String toString(Types type, Value value) {
+		if (type == Types.DECIMAL) {
+			return value.getBigDecimal().toPlainString();
+		}
+		return value.getString();
+	}
+
+	/**
+	 * Returns the value of a stored string or decimal.
+	 *
+	 * @param type The type.
+	 * @param decimals The decimals.
+	 * @param s The stored string.
+	 * @return The value.
+	 */
+	static Value fromString(Types type, int decimals, String s) {
+		if (type == Types.DECIMAL) {
+			return new Value(new BigDecimal(s).setScale(decimals, RoundingMode.HALF_UP));
+		}
+		return new Value(s);
+	}
+
+	/**
+	 * Returns the long representation of an integer, long, date, time or timestamp value.
+	 *
+	 * @param type The type.
+	 * @param value The value.
+	 * @return The long.
+	 */
+	private static long toLong(Types type, Value value) {
+		switch (type) {
+		case INTEGER:
+			return value.getInteger();
+		case LONG:
+			return value.getLong();
+		case DATE:
+			return value.getDate().getTime();
+		case TIME:
+			return value.getTime().getTime();
+		case TIMESTAMP:
+			return value.getTimestamp().getTime();
+		default:
+			throw new IllegalArgumentException("Not a long type: " + type);
+		}
+	}
+
+	/**
+	 * Returns the value of an integer, long, date, time or timestamp stored as a long.
+	 *
+	 * @param type The type.
+	 * @param l The stored long.
+	 * @return The value.
+	 */
+	static Value fromLong(Types type, long l) {
+		switch (type) {
+		case INTEGER:
+			return new Value((int) l);
+		case LONG:
+			return new Value(l);
+		case DATE:
+			return new Value(new Date(l));
+		case TIME:
+			return new Value(new Time(l));
+		case TIMESTAMP:
+			return new Value(new Timestamp(l));
+		default:
+			throw new IllegalArgumentException("Not a long type: " + type);
+		}
+	}
+
+	/**
+	 * Returns a null value of the type.
+	 *
+	 * @param type The type.
+	 * @param decimals The decimals.
+	 * @return The null value.
+	 */
+	static Value nullValue(Types type, int decimals) {
+		Value value;
+		switch (type) {
+		case BOOLEAN:
+			value = new Value(false);
+			break;
+		case DECIMAL:
+			value = new Value(BigDecimal.ZERO.setScale(decimals));
+			break;
+		case DOUBLE:
+			value = new Value(0.0);
+			break;
+		case STRING:
+			value = new Value("");
+			break;
+		case BYTEARRAY:
+			value = new Value(new byte[0]);
+			break;
+		default:
+			value = fromLong(type, 0);
+			break;
+		}
+		value.setNull();
+		return value;
+	}
+
+	/**
+	 * Write a single non null value, used for the row group statistics.
+	 *
+	 * @param out The output.
+	 * @param type The type.
+	 * @param value The value.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static void writeValue(DataOutput out, Types type, Value value) throws IOException {
+		switch (type) {
+		case BOOLEAN:
+			out.writeBoolean(value.getBoolean());
+			break;
+		case DOUBLE:
+			out.writeDouble(value.getDouble());
+			break;
+		case STRING:
+		case DECIMAL:
+			writeString(out, toString(type, value));
+			break;
+		case BYTEARRAY:
+			byte[] bytes = value.getByteArray().getBytes();
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			break;
+		default:
+			out.writeLong(toLong(type, value));
+			break;
+		}
+	}
+
+	/**
+	 * Read a single value written with {@link #writeValue(DataOutput, Types, Value)}.
+	 *
+	 * @param in The input.
+	 * @param type The type.
+	 * @param decimals The decimals.
+	 * @return The value.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static Value readValue(DataInput in, Types type, int decimals) throws IOException {
+		switch (type) {
+		case BOOLEAN:
+			return new Value(in.readBoolean());
+		case DOUBLE:
+			return new Value(in.readDouble());
+		case STRING:
+		case DECIMAL:
+			return fromString(type, decimals, readString(in));
+		case BYTEARRAY:
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new Value(bytes);
+		default:
+			return fromLong(type, in.readLong());
+		}
+	}
+
+	/**
+	 * Encode and compress a column chunk.
+	 *
+	 * @param type The column type.
+	 * @param values The values, nulls allowed.
+	 * @param rows The number of rows.
+	 * @return The compressed chunk.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static byte[] encode(Types type, Value[] values, int rows) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 65536));
+
+			// Null bitmap, only if there are nulls.
+			byte[] nulls = new byte[(rows + 7) / 8];
+			int nullCount = 0;
+			for (int i = 0; i < rows; i++) {
+				if (isNull(values[i])) {
+					nulls[i >> 3] |= (1 << (i & 7));
+					nullCount++;
+				}
+			}
+			out.writeInt(nullCount);
+			if (nullCount > 0) {
+				out.write(nulls);
+			}
+
+			switch (type) {
+			case BOOLEAN:
+				for (int i = 0; i < rows; i++) {
+					out.writeBoolean(!isNull(values[i]) && values[i].getBoolean());
+				}
+				break;
+			case DOUBLE:
+				for (int i = 0; i < rows; i++) {
+					out.writeDouble(isNull(values[i]) ? 0 : values[i].getDouble());
+				}
+				break;
+			case STRING:
+			case DECIMAL:
+				encodeDictionary(out, type, values, rows);
+				break;
+			case BYTEARRAY:
+				for (int i = 0; i < rows; i++) {
+					byte[] b = (isNull(values[i]) ? new byte[0] : values[i].getByteArray().getBytes());
+					out.writeInt(b.length);
+					out.write(b);
+				}
+				break;
+			default:
+				long previous = 0;
+				for (int i = 0; i < rows; i++) {
+					long l = (isNull(values[i]) ? previous : toLong(type, values[i]));
+					writeVarLong(out, l - previous);
+					previous = l;
+				}
+				break;
+			}
+			out.close();
+		} finally {
+			deflater.end();
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Write a dictionary encoded column: the distinct strings and the index of each row in the dictionary, using the
+	 * narrowest integer type that holds the dictionary size.
+	 *
+	 * @param out The output.
+	 * @param type The type.
+	 * @param values The values.
+	 * @param rows The number of rows.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private static void encodeDictionary(DataOutput out, Types type, Value[] values, int rows) throws IOException {
+		Map<String, Integer> map = new HashMap<>();
+		List<String> dictionary = new ArrayList<>();
+		int[] ids = new int[rows];
+		for (int i = 0; i < rows; i++) {
+			if (isNull(values[i])) {
+				continue;
+			}
+			String s = toString(type, values[i]);
+			Integer id = map.get(s);
+			if (id == null) {
+				id = dictionary.size();
+				map.put(s, id);
+				dictionary.add(s);
+			}
+			ids[i] = id;
+		}
+		out.writeInt(dictionary.size());
+		for (String s : dictionary) {
+			writeString(out, s);
+		}
+		int size = dictionary.size();
+		for (int i = 0; i < rows; i++) {
+			if (size <= 256) {
+				out.writeByte(ids[i]);
+			} else if (size <= 65536) {
+				out.writeShort(ids[i]);
+			} else {
+				out.writeInt(ids[i]);
+			}
+		}
+	}
+
+	/**
+	 * Write a long zigzag encoded, so small negative numbers are also small, in groups of 7 bits, the high bit of each
+	 * byte indicating that more bytes follow.
+	 *
+	 * @param out The output.
+	 * @param l The long.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static void writeVarLong(DataOutput out, long l) throws IOException {
+		long zigzag = (l << 1) ^ (l >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		out.writeByte((int) zigzag);
+	}
+
+	/**
+	 * Read a long written with {@link #writeVarLong(DataOutput, long)}.
+	 *
+	 * @param in The input.
+	 * @return The long.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static long readVarLong(DataInput in) throws IOException {
+		long zigzag = 0;
+		int shift = 0;
+		while (true) {
+			int b = in.readUnsignedByte();
+			zigzag |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+			shift += 7;
+			if (shift > 63) {
+				throw new IOException("Malformed variable length long");
+			}
+		}
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	/**
+	 * Check whether a value is null.
+	 *
+	 * @param value The value.
+	 * @return A boolean.
+	 */
+	static boolean isNull(Value value) {
+		return value == null || value.isNull();
+	}
+}
@@ -0,0 +1,880 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.database.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.qtplaf.library.database.Condition;
+import com.qtplaf.library.database.Criteria;
+import com.qtplaf.library.database.Field;
+import com.qtplaf.library.database.Order;
+import com.qtplaf.library.database.OrderKey;
+import com.qtplaf.library.database.Persistor;
+import com.qtplaf.library.database.PersistorDDL;
+import com.qtplaf.library.database.PersistorException;
+import com.qtplaf.library.database.Record;
+import com.qtplaf.library.database.RecordIterator;
+import com.qtplaf.library.database.RecordSet;
+import com.qtplaf.library.database.Types;
+import com.qtplaf.library.database.Value;
+import com.qtplaf.library.database.ValueMap;
+import com.qtplaf.library.database.View;
+
+/**
+ * A read only persistor that serves the records of a snapshot file written by a {@link SnapshotWriter}. Iterations in
+ * the order of the snapshot, or in its reverse order, are sequential reads of the file that skip the row groups that
+ * can not match the criteria. Other orders are sorted in memory. Iterations and selects can be restricted to a
+ * projection of columns, the rest of fields getting their default values.
+ * <p>
+ * The view must be the view used to export the snapshot, or a view with the same fields.
+ *
+ * @author Miquel Sas
+ */
+public class SnapshotPersistor implements Persistor {
+
+	/**
+	 * Check whether the file is a complete snapshot file.
+	 *
+	 * @param file The file.
+	 * @return A boolean.
+	 */
+	public static boolean isSnapshot(File file) {
+		if (!file.isFile() || file.length() < 8 + SnapshotFormat.TRAILER_LENGTH) {
+			return false;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			int magicHeader = raf.readInt();
+			raf.seek(raf.length() - 4);
+			int magicTrailer = raf.readInt();
+			return magicHeader == SnapshotFormat.MAGIC && magicTrailer == SnapshotFormat.MAGIC;
+		} catch (IOException exc) {
+			return false;
+		}
+	}
+
+	/** The view. */
+	private View view;
+	/** The snapshot file. */
+	private File file;
+	/** Stored fields, in column order. */
+	private List<Field> storedFields = new ArrayList<>();
+	/** Aliases of the order of the snapshot. */
+	private List<String> orderAliases = new ArrayList<>();
+	/** Ascending flags of the order of the snapshot. */
+	private List<Boolean> orderAscending = new ArrayList<>();
+	/** The row group index. */
+	private List<SnapshotRowGroup> rowGroups = new ArrayList<>();
+	/** Total number of rows. */
+	private long totalRows;
+	/** The format version of the file. */
+	private int version;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param view The view.
+	 * @param file The snapshot file.
+	 * @throws PersistorException If the file is not a valid snapshot of the view.
+	 */
+	public SnapshotPersistor(View view, File file) throws PersistorException {
+		super();
+		this.view = view;
+		this.file = file;
+		try {
+			readIndex();
+		} catch (IOException exc) {
+			throw new PersistorException(exc.getMessage(), exc);
+		}
+	}
+
+	/**
+	 * Read the header and the row group index.
+	 *
+	 * @throws IOException If an IO error occurs.
+	 * @throws PersistorException If the snapshot does not match the view.
+	 */
+	private void readIndex() throws IOException, PersistorException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+
+			// Header.
+			if (raf.readInt() != SnapshotFormat.MAGIC) {
+				throw new IOException("Not a snapshot file: " + file);
+			}
+			version = raf.readInt();
+			if (version < 1 || version > SnapshotFormat.VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + ": " + file);
+			}
+			int fieldCount = raf.readInt();
+			for (int i = 0; i < fieldCount; i++) {
+				String alias = SnapshotFormat.readString(raf);
+				Types type = Types.valueOf(SnapshotFormat.readString(raf));
+				int decimals = raf.readInt();
+				Field field = view.getField(alias);
+				if (field == null) {
+					field = new Field();
+					field.setName(alias);
+					field.setAlias(alias);
+					field.setType(type);
+					field.setDecimals(decimals);
+				} else if (field.getType() != type) {
+					throw new PersistorException("Snapshot field " + alias + " type does not match the view: " + file);
+				}
+				storedFields.add(field);
+			}
+			int orderSize = raf.readInt();
+			for (int i = 0; i < orderSize; i++) {
+				orderAliases.add(SnapshotFormat.readString(raf));
+				orderAscending.add(raf.readBoolean());
+			}
+
+			// Trailer and footer.
+			raf.seek(raf.length() - SnapshotFormat.TRAILER_LENGTH);
+			long footerOffset = raf.readLong();
+			if (raf.readInt() != SnapshotFormat.MAGIC) {
+				throw new IOException("Incomplete snapshot file: " + file);
+			}
+			byte[] footer = new byte[(int) (raf.length() - SnapshotFormat.TRAILER_LENGTH - footerOffset)];
+			raf.seek(footerOffset);
+			raf.readFully(footer);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer));
+			int groupCount = in.readInt();
+			for (int i = 0; i < groupCount; i++) {
+				rowGroups.add(SnapshotRowGroup.read(in, storedFields));
+			}
+			totalRows = in.readLong();
+		}
+	}
+
+	/**
+	 * Returns the snapshot file.
+	 *
+	 * @return The file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the format version of the file.
+	 *
+	 * @return The version.
+	 */
+	int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the stored fields in column order.
+	 *
+	 * @return The stored fields.
+	 */
+	List<Field> getStoredFields() {
+		return storedFields;
+	}
+
+	/**
+	 * Returns the row group index.
+	 *
+	 * @return The row groups.
+	 */
+	List<SnapshotRowGroup> getRowGroups() {
+		return rowGroups;
+	}
+
+	/**
+	 * Returns the number of row groups.
+	 *
+	 * @return The number of row groups.
+	 */
+	public int getRowGroupCount() {
+		return rowGroups.size();
+	}
+
+	/**
+	 * Returns the total number of rows.
+	 *
+	 * @return The number of rows.
+	 */
+	public long getRowCount() {
+		return totalRows;
+	}
+
+	/**
+	 * Returns the read only exception.
+	 *
+	 * @return The exception.
+	 */
+	private PersistorException getReadOnlyException() {
+		return new PersistorException("Snapshot persistors are read only: " + file);
+	}
+
+	/**
+	 * Check whether the snapshot can be iterated in the argument order, either forward or backward.
+	 *
+	 * @param order The order.
+	 * @param reverse A boolean to check the reverse order.
+	 * @return A boolean.
+	 */
+	private boolean isSnapshotOrder(Order order, boolean reverse) {
+		if (order == null || order.isEmpty()) {
+			return !reverse;
+		}
+		if (order.size() > orderAliases.size()) {
+			return false;
+		}
+		for (int i = 0; i < order.size(); i++) {
+			Order.Segment segment = order.get(i);
+			if (!segment.getField().getAlias().equals(orderAliases.get(i))) {
+				return false;
+			}
+			if (segment.isAsc() != (orderAscending.get(i) != reverse)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the criteria that selects the primary key.
+	 *
+	 * @param primaryKey The primary key.
+	 * @return The criteria.
+	 */
+	private Criteria getCriteria(OrderKey primaryKey) {
+		List<Field> keyFields = getDefaultRecord().getPrimaryKeyFields();
+		Criteria criteria = new Criteria();
+		for (int i = 0; i < keyFields.size(); i++) {
+			criteria.add(Condition.fieldEQ(keyFields.get(i), primaryKey.get(i).getValue()));
+		}
+		return criteria;
+	}
+
+	/**
+	 * Not supported, snapshots are read only and have no DDL.
+	 *
+	 * @return Never.
+	 * @throws UnsupportedOperationException Always.
+	 */
+	@Override
+	public PersistorDDL getDDL() {
+		throw new UnsupportedOperationException("Snapshot persistors are read only and have no DDL: " + file);
+	}
+
+	/**
+	 * Returns the underlying view.
+	 *
+	 * @return The view.
+	 */
+	@Override
+	public View getView() {
+		return view;
+	}
+
+	/**
+	 * Returns the default record.
+	 *
+	 * @return The default record.
+	 */
+	@Override
+	public Record getDefaultRecord() {
+		Record record = view.getFieldList().getDefaultRecord();
+		record.setPersistor(this);
+		return record;
+	}
+
+	/**
+	 * Get a record given its primary key.
+	 *
+	 * @param primaryKey The primary key.
+	 * @return The record or null if not found.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public Record getRecord(OrderKey primaryKey) throws PersistorException {
+		RecordIterator iter = iterator(getCriteria(primaryKey));
+		try {
+			if (iter.hasNext()) {
+				return iter.next();
+			}
+			return null;
+		} finally {
+			iter.close();
+		}
+	}
+
+	/**
+	 * Get a record given the list of primary key values.
+	 *
+	 * @param primaryKeyValues The list of primary key values.
+	 * @return The record or null if not found.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public Record getRecord(List<Value> primaryKeyValues) throws PersistorException {
+		return getRecord(new OrderKey(primaryKeyValues));
+	}
+
+	/**
+	 * Get a record given the list of primary key values.
+	 *
+	 * @param primaryKeyValues The list of primary key values.
+	 * @return The record or null if not found.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public Record getRecord(Value... primaryKeyValues) throws PersistorException {
+		return getRecord(new OrderKey(primaryKeyValues));
+	}
+
+	/**
+	 * Returns the number of fields.
+	 *
+	 * @return The number of fields.
+	 */
+	@Override
+	public int getFieldCount() {
+		return view.getFieldCount();
+	}
+
+	/**
+	 * Returns the field at the given index.
+	 *
+	 * @param index The index of the field.
+	 * @return The field.
+	 */
+	@Override
+	public Field getField(int index) {
+		return view.getField(index);
+	}
+
+	/**
+	 * Returns the field with the given alias.
+	 *
+	 * @param alias The field alias.
+	 * @return The field.
+	 */
+	@Override
+	public Field getField(String alias) {
+		return view.getField(alias);
+	}
+
+	/**
+	 * Returns the index of the field with the given alias.
+	 *
+	 * @param alias The field alias.
+	 * @return The index.
+	 */
+	@Override
+	public int getFieldIndex(String alias) {
+		return view.getFieldIndex(alias);
+	}
+
+	/**
+	 * Count the number of records that agree with the criteria, decoding only the columns of the criteria.
+	 *
+	 * @param criteria The filter criteria.
+	 * @return The number of records.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public long count(Criteria criteria) throws PersistorException {
+		if (criteria == null || criteria.isEmpty()) {
+			return totalRows;
+		}
+		long count = 0;
+		RecordIterator iter = new SnapshotRecordIterator(this, criteria, false, new String[0]);
+		try {
+			while (iter.hasNext()) {
+				iter.next();
+				count++;
+			}
+		} finally {
+			iter.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Not supported, snapshots are read only.
+	 *
+	 * @param criteria The criteria.
+	 * @return Never.
+	 * @throws PersistorException Always.
+	 */
+	@Override
+	public int delete(Criteria criteria) throws PersistorException {
+		throw getReadOnlyException();
+	}
+
+	/**
+	 * Not supported, snapshots are read only.
+	 *
+	 * @param record The record.
+	 * @return Never.
+	 * @throws PersistorException Always.
+	 */
+	@Override
+	public int delete(Record record) throws PersistorException {
+		throw getReadOnlyException();
+	}
+
+	/**
+	 * Check if the record exists.
+	 *
+	 * @param record The record.
+	 * @return A boolean.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public boolean exists(Record record) throws PersistorException {
+		return exists(record.getPrimaryKey());
+	}
+
+	/**
+	 * Check if the primary key exists.
+	 *
+	 * @param primaryKey The primary key.
+	 * @return A boolean.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public boolean exists(OrderKey primaryKey) throws PersistorException {
+		return getRecord(primaryKey) != null;
+	}
+
+	/**
+	 * Check if the primary key exists.
+	 *
+	 * @param primaryKey The primary key values.
+	 * @return A boolean.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public boolean exists(Value... primaryKey) throws PersistorException {
+		return exists(new OrderKey(primaryKey));
+	}
+
+	/**
+	 * Refresh the record reading it from the snapshot.
+	 *
+	 * @param record The record to refresh.
+	 * @return A boolean indicating if the record has been found.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public boolean refresh(Record record) throws PersistorException {
+		Record snapshotRecord = getRecord(record.getPrimaryKey());
+		if (snapshotRecord != null) {
+			Record.move(snapshotRecord, record);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Not supported, snapshots are read only.
+	 *
+	 * @param record The record.
+	 * @return Never.
+	 * @throws PersistorException Always.
+	 */
+	@Override
+	public int insert(Record record) throws PersistorException {
+		throw getReadOnlyException();
+	}
+
+	/**
+	 * Not supported, snapshots are read only.
+	 *
+	 * @param records The records.
+	 * @return Never.
+	 * @throws PersistorException Always.
+	 */
+	@Override
+	public int insert(List<Record> records) throws PersistorException {
+		throw getReadOnlyException();
+	}
+
+	/**
+	 * Returns a record iterator in the order of the snapshot.
+	 *
+	 * @param criteria The filter criteria.
+	 * @return The record iterator.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public RecordIterator iterator(Criteria criteria) throws PersistorException {
+		return iterator(criteria, null);
+	}
+
+	/**
+	 * Returns a record iterator.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param order The order, null for the order of the snapshot.
+	 * @return The record iterator.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public RecordIterator iterator(Criteria criteria, Order order) throws PersistorException {
+		return iterator(criteria, order, (String[]) null);
+	}
+
+	/**
+	 * Returns a record iterator that only reads the projected fields, the rest of fields get their default values.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param order The order, null for the order of the snapshot.
+	 * @param aliases The projected field aliases, all fields if null or empty.
+	 * @return The record iterator.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	public RecordIterator iterator(Criteria criteria, Order order, String... aliases) throws PersistorException {
+		aliases = getProjection(aliases);
+		if (isSnapshotOrder(order, false)) {
+			return new SnapshotRecordIterator(this, criteria, false, aliases);
+		}
+		if (isSnapshotOrder(order, true)) {
+			return new SnapshotRecordIterator(this, criteria, true, aliases);
+		}
+		final Iterator<Record> iter = select(criteria, order, aliases).iterator();
+		return new RecordIterator() {
+			@Override
+			public boolean hasNext() {
+				return iter.hasNext();
+			}
+
+			@Override
+			public Record next() {
+				return iter.next();
+			}
+
+			@Override
+			public void close() throws PersistorException {
+			}
+		};
+	}
+
+	/**
+	 * Returns the values of an aggregate function, by field index.
+	 *
+	 * @param function The function: MAX, MIN or SUM.
+	 * @param criteria The filter criteria.
+	 * @param indexes The field indexes.
+	 * @return The list of values.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	private List<Value> aggregate(String function, Criteria criteria, int... indexes) throws PersistorException {
+		String[] aliases = new String[indexes.length];
+		Value[] results = new Value[indexes.length];
+		BigDecimal[] sums = new BigDecimal[indexes.length];
+		double[] doubleSums = new double[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			aliases[i] = getField(indexes[i]).getAlias();
+			sums[i] = BigDecimal.ZERO;
+		}
+		RecordIterator iter = new SnapshotRecordIterator(this, criteria, false, aliases);
+		try {
+			while (iter.hasNext()) {
+				Record record = iter.next();
+				for (int i = 0; i < indexes.length; i++) {
+					Value value = record.getValue(indexes[i]);
+					if (value == null || value.isNull()) {
+						continue;
+					}
+					if (function.equals("SUM")) {
+						if (value.isDouble()) {
+							doubleSums[i] += value.getDouble();
+						} else if (value.isNumber()) {
+							sums[i] = sums[i].add(value.getBigDecimal());
+						}
+						continue;
+					}
+					if (results[i] == null) {
+						results[i] = value;
+						continue;
+					}
+					int compare = value.compareTo(results[i]);
+					if ((function.equals("MAX") && compare > 0) || (function.equals("MIN") && compare < 0)) {
+						results[i] = value;
+					}
+				}
+			}
+		} finally {
+			iter.close();
+		}
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < indexes.length; i++) {
+			Field field = getField(indexes[i]);
+			if (function.equals("SUM")) {
+				switch (field.getType()) {
+				case DOUBLE:
+					values.add(new Value(doubleSums[i]));
+					break;
+				case INTEGER:
+					values.add(new Value(sums[i].intValue()));
+					break;
+				case LONG:
+					values.add(new Value(sums[i].longValue()));
+					break;
+				default:
+					values.add(new Value(sums[i].setScale(field.getDecimals(), RoundingMode.HALF_UP)));
+					break;
+				}
+				continue;
+			}
+			values.add(results[i] != null ? results[i] : field.getDefaultValue());
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the projection to pass to the iterator, null for all the fields.
+	 *
+	 * @param aliases The projected aliases.
+	 * @return The projection.
+	 */
+	private static String[] getProjection(String[] aliases) {
+		if (aliases == null || aliases.length == 0) {
+			return null;
+		}
+		return aliases;
+	}
+
+	/**
+	 * Returns the field indexes of the aliases.
+	 *
+	 * @param aliases The aliases.
+	 * @return The indexes.
+	 */
+	private int[] getIndexes(String... aliases) {
+		int[] indexes = new int[aliases.length];
+		for (int i = 0; i < aliases.length; i++) {
+			indexes[i] = getFieldIndex(aliases[i]);
+		}
+		return indexes;
+	}
+
+	/**
+	 * Returns the list of indexes of an array of indexes.
+	 *
+	 * @param indexes The indexes.
+	 * @return The list.
+	 */
+	private static List<Integer> toList(int... indexes) {
+		List<Integer> list = new ArrayList<>();
+		for (int index : indexes) {
+			list.add(index);
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the maximum values of the argument fields with the filter criteria.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param indexes The field indexes.
+	 * @return The maximum values.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public ValueMap max(Criteria criteria, int... indexes) throws PersistorException {
+		return ValueMap.getIndexesMap(toList(indexes), aggregate("MAX", criteria, indexes));
+	}
+
+	/**
+	 * Returns the maximum values of the argument fields with the filter criteria.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param aliases The field aliases.
+	 * @return The maximum values.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public ValueMap max(Criteria criteria, String... aliases) throws PersistorException {
+		List<String> list = new ArrayList<>();
+		Collections.addAll(list, aliases);
+		return ValueMap.getAliasesMap(list, aggregate("MAX", criteria, getIndexes(aliases)));
+	}
+
+	/**
+	 * Returns the minimum values of the argument fields with the filter criteria.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param indexes The field indexes.
+	 * @return The minimum values.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public ValueMap min(Criteria criteria, int... indexes) throws PersistorException {
+		return ValueMap.getIndexesMap(toList(indexes), aggregate("MIN", criteria, indexes));
+	}
+
+	/**
+	 * Returns the minimum values of the argument fields with the filter criteria.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param aliases The field aliases.
+	 * @return The minimum values.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public ValueMap min(Criteria criteria, String... aliases) throws PersistorException {
+		List<String> list = new ArrayList<>();
+		Collections.addAll(list, aliases);
+		return ValueMap.getAliasesMap(list, aggregate("MIN", criteria, getIndexes(aliases)));
+	}
+
+	/**
+	 * Not supported, snapshots are read only.
+	 *
+	 * @param record The record.
+	 * @return Never.
+	 * @throws PersistorException Always.
+	 */
+	@Override
+	public int save(Record record) throws PersistorException {
+		throw getReadOnlyException();
+	}
+
+	/**
+	 * Select the list of records that agree with the criteria, in the order of the snapshot.
+	 *
+	 * @param criteria The filter criteria.
+	 * @return The list of records.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public RecordSet select(Criteria criteria) throws PersistorException {
+		return select(criteria, null);
+	}
+
+	/**
+	 * Select the list of records that agree with the criteria, in the argument order.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param order The order, null for the order of the snapshot.
+	 * @return The list of records.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public RecordSet select(Criteria criteria, Order order) throws PersistorException {
+		return select(criteria, order, (String[]) null);
+	}
+
+	/**
+	 * Select the list of records that agree with the criteria, in the argument order, only reading the projected
+	 * fields.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param order The order, null for the order of the snapshot.
+	 * @param aliases The projected field aliases, all fields if null or empty.
+	 * @return The list of records.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	public RecordSet select(Criteria criteria, Order order, String... aliases) throws PersistorException {
+		aliases = getProjection(aliases);
+		RecordSet recordSet = new RecordSet(view.getFieldList());
+		boolean reverse = isSnapshotOrder(order, true) && !isSnapshotOrder(order, false);
+		RecordIterator iter = new SnapshotRecordIterator(this, criteria, reverse, aliases);
+		try {
+			while (iter.hasNext()) {
+				recordSet.add(iter.next());
+			}
+		} finally {
+			iter.close();
+		}
+		if (!isSnapshotOrder(order, false) && !reverse) {
+			recordSet.sort(order);
+		}
+		return recordSet;
+	}
+
+	/**
+	 * Returns the sums of the numeric argument fields applying the filter criteria.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param indexes The field indexes.
+	 * @return The sums.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public ValueMap sum(Criteria criteria, int... indexes) throws PersistorException {
+		return ValueMap.getIndexesMap(toList(indexes), aggregate("SUM", criteria, indexes));
+	}
+
+	/**
+	 * Returns the sums of the numeric argument fields applying the filter criteria.
+	 *
+	 * @param criteria The filter criteria.
+	 * @param aliases The field aliases.
+	 * @return The sums.
+	 * @throws PersistorException If such an error occurs.
+	 */
+	@Override
+	public ValueMap sum(Criteria criteria, String... aliases) throws PersistorException {
+		List<String> list = new ArrayList<>();
+		Collections.addAll(list, aliases);
+		return ValueMap.getAliasesMap(list, aggregate("SUM", criteria, getIndexes(aliases)));
+	}
+
+	/**
+	 * Not supported, snapshots are read only.
+	 *
+	 * @param record The record.
+	 * @return Never.
+	 * @throws PersistorException Always.
+	 */
+	@Override
+	public int update(Record record) throws PersistorException {
+		throw getReadOnlyException();
+	}
+
+	/**
+	 * Not supported, snapshots are read only.
+	 *
+	 * @param criteria The criteria.
+	 * @param map The map of values.
+	 * @return Never.
+	 * @throws PersistorException Always.
+	 */
+	@Override
+	public int update(Criteria criteria, ValueMap map) throws PersistorException {
+		throw getReadOnlyException();
+	}
+
+	/**
+	 * Not supported, snapshots are read only.
+	 *
+	 * @param criterias The list of criteria.
+	 * @param maps The list of maps of values.
+	 * @return Never.
+	 * @throws PersistorException Always.
+	 */
+	@Override
+	public int update(List<Criteria> criterias, List<ValueMap> maps) throws PersistorException {
+		throw getReadOnlyException();
+	}
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.database.snapshot;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.qtplaf.library.database.Criteria;
+import com.qtplaf.library.database.Field;
+import com.qtplaf.library.database.FieldList;
+import com.qtplaf.library.database.PersistorException;
+import com.qtplaf.library.database.Record;
+import com.qtplaf.library.database.RecordIterator;
+import com.qtplaf.library.database.Value;
+
+/**
+ * A record iterator that reads a snapshot file sequentially, row group by row group, forward or backward. Row groups
+ * that can not match the criteria are skipped without being read, and only the projected columns and the columns
+ * used by the criteria are decoded.
+ * <p>
+ * Forward, columns are decoded lazily up to the rows returned, and the projected columns of rows that do not agree
+ * with the criteria are skipped without building their values, so reading a page of rows does not decode the whole
+ * row group. Backward, the decoded columns of a row group are decoded up to its last row.
+ *
+ * @author Miquel Sas
+ */
+public class SnapshotRecordIterator implements RecordIterator {
+
+	/** The persistor. */
+	private SnapshotPersistor persistor;
+	/** The file. */
+	private RandomAccessFile raf;
+	/** Filter criteria. */
+	private Criteria criteria;
+	/** Decoded columns flags, by stored column. */
+	private boolean[] decoded;
+	/** Criteria columns flags, by stored column. */
+	private boolean[] criteriaColumns;
+	/** Index of the stored column by view field, -1 if not stored. */
+	private int[] columns;
+	/** A boolean that indicates that the iteration is backward. */
+	private boolean reverse;
+	/** Next row group to read. */
+	private int nextGroup;
+	/** Column readers of the current row group by stored column, null if not decoded. */
+	private SnapshotColumnReader[] readers;
+	/** Number of rows of the current row group. */
+	private int rows;
+	/** Next row within the current row group. */
+	private int nextRow;
+	/** The next record, already read and checked. */
+	private Record nextRecord;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param persistor The snapshot persistor.
+	 * @param criteria The filter criteria, can be null.
+	 * @param reverse A boolean that indicates that the iteration is backward.
+	 * @param aliases The projected field aliases, all fields if null. The fields of the criteria are always decoded.
+	 * @throws PersistorException If the file can not be opened.
+	 */
+	public SnapshotRecordIterator(SnapshotPersistor persistor, Criteria criteria, boolean reverse, String[] aliases)
+		throws PersistorException {
+		super();
+		this.persistor = persistor;
+		this.criteria = (criteria == null || criteria.isEmpty() ? null : criteria);
+		this.reverse = reverse;
+
+		List<Field> storedFields = persistor.getStoredFields();
+		FieldList fieldList = persistor.getView().getFieldList();
+		columns = new int[fieldList.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = SnapshotRowGroup.indexOf(storedFields, fieldList.getField(i).getAlias());
+		}
+
+		// Decoded columns: projection and criteria.
+		decoded = new boolean[storedFields.size()];
+		List<String> decodedAliases = new ArrayList<>();
+		if (aliases == null) {
+			for (Field field : storedFields) {
+				decodedAliases.add(field.getAlias());
+			}
+		} else {
+			for (String alias : aliases) {
+				decodedAliases.add(alias);
+			}
+		}
+		List<String> criteriaAliases = new ArrayList<>();
+		if (this.criteria != null) {
+			addCriteriaAliases(this.criteria, criteriaAliases);
+		}
+		criteriaColumns = new boolean[storedFields.size()];
+		for (String alias : criteriaAliases) {
+			int column = SnapshotRowGroup.indexOf(storedFields, alias);
+			if (column >= 0) {
+				criteriaColumns[column] = true;
+				decoded[column] = true;
+			}
+		}
+		for (String alias : decodedAliases) {
+			int column = SnapshotRowGroup.indexOf(storedFields, alias);
+			if (column >= 0) {
+				decoded[column] = true;
+			}
+		}
+
+		nextGroup = (reverse ? persistor.getRowGroups().size() - 1 : 0);
+		try {
+			raf = new RandomAccessFile(persistor.getFile(), "r");
+		} catch (IOException exc) {
+			throw new PersistorException(exc.getMessage(), exc);
+		}
+	}
+
+	/**
+	 * Add the aliases of the fields used in the criteria.
+	 *
+	 * @param criteria The criteria.
+	 * @param aliases The list of aliases.
+	 */
+	private static void addCriteriaAliases(Criteria criteria, List<String> aliases) {
+		for (Criteria.Segment segment : criteria) {
+			if (segment.getCriteria() != null) {
+				addCriteriaAliases(segment.getCriteria(), aliases);
+				continue;
+			}
+			for (int i = 0; i < segment.getConditionCount(); i++) {
+				aliases.add(segment.getCondition(i).getField().getAlias());
+			}
+		}
+	}
+
+	/**
+	 * Read the next row group that may match the criteria.
+	 *
+	 * @return A boolean that indicates whether a row group was read.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private boolean readRowGroup() throws IOException {
+		List<SnapshotRowGroup> groups = persistor.getRowGroups();
+		List<Field> storedFields = persistor.getStoredFields();
+		while (nextGroup >= 0 && nextGroup < groups.size()) {
+			SnapshotRowGroup group = groups.get(nextGroup);
+			nextGroup += (reverse ? -1 : 1);
+			if (!group.mayMatch(criteria, storedFields)) {
+				continue;
+			}
+			closeReaders();
+			readers = new SnapshotColumnReader[storedFields.size()];
+			for (int c = 0; c < storedFields.size(); c++) {
+				if (!decoded[c]) {
+					continue;
+				}
+				byte[] chunk = new byte[group.lengths[c]];
+				raf.seek(group.offsets[c]);
+				raf.readFully(chunk);
+				Field field = storedFields.get(c);
+				int version = persistor.getVersion();
+				readers[c] = new SnapshotColumnReader(field.getType(), field.getDecimals(), version, chunk, group.rows);
+			}
+			rows = group.rows;
+			nextRow = (reverse ? rows - 1 : 0);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Close the column readers of the current row group.
+	 */
+	private void closeReaders() {
+		if (readers != null) {
+			for (SnapshotColumnReader reader : readers) {
+				if (reader != null) {
+					reader.close();
+				}
+			}
+			readers = null;
+		}
+	}
+
+	/**
+	 * Build the record of the row of the current row group.
+	 *
+	 * @param row The row.
+	 * @param criteriaOnly A boolean that indicates to decode only the columns of the criteria.
+	 * @return The record.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private Record getRecord(int row, boolean criteriaOnly) throws IOException {
+		FieldList fieldList = persistor.getView().getFieldList();
+		List<Value> recordValues = new ArrayList<>(columns.length);
+		for (int i = 0; i < columns.length; i++) {
+			int column = columns[i];
+			if (column >= 0 && readers[column] != null && (!criteriaOnly || criteriaColumns[column])) {
+				// Forward the rows not returned are skipped, backward all are decoded on the first access.
+				if (!reverse) {
+					readers[column].skip(row);
+				}
+				recordValues.add(readers[column].get(row));
+			} else {
+				recordValues.add(fieldList.getField(i).getDefaultValue());
+			}
+		}
+		Record record = new Record();
+		record.setFieldList(fieldList);
+		record.setValues(recordValues);
+		record.setPersistor(persistor);
+		return record;
+	}
+
+	/**
+	 * Returns {@code true} if the iteration has more records. (In other words, returns {@code true} if {@link #next}
+	 * would return a record rather than throwing an exception.)
+	 *
+	 * @return {@code true} if the iteration has more elements
+	 */
+	@Override
+	public boolean hasNext() {
+		if (nextRecord != null) {
+			return true;
+		}
+		if (raf == null) {
+			return false;
+		}
+		try {
+			while (true) {
+				if (readers == null || nextRow < 0 || nextRow >= rows) {
+					if (!readRowGroup()) {
+						silentlyClose();
+						return false;
+					}
+				}
+				int row = nextRow;
+				nextRow += (reverse ? -1 : 1);
+				if (criteria == null) {
+					nextRecord = getRecord(row, false);
+					return true;
+				}
+				if (criteria.check(getRecord(row, true))) {
+					nextRecord = getRecord(row, false);
+					return true;
+				}
+			}
+		} catch (IOException exc) {
+			silentlyClose();
+			throw new IllegalStateException(exc);
+		}
+	}
+
+	/**
+	 * Returns the next record in the iteration.
+	 *
+	 * @return the next record in the iteration
+	 * @throws NoSuchElementException if the iteration has no more records
+	 */
+	@Override
+	public Record next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Record record = nextRecord;
+		nextRecord = null;
+		return record;
+	}
+
+	/**
+	 * Close underlying resources.
+	 *
+	 * @throws PersistorException if any errors occur closing the underlying resources
+	 */
+	@Override
+	public void close() throws PersistorException {
+		if (raf != null) {
+			try {
+				raf.close();
+			} catch (IOException exc) {
+				throw new PersistorException(exc.getMessage(), exc);
+			} finally {
+				raf = null;
+				closeReaders();
+			}
+		}
+	}
+
+	/**
+	 * Silently close this iterator underlying file.
+	 */
+	private void silentlyClose() {
+		try {
+			close();
+		} catch (PersistorException exc) {
+			throw new IllegalStateException(exc);
+		}
+	}
+}
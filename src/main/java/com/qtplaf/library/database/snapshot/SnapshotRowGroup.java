@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.database.snapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import com.qtplaf.library.database.Condition;
+import com.qtplaf.library.database.Criteria;
+import com.qtplaf.library.database.Field;
+import com.qtplaf.library.database.Value;
+
+/**
+ * An entry of the row group index of a snapshot: the number of rows and, for each column, the position and length of
+ * the chunk, the number of nulls and the minimum and maximum values, used to skip row groups that can not match a
+ * criteria.
+ *
+ * @author Miquel Sas
+ */
+class SnapshotRowGroup {
+
+	/** Number of rows. */
+	int rows;
+	/** Chunk positions by column. */
+	long[] offsets;
+	/** Chunk lengths by column. */
+	int[] lengths;
+	/** Number of nulls by column. */
+	int[] nullCounts;
+	/** Minimum values by column, null if not available. */
+	Value[] minimums;
+	/** Maximum values by column, null if not available. */
+	Value[] maximums;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param columns The number of columns.
+	 */
+	SnapshotRowGroup(int columns) {
+		super();
+		offsets = new long[columns];
+		lengths = new int[columns];
+		nullCounts = new int[columns];
+		minimums = new Value[columns];
+		maximums = new Value[columns];
+	}
+
+	/**
+	 * Write this entry to the footer.
+	 *
+	 * @param out The output.
+	 * @param fields The stored fields.
+	 * @throws IOException If an IO error occurs.
+	 */
+	void write(DataOutput out, List<Field> fields) throws IOException {
+		out.writeInt(rows);
+		for (int i = 0; i < fields.size(); i++) {
+			out.writeLong(offsets[i]);
+			out.writeInt(lengths[i]);
+			out.writeInt(nullCounts[i]);
+			boolean statistics = (minimums[i] != null && maximums[i] != null);
+			out.writeBoolean(statistics);
+			if (statistics) {
+				SnapshotFormat.writeValue(out, fields.get(i).getType(), minimums[i]);
+				SnapshotFormat.writeValue(out, fields.get(i).getType(), maximums[i]);
+			}
+		}
+	}
+
+	/**
+	 * Read an entry from the footer.
+	 *
+	 * @param in The input.
+	 * @param fields The stored fields.
+	 * @return The row group entry.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static SnapshotRowGroup read(DataInput in, List<Field> fields) throws IOException {
+		SnapshotRowGroup group = new SnapshotRowGroup(fields.size());
+		group.rows = in.readInt();
+		for (int i = 0; i < fields.size(); i++) {
+			group.offsets[i] = in.readLong();
+			group.lengths[i] = in.readInt();
+			group.nullCounts[i] = in.readInt();
+			if (in.readBoolean()) {
+				Field field = fields.get(i);
+				group.minimums[i] = SnapshotFormat.readValue(in, field.getType(), field.getDecimals());
+				group.maximums[i] = SnapshotFormat.readValue(in, field.getType(), field.getDecimals());
+			}
+		}
+		return group;
+	}
+
+	/**
+	 * Update the statistics of a column with the values of the chunk.
+	 *
+	 * @param column The column.
+	 * @param field The field.
+	 * @param values The values.
+	 * @param rows The number of rows.
+	 */
+	void updateStatistics(int column, Field field, Value[] values, int rows) {
+		boolean statistics = SnapshotFormat.hasStatistics(field.getType());
+		for (int i = 0; i < rows; i++) {
+			Value value = values[i];
+			if (SnapshotFormat.isNull(value)) {
+				nullCounts[column]++;
+				continue;
+			}
+			if (!statistics) {
+				continue;
+			}
+			if (minimums[column] == null || value.compareTo(minimums[column]) < 0) {
+				minimums[column] = value;
+			}
+			if (maximums[column] == null || value.compareTo(maximums[column]) > 0) {
+				maximums[column] = value;
+			}
+		}
+	}
+
+	/**
+	 * Check whether any row of this group may agree with the criteria. The check is conservative, it only returns
+	 * false when the statistics prove that no row can agree.
+	 *
+	 * @param criteria The criteria.
+	 * @param fields The stored fields.
+	 * @return A boolean.
+	 */
+	boolean mayMatch(Criteria criteria, List<Field> fields) {
+		if (criteria == null || criteria.isEmpty()) {
+			return true;
+		}
+		for (int i = 0; i < criteria.size(); i++) {
+			boolean segment = mayMatch(criteria.get(i), fields);
+			if (criteria.isAnd() && !segment) {
+				return false;
+			}
+			if (criteria.isOr() && segment) {
+				return true;
+			}
+		}
+		return criteria.isAnd();
+	}
+
+	/**
+	 * Check whether any row of this group may agree with the criteria segment.
+	 *
+	 * @param segment The segment.
+	 * @param fields The stored fields.
+	 * @return A boolean.
+	 */
+	private boolean mayMatch(Criteria.Segment segment, List<Field> fields) {
+		if (segment.getCriteria() != null) {
+			if (segment.isNegate()) {
+				return true;
+			}
+			return mayMatch(segment.getCriteria(), fields);
+		}
+		if (segment.isEmpty()) {
+			return true;
+		}
+		for (int i = 0; i < segment.getConditionCount(); i++) {
+			boolean condition = mayMatch(segment.getCondition(i), fields);
+			if (segment.isAnd() && !condition) {
+				return false;
+			}
+			if (segment.isOr() && condition) {
+				return true;
+			}
+		}
+		return segment.isAnd();
+	}
+
+	/**
+	 * Check whether any row of this group may agree with the condition.
+	 *
+	 * @param condition The condition.
+	 * @param fields The stored fields.
+	 * @return A boolean.
+	 */
+	private boolean mayMatch(Condition condition, List<Field> fields) {
+		int column = indexOf(fields, condition.getField().getAlias());
+		if (column < 0 || nullCounts[column] > 0 || minimums[column] == null) {
+			return true;
+		}
+		Value min = minimums[column];
+		Value max = maximums[column];
+		List<Value> values = condition.getValues();
+		try {
+			switch (condition.getOperator()) {
+			case FIELD_EQ:
+				return inRange(values.get(0), min, max);
+			case FIELD_GT:
+				return max.compareTo(values.get(0)) > 0;
+			case FIELD_GE:
+				return max.compareTo(values.get(0)) >= 0;
+			case FIELD_LT:
+				return min.compareTo(values.get(0)) < 0;
+			case FIELD_LE:
+				return min.compareTo(values.get(0)) <= 0;
+			case BETWEEN:
+				return max.compareTo(values.get(0)) >= 0 && min.compareTo(values.get(1)) <= 0;
+			case IN_LIST:
+				for (Value value : values) {
+					if (inRange(value, min, max)) {
+						return true;
+					}
+				}
+				return false;
+			default:
+				return true;
+			}
+		} catch (RuntimeException exc) {
+			// Values of not comparable types, do not skip.
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the index of the field with the alias, or -1 if not stored.
+	 *
+	 * @param fields The stored fields.
+	 * @param alias The alias.
+	 * @return The index.
+	 */
+	static int indexOf(List<Field> fields, String alias) {
+		for (int i = 0; i < fields.size(); i++) {
+			if (fields.get(i).getAlias().equals(alias)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Check whether the value is in the range.
+	 *
+	 * @param value The value.
+	 * @param min The minimum.
+	 * @param max The maximum.
+	 * @return A boolean.
+	 */
+	private static boolean inRange(Value value, Value min, Value max) {
+		return min.compareTo(value) <= 0 && max.compareTo(value) >= 0;
+	}
+}
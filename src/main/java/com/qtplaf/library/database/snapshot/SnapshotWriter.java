@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.database.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.qtplaf.library.database.Criteria;
+import com.qtplaf.library.database.Field;
+import com.qtplaf.library.database.Order;
+import com.qtplaf.library.database.Persistor;
+import com.qtplaf.library.database.PersistorException;
+import com.qtplaf.library.database.Record;
+import com.qtplaf.library.database.RecordIterator;
+import com.qtplaf.library.database.Table;
+import com.qtplaf.library.database.Value;
+import com.qtplaf.library.database.View;
+
+/**
+ * Exports the rows of a table or view to a compressed columnar snapshot file, that can later be read with a
+ * {@link SnapshotPersistor}. Rows are streamed from the persistor and written in row groups, so the memory used does
+ * not depend on the size of the table. The file is first written to a temporary file and then moved to its final
+ * name, so readers never see a partially written snapshot.
+ *
+ * @author Miquel Sas
+ */
+public class SnapshotWriter {
+
+	/** Default number of rows per row group. */
+	public static final int DEFAULT_ROW_GROUP_SIZE = 16384;
+
+	/** The snapshot file. */
+	private File file;
+	/** Number of rows per row group. */
+	private int rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The snapshot file.
+	 */
+	public SnapshotWriter(File file) {
+		super();
+		this.file = file;
+	}
+
+	/**
+	 * Returns the snapshot file.
+	 *
+	 * @return The file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the number of rows per row group.
+	 *
+	 * @return The row group size.
+	 */
+	public int getRowGroupSize() {
+		return rowGroupSize;
+	}
+
+	/**
+	 * Set the number of rows per row group. Smaller groups skip more precisely, larger groups compress better.
+	 *
+	 * @param rowGroupSize The row group size.
+	 */
+	public void setRowGroupSize(int rowGroupSize) {
+		if (rowGroupSize <= 0) {
+			throw new IllegalArgumentException("Row group size must be greater than zero");
+		}
+		this.rowGroupSize = rowGroupSize;
+	}
+
+	/**
+	 * Export all the rows of the table, in primary key order.
+	 *
+	 * @param table The table.
+	 * @return The number of rows exported.
+	 * @throws PersistorException If an error occurs reading the rows.
+	 * @throws IOException If an error occurs writing the file.
+	 */
+	public long export(Table table) throws PersistorException, IOException {
+		return export(table.getPersistor(), null, table.getPrimaryKey());
+	}
+
+	/**
+	 * Export all the rows of the view, in the view order.
+	 *
+	 * @param view The view.
+	 * @return The number of rows exported.
+	 * @throws PersistorException If an error occurs reading the rows.
+	 * @throws IOException If an error occurs writing the file.
+	 */
+	public long export(View view) throws PersistorException, IOException {
+		return export(view.getPersistor(), null, view.getOrderBy());
+	}
+
+	/**
+	 * Export the rows of the persistor that agree with the criteria, in the given order.
+	 *
+	 * @param persistor The source persistor.
+	 * @param criteria The filter criteria, can be null.
+	 * @param order The order, can be null.
+	 * @return The number of rows exported.
+	 * @throws PersistorException If an error occurs reading the rows.
+	 * @throws IOException If an error occurs writing the file.
+	 */
+	public long export(Persistor persistor, Criteria criteria, Order order) throws PersistorException, IOException {
+
+		// Stored fields and their indexes in the source records.
+		List<Field> fields = new ArrayList<>();
+		List<Integer> indexes = new ArrayList<>();
+		for (int i = 0; i < persistor.getFieldCount(); i++) {
+			Field field = persistor.getField(i);
+			if (SnapshotFormat.isStored(field)) {
+				fields.add(field);
+				indexes.add(i);
+			}
+		}
+		int columns = fields.size();
+
+		File temporary = new File(file.getPath() + ".tmp");
+		long totalRows = 0;
+		RecordIterator iter = null;
+		try (RandomAccessFile raf = new RandomAccessFile(temporary, "rw")) {
+			raf.setLength(0);
+			raf.write(getHeader(fields, order));
+
+			List<SnapshotRowGroup> groups = new ArrayList<>();
+			Value[][] buffer = new Value[columns][rowGroupSize];
+			int rows = 0;
+			iter = persistor.iterator(criteria, order);
+			while (true) {
+				boolean next = iter.hasNext();
+				if (next) {
+					Record record = iter.next();
+					for (int c = 0; c < columns; c++) {
+						buffer[c][rows] = record.getValue(indexes.get(c));
+					}
+					rows++;
+					totalRows++;
+				}
+				if (rows == rowGroupSize || (!next && rows > 0)) {
+					groups.add(writeRowGroup(raf, fields, buffer, rows));
+					rows = 0;
+				}
+				if (!next) {
+					break;
+				}
+			}
+
+			// Footer and trailer.
+			long footerOffset = raf.getFilePointer();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(groups.size());
+			for (SnapshotRowGroup group : groups) {
+				group.write(out, fields);
+			}
+			out.writeLong(totalRows);
+			out.writeLong(footerOffset);
+			out.writeInt(SnapshotFormat.MAGIC);
+			out.flush();
+			raf.write(bytes.toByteArray());
+		} finally {
+			if (iter != null) {
+				iter.close();
+			}
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return totalRows;
+	}
+
+	/**
+	 * Returns the header bytes.
+	 *
+	 * @param fields The stored fields.
+	 * @param order The order of the rows.
+	 * @return The header.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private byte[] getHeader(List<Field> fields, Order order) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(SnapshotFormat.MAGIC);
+		out.writeInt(SnapshotFormat.VERSION);
+		out.writeInt(fields.size());
+		for (Field field : fields) {
+			SnapshotFormat.writeString(out, field.getAlias());
+			SnapshotFormat.writeString(out, field.getType().name());
+			out.writeInt(field.getDecimals());
+		}
+		int orderSize = (order == null ? 0 : order.size());
+		out.writeInt(orderSize);
+		for (int i = 0; i < orderSize; i++) {
+			SnapshotFormat.writeString(out, order.get(i).getField().getAlias());
+			out.writeBoolean(order.get(i).isAsc());
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Compress and write the chunks of a row group.
+	 *
+	 * @param raf The file.
+	 * @param fields The stored fields.
+	 * @param buffer The buffered values by column.
+	 * @param rows The number of rows.
+	 * @return The row group index entry.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private SnapshotRowGroup writeRowGroup(RandomAccessFile raf, List<Field> fields, Value[][] buffer, int rows)
+		throws IOException {
+		SnapshotRowGroup group = new SnapshotRowGroup(fields.size());
+		group.rows = rows;
+		for (int c = 0; c < fields.size(); c++) {
+			Field field = fields.get(c);
+			byte[] chunk = SnapshotFormat.encode(field.getType(), buffer[c], rows);
+			group.offsets[c] = raf.getFilePointer();
+			group.lengths[c] = chunk.length;
+			group.updateStatistics(c, field, buffer[c], rows);
+			raf.write(chunk);
+		}
+		return group;
+	}
+}
@@ -550,4 +550,13 @@ public class JChart extends JPanel {
 	public List<PlotData> getPlotDataList() {
 		return plotDataList;
 	}
+
+	/**
+	 * Close the plot datas, releasing their data lists, when the chart is closed.
+	 */
+	public void close() {
+		for (PlotData plotData : plotDataList) {
+			plotData.close();
+		}
+	}
 }
@@ -40,6 +40,7 @@ public class JFrameChart extends JFrameSession {
 		@Override
 		public void windowClosing(WindowEvent e) {
 			setVisible(false);
+			chart.close();
 			dispose();
 		}
 	}
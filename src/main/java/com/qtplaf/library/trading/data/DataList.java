@@ -322,6 +322,13 @@ public abstract class DataList {
 		listeners.clear();
 	}
 
+	/**
+	 * Close the data list when it is no longer used, releasing the listeners it has registered in other lists. By
+	 * default does nothing.
+	 */
+	public void close() {
+	}
+
 	/**
 	 * Notify listeners a data list change.
 	 * 
@@ -396,6 +396,23 @@ public class DataPersistor implements Persistor {
 		return lastIndex;
 	}
 
+	/**
+	 * Register a record appended to the underlying persistor by another <tt>DataPersistor</tt>, so that the last index
+	 * and the size account for it without querying the persistor again.
+	 *
+	 * @param record The appended record.
+	 */
+	public void appended(Record record) {
+		Long index = getIndex(record);
+		if (firstIndex == -1) {
+			firstIndex = getIndex(getIndexOrder(true));
+		}
+		if (getLastIndex() < index) {
+			lastIndex = index;
+		}
+		mapRecords.put(index, record);
+	}
+
 	/**
 	 * Returns the first index with the order.
 	 * 
@@ -673,6 +690,26 @@ public class DataPersistor implements Persistor {
 		return persistor.insert(record);
 	}
 
+	/**
+	 * Insert a list of records in a single batch operation. Automatically sets the indexes and increases the last
+	 * index.
+	 * 
+	 * @param records The list of records to insert.
+	 * @return The number of inserted records.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	@Override
+	public int insert(List<Record> records) throws PersistorException {
+		Long last = getLastIndex();
+		for (Record record : records) {
+			last = last + 1;
+			record.setValue(0, last);
+		}
+		int count = persistor.insert(records);
+		lastIndex = last;
+		return count;
+	}
+
 	/**
 	 * Returns a record iterator to scan the records that agree with the criteria.
 	 * 
@@ -863,6 +900,19 @@ public class DataPersistor implements Persistor {
 		return persistor.update(criteria, map);
 	}
 
+	/**
+	 * Update a set of fields with given values for each filter criteria, in a single batch operation.
+	 * 
+	 * @param criterias The list of filter criteria.
+	 * @param maps The list of maps of field-values.
+	 * @return The number of updated records.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	@Override
+	public int update(List<Criteria> criterias, List<ValueMap> maps) throws PersistorException {
+		return persistor.update(criterias, maps);
+	}
+
 	/**
 	 * Close the iterator.
 	 * 
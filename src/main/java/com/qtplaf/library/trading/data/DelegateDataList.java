@@ -19,11 +19,11 @@ import com.qtplaf.library.trading.data.info.DataInfo;
 
 /**
  * A delegate data list, used when a copy of the datalist with a different data info is required. Can access a part of
- * the data indexes.
+ * the data indexes. Changes notified by the source list are forwarded to the listeners of this list.
  * 
  * @author Miquel Sas
  */
-public class DelegateDataList extends DataList {
+public class DelegateDataList extends DataList implements DataListListener {
 
 	/**
 	 * Source list.
@@ -40,6 +40,25 @@ public class DelegateDataList extends DataList {
 	public DelegateDataList(Session session, DataInfo dataInfo, DataList dataList) {
 		super(session, dataInfo);
 		this.dataList = dataList;
+		this.dataList.addListener(this);
+	}
+
+	/**
+	 * Close the list, removing its listener from the source list so the source does not keep it alive.
+	 */
+	@Override
+	public void close() {
+		dataList.removeListener(this);
+	}
+
+	/**
+	 * Forward the changes of the source list to the listeners of this list.
+	 * 
+	 * @param e The data list event.
+	 */
+	@Override
+	public void dataListChanged(DataListEvent e) {
+		notifyChange(new DataListEvent(this, e.getData(), e.getIndex(), e.getOperation()));
 	}
 
 	/**
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.trading.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.qtplaf.library.app.Session;
+import com.qtplaf.library.trading.data.info.DataInfo;
+
+/**
+ * A data list that holds its data in memory, used for instance to feed indicators with data received live.
+ *
+ * @author Miquel Sas
+ */
+public class ListDataList extends DataList {
+
+	/**
+	 * The list of data elements.
+	 */
+	private List<Data> dataList = new ArrayList<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param session Working session.
+	 * @param dataInfo The data info.
+	 */
+	public ListDataList(Session session, DataInfo dataInfo) {
+		super(session, dataInfo);
+	}
+
+	/**
+	 * Returns the number of elements in this list.
+	 *
+	 * @return The number of elements in this list.
+	 */
+	@Override
+	public int size() {
+		return dataList.size();
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this list contains no elements.
+	 *
+	 * @return <tt>true</tt> if this list contains no elements.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return dataList.isEmpty();
+	}
+
+	/**
+	 * Add the data element to this list and notify listeners.
+	 *
+	 * @param data The data element.
+	 */
+	@Override
+	public void add(Data data) {
+		dataList.add(data);
+		notifyChange(new DataListEvent(this, data, dataList.size() - 1, DataListEvent.Operation.Add));
+	}
+
+	/**
+	 * Returns the data element at the given index.
+	 *
+	 * @param index The index.
+	 * @return The data element at the given index.
+	 */
+	@Override
+	public Data get(int index) {
+		return dataList.get(index);
+	}
+
+	/**
+	 * Remove and return the data at the given index.
+	 *
+	 * @param index The index.
+	 * @return The removed data.
+	 */
+	@Override
+	public Data remove(int index) {
+		Data data = dataList.remove(index);
+		notifyChange(new DataListEvent(this, data, index, DataListEvent.Operation.Remove));
+		return data;
+	}
+}
@@ -158,6 +158,19 @@ public class PersistorDataList extends DataList {
 		// TODO Pending to implement
 	}
 
+	/**
+	 * Register a record appended to the underlying persistor by another writer, like a live feed, and notify listeners
+	 * the addition of the data element.
+	 *
+	 * @param record The appended record.
+	 */
+	public void appended(Record record) {
+		dataPersistor.appended(record);
+		int index = dataPersistor.getIndex(record).intValue();
+		map.put(index, record);
+		notifyChange(new DataListEvent(this, getData(record), index, DataListEvent.Operation.Add));
+	}
+
 	/**
 	 * Returns the data element at the given index.
 	 * 
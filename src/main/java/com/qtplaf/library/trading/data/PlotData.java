@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import com.qtplaf.library.swing.core.SwingUtils;
 import com.qtplaf.library.trading.chart.JChartPlotter;
 import com.qtplaf.library.trading.chart.drawings.Drawing;
 import com.qtplaf.library.trading.chart.plotter.PlotterContext;
@@ -30,6 +31,30 @@ import com.qtplaf.library.util.NumberUtils;
  */
 public class PlotData implements Iterable<DataList>, DataListListener {
 
+	/**
+	 * Runnable to invoke later following a data element added and repainting the chart.
+	 */
+	class DataAdded implements Runnable {
+		private int index;
+
+		DataAdded(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+			// Follow the tail only when the previous last element was the last one shown. When the frame was propagated
+			// from another plot data of the chart, the end index is already updated and nothing is done.
+			if (endIndex == index - 1) {
+				startIndex++;
+				endIndex++;
+			}
+			if (plotterContext != null) {
+				plotterContext.getChartPlotter().getChartContainer().getChart().propagateFrameChanges(PlotData.this);
+			}
+		}
+	}
+
 	/** The number of bars to show at start when start and end indexes are not defined. */
 	private int startNumberOfBars = 2000;
 
@@ -263,6 +288,9 @@ public class PlotData implements Iterable<DataList>, DataListListener {
 	 * Clear this plot data.
 	 */
 	public void clear() {
+		for (DataList dataList : dataLists) {
+			dataList.removeListener(this);
+		}
 		dataLists.clear();
 		setStartAndEndIndexes();
 	}
@@ -307,7 +335,19 @@ public class PlotData implements Iterable<DataList>, DataListListener {
 	 */
 	public DataList remove(int index) {
 		setStartAndEndIndexes();
-		return dataLists.remove(index);
+		DataList dataList = dataLists.remove(index);
+		dataList.removeListener(this);
+		return dataList;
+	}
+
+	/**
+	 * Close the data lists and clear this plot data, when the chart that plots it is closed.
+	 */
+	public void close() {
+		for (DataList dataList : dataLists) {
+			dataList.close();
+		}
+		clear();
 	}
 
 	/**
@@ -828,6 +868,9 @@ public class PlotData implements Iterable<DataList>, DataListListener {
 	 */
 	@Override
 	public void dataListChanged(DataListEvent e) {
+		if (e.isAdd()) {
+			SwingUtils.invokeLater(new DataAdded(e.getIndex()));
+		}
 	}
 
 	/**
@@ -14,6 +14,7 @@
 
 package com.qtplaf.library.util.math;
 
+import java.util.Arrays;
 import java.util.List;
 
 import com.qtplaf.library.util.NumberUtils;
@@ -25,6 +26,9 @@ import com.qtplaf.library.util.NumberUtils;
  */
 public class Matrix {
 
+	/** Block size of the cache blocked matrix products. */
+	private static final int BLOCK = 64;
+
 	/**
 	 * Add the values of vectors a and b (must have the same length).
 	 * 
@@ -122,6 +126,18 @@ public class Matrix {
 		}
 	}
 
+	/**
+	 * Cumulate the source vector into the destination vector.
+	 * 
+	 * @param src The source vector.
+	 * @param dst The destination vector.
+	 */
+	public static void cumulate(double[] src, double[] dst) {
+		for (int i = 0; i < src.length; i++) {
+			dst[i] += src[i];
+		}
+	}
+
 	/**
 	 * Cumulate the source array into the destination. Both must have the same dimensions.
 	 * 
@@ -138,6 +154,51 @@ public class Matrix {
 		}
 	}
 
+	/**
+	 * Cumulate the product of the transposed of <i>a</i> by <i>b</i> into <i>c</i>, <i>c += a<sup>T</sup> b</i>, all
+	 * matrices flat and row major, cache blocked. Each element of <i>c</i> receives its terms in row order of <i>a</i>
+	 * and <i>b</i>, exactly as if the rows were cumulated one after another.
+	 * 
+	 * @param a Matrix a of <i>inner</i> rows by <i>rows</i> columns.
+	 * @param b Matrix b of <i>inner</i> rows by <i>columns</i> columns.
+	 * @param c Matrix c of <i>rows</i> by <i>columns</i>, starting at the offset.
+	 * @param offset The offset of c.
+	 * @param rows The number of rows of c.
+	 * @param inner The inner dimension, number of rows of a and b.
+	 * @param columns The number of columns of c.
+	 */
+	public static void cumulateTransposedProduct(
+		double[] a,
+		double[] b,
+		double[] c,
+		int offset,
+		int rows,
+		int inner,
+		int columns) {
+		product(a, 0, 1, rows, b, 0, columns, 1, c, offset, rows, inner, columns);
+	}
+
+	/**
+	 * Cumulate the product of <i>a</i> by the transposed of <i>b</i> into <i>c</i>, <i>c += a b<sup>T</sup></i>, all
+	 * matrices flat and row major, cache blocked.
+	 * 
+	 * @param a Matrix a of <i>rows</i> by <i>inner</i> columns.
+	 * @param b Matrix b of <i>columns</i> rows by <i>inner</i> columns.
+	 * @param c Matrix c of <i>rows</i> by <i>columns</i>.
+	 * @param rows The number of rows of a and c.
+	 * @param inner The inner dimension.
+	 * @param columns The number of rows of b and columns of c.
+	 */
+	public static void cumulateProductTransposed(
+		double[] a,
+		double[] b,
+		double[] c,
+		int rows,
+		int inner,
+		int columns) {
+		product(a, 0, inner, 1, b, 0, 1, inner, c, 0, rows, inner, columns);
+	}
+
 	/**
 	 * Return the Euclidean distance between two vectors.
 	 * 
@@ -158,6 +219,230 @@ public class Matrix {
 		return distance;
 	}
 
+	/**
+	 * Set <i>c</i> with the product of <i>a</i> by <i>b</i>, <i>c = a b</i>, all matrices flat and row major, cache
+	 * blocked. Each element of <i>c</i> is summed in the order of the inner dimension.
+	 * 
+	 * @param a Matrix a of <i>rows</i> by <i>inner</i> columns.
+	 * @param b Matrix b of <i>inner</i> rows by <i>columns</i> columns, starting at the offset.
+	 * @param offset The offset of b.
+	 * @param c Matrix c of <i>rows</i> by <i>columns</i>.
+	 * @param rows The number of rows of a and c.
+	 * @param inner The inner dimension.
+	 * @param columns The number of columns of b and c.
+	 */
+	public static void multiply(double[] a, double[] b, int offset, double[] c, int rows, int inner, int columns) {
+		Arrays.fill(c, 0, rows * columns, 0);
+		product(a, 0, inner, 1, b, offset, columns, 1, c, 0, rows, inner, columns);
+	}
+
+	/**
+	 * Set <i>c</i> with the product of <i>a</i> by the transposed of <i>b</i>, <i>c = a b<sup>T</sup></i>, all
+	 * matrices flat and row major, cache blocked. Each element of <i>c</i> is summed in the order of the inner
+	 * dimension.
+	 * 
+	 * @param a Matrix a of <i>rows</i> by <i>inner</i> columns.
+	 * @param b Matrix b of <i>columns</i> rows by <i>inner</i> columns, starting at the offset.
+	 * @param offset The offset of b.
+	 * @param c Matrix c of <i>rows</i> by <i>columns</i>.
+	 * @param rows The number of rows of a and c.
+	 * @param inner The inner dimension.
+	 * @param columns The number of rows of b and columns of c.
+	 */
+	public static void multiplyTransposed(
+		double[] a,
+		double[] b,
+		int offset,
+		double[] c,
+		int rows,
+		int inner,
+		int columns) {
+		Arrays.fill(c, 0, rows * columns, 0);
+		product(a, 0, inner, 1, b, offset, 1, inner, c, 0, rows, inner, columns);
+	}
+
+	/**
+	 * Cumulate the product <i>A B</i> into <i>c</i>, where the elements of <i>A</i> and <i>B</i> are addressed with
+	 * strides, so the same kernel serves transposed operands. The product is blocked for the cache and computed in
+	 * tiles of 4 by 4 elements of <i>c</i> held in registers. Each element of <i>c</i> receives its terms in the order
+	 * of the inner dimension.
+	 * 
+	 * @param a The array of A.
+	 * @param aOffset The offset of A.
+	 * @param aRow The stride between rows of A.
+	 * @param aInner The stride along the inner dimension of A.
+	 * @param b The array of B.
+	 * @param bOffset The offset of B.
+	 * @param bInner The stride along the inner dimension of B.
+	 * @param bColumn The stride between columns of B.
+	 * @param c The array of C, flat and row major.
+	 * @param cOffset The offset of C.
+	 * @param rows The number of rows of C.
+	 * @param inner The inner dimension.
+	 * @param columns The number of columns of C.
+	 */
+	private static void product(
+		double[] a,
+		int aOffset,
+		int aRow,
+		int aInner,
+		double[] b,
+		int bOffset,
+		int bInner,
+		int bColumn,
+		double[] c,
+		int cOffset,
+		int rows,
+		int inner,
+		int columns) {
+		for (int pp = 0; pp < inner; pp += BLOCK) {
+			int pMax = Math.min(pp + BLOCK, inner);
+			for (int ii = 0; ii < rows; ii += BLOCK) {
+				int iMax = Math.min(ii + BLOCK, rows);
+				for (int jj = 0; jj < columns; jj += BLOCK) {
+					int jMax = Math.min(jj + BLOCK, columns);
+					int i = ii;
+					for (; i + 3 < iMax; i += 4) {
+						int j = jj;
+						for (; j + 3 < jMax; j += 4) {
+							productTile(a, aOffset + i * aRow, aRow, aInner, b, bOffset + j * bColumn, bInner, bColumn,
+								c, cOffset + i * columns + j, columns, pp, pMax);
+						}
+						for (; j < jMax; j++) {
+							for (int r = i; r < i + 4; r++) {
+								productElement(a, aOffset + r * aRow, aInner, b, bOffset + j * bColumn, bInner, c,
+									cOffset + r * columns + j, pp, pMax);
+							}
+						}
+					}
+					for (; i < iMax; i++) {
+						for (int j = jj; j < jMax; j++) {
+							productElement(a, aOffset + i * aRow, aInner, b, bOffset + j * bColumn, bInner, c,
+								cOffset + i * columns + j, pp, pMax);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cumulate the terms of the inner range into one element of C.
+	 * 
+	 * @param a The array of A.
+	 * @param aStart The start of the row of A.
+	 * @param aInner The stride along the inner dimension of A.
+	 * @param b The array of B.
+	 * @param bStart The start of the column of B.
+	 * @param bInner The stride along the inner dimension of B.
+	 * @param c The array of C.
+	 * @param cIndex The index of the element of C.
+	 * @param pStart The start of the inner range.
+	 * @param pEnd The end (exclusive) of the inner range.
+	 */
+	private static void productElement(
+		double[] a,
+		int aStart,
+		int aInner,
+		double[] b,
+		int bStart,
+		int bInner,
+		double[] c,
+		int cIndex,
+		int pStart,
+		int pEnd) {
+		double sum = c[cIndex];
+		for (int p = pStart; p < pEnd; p++) {
+			sum += (a[aStart + p * aInner] * b[bStart + p * bInner]);
+		}
+		c[cIndex] = sum;
+	}
+
+	/**
+	 * Cumulate the terms of the inner range into a tile of 4 by 4 elements of C, held in local variables.
+	 * 
+	 * @param a The array of A.
+	 * @param aStart The start of the first row of A.
+	 * @param aRow The stride between rows of A.
+	 * @param aInner The stride along the inner dimension of A.
+	 * @param b The array of B.
+	 * @param bStart The start of the first column of B.
+	 * @param bInner The stride along the inner dimension of B.
+	 * @param bColumn The stride between columns of B.
+	 * @param c The array of C.
+	 * @param cStart The index of the first element of the tile.
+	 * @param columns The number of columns of C.
+	 * @param pStart The start of the inner range.
+	 * @param pEnd The end (exclusive) of the inner range.
+	 */
+	private static void productTile(
+		double[] a,
+		int aStart,
+		int aRow,
+		int aInner,
+		double[] b,
+		int bStart,
+		int bInner,
+		int bColumn,
+		double[] c,
+		int cStart,
+		int columns,
+		int pStart,
+		int pEnd) {
+		int c0 = cStart;
+		int c1 = c0 + columns;
+		int c2 = c1 + columns;
+		int c3 = c2 + columns;
+		double c00 = c[c0], c01 = c[c0 + 1], c02 = c[c0 + 2], c03 = c[c0 + 3];
+		double c10 = c[c1], c11 = c[c1 + 1], c12 = c[c1 + 2], c13 = c[c1 + 3];
+		double c20 = c[c2], c21 = c[c2 + 1], c22 = c[c2 + 2], c23 = c[c2 + 3];
+		double c30 = c[c3], c31 = c[c3 + 1], c32 = c[c3 + 2], c33 = c[c3 + 3];
+		for (int p = pStart; p < pEnd; p++) {
+			int ia = aStart + p * aInner;
+			double a0 = a[ia];
+			double a1 = a[ia + aRow];
+			double a2 = a[ia + 2 * aRow];
+			double a3 = a[ia + 3 * aRow];
+			int ib = bStart + p * bInner;
+			double b0 = b[ib];
+			double b1 = b[ib + bColumn];
+			double b2 = b[ib + 2 * bColumn];
+			double b3 = b[ib + 3 * bColumn];
+			c00 += a0 * b0;
+			c01 += a0 * b1;
+			c02 += a0 * b2;
+			c03 += a0 * b3;
+			c10 += a1 * b0;
+			c11 += a1 * b1;
+			c12 += a1 * b2;
+			c13 += a1 * b3;
+			c20 += a2 * b0;
+			c21 += a2 * b1;
+			c22 += a2 * b2;
+			c23 += a2 * b3;
+			c30 += a3 * b0;
+			c31 += a3 * b1;
+			c32 += a3 * b2;
+			c33 += a3 * b3;
+		}
+		c[c0] = c00;
+		c[c0 + 1] = c01;
+		c[c0 + 2] = c02;
+		c[c0 + 3] = c03;
+		c[c1] = c10;
+		c[c1 + 1] = c11;
+		c[c1 + 2] = c12;
+		c[c1 + 3] = c13;
+		c[c2] = c20;
+		c[c2 + 1] = c21;
+		c[c2 + 2] = c22;
+		c[c2 + 3] = c23;
+		c[c3] = c30;
+		c[c3 + 1] = c31;
+		c[c3 + 2] = c32;
+		c[c3 + 3] = c33;
+	}
+
 	/**
 	 * Returns the number of rows of a matrix.
 	 * 
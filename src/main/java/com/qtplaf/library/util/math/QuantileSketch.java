@@ -0,0 +1,425 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.util.math;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A streaming quantile sketch, a merging t-digest. Values are added to a buffer that is periodically merged into a
+ * sorted list of weighted centroids, whose size is bounded by the compression. Tail centroids are kept small, so
+ * extreme quantiles are accurate. Sketches can be merged, so sketches built on separate chunks of data, or stored and
+ * later updated with new data, give the same quantiles as a single sketch on all the data.
+ *
+ * @author Miquel Sas
+ */
+public class QuantileSketch implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Default compression. */
+	public static final double DEFAULT_COMPRESSION = 200;
+
+	/** Compression, the approximate maximum number of centroids. */
+	private double compression;
+	/** Merged centroid means. */
+	private double[] means;
+	/** Merged centroid weights. */
+	private double[] weights;
+	/** Number of merged centroids. */
+	private int count = 0;
+	/** Buffer of unmerged means. */
+	private double[] bufferMeans;
+	/** Buffer of unmerged weights. */
+	private double[] bufferWeights;
+	/** Number of unmerged values. */
+	private int bufferCount = 0;
+	/** Work area of means to merge, reused between compressions. */
+	private transient double[] workMeans;
+	/** Work area of weights to merge, reused between compressions. */
+	private transient double[] workWeights;
+	/** Total weight, merged and unmerged. */
+	private double totalWeight = 0;
+	/** Minimum value. */
+	private double minimum = Double.POSITIVE_INFINITY;
+	/** Maximum value. */
+	private double maximum = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Default constructor.
+	 */
+	public QuantileSketch() {
+		this(DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param compression The compression, the approximate maximum number of centroids.
+	 */
+	public QuantileSketch(double compression) {
+		super();
+		if (compression < 10) {
+			throw new IllegalArgumentException("Compression must be at least 10");
+		}
+		this.compression = compression;
+		int capacity = (int) Math.ceil(compression) + 10;
+		this.means = new double[capacity];
+		this.weights = new double[capacity];
+		this.bufferMeans = new double[5 * capacity];
+		this.bufferWeights = new double[5 * capacity];
+	}
+
+	/**
+	 * Constructor to restore a sketch from its centroids.
+	 *
+	 * @param compression The compression.
+	 * @param means The centroid means, sorted.
+	 * @param weights The centroid weights.
+	 * @param minimum The minimum value.
+	 * @param maximum The maximum value.
+	 */
+	public QuantileSketch(double compression, double[] means, double[] weights, double minimum, double maximum) {
+		this(compression);
+		if (means.length != weights.length) {
+			throw new IllegalArgumentException("Means and weights must have the same length");
+		}
+		for (int i = 0; i < means.length; i++) {
+			add(means[i], weights[i]);
+		}
+		compress();
+		if (totalWeight > 0) {
+			this.minimum = Math.min(this.minimum, minimum);
+			this.maximum = Math.max(this.maximum, maximum);
+		}
+	}
+
+	/**
+	 * Returns the compression.
+	 *
+	 * @return The compression.
+	 */
+	public double getCompression() {
+		return compression;
+	}
+
+	/**
+	 * Add a value.
+	 *
+	 * @param value The value.
+	 */
+	public void add(double value) {
+		add(value, 1);
+	}
+
+	/**
+	 * Add a value with a weight.
+	 *
+	 * @param value The value.
+	 * @param weight The weight.
+	 */
+	public void add(double value, double weight) {
+		if (Double.isNaN(value) || weight <= 0) {
+			return;
+		}
+		if (bufferCount == bufferMeans.length) {
+			compress();
+		}
+		bufferMeans[bufferCount] = value;
+		bufferWeights[bufferCount] = weight;
+		bufferCount++;
+		totalWeight += weight;
+		minimum = Math.min(minimum, value);
+		maximum = Math.max(maximum, value);
+	}
+
+	/**
+	 * Merge the argument sketch into this one.
+	 *
+	 * @param sketch The sketch to merge.
+	 */
+	public void merge(QuantileSketch sketch) {
+		sketch.compress();
+		for (int i = 0; i < sketch.count; i++) {
+			add(sketch.means[i], sketch.weights[i]);
+		}
+		if (sketch.totalWeight > 0) {
+			minimum = Math.min(minimum, sketch.minimum);
+			maximum = Math.max(maximum, sketch.maximum);
+		}
+	}
+
+	/**
+	 * Scale function k1, maps a quantile to the centroid index space.
+	 *
+	 * @param q The quantile.
+	 * @return The scaled index.
+	 */
+	private double k(double q) {
+		return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+	}
+
+	/**
+	 * Inverse of the scale function k1.
+	 *
+	 * @param k The scaled index.
+	 * @return The quantile.
+	 */
+	private double q(double k) {
+		return (Math.sin(k * (2 * Math.PI) / compression) + 1) / 2;
+	}
+
+	/**
+	 * Merge the buffer of unmerged values into the list of centroids.
+	 */
+	public void compress() {
+		if (bufferCount == 0) {
+			return;
+		}
+
+		// Sort the buffer by mean and merge it with the centroids, already sorted, in the work area.
+		int size = count + bufferCount;
+		if (workMeans == null || workMeans.length < size) {
+			workMeans = new double[size];
+			workWeights = new double[size];
+		}
+		double[] allMeans = workMeans;
+		double[] allWeights = workWeights;
+		sort(bufferMeans, bufferWeights, 0, bufferCount - 1);
+		int i = 0;
+		int j = 0;
+		for (int n = 0; n < size; n++) {
+			if (j == bufferCount || (i < count && means[i] <= bufferMeans[j])) {
+				allMeans[n] = means[i];
+				allWeights[n] = weights[i];
+				i++;
+			} else {
+				allMeans[n] = bufferMeans[j];
+				allWeights[n] = bufferWeights[j];
+				j++;
+			}
+		}
+		bufferCount = 0;
+
+		// Single pass merging consecutive centroids while the size limit of the scale function allows it.
+		count = 0;
+		double weightSoFar = 0;
+		double qLimit = q(k(0) + 1);
+		double mean = allMeans[0];
+		double weight = allWeights[0];
+		for (int n = 1; n < size; n++) {
+			double qProposed = (weightSoFar + weight + allWeights[n]) / totalWeight;
+			if (qProposed <= qLimit) {
+				weight += allWeights[n];
+				mean += (allMeans[n] - mean) * allWeights[n] / weight;
+			} else {
+				append(mean, weight);
+				weightSoFar += weight;
+				qLimit = q(k(weightSoFar / totalWeight) + 1);
+				mean = allMeans[n];
+				weight = allWeights[n];
+			}
+		}
+		append(mean, weight);
+	}
+
+	/**
+	 * Append a merged centroid.
+	 *
+	 * @param mean The mean.
+	 * @param weight The weight.
+	 */
+	private void append(double mean, double weight) {
+		if (count == means.length) {
+			means = Arrays.copyOf(means, count * 2);
+			weights = Arrays.copyOf(weights, count * 2);
+		}
+		means[count] = mean;
+		weights[count] = weight;
+		count++;
+	}
+
+	/**
+	 * Sort a range of the means and the weights by mean, in place.
+	 *
+	 * @param values The means.
+	 * @param weights The weights.
+	 * @param left The first index, inclusive.
+	 * @param right The last index, inclusive.
+	 */
+	private static void sort(double[] values, double[] weights, int left, int right) {
+		while (right - left > 16) {
+			double pivot = values[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (values[i] < pivot) {
+					i++;
+				}
+				while (values[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(values, weights, i, j);
+					i++;
+					j--;
+				}
+			}
+			// Recurse into the smaller part and loop on the larger.
+			if (j - left < right - i) {
+				sort(values, weights, left, j);
+				left = i;
+			} else {
+				sort(values, weights, i, right);
+				right = j;
+			}
+		}
+		for (int i = left + 1; i <= right; i++) {
+			for (int j = i; j > left && values[j - 1] > values[j]; j--) {
+				swap(values, weights, j - 1, j);
+			}
+		}
+	}
+
+	/**
+	 * Swap two positions of the means and the weights.
+	 *
+	 * @param values The means.
+	 * @param weights The weights.
+	 * @param i Position i.
+	 * @param j Position j.
+	 */
+	private static void swap(double[] values, double[] weights, int i, int j) {
+		double value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+		double weight = weights[i];
+		weights[i] = weights[j];
+		weights[j] = weight;
+	}
+
+	/**
+	 * Returns the total weight, the number of values when added without weight.
+	 *
+	 * @return The total weight.
+	 */
+	public double getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Check if the sketch is empty.
+	 *
+	 * @return A boolean.
+	 */
+	public boolean isEmpty() {
+		return totalWeight == 0;
+	}
+
+	/**
+	 * Returns the minimum value.
+	 *
+	 * @return The minimum value.
+	 */
+	public double getMinimum() {
+		return minimum;
+	}
+
+	/**
+	 * Returns the maximum value.
+	 *
+	 * @return The maximum value.
+	 */
+	public double getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * Returns the number of centroids, merging pending values.
+	 *
+	 * @return The number of centroids.
+	 */
+	public int getCentroidCount() {
+		compress();
+		return count;
+	}
+
+	/**
+	 * Returns the mean of the centroid.
+	 *
+	 * @param index The centroid index.
+	 * @return The mean.
+	 */
+	public double getCentroidMean(int index) {
+		compress();
+		return means[index];
+	}
+
+	/**
+	 * Returns the weight of the centroid.
+	 *
+	 * @param index The centroid index.
+	 * @return The weight.
+	 */
+	public double getCentroidWeight(int index) {
+		compress();
+		return weights[index];
+	}
+
+	/**
+	 * Returns the estimated value at the given quantile.
+	 *
+	 * @param quantile The quantile, between 0 and 1.
+	 * @return The estimated value, or NaN if the sketch is empty.
+	 */
+	public double quantile(double quantile) {
+		if (quantile < 0 || quantile > 1) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1");
+		}
+		compress();
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (count == 1) {
+			return means[0];
+		}
+
+		double index = quantile * totalWeight;
+
+		// Left tail, interpolate between the minimum and the first centroid.
+		double leftHalf = weights[0] / 2;
+		if (index < leftHalf) {
+			return minimum + (means[0] - minimum) * index / leftHalf;
+		}
+
+		// Right tail, interpolate between the last centroid and the maximum.
+		double rightHalf = weights[count - 1] / 2;
+		if (index > totalWeight - rightHalf) {
+			return maximum - (maximum - means[count - 1]) * (totalWeight - index) / rightHalf;
+		}
+
+		// Interpolate between the centers of adjacent centroids.
+		double weightSoFar = leftHalf;
+		for (int i = 0; i < count - 1; i++) {
+			double delta = (weights[i] + weights[i + 1]) / 2;
+			if (weightSoFar + delta >= index) {
+				double z = (index - weightSoFar) / delta;
+				return means[i] + (means[i + 1] - means[i]) * z;
+			}
+			weightSoFar += delta;
+		}
+		return means[count - 1];
+	}
+}
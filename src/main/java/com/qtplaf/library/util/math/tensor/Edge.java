@@ -14,39 +14,165 @@
 
 package com.qtplaf.library.util.math.tensor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * An edge of the graph.
+ * An edge of the graph, a tensor value that flows from a producer node, or from the outside for inputs and
+ * parameters, to the consumer nodes, and its gradient in the backward pass.
  *
  * @author Miquel Sas
  */
 public class Edge {
 
-	/** Internal data, normally an array. */
-	private Object data;
+	/** The graph. */
+	private Graph graph;
+	/** The shape of the value. */
+	private int[] shape;
+	/** The producer node, null for inputs and parameters. */
+	private Node producer;
+	/** The consumer nodes. */
+	private List<Node> consumers = new ArrayList<>();
+	/** A boolean that indicates if the edge is a parameter. */
+	private boolean parameter;
+	/** A boolean that indicates if the value must be kept alive until the end of the pass. */
+	private boolean kept;
+
+	/** The value, assigned by the graph. */
+	Tensor value;
+	/** The gradient, assigned by the graph, null if not required. */
+	Tensor gradient;
+	/** A boolean that indicates if the gradient is required, because the edge depends on a parameter. */
+	boolean requiresGradient;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graph The graph.
+	 * @param shape The shape.
+	 * @param producer The producer node, null for inputs and parameters.
+	 * @param parameter A boolean that indicates if the edge is a parameter.
+	 */
+	Edge(Graph graph, int[] shape, Node producer, boolean parameter) {
+		super();
+		this.graph = graph;
+		this.shape = shape;
+		this.producer = producer;
+		this.parameter = parameter;
+		this.requiresGradient = parameter;
+	}
 
 	/**
-	 * 
+	 * Returns the graph.
+	 *
+	 * @return The graph.
 	 */
-	public Edge() {
-		// TODO Auto-generated constructor stub
+	public Graph getGraph() {
+		return graph;
 	}
 
 	/**
-	 * Return the internal data used by operations.
-	 * 
-	 * @return The data.
+	 * Returns a copy of the shape.
+	 *
+	 * @return The shape.
 	 */
-	public Object getData() {
-		return data;
+	public int[] getShape() {
+		return shape.clone();
 	}
 
 	/**
-	 * Set the data used by operations.
-	 * 
-	 * @param data The data used by operations.
+	 * Returns the producer node, null for inputs and parameters.
+	 *
+	 * @return The producer node.
 	 */
-	public void setData(Object data) {
-		this.data = data;
+	public Node getProducer() {
+		return producer;
 	}
 
+	/**
+	 * Returns the list of consumer nodes.
+	 *
+	 * @return The list of consumer nodes.
+	 */
+	public List<Node> getConsumers() {
+		return consumers;
+	}
+
+	/**
+	 * Check if the edge is a parameter.
+	 *
+	 * @return A boolean.
+	 */
+	public boolean isParameter() {
+		return parameter;
+	}
+
+	/**
+	 * Check if the edge is an input, fed from the outside.
+	 *
+	 * @return A boolean.
+	 */
+	public boolean isInput() {
+		return producer == null && !parameter;
+	}
+
+	/**
+	 * Check if the gradient is required, because the edge depends on a parameter.
+	 *
+	 * @return A boolean.
+	 */
+	public boolean isRequiresGradient() {
+		return requiresGradient;
+	}
+
+	/**
+	 * Check if the value is kept alive until the end of the forward and backward passes.
+	 *
+	 * @return A boolean.
+	 */
+	public boolean isKept() {
+		return kept;
+	}
+
+	/**
+	 * Keep the value alive until the end of the forward and backward passes, so it can be read after them. Values of
+	 * edges without consumers are always kept.
+	 */
+	public void keep() {
+		graph.invalidate();
+		kept = true;
+	}
+
+	/**
+	 * Return the value. For intermediate edges the buffer may be reused by other edges once the value is no longer
+	 * needed, unless the edge is kept.
+	 *
+	 * @return The value.
+	 */
+	public Tensor getValue() {
+		graph.compile();
+		return value;
+	}
+
+	/**
+	 * Return the gradient, valid after the backward pass for parameters, inputs and kept edges that require it.
+	 *
+	 * @return The gradient, null if not required.
+	 */
+	public Tensor getGradient() {
+		graph.compile();
+		return gradient;
+	}
+
+	/**
+	 * Set the value of an input.
+	 *
+	 * @param values The values.
+	 */
+	public void setValue(double[] values) {
+		if (producer != null) {
+			throw new IllegalStateException("Only inputs and parameters can be set");
+		}
+		getValue().set(values);
+	}
 }
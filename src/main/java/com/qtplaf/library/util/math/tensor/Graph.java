@@ -0,0 +1,609 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.util.math.tensor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.qtplaf.library.util.math.tensor.operation.Add;
+import com.qtplaf.library.util.math.tensor.operation.MatMul;
+import com.qtplaf.library.util.math.tensor.operation.MeanSquared;
+import com.qtplaf.library.util.math.tensor.operation.ReLU;
+import com.qtplaf.library.util.math.tensor.operation.Sigmoid;
+import com.qtplaf.library.util.math.tensor.operation.SoftmaxCrossEntropy;
+import com.qtplaf.library.util.math.tensor.operation.Tanh;
+import com.qtplaf.library.util.task.Executor;
+
+/**
+ * A computation graph of tensor operations with reverse mode automatic differentiation.
+ * <p>
+ * Nodes are added in topological order, each one after its inputs, and grouped in levels of nodes that do not depend
+ * on each other. The forward pass runs the levels in order and the backward pass in reverse order, cumulating the
+ * gradients of the parameters. Nodes of the same level run in parallel on the fork-join pool.
+ * <p>
+ * When compiled, the graph assigns the buffers of the intermediate values and gradients by liveness analysis: a
+ * buffer is reused by another edge once the value or gradient it holds is no longer needed by the forward or the
+ * backward pass, so passes allocate nothing once the graph is compiled.
+ *
+ * @author Miquel Sas
+ */
+public class Graph {
+
+	/**
+	 * Task to compute the forward pass of a node.
+	 */
+	class TaskForward extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The node. */
+		private Node node;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param node The node.
+		 */
+		TaskForward(Node node) {
+			super();
+			this.node = node;
+		}
+
+		/**
+		 * Compute the task.
+		 */
+		@Override
+		protected void compute() {
+			node.forward();
+		}
+	}
+
+	/**
+	 * Task to compute the backward pass of a node.
+	 */
+	class TaskBackward extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The node. */
+		private Node node;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param node The node.
+		 */
+		TaskBackward(Node node) {
+			super();
+			this.node = node;
+		}
+
+		/**
+		 * Compute the task.
+		 */
+		@Override
+		protected void compute() {
+			node.backward();
+		}
+	}
+
+	/**
+	 * The interval of steps during which a value or gradient buffer is alive.
+	 */
+	class Interval {
+		/** The edge. */
+		Edge edge;
+		/** A boolean that indicates if the interval is of the gradient. */
+		boolean gradient;
+		/** Start step. */
+		int start;
+		/** End step (inclusive). */
+		int end;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param edge The edge.
+		 * @param gradient A boolean that indicates if the interval is of the gradient.
+		 * @param start Start step.
+		 * @param end End step (inclusive).
+		 */
+		Interval(Edge edge, boolean gradient, int start, int end) {
+			super();
+			this.edge = edge;
+			this.gradient = gradient;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Returns the size of the buffer.
+		 *
+		 * @return The size.
+		 */
+		int getSize() {
+			return Tensor.getSize(edge.getShape());
+		}
+	}
+
+	/**
+	 * A step of the forward or backward pass, the nodes of a level.
+	 */
+	class Step {
+		/** A boolean that indicates if the step is of the forward pass. */
+		boolean forwardStep;
+		/** The nodes. */
+		List<Node> nodes = new ArrayList<>();
+		/** The tasks, when there are several nodes that can run in parallel. */
+		List<RecursiveAction> tasks = new ArrayList<>();
+		/** The executor of the tasks, null if the nodes run sequentially. */
+		Executor executor;
+		/** Intermediate gradients that start to cumulate in the step and must be cleared. */
+		List<Tensor> clear = new ArrayList<>();
+
+		/**
+		 * Run the step.
+		 */
+		void run() {
+			for (int i = 0; i < clear.size(); i++) {
+				clear.get(i).fill(0);
+			}
+			if (executor == null) {
+				for (int i = 0; i < nodes.size(); i++) {
+					if (forwardStep) {
+						nodes.get(i).forward();
+					} else {
+						nodes.get(i).backward();
+					}
+				}
+				return;
+			}
+			for (int i = 0; i < tasks.size(); i++) {
+				tasks.get(i).reinitialize();
+			}
+			executor.reinitialize();
+			ForkJoinPool.commonPool().invoke(executor);
+		}
+	}
+
+	/** The list of nodes, in topological order. */
+	private List<Node> nodes = new ArrayList<>();
+	/** The list of edges. */
+	private List<Edge> edges = new ArrayList<>();
+	/** The list of parameters. */
+	private List<Edge> parameters = new ArrayList<>();
+	/** Forward steps. */
+	private List<Step> forwardSteps = new ArrayList<>();
+	/** Backward steps. */
+	private List<Step> backwardSteps = new ArrayList<>();
+	/** Gradients of the edges without consumers or kept, cleared before the backward pass. */
+	private List<Tensor> outputGradients = new ArrayList<>();
+	/** A boolean that indicates if the graph is compiled. */
+	private boolean compiled = false;
+	/** Number of intermediate buffers. */
+	private int bufferCount;
+	/** Total size of the intermediate buffers. */
+	private long bufferSize;
+
+	/**
+	 * Constructor.
+	 */
+	public Graph() {
+		super();
+	}
+
+	/**
+	 * Add an input, fed from the outside with <code>Edge.setValue</code>.
+	 *
+	 * @param shape The shape.
+	 * @return The input edge.
+	 */
+	public Edge input(int... shape) {
+		Tensor.getSize(shape);
+		Edge edge = new Edge(this, shape.clone(), null, false);
+		edges.add(edge);
+		invalidate();
+		return edge;
+	}
+
+	/**
+	 * Add a parameter, whose gradient is computed in the backward pass.
+	 *
+	 * @param value The parameter value, that is updated in place by the optimizer.
+	 * @return The parameter edge.
+	 */
+	public Edge parameter(Tensor value) {
+		Edge edge = new Edge(this, value.getShape(), null, true);
+		edge.value = value;
+		edges.add(edge);
+		parameters.add(edge);
+		invalidate();
+		return edge;
+	}
+
+	/**
+	 * Add a node that applies the operation to the inputs.
+	 *
+	 * @param operation The operation.
+	 * @param inputs The input edges, of this graph.
+	 * @return The output edge.
+	 */
+	public Edge apply(Operation operation, Edge... inputs) {
+		int[][] shapes = new int[inputs.length][];
+		int level = 0;
+		boolean requiresGradient = false;
+		for (int i = 0; i < inputs.length; i++) {
+			if (inputs[i].getGraph() != this) {
+				throw new IllegalArgumentException("The input edge is not of this graph");
+			}
+			shapes[i] = inputs[i].getShape();
+			if (inputs[i].getProducer() != null) {
+				level = Math.max(level, inputs[i].getProducer().getLevel() + 1);
+			}
+			requiresGradient |= inputs[i].isRequiresGradient();
+		}
+		int[] shape = operation.getShape(shapes);
+		Node node = new Node(operation);
+		node.setLevel(level);
+		Edge output = new Edge(this, shape, node, false);
+		output.requiresGradient = requiresGradient;
+		for (Edge input : inputs) {
+			node.getInputs().add(input);
+			input.getConsumers().add(node);
+		}
+		node.getOutputs().add(output);
+		nodes.add(node);
+		edges.add(output);
+		invalidate();
+		return output;
+	}
+
+	/**
+	 * Add a matrix product node.
+	 *
+	 * @param a Edge of rows by inner.
+	 * @param b Edge of inner by columns.
+	 * @return The output edge.
+	 */
+	public Edge matmul(Edge a, Edge b) {
+		return apply(new MatMul(), a, b);
+	}
+
+	/**
+	 * Add an addition node, element by element or of a row to each row.
+	 *
+	 * @param a Edge a.
+	 * @param b Edge b, of the shape of a or a row.
+	 * @return The output edge.
+	 */
+	public Edge add(Edge a, Edge b) {
+		return apply(new Add(), a, b);
+	}
+
+	/**
+	 * Add an hyperbolic tangent activation node.
+	 *
+	 * @param a The input edge.
+	 * @return The output edge.
+	 */
+	public Edge tanh(Edge a) {
+		return apply(new Tanh(), a);
+	}
+
+	/**
+	 * Add a sigmoid activation node.
+	 *
+	 * @param a The input edge.
+	 * @return The output edge.
+	 */
+	public Edge sigmoid(Edge a) {
+		return apply(new Sigmoid(), a);
+	}
+
+	/**
+	 * Add a rectified linear unit activation node.
+	 *
+	 * @param a The input edge.
+	 * @return The output edge.
+	 */
+	public Edge relu(Edge a) {
+		return apply(new ReLU(), a);
+	}
+
+	/**
+	 * Add a mean squared error loss node.
+	 *
+	 * @param predictions The predictions.
+	 * @param targets The targets.
+	 * @return The scalar loss edge.
+	 */
+	public Edge meanSquared(Edge predictions, Edge targets) {
+		return apply(new MeanSquared(), predictions, targets);
+	}
+
+	/**
+	 * Add a softmax cross entropy loss node, averaged over the rows.
+	 *
+	 * @param logits The logits, one row per sample.
+	 * @param targets The target probabilities.
+	 * @return The scalar loss edge.
+	 */
+	public Edge softmaxCrossEntropy(Edge logits, Edge targets) {
+		return apply(new SoftmaxCrossEntropy(), logits, targets);
+	}
+
+	/**
+	 * Returns the list of parameters.
+	 *
+	 * @return The list of parameters.
+	 */
+	public List<Edge> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Returns the list of nodes, in topological order.
+	 *
+	 * @return The list of nodes.
+	 */
+	public List<Node> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of intermediate buffers assigned by the liveness analysis.
+	 *
+	 * @return The number of buffers.
+	 */
+	public int getBufferCount() {
+		compile();
+		return bufferCount;
+	}
+
+	/**
+	 * Returns the total size, in doubles, of the intermediate buffers assigned by the liveness analysis.
+	 *
+	 * @return The size.
+	 */
+	public long getBufferSize() {
+		compile();
+		return bufferSize;
+	}
+
+	/**
+	 * Invalidate the compilation after a change in the graph.
+	 */
+	void invalidate() {
+		compiled = false;
+	}
+
+	/**
+	 * Compile the graph if necessary: build the steps, analyze the liveness of intermediate values and gradients and
+	 * assign their buffers. Called by the passes, so calling it explicitly is only necessary to control when buffers
+	 * are allocated.
+	 */
+	public void compile() {
+		if (compiled) {
+			return;
+		}
+		int levels = 0;
+		for (Node node : nodes) {
+			levels = Math.max(levels, node.getLevel() + 1);
+		}
+		int end = 2 * levels;
+
+		// Steps, forward by level and backward by reverse level.
+		forwardSteps.clear();
+		backwardSteps.clear();
+		for (int level = 0; level < levels; level++) {
+			Step forward = new Step();
+			forward.forwardStep = true;
+			forwardSteps.add(forward);
+			backwardSteps.add(new Step());
+		}
+		for (Node node : nodes) {
+			forwardSteps.get(node.getLevel()).nodes.add(node);
+			if (node.getOutput().isRequiresGradient()) {
+				backwardSteps.get(getBackwardStep(node, levels) - levels).nodes.add(node);
+			}
+		}
+
+		// Intervals of intermediate values and gradients, dedicated buffers of inputs, parameters and outputs.
+		outputGradients.clear();
+		List<Interval> intervals = new ArrayList<>();
+		for (Edge edge : edges) {
+			Node producer = edge.getProducer();
+			if (producer == null) {
+				if (edge.value == null) {
+					edge.value = new Tensor(edge.getShape());
+				}
+				if (edge.isRequiresGradient() && edge.gradient == null) {
+					edge.gradient = new Tensor(edge.getShape());
+				}
+				continue;
+			}
+			boolean output = edge.isKept() || edge.getConsumers().isEmpty();
+			int start = producer.getLevel();
+			int last = (output ? end : start);
+			for (Node consumer : edge.getConsumers()) {
+				last = Math.max(last, consumer.getLevel());
+				if (consumer.getOutput().isRequiresGradient() && consumer.getOperation().isInputsRequired()) {
+					last = Math.max(last, getBackwardStep(consumer, levels));
+				}
+			}
+			if (edge.isRequiresGradient() && producer.getOperation().isOutputRequired()) {
+				last = Math.max(last, getBackwardStep(producer, levels));
+			}
+			intervals.add(new Interval(edge, false, start, last));
+			edge.gradient = null;
+			if (edge.isRequiresGradient()) {
+				if (output) {
+					edge.gradient = new Tensor(edge.getShape());
+					outputGradients.add(edge.gradient);
+				} else {
+					int first = end;
+					for (Node consumer : edge.getConsumers()) {
+						first = Math.min(first, getBackwardStep(consumer, levels));
+					}
+					intervals.add(new Interval(edge, true, first, getBackwardStep(producer, levels)));
+				}
+			}
+		}
+
+		// Assign buffers, reusing those whose interval has ended before the start of the interval.
+		intervals.sort((i1, i2) -> Integer.compare(i1.start, i2.start));
+		Map<Integer, Deque<double[]>> pool = new HashMap<>();
+		List<Interval> active = new ArrayList<>();
+		Map<Interval, double[]> buffers = new HashMap<>();
+		bufferCount = 0;
+		bufferSize = 0;
+		for (Interval interval : intervals) {
+			Iterator<Interval> iterator = active.iterator();
+			while (iterator.hasNext()) {
+				Interval alive = iterator.next();
+				if (alive.end < interval.start) {
+					iterator.remove();
+					pool.computeIfAbsent(alive.getSize(), size -> new ArrayDeque<>()).push(buffers.get(alive));
+				}
+			}
+			int size = interval.getSize();
+			Deque<double[]> free = pool.get(size);
+			double[] buffer = (free != null && !free.isEmpty() ? free.pop() : null);
+			if (buffer == null) {
+				buffer = new double[size];
+				bufferCount++;
+				bufferSize += size;
+			}
+			buffers.put(interval, buffer);
+			active.add(interval);
+			Tensor tensor = new Tensor(buffer, interval.edge.getShape());
+			if (interval.gradient) {
+				interval.edge.gradient = tensor;
+				backwardSteps.get(interval.start - levels).clear.add(tensor);
+			} else {
+				interval.edge.value = tensor;
+			}
+		}
+
+		// Work areas of the nodes and parallel tasks of the steps.
+		for (Node node : nodes) {
+			int count = node.getInputs().size();
+			node.inputValues = new Tensor[count];
+			node.inputGradients = new Tensor[count];
+			for (int i = 0; i < count; i++) {
+				Edge input = node.getInputs().get(i);
+				node.inputValues[i] = input.value;
+				node.inputGradients[i] = (input.isRequiresGradient() ? input.gradient : null);
+			}
+		}
+		for (Step step : forwardSteps) {
+			if (step.nodes.size() > 1) {
+				for (Node node : step.nodes) {
+					step.tasks.add(new TaskForward(node));
+				}
+				step.executor = new Executor(step.tasks);
+			}
+		}
+		for (Step step : backwardSteps) {
+			if (step.nodes.size() > 1 && !isSharedGradient(step.nodes)) {
+				for (Node node : step.nodes) {
+					step.tasks.add(new TaskBackward(node));
+				}
+				step.executor = new Executor(step.tasks);
+			}
+		}
+		compiled = true;
+	}
+
+	/**
+	 * Returns the backward step of a node.
+	 *
+	 * @param node The node.
+	 * @param levels The number of levels.
+	 * @return The backward step.
+	 */
+	private int getBackwardStep(Node node, int levels) {
+		return 2 * levels - 1 - node.getLevel();
+	}
+
+	/**
+	 * Check if several nodes cumulate into the same gradient, and so can not run in parallel in the backward pass.
+	 *
+	 * @param stepNodes The nodes of the step.
+	 * @return A boolean.
+	 */
+	private boolean isSharedGradient(List<Node> stepNodes) {
+		Set<Edge> gradients = new HashSet<>();
+		for (Node node : stepNodes) {
+			Set<Edge> nodeGradients = new HashSet<>();
+			for (Edge input : node.getInputs()) {
+				if (input.isRequiresGradient()) {
+					nodeGradients.add(input);
+				}
+			}
+			for (Edge edge : nodeGradients) {
+				if (!gradients.add(edge)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Run the forward pass, computing the values of all the nodes from the inputs and parameters.
+	 */
+	public void forward() {
+		compile();
+		for (int i = 0; i < forwardSteps.size(); i++) {
+			forwardSteps.get(i).run();
+		}
+	}
+
+	/**
+	 * Run the backward pass after the forward pass, computing the gradients of the loss with respect to the
+	 * parameters. The gradients of the parameters are cleared before, not cumulated between passes.
+	 *
+	 * @param loss The loss edge, kept or without consumers.
+	 */
+	public void backward(Edge loss) {
+		compile();
+		if (!loss.isRequiresGradient()) {
+			throw new IllegalArgumentException("The loss does not depend on any parameter");
+		}
+		if (!loss.isKept() && !loss.getConsumers().isEmpty()) {
+			throw new IllegalArgumentException("The loss must be kept or have no consumers");
+		}
+		for (int i = 0; i < parameters.size(); i++) {
+			parameters.get(i).gradient.fill(0);
+		}
+		for (int i = 0; i < outputGradients.size(); i++) {
+			outputGradients.get(i).fill(0);
+		}
+		loss.gradient.fill(1);
+		for (int i = 0; i < backwardSteps.size(); i++) {
+			backwardSteps.get(i).run();
+		}
+	}
+}
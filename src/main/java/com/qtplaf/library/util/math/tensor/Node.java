@@ -18,7 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A node of the graph.
+ * A node of the graph, an operation applied to input edges that produces an output edge.
  *
  * @author Miquel Sas
  */
@@ -30,17 +30,27 @@ public class Node {
 	private List<Edge> outputs = new ArrayList<>();
 	/** Operation. */
 	private Operation operation;
+	/** The level, one more than the maximum level of the producers of the inputs. */
+	private int level;
+
+	/** Input values, a work area. */
+	Tensor[] inputValues;
+	/** Input gradients, a work area. */
+	Tensor[] inputGradients;
 
 	/**
-	 * 
+	 * Constructor.
+	 *
+	 * @param operation The operation.
 	 */
-	public Node() {
-		// TODO Auto-generated constructor stub
+	public Node(Operation operation) {
+		super();
+		this.operation = operation;
 	}
 
 	/**
 	 * Return the list of input edges.
-	 * 
+	 *
 	 * @return The list of input edges.
 	 */
 	public List<Edge> getInputs() {
@@ -49,16 +59,25 @@ public class Node {
 
 	/**
 	 * Return the list of output edges.
-	 * 
+	 *
 	 * @return The list of output edges.
 	 */
 	public List<Edge> getOutputs() {
 		return outputs;
 	}
 
+	/**
+	 * Return the output edge.
+	 *
+	 * @return The output edge.
+	 */
+	public Edge getOutput() {
+		return outputs.get(0);
+	}
+
 	/**
 	 * Return the operation.
-	 * 
+	 *
 	 * @return The operation.
 	 */
 	public Operation getOperation() {
@@ -67,11 +86,43 @@ public class Node {
 
 	/**
 	 * Set the operation.
-	 * 
+	 *
 	 * @param operation The operation.
 	 */
 	public void setOperation(Operation operation) {
 		this.operation = operation;
 	}
 
+	/**
+	 * Return the level. Nodes of the same level do not depend on each other.
+	 *
+	 * @return The level.
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Set the level.
+	 *
+	 * @param level The level.
+	 */
+	void setLevel(int level) {
+		this.level = level;
+	}
+
+	/**
+	 * Compute the output.
+	 */
+	void forward() {
+		operation.forward(inputValues, getOutput().value);
+	}
+
+	/**
+	 * Cumulate the gradients of the inputs.
+	 */
+	void backward() {
+		Edge output = getOutput();
+		operation.backward(inputValues, output.value, output.gradient, inputGradients);
+	}
 }
@@ -14,21 +14,56 @@
 
 package com.qtplaf.library.util.math.tensor;
 
-import java.util.List;
-
 /**
- * An operation in a node of a graph. An operation takes zero or more input <tt>Tensor</tt>'s and produces zero or more
- * output <tt>Tensor</tt>'s.
+ * An operation in a node of a graph. An operation takes one or more input <tt>Tensor</tt>'s and produces one output
+ * <tt>Tensor</tt>, in buffers owned by the graph, and back propagates the gradient of the output to the inputs.
  *
  * @author Miquel Sas
  */
 public interface Operation {
+
+	/**
+	 * Validate the shapes of the inputs and return the shape of the output.
+	 *
+	 * @param inputs The shapes of the inputs.
+	 * @return The shape of the output.
+	 * @throws IllegalArgumentException If the shapes are not valid.
+	 */
+	int[] getShape(int[][] inputs);
+
+	/**
+	 * Compute the output given the inputs.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output to set.
+	 */
+	void forward(Tensor[] inputs, Tensor output);
+
+	/**
+	 * Cumulate into the gradients of the inputs the contribution of the gradient of the output.
+	 *
+	 * @param inputs The inputs, valid only if <code>isInputsRequired()</code>.
+	 * @param output The output, valid only if <code>isOutputRequired()</code>.
+	 * @param gradient The gradient of the output.
+	 * @param gradients The gradients of the inputs to cumulate, null for the inputs that do not require them.
+	 */
+	void backward(Tensor[] inputs, Tensor output, Tensor gradient, Tensor[] gradients);
+
+	/**
+	 * Check if the backward pass reads the inputs, so the graph keeps them alive until then.
+	 *
+	 * @return A boolean.
+	 */
+	default boolean isInputsRequired() {
+		return true;
+	}
+
 	/**
-	 * Compute the opration. An operations accepts a list of input data and produces a list of output data. The nature
-	 * of the input and output data is an exclusive responsibility of the operation.
-	 * 
-	 * @param inputs List of inputs, mainly multi dimensional arrays, but can be anything.
-	 * @return List of outputs.
+	 * Check if the backward pass reads the output, so the graph keeps it alive until then.
+	 *
+	 * @return A boolean.
 	 */
-	List<Object> compute(List<Object> inputs);
+	default boolean isOutputRequired() {
+		return false;
+	}
 }
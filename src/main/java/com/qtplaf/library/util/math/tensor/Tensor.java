@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.util.math.tensor;
+
+import java.util.Arrays;
+
+/**
+ * A dense tensor of doubles, a flat row major array and a shape. Operations view the tensor as a matrix of rows by
+ * columns, the columns being the last dimension.
+ *
+ * @author Miquel Sas
+ */
+public class Tensor {
+
+	/**
+	 * Returns the size of a shape, the product of the dimensions.
+	 *
+	 * @param shape The shape.
+	 * @return The size.
+	 */
+	public static int getSize(int... shape) {
+		int size = 1;
+		for (int dimension : shape) {
+			if (dimension <= 0) {
+				throw new IllegalArgumentException("Invalid shape " + Arrays.toString(shape));
+			}
+			size *= dimension;
+		}
+		return size;
+	}
+
+	/** The shape. */
+	private int[] shape;
+	/** The data, flat and row major. */
+	private double[] data;
+
+	/**
+	 * Constructor of a tensor of zeros.
+	 *
+	 * @param shape The shape.
+	 */
+	public Tensor(int... shape) {
+		this(new double[getSize(shape)], shape);
+	}
+
+	/**
+	 * Constructor over the data, that is not copied.
+	 *
+	 * @param data The data, flat and row major.
+	 * @param shape The shape.
+	 */
+	public Tensor(double[] data, int... shape) {
+		super();
+		if (data.length != getSize(shape)) {
+			throw new IllegalArgumentException(
+				"Invalid data length " + data.length + " for shape " + Arrays.toString(shape));
+		}
+		this.shape = shape.clone();
+		this.data = data;
+	}
+
+	/**
+	 * Returns a copy of the shape.
+	 *
+	 * @return The shape.
+	 */
+	public int[] getShape() {
+		return shape.clone();
+	}
+
+	/**
+	 * Returns the rank, the number of dimensions.
+	 *
+	 * @return The rank.
+	 */
+	public int getRank() {
+		return shape.length;
+	}
+
+	/**
+	 * Returns the dimension.
+	 *
+	 * @param index The index of the dimension.
+	 * @return The dimension.
+	 */
+	public int getDimension(int index) {
+		return shape[index];
+	}
+
+	/**
+	 * Returns the size, the number of elements.
+	 *
+	 * @return The size.
+	 */
+	public int getSize() {
+		return data.length;
+	}
+
+	/**
+	 * Returns the number of rows viewed as a matrix, the product of all dimensions but the last.
+	 *
+	 * @return The number of rows.
+	 */
+	public int getRows() {
+		return data.length / getColumns();
+	}
+
+	/**
+	 * Returns the number of columns viewed as a matrix, the last dimension.
+	 *
+	 * @return The number of columns.
+	 */
+	public int getColumns() {
+		return (shape.length == 0 ? 1 : shape[shape.length - 1]);
+	}
+
+	/**
+	 * Returns the data, flat and row major.
+	 *
+	 * @return The data.
+	 */
+	public double[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns the element viewed as a matrix.
+	 *
+	 * @param row The row.
+	 * @param column The column.
+	 * @return The element.
+	 */
+	public double get(int row, int column) {
+		return data[row * getColumns() + column];
+	}
+
+	/**
+	 * Set the element viewed as a matrix.
+	 *
+	 * @param row The row.
+	 * @param column The column.
+	 * @param value The value.
+	 */
+	public void set(int row, int column, double value) {
+		data[row * getColumns() + column] = value;
+	}
+
+	/**
+	 * Copy the values, that must have the size of the tensor.
+	 *
+	 * @param values The values.
+	 */
+	public void set(double[] values) {
+		if (values.length != data.length) {
+			throw new IllegalArgumentException("Invalid number of values: " + values.length);
+		}
+		System.arraycopy(values, 0, data, 0, data.length);
+	}
+
+	/**
+	 * Fill with a value.
+	 *
+	 * @param value The value.
+	 */
+	public void fill(double value) {
+		Arrays.fill(data, value);
+	}
+
+	/**
+	 * Returns a string representation.
+	 *
+	 * @return A string.
+	 */
+	@Override
+	public String toString() {
+		return "Tensor" + Arrays.toString(shape);
+	}
+}
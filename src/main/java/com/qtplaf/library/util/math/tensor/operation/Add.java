@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.util.math.tensor.operation;
+
+import java.util.Arrays;
+
+import com.qtplaf.library.util.math.tensor.Operation;
+import com.qtplaf.library.util.math.tensor.Tensor;
+
+/**
+ * Addition element by element of two tensors of the same shape, or of a row to each row of a matrix, like a bias.
+ *
+ * @author Miquel Sas
+ */
+public class Add implements Operation {
+
+	/**
+	 * Constructor.
+	 */
+	public Add() {
+		super();
+	}
+
+	/**
+	 * Validate the shapes of the inputs and return the shape of the output.
+	 *
+	 * @param inputs The shapes of the inputs.
+	 * @return The shape of the output.
+	 */
+	@Override
+	public int[] getShape(int[][] inputs) {
+		if (inputs.length == 2) {
+			int[] a = inputs[0];
+			int[] b = inputs[1];
+			if (Arrays.equals(a, b)) {
+				return a;
+			}
+			if (b.length == 2 && b[0] == 1 && b[1] == a[a.length - 1]) {
+				return a;
+			}
+		}
+		throw new IllegalArgumentException("Invalid shapes for an addition " + Arrays.deepToString(inputs));
+	}
+
+	/**
+	 * Compute the output given the inputs.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output to set.
+	 */
+	@Override
+	public void forward(Tensor[] inputs, Tensor output) {
+		double[] a = inputs[0].getData();
+		double[] b = inputs[1].getData();
+		double[] c = output.getData();
+		int columns = b.length;
+		for (int start = 0; start < a.length; start += columns) {
+			for (int j = 0; j < columns; j++) {
+				c[start + j] = a[start + j] + b[j];
+			}
+		}
+	}
+
+	/**
+	 * Cumulate into the gradients of the inputs the contribution of the gradient of the output.
+	 *
+	 * @param inputs The inputs, not required.
+	 * @param output The output, not required.
+	 * @param gradient The gradient of the output.
+	 * @param gradients The gradients of the inputs to cumulate.
+	 */
+	@Override
+	public void backward(Tensor[] inputs, Tensor output, Tensor gradient, Tensor[] gradients) {
+		double[] g = gradient.getData();
+		if (gradients[0] != null) {
+			double[] ga = gradients[0].getData();
+			for (int i = 0; i < g.length; i++) {
+				ga[i] += g[i];
+			}
+		}
+		if (gradients[1] != null) {
+			double[] gb = gradients[1].getData();
+			int columns = gb.length;
+			for (int start = 0; start < g.length; start += columns) {
+				for (int j = 0; j < columns; j++) {
+					gb[j] += g[start + j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * The backward pass does not read the inputs.
+	 *
+	 * @return False.
+	 */
+	@Override
+	public boolean isInputsRequired() {
+		return false;
+	}
+}
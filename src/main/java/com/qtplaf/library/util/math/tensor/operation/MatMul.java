@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.util.math.tensor.operation;
+
+import java.util.Arrays;
+
+import com.qtplaf.library.util.math.Matrix;
+import com.qtplaf.library.util.math.tensor.Operation;
+import com.qtplaf.library.util.math.tensor.Tensor;
+
+/**
+ * Matrix product of a matrix of rows by inner and a matrix of inner by columns.
+ *
+ * @author Miquel Sas
+ */
+public class MatMul implements Operation {
+
+	/**
+	 * Constructor.
+	 */
+	public MatMul() {
+		super();
+	}
+
+	/**
+	 * Validate the shapes of the inputs and return the shape of the output.
+	 *
+	 * @param inputs The shapes of the inputs.
+	 * @return The shape of the output.
+	 */
+	@Override
+	public int[] getShape(int[][] inputs) {
+		if (inputs.length != 2 || inputs[0].length != 2 || inputs[1].length != 2 || inputs[0][1] != inputs[1][0]) {
+			throw new IllegalArgumentException("Invalid shapes for a matrix product " + Arrays.deepToString(inputs));
+		}
+		return new int[] { inputs[0][0], inputs[1][1] };
+	}
+
+	/**
+	 * Compute the output given the inputs.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output to set.
+	 */
+	@Override
+	public void forward(Tensor[] inputs, Tensor output) {
+		Tensor a = inputs[0];
+		Tensor b = inputs[1];
+		Matrix.multiply(a.getData(), b.getData(), 0, output.getData(), a.getRows(), a.getColumns(), b.getColumns());
+	}
+
+	/**
+	 * Cumulate into the gradients of the inputs the contribution of the gradient of the output.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output.
+	 * @param gradient The gradient of the output.
+	 * @param gradients The gradients of the inputs to cumulate.
+	 */
+	@Override
+	public void backward(Tensor[] inputs, Tensor output, Tensor gradient, Tensor[] gradients) {
+		Tensor a = inputs[0];
+		Tensor b = inputs[1];
+		double[] g = gradient.getData();
+		int rows = a.getRows();
+		int inner = a.getColumns();
+		int columns = b.getColumns();
+		if (gradients[0] != null) {
+			Matrix.cumulateProductTransposed(g, b.getData(), gradients[0].getData(), rows, columns, inner);
+		}
+		if (gradients[1] != null) {
+			Matrix.cumulateTransposedProduct(a.getData(), g, gradients[1].getData(), 0, inner, rows, columns);
+		}
+	}
+}
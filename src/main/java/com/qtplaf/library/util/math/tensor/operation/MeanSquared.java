@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.util.math.tensor.operation;
+
+import java.util.Arrays;
+
+import com.qtplaf.library.util.math.tensor.Operation;
+import com.qtplaf.library.util.math.tensor.Tensor;
+
+/**
+ * Mean squared error loss of the predictions versus the targets, a scalar of shape [1, 1].
+ *
+ * @author Miquel Sas
+ */
+public class MeanSquared implements Operation {
+
+	/**
+	 * Constructor.
+	 */
+	public MeanSquared() {
+		super();
+	}
+
+	/**
+	 * Validate the shapes of the inputs and return the shape of the output.
+	 *
+	 * @param inputs The shapes of the inputs.
+	 * @return The shape of the output.
+	 */
+	@Override
+	public int[] getShape(int[][] inputs) {
+		if (inputs.length != 2 || !Arrays.equals(inputs[0], inputs[1])) {
+			throw new IllegalArgumentException("Invalid shapes for a loss " + Arrays.deepToString(inputs));
+		}
+		return new int[] { 1, 1 };
+	}
+
+	/**
+	 * Compute the output given the inputs.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output to set.
+	 */
+	@Override
+	public void forward(Tensor[] inputs, Tensor output) {
+		double[] p = inputs[0].getData();
+		double[] t = inputs[1].getData();
+		double sum = 0;
+		for (int i = 0; i < p.length; i++) {
+			double error = p[i] - t[i];
+			sum += error * error;
+		}
+		output.getData()[0] = sum / p.length;
+	}
+
+	/**
+	 * Cumulate into the gradients of the inputs the contribution of the gradient of the output.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output, not required.
+	 * @param gradient The gradient of the output.
+	 * @param gradients The gradients of the inputs to cumulate.
+	 */
+	@Override
+	public void backward(Tensor[] inputs, Tensor output, Tensor gradient, Tensor[] gradients) {
+		double[] p = inputs[0].getData();
+		double[] t = inputs[1].getData();
+		double factor = 2 * gradient.getData()[0] / p.length;
+		if (gradients[0] != null) {
+			double[] gp = gradients[0].getData();
+			for (int i = 0; i < p.length; i++) {
+				gp[i] += factor * (p[i] - t[i]);
+			}
+		}
+		if (gradients[1] != null) {
+			double[] gt = gradients[1].getData();
+			for (int i = 0; i < p.length; i++) {
+				gt[i] -= factor * (p[i] - t[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.util.math.tensor.operation;
+
+import com.qtplaf.library.util.math.tensor.Operation;
+import com.qtplaf.library.util.math.tensor.Tensor;
+
+/**
+ * The sigmoid activation, element by element. The backward pass uses the output.
+ *
+ * @author Miquel Sas
+ */
+public class Sigmoid implements Operation {
+
+	/**
+	 * Constructor.
+	 */
+	public Sigmoid() {
+		super();
+	}
+
+	/**
+	 * Validate the shapes of the inputs and return the shape of the output, the shape of the input.
+	 *
+	 * @param inputs The shapes of the inputs.
+	 * @return The shape of the output.
+	 */
+	@Override
+	public int[] getShape(int[][] inputs) {
+		if (inputs.length != 1) {
+			throw new IllegalArgumentException("One input expected");
+		}
+		return inputs[0];
+	}
+
+	/**
+	 * Compute the output given the inputs.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output to set.
+	 */
+	@Override
+	public void forward(Tensor[] inputs, Tensor output) {
+		double[] x = inputs[0].getData();
+		double[] y = output.getData();
+		for (int i = 0; i < x.length; i++) {
+			y[i] = 1 / (1 + Math.exp(-x[i]));
+		}
+	}
+
+	/**
+	 * Cumulate into the gradient of the input the contribution of the gradient of the output.
+	 *
+	 * @param inputs The inputs, not required.
+	 * @param output The output.
+	 * @param gradient The gradient of the output.
+	 * @param gradients The gradients of the inputs to cumulate.
+	 */
+	@Override
+	public void backward(Tensor[] inputs, Tensor output, Tensor gradient, Tensor[] gradients) {
+		double[] y = output.getData();
+		double[] g = gradient.getData();
+		double[] gx = gradients[0].getData();
+		for (int i = 0; i < y.length; i++) {
+			gx[i] += g[i] * y[i] * (1 - y[i]);
+		}
+	}
+
+	/**
+	 * The backward pass does not read the inputs.
+	 *
+	 * @return False.
+	 */
+	@Override
+	public boolean isInputsRequired() {
+		return false;
+	}
+
+	/**
+	 * The backward pass reads the output.
+	 *
+	 * @return True.
+	 */
+	@Override
+	public boolean isOutputRequired() {
+		return true;
+	}
+}
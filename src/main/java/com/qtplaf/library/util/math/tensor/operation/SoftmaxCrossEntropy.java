@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.library.util.math.tensor.operation;
+
+import java.util.Arrays;
+
+import com.qtplaf.library.util.math.tensor.Operation;
+import com.qtplaf.library.util.math.tensor.Tensor;
+
+/**
+ * Cross entropy loss of the softmax of the logits versus the target probabilities, one row per sample, averaged over
+ * the rows, a scalar of shape [1, 1]. The softmax is computed subtracting the maximum of the row for stability, and
+ * recomputed in the backward pass instead of being stored. The targets are not differentiated.
+ *
+ * @author Miquel Sas
+ */
+public class SoftmaxCrossEntropy implements Operation {
+
+	/**
+	 * Constructor.
+	 */
+	public SoftmaxCrossEntropy() {
+		super();
+	}
+
+	/**
+	 * Validate the shapes of the inputs and return the shape of the output.
+	 *
+	 * @param inputs The shapes of the inputs.
+	 * @return The shape of the output.
+	 */
+	@Override
+	public int[] getShape(int[][] inputs) {
+		if (inputs.length != 2 || !Arrays.equals(inputs[0], inputs[1])) {
+			throw new IllegalArgumentException("Invalid shapes for a loss " + Arrays.deepToString(inputs));
+		}
+		return new int[] { 1, 1 };
+	}
+
+	/**
+	 * Returns the maximum of a row.
+	 *
+	 * @param z The logits.
+	 * @param start The start of the row.
+	 * @param columns The number of columns.
+	 * @return The maximum.
+	 */
+	private double getMaximum(double[] z, int start, int columns) {
+		double maximum = Double.NEGATIVE_INFINITY;
+		for (int j = 0; j < columns; j++) {
+			maximum = Math.max(maximum, z[start + j]);
+		}
+		return maximum;
+	}
+
+	/**
+	 * Returns the sum of the exponentials of a row minus the maximum.
+	 *
+	 * @param z The logits.
+	 * @param start The start of the row.
+	 * @param columns The number of columns.
+	 * @param maximum The maximum.
+	 * @return The sum.
+	 */
+	private double getSum(double[] z, int start, int columns, double maximum) {
+		double sum = 0;
+		for (int j = 0; j < columns; j++) {
+			sum += Math.exp(z[start + j] - maximum);
+		}
+		return sum;
+	}
+
+	/**
+	 * Compute the output given the inputs.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output to set.
+	 */
+	@Override
+	public void forward(Tensor[] inputs, Tensor output) {
+		double[] z = inputs[0].getData();
+		double[] t = inputs[1].getData();
+		int columns = inputs[0].getColumns();
+		int rows = inputs[0].getRows();
+		double loss = 0;
+		for (int start = 0; start < z.length; start += columns) {
+			double maximum = getMaximum(z, start, columns);
+			double logSum = Math.log(getSum(z, start, columns, maximum));
+			for (int j = 0; j < columns; j++) {
+				if (t[start + j] != 0) {
+					loss -= t[start + j] * (z[start + j] - maximum - logSum);
+				}
+			}
+		}
+		output.getData()[0] = loss / rows;
+	}
+
+	/**
+	 * Cumulate into the gradient of the logits the contribution of the gradient of the output.
+	 *
+	 * @param inputs The inputs.
+	 * @param output The output, not required.
+	 * @param gradient The gradient of the output.
+	 * @param gradients The gradients of the inputs to cumulate.
+	 */
+	@Override
+	public void backward(Tensor[] inputs, Tensor output, Tensor gradient, Tensor[] gradients) {
+		if (gradients[0] == null) {
+			return;
+		}
+		double[] z = inputs[0].getData();
+		double[] t = inputs[1].getData();
+		double[] gz = gradients[0].getData();
+		int columns = inputs[0].getColumns();
+		double factor = gradient.getData()[0] / inputs[0].getRows();
+		for (int start = 0; start < z.length; start += columns) {
+			double maximum = getMaximum(z, start, columns);
+			double sum = getSum(z, start, columns, maximum);
+			for (int j = 0; j < columns; j++) {
+				double softmax = Math.exp(z[start + j] - maximum) / sum;
+				gz[start + j] += factor * (softmax - t[start + j]);
+			}
+		}
+	}
+}
@@ -61,6 +61,7 @@ import com.qtplaf.platform.database.tables.TablePeriods;
 import com.qtplaf.platform.database.tables.TableServers;
 import com.qtplaf.platform.database.tables.TableStatistics;
 import com.qtplaf.platform.database.tables.TableTickers;
+import com.qtplaf.platform.statistics.StatesStream;
 import com.qtplaf.platform.util.PersistorUtils;
 import com.qtplaf.platform.util.RecordUtils;
 
@@ -79,11 +80,12 @@ public class QTPlatform {
 	private static final Logger LOGGER = LogManager.getLogger();
 
 	/**
-	 * Pre-exit action, disconnect any connected servers.
+	 * Pre-exit action, stop the live states streams and disconnect any connected servers.
 	 */
 	static class PreExitAction extends AbstractAction {
 		@Override
 		public void actionPerformed(ActionEvent e) {
+			StatesStream.stopAll();
 			try {
 				List<Server> servers = ServerFactory.getSupportedServers();
 				for (Server server : servers) {
@@ -106,6 +106,7 @@ public class Fields {
 	public static final String VALUE = "value";
 	public static final String VOLUME = "volume";
 	public static final String WCP = "wcp";
+	public static final String WEIGHT = "weight";
 
 	/**
 	 * Returns the field name for an average.
@@ -23,27 +23,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.qtplaf.library.database.Field;
-import com.qtplaf.library.database.Persistor;
-import com.qtplaf.library.database.Record;
 import com.qtplaf.library.trading.data.Data;
 import com.qtplaf.library.trading.data.DataList;
 import com.qtplaf.library.trading.data.Indicator;
 import com.qtplaf.library.trading.data.IndicatorDataList;
 import com.qtplaf.library.trading.data.IndicatorSource;
-import com.qtplaf.library.trading.data.IndicatorUtils;
-import com.qtplaf.library.trading.data.Instrument;
-import com.qtplaf.library.trading.data.Period;
 import com.qtplaf.library.trading.data.PersistorDataList;
-import com.qtplaf.library.trading.data.info.DataInfo;
 import com.qtplaf.library.trading.data.info.IndicatorInfo;
-import com.qtplaf.library.trading.data.info.PriceInfo;
-import com.qtplaf.library.trading.server.Server;
 import com.qtplaf.platform.database.Fields;
 import com.qtplaf.platform.database.fields.FieldDataInstr;
 import com.qtplaf.platform.statistics.Average;
 import com.qtplaf.platform.statistics.States;
-import com.qtplaf.platform.util.PersistorUtils;
-import com.qtplaf.platform.util.RecordUtils;
+import com.qtplaf.platform.statistics.TickerDataContext;
 
 /**
  * Calulates states source (raw) values.
@@ -59,6 +50,10 @@ public class StatesIndicator extends Indicator {
 	private States states;
 	/** Caching of data lists. */
 	private Map<String, DataList> mapDataLists = new HashMap<>();
+	/** Optional source price data list, when not read from the ticker data context. */
+	private DataList dataListSource;
+	/** The ticker data context, set by the calculating task or looked up once. */
+	private TickerDataContext context;
 
 	/**
 	 * Constructor.
@@ -98,6 +93,18 @@ public class StatesIndicator extends Indicator {
 		info.setLookBackward(lookBackward);
 	}
 
+	/**
+	 * Constructor that calculates the states over the given price data list, like a list of bars received live, and
+	 * builds its own averages on it instead of sharing those of the ticker data context.
+	 * 
+	 * @param states States statistics.
+	 * @param dataListSource The source price data list.
+	 */
+	public StatesIndicator(States states, DataList dataListSource) {
+		this(states);
+		this.dataListSource = dataListSource;
+	}
+
 	/**
 	 * Returns this indicator data list conveniently configurated.
 	 * 
@@ -110,7 +117,7 @@ public class StatesIndicator extends Indicator {
 			List<IndicatorSource> sources = new ArrayList<>();
 
 			// Price (High, Low, Close).
-			sources.add(new IndicatorSource(getDataListPrice(), Data.HIGH, Data.LOW, Data.CLOSE));
+			sources.add(new IndicatorSource(getDataListSource(), Data.HIGH, Data.LOW, Data.CLOSE));
 
 			// Averages.
 			List<Field> averageFields = states.getFieldListAverages();
@@ -127,7 +134,7 @@ public class StatesIndicator extends Indicator {
 	}
 
 	/**
-	 * Returns the price data list.
+	 * Returns the price data list, shared through the ticker data context.
 	 * 
 	 * @return The price data list.
 	 */
@@ -135,19 +142,7 @@ public class StatesIndicator extends Indicator {
 		PersistorDataList price = (PersistorDataList) mapDataLists.get("price");
 		if (price == null) {
 			try {
-
-				// Server, instrument, period.
-				Server server = states.getServer();
-				Instrument instrument = states.getInstrument();
-				Period period = states.getPeriod();
-
-				// The first input source is a persistor data list on the price (instrument-period).
-				Record record = RecordUtils.getRecordTicker(getSession(), server, instrument, period);
-				String tableName = record.getValue(Fields.TABLE_NAME).getString();
-				DataInfo infoPrice = new PriceInfo(getSession(), instrument, period);
-				Persistor persistor = PersistorUtils.getPersistorDataPrice(getSession(), server, instrument, tableName);
-				price = new PersistorDataList(getSession(), infoPrice, persistor);
-
+				price = getContext().getDataListPrice();
 				mapDataLists.put("price", price);
 			} catch (Exception exc) {
 				LOGGER.catching(exc);
@@ -156,6 +151,45 @@ public class StatesIndicator extends Indicator {
 		return price;
 	}
 
+	/**
+	 * Set the ticker data context acquired by the task that calculates this indicator, so the price and average data
+	 * lists are shared with the other tasks of the ticker. Data lists resolved before from another context are
+	 * discarded.
+	 * 
+	 * @param context The acquired ticker data context.
+	 */
+	public void setContext(TickerDataContext context) {
+		if (this.context != context) {
+			this.context = context;
+			mapDataLists.clear();
+		}
+	}
+
+	/**
+	 * Returns the ticker data context, the one set by the calculating task, or else the one acquired by a running task
+	 * if any, not registered otherwise.
+	 * 
+	 * @return The ticker data context.
+	 */
+	private TickerDataContext getContext() {
+		if (context == null) {
+			context = TickerDataContext.lookup(states);
+		}
+		return context;
+	}
+
+	/**
+	 * Returns the source price data list, either the one given at construction or the shared price data list.
+	 * 
+	 * @return The source price data list.
+	 */
+	private DataList getDataListSource() {
+		if (dataListSource != null) {
+			return dataListSource;
+		}
+		return getDataListPrice();
+	}
+
 	/**
 	 * Returns the list of indicator data lists to perform the calculations.
 	 * 
@@ -167,7 +201,7 @@ public class StatesIndicator extends Indicator {
 	}
 
 	/**
-	 * Returns the data list for a given average field.
+	 * Returns the data list for a given average field, shared through the ticker data context.
 	 * 
 	 * @param averageField The average field.
 	 * @return The data list for the average field.
@@ -175,22 +209,17 @@ public class StatesIndicator extends Indicator {
 	private IndicatorDataList getDataListAverage(Field averageField) {
 		DataList dataList = mapDataLists.get(averageField.getName());
 		if (dataList == null) {
-			Average average = (Average) averageField.getProperty(Fields.Properties.AVERAGE);
-			if (average.getType().equals(Average.Type.SMA)) {
-				dataList = IndicatorUtils.getSmoothedSimpleMovingAverage(
-					getDataListPrice(),
-					Data.CLOSE,
-					average.getPeriod(),
-					average.getSmooths());
-			}
-			if (average.getType().equals(Average.Type.WMA)) {
-				dataList = IndicatorUtils.getSmoothedWeightedMovingAverage(
-					getDataListPrice(),
-					Data.CLOSE,
-					average.getPeriod(),
-					average.getSmooths());
+			try {
+				Average average = (Average) averageField.getProperty(Fields.Properties.AVERAGE);
+				if (dataListSource != null) {
+					dataList = TickerDataContext.getDataListAverage(dataListSource, average);
+				} else {
+					dataList = getContext().getDataListAverage(average);
+				}
+				mapDataLists.put(averageField.getName(), dataList);
+			} catch (Exception exc) {
+				LOGGER.catching(exc);
 			}
-			mapDataLists.put(averageField.getName(), dataList);
 		}
 		return (IndicatorDataList) dataList;
 	}
@@ -219,7 +248,7 @@ public class StatesIndicator extends Indicator {
 		double[] values = new double[info.getOutputCount()];
 
 		// Price values.
-		Data price = getDataListPrice().get(index);
+		Data price = getDataListSource().get(index);
 		values[info.getOutputIndex(Fields.OPEN)] = Data.getOpen(price);
 		values[info.getOutputIndex(Fields.HIGH)] = Data.getHigh(price);
 		values[info.getOutputIndex(Fields.LOW)] = Data.getLow(price);
@@ -14,6 +14,8 @@
 
 package com.qtplaf.platform.statistics;
 
+import java.util.Arrays;
+
 /**
  * Defines a smoothed average used as a movement descriptor.
  * 
@@ -94,4 +96,29 @@ public class Average {
 	public void setType(Type type) {
 		this.type = type;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Check whether this average is equal to the argument object, that is, has the same type, period and smoothing
+	 * periods.
+	 * 
+	 * @return A boolean.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof Average) {
+			Average average = (Average) obj;
+			return type == average.type && period == average.period && Arrays.equals(smooths, average.smooths);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the hash code.
+	 * 
+	 * @return The hash code.
+	 */
+	@Override
+	public int hashCode() {
+		return (type.hashCode() * 31 + period) * 31 + Arrays.hashCode(smooths);
+	}
+}
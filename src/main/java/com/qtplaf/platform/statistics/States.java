@@ -14,8 +14,12 @@
 
 package com.qtplaf.platform.statistics;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.Action;
 
@@ -25,12 +29,15 @@ import org.apache.logging.log4j.Logger;
 import com.qtplaf.library.ai.data.info.InputInfo;
 import com.qtplaf.library.ai.data.info.OutputInfo;
 import com.qtplaf.library.ai.data.info.PatternInfo;
+import com.qtplaf.library.ai.function.normalize.QuantileNormalizer;
+import com.qtplaf.library.ai.function.normalize.StdNormalizer;
 import com.qtplaf.library.app.Session;
 import com.qtplaf.library.database.Calculator;
 import com.qtplaf.library.database.Condition;
 import com.qtplaf.library.database.Criteria;
 import com.qtplaf.library.database.Field;
 import com.qtplaf.library.database.Index;
+import com.qtplaf.library.database.Order;
 import com.qtplaf.library.database.Persistor;
 import com.qtplaf.library.database.PersistorException;
 import com.qtplaf.library.database.Record;
@@ -39,6 +46,8 @@ import com.qtplaf.library.database.RecordSet;
 import com.qtplaf.library.database.Table;
 import com.qtplaf.library.database.Value;
 import com.qtplaf.library.database.View;
+import com.qtplaf.library.database.snapshot.SnapshotPersistor;
+import com.qtplaf.library.database.snapshot.SnapshotWriter;
 import com.qtplaf.library.swing.ActionGroup;
 import com.qtplaf.library.swing.ActionUtils;
 import com.qtplaf.library.task.Task;
@@ -49,6 +58,7 @@ import com.qtplaf.library.trading.data.PersistorDataList;
 import com.qtplaf.library.trading.data.PlotData;
 import com.qtplaf.library.trading.data.info.DataInfo;
 import com.qtplaf.library.trading.server.Server;
+import com.qtplaf.library.util.math.QuantileSketch;
 import com.qtplaf.platform.database.Domains;
 import com.qtplaf.platform.database.Fields;
 import com.qtplaf.platform.database.Schemas;
@@ -69,9 +79,11 @@ import com.qtplaf.platform.statistics.action.ActionCalculate;
 import com.qtplaf.platform.statistics.action.ActionChart;
 import com.qtplaf.platform.statistics.action.ActionNavigateClusteredPatterns;
 import com.qtplaf.platform.statistics.action.ActionNavigateStates;
+import com.qtplaf.platform.statistics.action.ActionStream;
 import com.qtplaf.platform.statistics.patterns.Patterns;
 import com.qtplaf.platform.statistics.patterns.TablePatternSource;
 import com.qtplaf.platform.statistics.task.TaskClusterKMeans;
+import com.qtplaf.platform.statistics.task.TaskClusterMiniBatch;
 import com.qtplaf.platform.statistics.task.TaskNormalize;
 import com.qtplaf.platform.statistics.task.TaskPatterns;
 import com.qtplaf.platform.statistics.task.TaskRanges;
@@ -88,6 +100,9 @@ public class States extends Averages {
 	/** Logger instance. */
 	private static final Logger LOGGER = LogManager.getLogger();
 
+	/** Directory of the columnar snapshots. */
+	private static final File SNAPSHOTS_DIRECTORY = new File("snapshots");
+
 	/** Action group: calculate. */
 	private static final ActionGroup ACTION_GROUP_CALCULATE = new ActionGroup("Calculate", 1000);
 	/** Action group: clustering. */
@@ -98,6 +113,8 @@ public class States extends Averages {
 	private static final ActionGroup ACTION_GROUP_NAVIGATE = new ActionGroup("Navigate", 1003);
 	/** Action group: default chart. */
 	private static final ActionGroup ACTION_GROUP_CHART = new ActionGroup("Chart", 1010);
+	/** Action group: live stream. */
+	private static final ActionGroup ACTION_GROUP_STREAM = new ActionGroup("Stream", 1020);
 
 	/**
 	 * Field calculator to view the normal distribution index.
@@ -143,6 +160,12 @@ public class States extends Averages {
 	private Table tableStates;
 	/** Table ranges to calculate min-max values. */
 	private Table tableRanges;
+	/** Table of quantile sketches of raw values. */
+	private Table tableSketches;
+	/** Quantile mapped to the normalized low. */
+	private double normalizeQuantileLow = 0.005;
+	/** Quantile mapped to the normalized high. */
+	private double normalizeQuantileHigh = 0.995;
 
 	/**
 	 * Constructor.
@@ -176,6 +199,7 @@ public class States extends Averages {
 		List<Table> tables = new ArrayList<>();
 		tables.add(getTableStates());
 		tables.add(getTableRanges());
+		tables.add(getTableSketches());
 		tables.add(getTablePattern(Patterns.getInfoCandle()));
 		return tables;
 	}
@@ -264,6 +288,22 @@ public class States extends Averages {
 		return action;
 	}
 
+	/**
+	 * Returns the clustering action, mini-batch KMeans candle single, over all the patterns of the table.
+	 * 
+	 * @return The action.
+	 */
+	private Action getActionClusteringMiniBatchCandleSingle() {
+		PatternInfo patternInfo = Patterns.getInfoCandle();
+		Persistor patternPersistor = getTablePattern(patternInfo).getPersistor();
+		TablePatternSource patternSource = new TablePatternSource(patternInfo, patternPersistor);
+		ActionCalculate action = new ActionCalculate(this, new TaskClusterMiniBatch(this, patternSource));
+		ActionUtils.setName(action, "KMeans mini-batch: single candle");
+		ActionUtils.setShortDescription(action, "Mini-batch KMeans for all single candle patterns.");
+		ActionUtils.setActionGroup(action, ACTION_GROUP_CLUSTERING);
+		return action;
+	}
+
 	/**
 	 * Returns the action to browse states.
 	 * 
@@ -343,6 +383,19 @@ public class States extends Averages {
 		return action;
 	}
 
+	/**
+	 * Returns the action to start or stop streaming the states live.
+	 * 
+	 * @return The action.
+	 */
+	private Action getActionStreamStates() {
+		ActionStream action = new ActionStream(this);
+		ActionUtils.setName(action, "Start/stop live states");
+		ActionUtils.setShortDescription(action, "Start or stop streaming the states with the live feed");
+		ActionUtils.setActionGroup(action, ACTION_GROUP_STREAM);
+		return action;
+	}
+
 	/**
 	 * Returns the list of actions associated with the statistics. Actions are expected to be suitably configurated to
 	 * be selected for instance from a popup menu.
@@ -361,6 +414,7 @@ public class States extends Averages {
 
 		// Clustering actions.
 		actions.add(getActionClusteringKMeansCandleSingle());
+		actions.add(getActionClusteringMiniBatchCandleSingle());
 
 		// Browse actions.
 		actions.add(getActionBrowseStates());
@@ -374,6 +428,9 @@ public class States extends Averages {
 		// Chart actions.
 		actions.add(getActionChartStates());
 
+		// Stream actions.
+		actions.add(getActionStreamStates());
+
 		return actions;
 	}
 
@@ -464,6 +521,59 @@ public class States extends Averages {
 		return tableStates;
 	}
 
+	/**
+	 * Returns the columnar snapshot file of the states table.
+	 * 
+	 * @return The snapshot file.
+	 */
+	public File getSnapshotFileStates() {
+		Table table = getTableStates();
+		return new File(SNAPSHOTS_DIRECTORY, table.getSchema() + "." + table.getName() + ".qts");
+	}
+
+	/**
+	 * Returns the persistor to read the states. When the states have been normalized and exported to a snapshot, the
+	 * snapshot persistor, that reads the states sequentially from the file, otherwise the states table persistor. While
+	 * the states are streamed live the snapshot is not up to date and the table persistor is returned.
+	 * 
+	 * @return The persistor to read the states.
+	 */
+	public Persistor getPersistorStates() {
+		Persistor persistor = getTableStates().getPersistor();
+		File file = getSnapshotFileStates();
+		if (StatesStream.getStream(this) == null && SnapshotPersistor.isSnapshot(file)) {
+			try {
+				return new SnapshotPersistor(persistor.getView(), file);
+			} catch (PersistorException exc) {
+				LOGGER.catching(exc);
+			}
+		}
+		return persistor;
+	}
+
+	/**
+	 * Export the states table to the snapshot file.
+	 * 
+	 * @throws PersistorException If an error occurs reading the states.
+	 * @throws IOException If an error occurs writing the snapshot.
+	 */
+	public void exportSnapshotStates() throws PersistorException, IOException {
+		File file = getSnapshotFileStates();
+		file.getParentFile().mkdirs();
+		SnapshotWriter writer = new SnapshotWriter(file);
+		writer.export(getTableStates());
+	}
+
+	/**
+	 * Delete the snapshot file of the states table, no longer valid when the states are recalculated.
+	 */
+	public void deleteSnapshotStates() {
+		File file = getSnapshotFileStates();
+		if (file.exists()) {
+			file.delete();
+		}
+	}
+
 	/**
 	 * Returns the ranges table.
 	 * 
@@ -508,6 +618,248 @@ public class States extends Averages {
 		return tableRanges;
 	}
 
+	/**
+	 * Returns the table of quantile sketches of raw values. Each sketch is stored as its list of centroids (value and
+	 * weight), bracketed by the minimum and the maximum as zero weight centroids.
+	 * 
+	 * @return The sketches table.
+	 */
+	public Table getTableSketches() {
+		if (tableSketches == null) {
+
+			tableSketches = new Table();
+
+			Server server = getServer();
+			Instrument instrument = getInstrument();
+			Period period = getPeriod();
+
+			// Statistics, configuration and table ids.
+			String id = getId().toLowerCase() + "_st_skt";
+			tableSketches.setName(Tables.ticker(instrument, period, id));
+			tableSketches.setSchema(Schemas.server(server));
+
+			// Name of the field, centroid index, value and weight.
+			Field name = Domains.getString(getSession(), Fields.NAME, 60, "Name", "Name");
+			tableSketches.addField(name);
+			tableSketches.addField(new FieldIndex(getSession(), Fields.INDEX));
+			tableSketches.addField(new FieldDataValue(getSession(), Fields.VALUE, "Value", "Value"));
+			tableSketches.addField(new FieldDataValue(getSession(), Fields.WEIGHT, "Weight", "Weight"));
+
+			// Primary key on name, index.
+			tableSketches.getField(Fields.NAME).setPrimaryKey(true);
+			tableSketches.getField(Fields.INDEX).setPrimaryKey(true);
+
+			tableSketches.setPersistor(PersistorUtils.getPersistor(tableSketches.getSimpleView()));
+		}
+		return tableSketches;
+	}
+
+	/**
+	 * Returns the quantile mapped to the normalized low.
+	 * 
+	 * @return The quantile.
+	 */
+	public double getNormalizeQuantileLow() {
+		return normalizeQuantileLow;
+	}
+
+	/**
+	 * Set the quantile mapped to the normalized low.
+	 * 
+	 * @param normalizeQuantileLow The quantile.
+	 */
+	public void setNormalizeQuantileLow(double normalizeQuantileLow) {
+		this.normalizeQuantileLow = normalizeQuantileLow;
+	}
+
+	/**
+	 * Returns the quantile mapped to the normalized high.
+	 * 
+	 * @return The quantile.
+	 */
+	public double getNormalizeQuantileHigh() {
+		return normalizeQuantileHigh;
+	}
+
+	/**
+	 * Set the quantile mapped to the normalized high.
+	 * 
+	 * @param normalizeQuantileHigh The quantile.
+	 */
+	public void setNormalizeQuantileHigh(double normalizeQuantileHigh) {
+		this.normalizeQuantileHigh = normalizeQuantileHigh;
+	}
+
+	/**
+	 * Returns the map of stored quantile sketches keyed by field name, empty if the table does not exist.
+	 * 
+	 * @return The map of sketches.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	public Map<String, QuantileSketch> getSketches() throws PersistorException {
+		Map<String, QuantileSketch> sketches = new HashMap<>();
+		Table table = getTableSketches();
+		Persistor persistor = table.getPersistor();
+		if (!persistor.getDDL().existsTable(table)) {
+			return sketches;
+		}
+
+		Order order = new Order();
+		order.add(table.getField(Fields.NAME));
+		order.add(table.getField(Fields.INDEX));
+		RecordSet recordSet = persistor.select(new Criteria(), order);
+
+		int index = 0;
+		while (index < recordSet.size()) {
+			String name = recordSet.get(index).getValue(Fields.NAME).getString();
+			List<Double> values = new ArrayList<>();
+			List<Double> weights = new ArrayList<>();
+			while (index < recordSet.size()) {
+				Record record = recordSet.get(index);
+				if (!record.getValue(Fields.NAME).getString().equals(name)) {
+					break;
+				}
+				values.add(record.getValue(Fields.VALUE).getDouble());
+				weights.add(record.getValue(Fields.WEIGHT).getDouble());
+				index++;
+			}
+			// First and last are the minimum and the maximum.
+			if (values.size() < 2) {
+				continue;
+			}
+			double minimum = values.get(0);
+			double maximum = values.get(values.size() - 1);
+			int count = values.size() - 2;
+			double[] centroidValues = new double[count];
+			double[] centroidWeights = new double[count];
+			for (int i = 0; i < count; i++) {
+				centroidValues[i] = values.get(i + 1);
+				centroidWeights[i] = weights.get(i + 1);
+			}
+			QuantileSketch sketch = new QuantileSketch(
+				QuantileSketch.DEFAULT_COMPRESSION,
+				centroidValues,
+				centroidWeights,
+				minimum,
+				maximum);
+			sketches.put(name, sketch);
+		}
+		return sketches;
+	}
+
+	/**
+	 * Save the map of quantile sketches keyed by field name, replacing the stored ones.
+	 * 
+	 * @param sketches The map of sketches.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	public void saveSketches(Map<String, QuantileSketch> sketches) throws PersistorException {
+		Table table = getTableSketches();
+		Persistor persistor = table.getPersistor();
+		if (persistor.getDDL().existsTable(table)) {
+			persistor.getDDL().dropTable(table);
+		}
+		persistor.getDDL().buildTable(table);
+
+		List<Record> records = new ArrayList<>();
+		for (Map.Entry<String, QuantileSketch> entry : sketches.entrySet()) {
+			String name = entry.getKey();
+			QuantileSketch sketch = entry.getValue();
+			if (sketch.isEmpty()) {
+				continue;
+			}
+			int count = sketch.getCentroidCount();
+			records.add(getRecordSketch(persistor, name, 0, sketch.getMinimum(), 0));
+			for (int i = 0; i < count; i++) {
+				double value = sketch.getCentroidMean(i);
+				double weight = sketch.getCentroidWeight(i);
+				records.add(getRecordSketch(persistor, name, i + 1, value, weight));
+			}
+			records.add(getRecordSketch(persistor, name, count + 1, sketch.getMaximum(), 0));
+		}
+		persistor.insert(records);
+	}
+
+	/**
+	 * Returns the normalizers map. If the states pass stored quantile sketches, normalizers map the configured low
+	 * and high quantiles to [-1, 1], otherwise they are calculated from the min-max ranges.
+	 * 
+	 * @return The normalizers map.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	public Map<String, StdNormalizer> getNormalizers() throws PersistorException {
+		Map<String, StdNormalizer> map = new HashMap<>();
+
+		Map<String, QuantileSketch> sketches = getSketches();
+		if (!sketches.isEmpty()) {
+			return getNormalizers(sketches);
+		}
+
+		RecordSet recordSet = getRecordSetRanges(false);
+		for (int i = 0; i < recordSet.size(); i++) {
+			Record record = recordSet.get(i);
+			String name = record.getValue(Fields.NAME).getString();
+			String min_max = record.getValue(Fields.MIN_MAX).getString();
+			double average = record.getValue(Fields.AVERAGE).getDouble();
+			double stddev = record.getValue(Fields.STDDEV).getDouble();
+
+			StdNormalizer normalizer = map.get(name);
+			if (normalizer == null) {
+				normalizer = new StdNormalizer();
+				normalizer.setNormalizedHigh(1);
+				normalizer.setNormalizedLow(-1);
+				normalizer.setDataHigh(0);
+				normalizer.setDataLow(0);
+				map.put(name, normalizer);
+			}
+			if (min_max.equals("min")) {
+				double dataLow = average - (3.0 * stddev);
+				normalizer.setDataLow(dataLow);
+			} else {
+				double dataHigh = average + (3.0 * stddev);
+				normalizer.setDataHigh(dataHigh);
+			}
+		}
+
+		return map;
+	}
+
+	/**
+	 * Returns the normalizers map that maps the configured low and high quantiles of the sketches to [-1, 1].
+	 * 
+	 * @param sketches The quantile sketches by raw field name.
+	 * @return The normalizers map.
+	 */
+	public Map<String, StdNormalizer> getNormalizers(Map<String, QuantileSketch> sketches) {
+		Map<String, StdNormalizer> map = new HashMap<>();
+		double quantileLow = getNormalizeQuantileLow();
+		double quantileHigh = getNormalizeQuantileHigh();
+		for (Map.Entry<String, QuantileSketch> entry : sketches.entrySet()) {
+			QuantileSketch sketch = entry.getValue();
+			map.put(entry.getKey(), new QuantileNormalizer(sketch, quantileLow, quantileHigh, 1, -1));
+		}
+		return map;
+	}
+
+	/**
+	 * Returns a sketch centroid record.
+	 * 
+	 * @param persistor The persistor.
+	 * @param name The field name.
+	 * @param index The centroid index.
+	 * @param value The value.
+	 * @param weight The weight.
+	 * @return The record.
+	 */
+	private Record getRecordSketch(Persistor persistor, String name, int index, double value, double weight) {
+		Record record = persistor.getDefaultRecord();
+		record.setValue(Fields.NAME, name);
+		record.setValue(Fields.INDEX, index);
+		record.setValue(Fields.VALUE, value);
+		record.setValue(Fields.WEIGHT, weight);
+		return record;
+	}
+
 	/**
 	 * Returns the table for the given pattern info.
 	 * 
@@ -618,6 +970,29 @@ public class States extends Averages {
 		return names;
 	}
 
+	/**
+	 * Returns the data info of the states, built from the states table definition without accessing the database, with
+	 * an output for each persistent double field after the index and the time.
+	 * 
+	 * @return The states data info.
+	 */
+	public DataInfo getDataInfoStates() {
+		DataInfo info = new DataInfo(getSession());
+		info.setName("States");
+		info.setDescription("States data info");
+		info.setInstrument(getInstrument());
+		info.setPeriod(getPeriod());
+		Table table = getTableStates();
+		int index = 0;
+		for (int i = 2; i < table.getFieldCount(); i++) {
+			Field field = table.getField(i);
+			if (field.isDouble() && field.isPersistent()) {
+				info.addOutput(field.getName(), field.getHeader(), index++);
+			}
+		}
+		return info;
+	}
+
 	/**
 	 * Returns the persistor data list for this states statistics.
 	 * 
@@ -625,7 +1000,7 @@ public class States extends Averages {
 	 */
 	public PersistorDataList getDataListStates() {
 
-		DataPersistor persistor = new DataPersistor(getTableStates().getPersistor());
+		DataPersistor persistor = new DataPersistor(getPersistorStates());
 
 		DataInfo info = new DataInfo(getSession());
 		info.setName("States");
@@ -635,6 +1010,9 @@ public class States extends Averages {
 		DataPersistor.setDataInfoOutput(info, persistor);
 
 		PersistorDataList dataList = new PersistorDataList(getSession(), info, persistor);
+
+		// Receive the rows appended by the live stream, running or started later.
+		StatesStream.register(this, dataList);
 		return dataList;
 	}
 
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.platform.statistics;
+
+import java.util.List;
+import java.util.Map;
+
+import com.qtplaf.library.ai.function.normalize.StdNormalizer;
+import com.qtplaf.library.database.Record;
+import com.qtplaf.library.trading.data.Data;
+import com.qtplaf.library.trading.data.info.IndicatorInfo;
+import com.qtplaf.platform.database.Fields;
+import com.qtplaf.platform.indicators.StatesIndicator;
+
+/**
+ * Fills a states record from the states indicator data: price, averages, raw spreads, slopes and center differences,
+ * and normalized values. Shared by the batch tasks and the live stream so both produce the same values.
+ *
+ * @author Miquel Sas
+ */
+public class StatesCalculator {
+
+	/** Underlying states statistics. */
+	private States states;
+	/** States indicator info, to access the outputs. */
+	private IndicatorInfo info;
+	/** Averages. */
+	private List<Average> averages;
+	/** Raw field names to normalize. */
+	private List<String> fieldNamesRaw;
+	/** Normalized field names. */
+	private List<String> fieldNamesNrm;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param states The states statistics.
+	 */
+	public StatesCalculator(States states) {
+		super();
+		this.states = states;
+		this.info = new StatesIndicator(states).getIndicatorInfo();
+		this.averages = states.getAverages();
+		this.fieldNamesRaw = states.getFieldsToNormalize(Fields.Suffix.RAW);
+		this.fieldNamesNrm = states.getFieldsToNormalize(Fields.Suffix.NRM);
+	}
+
+	/**
+	 * Returns the states statistics.
+	 *
+	 * @return The states.
+	 */
+	public States getStates() {
+		return states;
+	}
+
+	/**
+	 * Returns the list of raw field names to normalize.
+	 *
+	 * @return The list of raw field names.
+	 */
+	public List<String> getFieldNamesRaw() {
+		return fieldNamesRaw;
+	}
+
+	/**
+	 * Fill the record with the time, price and averages of the indicator data, and calculate the raw values. Slopes
+	 * and center differences require the previous data and are not calculated for the first record.
+	 *
+	 * @param record The states record.
+	 * @param data The states indicator data.
+	 * @param previous The previous states indicator data, null for the first record.
+	 */
+	public void calculate(Record record, Data data, Data previous) {
+
+		// Time.
+		record.getValue(Fields.TIME).setLong(data.getTime());
+
+		// Open, high, low, close.
+		double open = data.getValue(info.getOutputIndex(Fields.OPEN));
+		double high = data.getValue(info.getOutputIndex(Fields.HIGH));
+		double low = data.getValue(info.getOutputIndex(Fields.LOW));
+		double close = data.getValue(info.getOutputIndex(Fields.CLOSE));
+		record.getValue(Fields.OPEN).setDouble(open);
+		record.getValue(Fields.HIGH).setDouble(high);
+		record.getValue(Fields.LOW).setDouble(low);
+		record.getValue(Fields.CLOSE).setDouble(close);
+
+		// Averages.
+		for (int i = 0; i < averages.size(); i++) {
+			Average average = averages.get(i);
+			String name = Fields.averageName(average);
+			record.getValue(name).setDouble(data.getValue(info.getOutputIndex(name)));
+		}
+
+		// Range
+		double range = high - low;
+		if (previous == null) {
+			range = 0;
+		}
+		String range_raw = Fields.suffix(Fields.RANGE, Fields.Suffix.RAW);
+		record.getValue(range_raw).setDouble(range);
+
+		// Raw spread WCP fast average.
+		double wcp = (high + low + (2 * close)) / 4;
+		Average fastAvg = averages.get(0);
+		String spread_wcp_fast = Fields.spread(Fields.WCP, fastAvg, Fields.Suffix.RAW);
+		String fast_avg_name = Fields.averageName(fastAvg);
+		double fastAvgValue = record.getValue(fast_avg_name).getDouble();
+		double spreadWCPFast = (wcp / fastAvgValue) - 1;
+		record.getValue(spread_wcp_fast).setDouble(spreadWCPFast);
+
+		// Raw spreads between averages.
+		for (int i = 0; i < averages.size(); i++) {
+			Average avgFast = averages.get(i);
+			String avgFastName = Fields.averageName(avgFast);
+			for (int j = i + 1; j < averages.size(); j++) {
+				Average avgSlow = averages.get(j);
+				String avgSlowName = Fields.averageName(avgSlow);
+				String spreadName = Fields.spreadName(avgFast, avgSlow, Fields.Suffix.RAW);
+				double valueFast = data.getValue(info.getOutputIndex(avgFastName));
+				double valueSlow = data.getValue(info.getOutputIndex(avgSlowName));
+				double valueSpread = (valueFast / valueSlow) - 1;
+				record.getValue(spreadName).setDouble(valueSpread);
+			}
+		}
+
+		// The first record has no previous to calculate slopes and differences.
+		if (previous == null) {
+			return;
+		}
+
+		// Raw slopes of averages.
+		for (int i = 0; i < averages.size(); i++) {
+			Average average = averages.get(i);
+			String avgName = Fields.averageName(average);
+			String slopeName = Fields.slopeName(average, Fields.Suffix.RAW);
+			double valueCurr = data.getValue(info.getOutputIndex(avgName));
+			double valuePrev = previous.getValue(info.getOutputIndex(avgName));
+			double valueSlope = (valueCurr / valuePrev) - 1;
+			record.getValue(slopeName).setDouble(valueSlope);
+		}
+
+		// Raw differences between current and previous centers.
+		String center_diff_raw = Fields.suffix(Fields.CENTER_DIFF, Fields.Suffix.RAW);
+		double highPrev = previous.getValue(info.getOutputIndex(Fields.HIGH));
+		double lowPrev = previous.getValue(info.getOutputIndex(Fields.LOW));
+		double centerPrev = (highPrev + lowPrev) / 2;
+		double centerCurr = (high + low) / 2;
+		double centerDiff = (centerCurr / centerPrev) - 1;
+		record.getValue(center_diff_raw).setDouble(centerDiff);
+	}
+
+	/**
+	 * Normalize the raw values of the record.
+	 *
+	 * @param record The states record with the raw values calculated.
+	 * @param normalizers The normalizers by raw field name.
+	 */
+	public void normalize(Record record, Map<String, StdNormalizer> normalizers) {
+		for (int i = 0; i < fieldNamesRaw.size(); i++) {
+			String nameRaw = fieldNamesRaw.get(i);
+			String nameNrm = fieldNamesNrm.get(i);
+			StdNormalizer normalizer = normalizers.get(nameRaw);
+			double valueRaw = record.getValue(nameRaw).getDouble();
+			double valueNrm = normalizer.normalize(valueRaw);
+			record.getValue(nameNrm).setDouble(valueNrm);
+		}
+	}
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.platform.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.qtplaf.library.ai.data.DefaultPattern;
+import com.qtplaf.library.ai.data.ListPatternSource;
+import com.qtplaf.library.ai.data.Pattern;
+import com.qtplaf.library.ai.data.info.PatternInfo;
+import com.qtplaf.library.ai.function.normalize.StdNormalizer;
+import com.qtplaf.library.ai.learning.clustering.centroid.kmeans.LloydKMeansClustering;
+import com.qtplaf.library.database.Criteria;
+import com.qtplaf.library.database.Field;
+import com.qtplaf.library.database.Persistor;
+import com.qtplaf.library.database.PersistorException;
+import com.qtplaf.library.database.Record;
+import com.qtplaf.library.database.RecordIterator;
+import com.qtplaf.library.database.Table;
+import com.qtplaf.library.trading.data.Data;
+import com.qtplaf.library.trading.data.DataList;
+import com.qtplaf.library.trading.data.DataPersistor;
+import com.qtplaf.library.trading.data.IndicatorDataList;
+import com.qtplaf.library.trading.data.ListDataList;
+import com.qtplaf.library.trading.data.PersistorDataList;
+import com.qtplaf.library.trading.data.info.DataInfo;
+import com.qtplaf.library.util.math.QuantileSketch;
+import com.qtplaf.platform.database.Fields;
+import com.qtplaf.platform.indicators.StatesIndicator;
+import com.qtplaf.platform.statistics.patterns.PatternBlock;
+import com.qtplaf.platform.statistics.patterns.Patterns;
+
+/**
+ * In-memory mode of the states pipeline: states, ranges, normalized values, patterns and clusters are calculated and
+ * kept in primitive column arrays, without round trips to the database, so that many average configurations can be
+ * evaluated quickly. Persisting the results is an optional final bulk flush, for the configurations worth keeping.
+ * <p>
+ * The values are calculated with the same formulas as the states tasks.
+ *
+ * @author Miquel Sas
+ */
+public class StatesPipeline {
+
+	/** Number of records inserted per batch when flushing. */
+	private static final int BATCH_SIZE = 1000;
+
+	/**
+	 * Load all the price bars of the ticker of the states into an in-memory data list, with a single sequential read.
+	 * The list can be shared by the pipelines of all the configurations of the ticker.
+	 *
+	 * @param states The states.
+	 * @return The price data list.
+	 * @throws Exception If an error occurs reading the price.
+	 */
+	public static ListDataList loadPrice(States states) throws Exception {
+		TickerDataContext context = TickerDataContext.acquire(states);
+		try {
+			PersistorDataList source = context.getDataListPrice();
+			DataPersistor persistor = source.getDataPersistor();
+			ListDataList price = new ListDataList(states.getSession(), source.getDataInfo());
+			RecordIterator iterator = persistor.iterator(new Criteria(), persistor.getIndexOrder(true));
+			try {
+				while (iterator.hasNext()) {
+					price.add(persistor.getData(iterator.next()));
+				}
+			} finally {
+				iterator.close();
+			}
+			return price;
+		} finally {
+			context.release();
+		}
+	}
+
+	/**
+	 * Ranges (minimums and maximums of the raw values) kept in parallel primitive arrays.
+	 */
+	class Ranges {
+		/** Number of ranges. */
+		int size = 0;
+		/** Column of the raw value. */
+		int[] columns = new int[256];
+		/** Period. */
+		int[] periods = new int[256];
+		/** Minimum or maximum. */
+		boolean[] minimums = new boolean[256];
+		/** Row. */
+		int[] rows = new int[256];
+
+		/**
+		 * Add a range.
+		 *
+		 * @param column The column.
+		 * @param period The period.
+		 * @param minimum Minimum or maximum.
+		 * @param row The row.
+		 */
+		void add(int column, int period, boolean minimum, int row) {
+			if (size == rows.length) {
+				int capacity = size * 2;
+				columns = Arrays.copyOf(columns, capacity);
+				periods = Arrays.copyOf(periods, capacity);
+				minimums = Arrays.copyOf(minimums, capacity);
+				rows = Arrays.copyOf(rows, capacity);
+			}
+			columns[size] = column;
+			periods[size] = period;
+			minimums[size] = minimum;
+			rows[size] = row;
+			size++;
+		}
+	}
+
+	/**
+	 * Patterns of a pattern info, inputs and cluster numbers by row of the pattern.
+	 */
+	class PatternColumns {
+		/** Pattern info. */
+		PatternInfo patternInfo;
+		/** First states row with a pattern. */
+		int firstRow;
+		/** Inputs by pattern. */
+		double[][] inputs;
+		/** Cluster numbers by pattern, starting at 1, zero if not clustered. */
+		int[] clusters;
+		/** The pattern source. */
+		ListPatternSource patternSource;
+	}
+
+	/** Underlying states. */
+	private States states;
+	/** Source price data list. */
+	private DataList price;
+	/** Calculator of the raw values. */
+	private StatesCalculator calculator;
+	/** Names of the data columns, the persistent double fields of the states table. */
+	private List<String> names = new ArrayList<>();
+	/** Column indexes by name. */
+	private Map<String, Integer> columnIndexes = new HashMap<>();
+	/** Number of rows. */
+	private int rows;
+	/** Times by row. */
+	private long[] times;
+	/** Values by column and row. */
+	private double[][] columns;
+	/** Quantile sketches of the raw values. */
+	private Map<String, QuantileSketch> sketches;
+	/** Ranges. */
+	private Ranges ranges;
+	/** Calculated patterns by pattern info id. */
+	private Map<String, PatternColumns> patterns = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param states The states, with the averages configuration to evaluate.
+	 * @param price The price data list, normally loaded once with {@link #loadPrice(States)}.
+	 */
+	public StatesPipeline(States states, DataList price) {
+		super();
+		this.states = states;
+		this.price = price;
+		this.calculator = new StatesCalculator(states);
+		Table table = states.getTableStates();
+		for (int i = 2; i < table.getFieldCount(); i++) {
+			Field field = table.getField(i);
+			if (field.isDouble() && field.isPersistent()) {
+				columnIndexes.put(field.getAlias(), names.size());
+				names.add(field.getAlias());
+			}
+		}
+	}
+
+	/**
+	 * Returns the states.
+	 *
+	 * @return The states.
+	 */
+	public States getStates() {
+		return states;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return The number of rows.
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+
+	/**
+	 * Returns the times by row.
+	 *
+	 * @return The times.
+	 */
+	public long[] getTimes() {
+		return times;
+	}
+
+	/**
+	 * Returns the column of values of the states field.
+	 *
+	 * @param name The field name.
+	 * @return The column of values.
+	 */
+	public double[] getColumn(String name) {
+		Integer column = columnIndexes.get(name);
+		if (column == null) {
+			throw new IllegalArgumentException("Invalid column " + name);
+		}
+		return columns[column];
+	}
+
+	/**
+	 * Returns the data of the row, with values in the order of the states data info.
+	 *
+	 * @param row The row.
+	 * @return The data.
+	 */
+	public Data getData(int row) {
+		double[] values = new double[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			values[i] = columns[i][row];
+		}
+		Data data = new Data();
+		data.setTime(times[row]);
+		data.setValues(values);
+		return data;
+	}
+
+	/**
+	 * Run the whole pipeline: states, ranges and normalized values.
+	 */
+	public void execute() {
+		calculateStates();
+		calculateRanges();
+		normalize();
+	}
+
+	/**
+	 * Calculate the states and raw values, and the sketches of the raw values.
+	 */
+	public void calculateStates() {
+		StatesIndicator indicator = new StatesIndicator(states, price);
+		IndicatorDataList indicatorList = indicator.getDataList();
+		List<IndicatorDataList> sources = indicator.getIndicatorDataListsToCalculate();
+
+		rows = price.size();
+		times = new long[rows];
+		columns = new double[names.size()][rows];
+		List<String> sketchNames = calculator.getFieldNamesRaw();
+		sketches = new HashMap<>();
+		for (String name : sketchNames) {
+			sketches.put(name, new QuantileSketch());
+		}
+
+		// A single record is reused, only the first one has fields not calculated and it is the default record.
+		Record record = states.getTableStates().getDefaultRecord();
+		Data previous = null;
+		for (int index = 0; index < rows; index++) {
+			for (IndicatorDataList source : sources) {
+				if (!source.hasCalculated(index)) {
+					source.calculate(index);
+				}
+			}
+			Data data = indicatorList.calculate(index);
+			calculator.calculate(record, data, previous);
+			times[index] = data.getTime();
+			for (int i = 0; i < names.size(); i++) {
+				columns[i][index] = record.getValue(names.get(i)).getDouble();
+			}
+			if (index > 0) {
+				for (String name : sketchNames) {
+					sketches.get(name).add(record.getValue(name).getDouble());
+				}
+			}
+			previous = data;
+		}
+	}
+
+	/**
+	 * Calculate the ranges, minimums and maximums of the raw values for the periods of the two slowest averages.
+	 */
+	public void calculateRanges() {
+		List<Average> averages = states.getAverages();
+		int[] periods = new int[] {
+			averages.get(averages.size() - 1).getPeriod(),
+			averages.get(averages.size() - 2).getPeriod() };
+
+		ranges = new Ranges();
+		for (String name : calculator.getFieldNamesRaw()) {
+			int column = columnIndexes.get(name);
+			double[] values = columns[column];
+			for (int row = 0; row < rows; row++) {
+				double value = values[row];
+				if (value == 0) {
+					continue;
+				}
+				for (int period : periods) {
+					if (isMinimumMaximum(values, row, period, value < 0)) {
+						ranges.add(column, period, value < 0, row);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check whether the value at the row is a minimum or maximum within the period before and after, like
+	 * {@link DataList#isMinimum(int, int, int)}.
+	 *
+	 * @param values The column values.
+	 * @param row The row.
+	 * @param period The period.
+	 * @param minimum Minimum or maximum.
+	 * @return A boolean.
+	 */
+	private boolean isMinimumMaximum(double[] values, int row, int period, boolean minimum) {
+		if (row < period || row > rows - 1 - period) {
+			return false;
+		}
+		double value = values[row];
+		for (int i = row - period; i <= row + period; i++) {
+			if (minimum ? values[i] < value : values[i] > value) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Normalize the raw values with the quantiles of the sketches.
+	 */
+	public void normalize() {
+		Map<String, StdNormalizer> normalizers = states.getNormalizers(sketches);
+		List<String> namesRaw = states.getFieldsToNormalize(Fields.Suffix.RAW);
+		List<String> namesNrm = states.getFieldsToNormalize(Fields.Suffix.NRM);
+		for (int i = 0; i < namesRaw.size(); i++) {
+			StdNormalizer normalizer = normalizers.get(namesRaw.get(i));
+			double[] raw = getColumn(namesRaw.get(i));
+			double[] nrm = getColumn(namesNrm.get(i));
+			for (int row = 0; row < rows; row++) {
+				nrm[row] = normalizer.normalize(raw[row]);
+			}
+		}
+	}
+
+	/**
+	 * Calculate the patterns of the pattern info over the normalized states, and return them as a pattern source.
+	 * Patterns have as index the states row.
+	 *
+	 * @param patternInfo The pattern info.
+	 * @return The pattern source.
+	 */
+	public ListPatternSource calculatePatterns(PatternInfo patternInfo) {
+		DataInfo dataInfo = states.getDataInfoStates();
+		Patterns.setDataInfo(patternInfo, dataInfo);
+		int lookBackward = Patterns.getLookBackward(patternInfo);
+
+		// A single block over all the rows, inputs are extracted directly from the columns.
+		PatternBlock block =
+			new PatternBlock(
+				lookBackward,
+				dataInfo,
+				getColumn(Fields.OPEN),
+				getColumn(Fields.HIGH),
+				getColumn(Fields.LOW),
+				getColumn(Fields.CLOSE));
+		for (int i = 0; i < names.size(); i++) {
+			block.setColumn(names.get(i), columns[i]);
+		}
+
+		PatternColumns patternColumns = new PatternColumns();
+		patternColumns.patternInfo = patternInfo;
+		patternColumns.firstRow = lookBackward - 1;
+		patternColumns.inputs = Patterns.getInputs(patternInfo, block);
+		patternColumns.clusters = new int[patternColumns.inputs.length];
+
+		List<Pattern> patternList = new ArrayList<>(patternColumns.inputs.length);
+		for (int p = 0; p < patternColumns.inputs.length; p++) {
+			DefaultPattern pattern = new DefaultPattern();
+			pattern.setInputs(patternColumns.inputs[p]);
+			pattern.setOutputs(new double[patternInfo.getOutputCount()]);
+			pattern.setLabel("");
+			Patterns.setPatternIndex(pattern, patternColumns.firstRow + p);
+			patternList.add(pattern);
+		}
+		patternColumns.patternSource = new ListPatternSource(patternList);
+		patterns.put(patternInfo.getId(), patternColumns);
+		return patternColumns.patternSource;
+	}
+
+	/**
+	 * Cluster the calculated patterns of the pattern info with KMeans, as many clusters as outputs, until no changes
+	 * or the maximum number of iterations.
+	 *
+	 * @param patternInfo The pattern info, with patterns already calculated.
+	 * @param maxIterations The maximum number of iterations.
+	 * @return The cluster numbers by pattern, starting at 1.
+	 */
+	public int[] clusterPatterns(PatternInfo patternInfo, int maxIterations) {
+		PatternColumns patternColumns = patterns.get(patternInfo.getId());
+		if (patternColumns == null) {
+			throw new IllegalStateException("Patterns not calculated: " + patternInfo.getId());
+		}
+		LloydKMeansClustering km = new LloydKMeansClustering(patternInfo.getOutputCount());
+		km.initializeClustering(patternColumns.patternSource);
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			km.iteration();
+			if (km.getChanges() == 0) {
+				break;
+			}
+		}
+		// Patterns are in row order, so assignments are directly the pattern cluster indexes.
+		for (int p = 0; p < patternColumns.clusters.length; p++) {
+			patternColumns.clusters[p] = km.getAssignment(p) + 1;
+		}
+		return patternColumns.clusters;
+	}
+
+	/**
+	 * Persist the results with bulk inserts: the states table, the ranges table, the sketches and the patterns tables
+	 * of the calculated patterns, and then export the states snapshot.
+	 *
+	 * @throws Exception If an error occurs persisting.
+	 */
+	public void flush() throws Exception {
+		flushStates();
+		flushRanges();
+		states.saveSketches(sketches);
+		for (PatternColumns patternColumns : patterns.values()) {
+			flushPatterns(patternColumns);
+		}
+		states.exportSnapshotStates();
+	}
+
+	/**
+	 * Rebuild the table.
+	 *
+	 * @param table The table.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	private void rebuild(Table table) throws PersistorException {
+		Persistor persistor = table.getPersistor();
+		if (persistor.getDDL().existsTable(table)) {
+			persistor.getDDL().dropTable(table);
+		}
+		persistor.getDDL().buildTable(table);
+	}
+
+	/**
+	 * Persist the states.
+	 *
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	private void flushStates() throws PersistorException {
+		Table table = states.getTableStates();
+		rebuild(table);
+		states.deleteSnapshotStates();
+		DataPersistor persistor = new DataPersistor(table.getPersistor());
+		List<Record> records = new ArrayList<>(BATCH_SIZE);
+		for (int row = 0; row < rows; row++) {
+			Record record = persistor.getDefaultRecord();
+			record.getValue(Fields.TIME).setLong(times[row]);
+			for (int i = 0; i < names.size(); i++) {
+				record.getValue(names.get(i)).setDouble(columns[i][row]);
+			}
+			records.add(record);
+			if (records.size() == BATCH_SIZE) {
+				persistor.insert(records);
+				records.clear();
+			}
+		}
+		if (!records.isEmpty()) {
+			persistor.insert(records);
+		}
+	}
+
+	/**
+	 * Persist the ranges.
+	 *
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	private void flushRanges() throws PersistorException {
+		Table table = states.getTableRanges();
+		rebuild(table);
+		Persistor persistor = table.getPersistor();
+		List<Record> records = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < ranges.size; i++) {
+			int row = ranges.rows[i];
+			int column = ranges.columns[i];
+			Record record = persistor.getDefaultRecord();
+			record.setValue(Fields.NAME, names.get(column));
+			record.setValue(Fields.PERIOD, ranges.periods[i]);
+			record.setValue(Fields.MIN_MAX, (ranges.minimums[i] ? "min" : "max"));
+			record.setValue(Fields.VALUE, columns[column][row]);
+			record.setValue(Fields.INDEX, row);
+			record.setValue(Fields.TIME, times[row]);
+			records.add(record);
+			if (records.size() == BATCH_SIZE) {
+				persistor.insert(records);
+				records.clear();
+			}
+		}
+		if (!records.isEmpty()) {
+			persistor.insert(records);
+		}
+	}
+
+	/**
+	 * Persist the patterns and their cluster numbers.
+	 *
+	 * @param patternColumns The pattern patternColumns.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	private void flushPatterns(PatternColumns patternColumns) throws PersistorException {
+		PatternInfo patternInfo = patternColumns.patternInfo;
+		Table table = states.getTablePattern(patternInfo);
+		rebuild(table);
+		Persistor persistor = table.getPersistor();
+		List<Record> records = new ArrayList<>(BATCH_SIZE);
+		for (int p = 0; p < patternColumns.inputs.length; p++) {
+			int row = patternColumns.firstRow + p;
+			Record record = table.getDefaultRecord();
+			record.setValue(Fields.INDEX, row);
+			record.setValue(Fields.TIME, times[row]);
+			for (int i = 0; i < patternInfo.getInputCount(); i++) {
+				record.setValue(patternInfo.getInput(i).getId(), patternColumns.inputs[p][i]);
+			}
+			record.setValue(Fields.CLUSTER, patternColumns.clusters[p]);
+			records.add(record);
+			if (records.size() == BATCH_SIZE) {
+				persistor.insert(records);
+				records.clear();
+			}
+		}
+		if (!records.isEmpty()) {
+			persistor.insert(records);
+		}
+	}
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.platform.statistics;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.qtplaf.library.ai.function.normalize.StdNormalizer;
+import com.qtplaf.library.database.PersistorException;
+import com.qtplaf.library.database.Record;
+import com.qtplaf.library.database.Table;
+import com.qtplaf.library.database.snapshot.SnapshotPersistor;
+import com.qtplaf.library.swing.core.SwingUtils;
+import com.qtplaf.library.trading.data.Data;
+import com.qtplaf.library.trading.data.DataPersistor;
+import com.qtplaf.library.trading.data.Filter;
+import com.qtplaf.library.trading.data.IndicatorDataList;
+import com.qtplaf.library.trading.data.ListDataList;
+import com.qtplaf.library.trading.data.PersistorDataList;
+import com.qtplaf.library.trading.data.info.DataInfo;
+import com.qtplaf.library.trading.server.HistoryManager;
+import com.qtplaf.library.trading.server.OfferSide;
+import com.qtplaf.library.trading.server.ServerException;
+import com.qtplaf.library.trading.server.feed.DataEvent;
+import com.qtplaf.library.trading.server.feed.DataSubscription;
+import com.qtplaf.library.trading.server.feed.FeedListenerAdapter;
+import com.qtplaf.platform.database.Fields;
+import com.qtplaf.platform.indicators.StatesIndicator;
+import com.qtplaf.platform.util.RecordUtils;
+
+/**
+ * Streams the states of a ticker live. Each completed bar received from the server feed is pushed through the states
+ * indicator, calculated over an in-memory price list seeded with the last bars of the ticker, the raw values are
+ * calculated and normalized with the stored normalizers, and the row is appended to the states table and to the open
+ * states data lists, without recalculating the historical rows.
+ * <p>
+ * On start, the bars after the last states row, first those stored in the price table and then those received from the
+ * server history up to the last completed bar, are appended before the stream begins to receive the feed, so the states
+ * have no gaps.
+ * <p>
+ * While a stream is running the states are read from the table, and on stop the snapshot, if any, is exported again.
+ *
+ * @author Miquel Sas
+ */
+public class StatesStream extends FeedListenerAdapter {
+
+	/** Logger instance. */
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	/** Running streams keyed by states table. */
+	private static final Map<String, StatesStream> streams = new HashMap<>();
+	/**
+	 * Open states data lists keyed by states table, to notify the rows appended, released when no longer referenced,
+	 * like when a chart is closed.
+	 */
+	private static final Map<String, List<WeakReference<PersistorDataList>>> dataLists = new HashMap<>();
+
+	/**
+	 * Returns the key of the states.
+	 *
+	 * @param states The states.
+	 * @return The key.
+	 */
+	private static String getKey(States states) {
+		Table table = states.getTableStates();
+		return table.getSchema() + "." + table.getName();
+	}
+
+	/**
+	 * Returns the running stream of the states or null if not running.
+	 *
+	 * @param states The states.
+	 * @return The stream or null.
+	 */
+	public static StatesStream getStream(States states) {
+		synchronized (streams) {
+			return streams.get(getKey(states));
+		}
+	}
+
+	/**
+	 * Start streaming the states with the completed bars of the offer side and filter of the ticker, unless already
+	 * running. The feed listener is added before seeding, and the bars it receives wait for the seed and the backfill to
+	 * finish, so no bar is lost in between.
+	 *
+	 * @param states The states, already calculated and normalized.
+	 * @return The running stream.
+	 * @throws Exception If an error occurs seeding the stream or subscribing to the feed.
+	 */
+	public static StatesStream start(States states) throws Exception {
+		synchronized (streams) {
+			StatesStream stream = streams.get(getKey(states));
+			if (stream == null) {
+				Record record =
+					RecordUtils.getRecordTicker(
+						states.getSession(),
+						states.getServer(),
+						states.getInstrument(),
+						states.getPeriod());
+				OfferSide offerSide = OfferSide.valueOf(record.getValue(Fields.OFFER_SIDE).getString());
+				Filter filter = Filter.valueOf(record.getValue(Fields.DATA_FILTER).getString());
+				stream = new StatesStream(states, offerSide, filter);
+				synchronized (stream) {
+					states.getServer().getFeedManager().addFeedListener(stream);
+					try {
+						stream.seed();
+						stream.backfill();
+					} catch (Exception exc) {
+						states.getServer().getFeedManager().removeFeedListener(stream);
+						throw exc;
+					}
+					streams.put(getKey(states), stream);
+				}
+			}
+			return stream;
+		}
+	}
+
+	/**
+	 * Register a data list of the states table to notify the rows appended by the stream, either running or started
+	 * later.
+	 *
+	 * @param states The states.
+	 * @param dataList The data list.
+	 */
+	public static void register(States states, PersistorDataList dataList) {
+		synchronized (dataLists) {
+			List<WeakReference<PersistorDataList>> references = dataLists.get(getKey(states));
+			if (references == null) {
+				references = new ArrayList<>();
+				dataLists.put(getKey(states), references);
+			}
+			references.add(new WeakReference<>(dataList));
+		}
+	}
+
+	/**
+	 * Returns the open data lists of the states, removing those no longer referenced.
+	 *
+	 * @param states The states.
+	 * @return The open data lists.
+	 */
+	private static List<PersistorDataList> getDataLists(States states) {
+		synchronized (dataLists) {
+			List<PersistorDataList> open = new ArrayList<>();
+			List<WeakReference<PersistorDataList>> references = dataLists.get(getKey(states));
+			if (references == null) {
+				return open;
+			}
+			Iterator<WeakReference<PersistorDataList>> i = references.iterator();
+			while (i.hasNext()) {
+				PersistorDataList dataList = i.next().get();
+				if (dataList == null) {
+					i.remove();
+					continue;
+				}
+				open.add(dataList);
+			}
+			if (references.isEmpty()) {
+				dataLists.remove(getKey(states));
+			}
+			return open;
+		}
+	}
+
+	/**
+	 * Stop all the running streams, like when the application exits.
+	 */
+	public static void stopAll() {
+		List<StatesStream> running;
+		synchronized (streams) {
+			running = new ArrayList<>(streams.values());
+		}
+		for (StatesStream stream : running) {
+			try {
+				stream.stop();
+			} catch (ServerException exc) {
+				LOGGER.catching(exc);
+			}
+		}
+	}
+
+	/** Underlying states. */
+	private States states;
+	/** Calculator of the raw and normalized values. */
+	private StatesCalculator calculator;
+	/** Normalizers by raw field name. */
+	private Map<String, StdNormalizer> normalizers;
+	/** Offer side. */
+	private OfferSide offerSide;
+	/** Data filter. */
+	private Filter filter;
+	/** States table data persistor. */
+	private DataPersistor persistor;
+	/** In-memory price data list with the seed and the bars received, trimmed to the seed window. */
+	private ListDataList price;
+	/** Number of bars needed to calculate the averages of the next bar as in the full pass. */
+	private int seedSize;
+	/** The states indicator data list. */
+	private IndicatorDataList indicatorList;
+	/** Indicator data lists to calculate prior as sources. */
+	private List<IndicatorDataList> sources;
+	/** Time of the last states row. */
+	private long lastTime;
+	/** Number of rows appended. */
+	private int appended = 0;
+	/** A boolean that indicates whether the states had a snapshot when started. */
+	private boolean snapshot;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param states The states.
+	 * @param offerSide The offer side.
+	 * @param filter The data filter.
+	 */
+	private StatesStream(States states, OfferSide offerSide, Filter filter) {
+		super();
+		this.states = states;
+		this.offerSide = offerSide;
+		this.filter = filter;
+		this.calculator = new StatesCalculator(states);
+		addDataSubscription(new DataSubscription(states.getInstrument(), states.getPeriod(), offerSide));
+	}
+
+	/**
+	 * Returns the states.
+	 *
+	 * @return The states.
+	 */
+	public States getStates() {
+		return states;
+	}
+
+	/**
+	 * Returns the number of rows appended since the stream started.
+	 *
+	 * @return The number of rows appended.
+	 */
+	public int getAppended() {
+		return appended;
+	}
+
+	/**
+	 * Seed the in-memory price list with the last bars of the states, enough for the averages of the next bar to be
+	 * calculated as in the full pass, and calculate them.
+	 *
+	 * @throws Exception If an error occurs reading the states or the price.
+	 */
+	private void seed() throws Exception {
+
+		normalizers = states.getNormalizers();
+		persistor = new DataPersistor(states.getTableStates().getPersistor());
+		snapshot = SnapshotPersistor.isSnapshot(states.getSnapshotFileStates());
+
+		int lastIndex = persistor.getLastIndex().intValue();
+		if (lastIndex < 0) {
+			throw new IllegalStateException("States must be calculated before streaming");
+		}
+		lastTime = persistor.getRecord(Long.valueOf(lastIndex)).getValue(Fields.TIME).getLong();
+
+		// States are calculated one to one with the price, the last states index is the last price index used.
+		seedSize = 1;
+		for (Average average : states.getAverages()) {
+			int size = average.getPeriod();
+			for (int smooth : average.getSmooths()) {
+				size += smooth;
+			}
+			seedSize = Math.max(seedSize, size);
+		}
+		List<Data> bars = new ArrayList<>();
+		TickerDataContext context = TickerDataContext.acquire(states);
+		try {
+			PersistorDataList source = context.getDataListPrice();
+			for (int index = Math.max(0, lastIndex - seedSize + 1); index <= lastIndex; index++) {
+				bars.add(source.get(index));
+			}
+			seed(source.getDataInfo(), bars);
+		} finally {
+			context.release();
+		}
+	}
+
+	/**
+	 * Append the bars after the last states row, first those stored in the price table, then those of the server
+	 * history up to the last completed bar, so the stream starts with the states up to date and the previous states
+	 * row of the first bar received from the feed is the one of the bar just before it.
+	 *
+	 * @throws Exception If an error occurs reading the price or the server history, or inserting the rows.
+	 */
+	private void backfill() throws Exception {
+
+		// Bars stored in the price table after the last states row.
+		List<Data> bars = new ArrayList<>();
+		TickerDataContext context = TickerDataContext.acquire(states);
+		try {
+			PersistorDataList source = context.getDataListPrice();
+			for (int index = 0; index < source.size(); index++) {
+				Data bar = source.get(source.size() - 1 - index);
+				if (bar.getTime() <= lastTime) {
+					break;
+				}
+				bars.add(0, bar);
+			}
+		} finally {
+			context.release();
+		}
+		for (Data bar : bars) {
+			append(bar);
+		}
+
+		// Bars of the server history up to the last completed bar, the current one is still forming.
+		HistoryManager history = states.getServer().getHistoryManager();
+		long timeTo = history.getData(states.getInstrument(), states.getPeriod(), offerSide, 1).getTime();
+		if (timeTo <= lastTime) {
+			return;
+		}
+		List<Data> received =
+			history.getDataList(states.getInstrument(), states.getPeriod(), offerSide, filter, lastTime + 1, timeTo);
+		for (Data bar : received) {
+			if (bar.getTime() > lastTime && bar.getTime() <= timeTo) {
+				append(bar);
+			}
+		}
+	}
+
+	/**
+	 * Seed the in-memory price list with the bars, and build and calculate the states indicator over it.
+	 *
+	 * @param dataInfo The price data info.
+	 * @param bars The bars.
+	 */
+	private void seed(DataInfo dataInfo, List<Data> bars) {
+		price = new ListDataList(states.getSession(), dataInfo);
+		for (Data bar : bars) {
+			price.add(bar);
+		}
+		StatesIndicator indicator = new StatesIndicator(states, price);
+		indicatorList = indicator.getDataList();
+		sources = indicator.getIndicatorDataListsToCalculate();
+		for (int index = 0; index < price.size(); index++) {
+			calculate(index);
+		}
+	}
+
+	/**
+	 * Trim the price list to the last seed window when it has doubled it, so it does not grow while the stream runs.
+	 * The indicator lists are indexed like the price, so they are built again over the trimmed list, a cost amortized
+	 * over the seed size bars received since the last trim.
+	 */
+	private void trim() {
+		if (price.size() < 2 * seedSize) {
+			return;
+		}
+		List<Data> bars = new ArrayList<>();
+		for (int index = price.size() - seedSize; index < price.size(); index++) {
+			bars.add(price.get(index));
+		}
+		seed(price.getDataInfo(), bars);
+	}
+
+	/**
+	 * Calculate the sources and the states indicator at the index of the price list.
+	 *
+	 * @param index The index.
+	 * @return The states indicator data.
+	 */
+	private Data calculate(int index) {
+		for (IndicatorDataList source : sources) {
+			if (!source.hasCalculated(index)) {
+				source.calculate(index);
+			}
+		}
+		return indicatorList.calculate(index);
+	}
+
+	/**
+	 * Stop streaming. If the states had a snapshot and rows were appended, the snapshot is exported again.
+	 *
+	 * @throws ServerException If an error occurs unsubscribing from the feed.
+	 */
+	public void stop() throws ServerException {
+		synchronized (streams) {
+			if (streams.get(getKey(states)) != this) {
+				return;
+			}
+			streams.remove(getKey(states));
+			states.getServer().getFeedManager().removeFeedListener(this);
+		}
+		synchronized (this) {
+			if (snapshot && appended > 0) {
+				try {
+					states.exportSnapshotStates();
+				} catch (Exception exc) {
+					LOGGER.catching(exc);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies the completed data for the subscribed instruments. Bars not newer than the last states row are
+	 * discarded.
+	 *
+	 * @param dataEvent The data event.
+	 */
+	@Override
+	public void onData(DataEvent dataEvent) {
+		Data data = dataEvent.getData();
+		synchronized (this) {
+			if (data.getTime() <= lastTime) {
+				return;
+			}
+			try {
+				append(data);
+			} catch (Exception exc) {
+				LOGGER.catching(exc);
+			}
+		}
+	}
+
+	/**
+	 * Append the bar: calculate the states indicator, the raw and normalized values, insert the row and notify the
+	 * data lists.
+	 *
+	 * @param bar The completed bar.
+	 * @throws PersistorException If an error occurs inserting the row.
+	 */
+	private void append(Data bar) throws PersistorException {
+		trim();
+		price.add(bar);
+		int index = price.size() - 1;
+		Data data = calculate(index);
+		Data previous = indicatorList.get(index - 1);
+
+		Record record = persistor.getDefaultRecord();
+		calculator.calculate(record, data, previous);
+		calculator.normalize(record, normalizers);
+		persistor.insert(record);
+		lastTime = bar.getTime();
+		appended++;
+
+		// Notify in the event dispatch thread, where charts read the data lists.
+		List<PersistorDataList> notify = getDataLists(states);
+		if (!notify.isEmpty()) {
+			SwingUtils.invokeLater(new NotifyAppended(notify, record));
+		}
+	}
+
+	/**
+	 * Runnable to invoke later notifying the data lists a row appended.
+	 */
+	class NotifyAppended implements Runnable {
+		private List<PersistorDataList> dataLists;
+		private Record record;
+
+		NotifyAppended(List<PersistorDataList> dataLists, Record record) {
+			this.dataLists = dataLists;
+			this.record = record;
+		}
+
+		@Override
+		public void run() {
+			for (PersistorDataList dataList : dataLists) {
+				dataList.appended(record);
+			}
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.platform.statistics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.qtplaf.library.app.Session;
+import com.qtplaf.library.database.Persistor;
+import com.qtplaf.library.database.Record;
+import com.qtplaf.library.trading.data.Data;
+import com.qtplaf.library.trading.data.DataList;
+import com.qtplaf.library.trading.data.IndicatorDataList;
+import com.qtplaf.library.trading.data.IndicatorUtils;
+import com.qtplaf.library.trading.data.Instrument;
+import com.qtplaf.library.trading.data.Period;
+import com.qtplaf.library.trading.data.PersistorDataList;
+import com.qtplaf.library.trading.data.info.DataInfo;
+import com.qtplaf.library.trading.data.info.PriceInfo;
+import com.qtplaf.library.trading.server.Server;
+import com.qtplaf.platform.database.Fields;
+import com.qtplaf.platform.util.PersistorUtils;
+import com.qtplaf.platform.util.RecordUtils;
+
+/**
+ * A per ticker (server, instrument, period) data context, that builds the price and average data lists once and shares
+ * them among all the configurations and tasks that work on the same ticker. Contexts are registered while acquired,
+ * and released when no task needs them anymore.
+ *
+ * @author Miquel Sas
+ */
+public class TickerDataContext {
+
+	/** Registered contexts keyed by ticker. */
+	private static final Map<String, TickerDataContext> contexts = new HashMap<>();
+
+	/**
+	 * Returns the ticker key.
+	 *
+	 * @param server The server.
+	 * @param instrument The instrument.
+	 * @param period The period.
+	 * @return The key.
+	 */
+	private static String getKey(Server server, Instrument instrument, Period period) {
+		return server.getId() + "-" + instrument.getId() + "-" + period.getId();
+	}
+
+	/**
+	 * Returns the registered context for the ticker of the statistics, registering a new one if necessary.
+	 *
+	 * @param statistics The ticker statistics.
+	 * @return The context.
+	 */
+	private static TickerDataContext getContext(TickerStatistics statistics) {
+		synchronized (contexts) {
+			Server server = statistics.getServer();
+			Instrument instrument = statistics.getInstrument();
+			Period period = statistics.getPeriod();
+			String key = getKey(server, instrument, period);
+			TickerDataContext context = contexts.get(key);
+			if (context == null) {
+				context = new TickerDataContext(statistics.getSession(), server, instrument, period);
+				contexts.put(key, context);
+			}
+			return context;
+		}
+	}
+
+	/**
+	 * Acquire the context for the ticker of the statistics, keeping its data lists resident until released.
+	 *
+	 * @param statistics The ticker statistics.
+	 * @return The context.
+	 */
+	public static TickerDataContext acquire(TickerStatistics statistics) {
+		synchronized (contexts) {
+			TickerDataContext context = getContext(statistics);
+			context.references++;
+			return context;
+		}
+	}
+
+	/**
+	 * Returns the context acquired for the ticker of the statistics if any, or a new context that is not registered,
+	 * so users that do not acquire and release, like indicators, share the data lists of a running task without
+	 * keeping them resident once the task ends.
+	 *
+	 * @param statistics The ticker statistics.
+	 * @return The context.
+	 */
+	public static TickerDataContext lookup(TickerStatistics statistics) {
+		synchronized (contexts) {
+			Server server = statistics.getServer();
+			Instrument instrument = statistics.getInstrument();
+			Period period = statistics.getPeriod();
+			TickerDataContext context = contexts.get(getKey(server, instrument, period));
+			if (context == null) {
+				context = new TickerDataContext(statistics.getSession(), server, instrument, period);
+			}
+			return context;
+		}
+	}
+
+	/** Working session. */
+	private Session session;
+	/** Server. */
+	private Server server;
+	/** Instrument. */
+	private Instrument instrument;
+	/** Period. */
+	private Period period;
+	/** Number of acquired references. */
+	private int references = 0;
+	/** Price data list. */
+	private PersistorDataList price;
+	/** Average data lists. */
+	private Map<Average, IndicatorDataList> averages = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param session Working session.
+	 * @param server Server.
+	 * @param instrument Instrument.
+	 * @param period Period.
+	 */
+	private TickerDataContext(Session session, Server server, Instrument instrument, Period period) {
+		super();
+		this.session = session;
+		this.server = server;
+		this.instrument = instrument;
+		this.period = period;
+	}
+
+	/**
+	 * Release a reference acquired. When there are no more references, the context is unregistered and its data
+	 * lists discarded.
+	 */
+	public void release() {
+		synchronized (contexts) {
+			references--;
+			if (references <= 0) {
+				references = 0;
+				contexts.remove(getKey(server, instrument, period));
+				synchronized (this) {
+					price = null;
+					averages.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the price data list, built once.
+	 *
+	 * @return The price data list.
+	 * @throws Exception If any error occurs accessing the database.
+	 */
+	public synchronized PersistorDataList getDataListPrice() throws Exception {
+		if (price == null) {
+			Record record = RecordUtils.getRecordTicker(session, server, instrument, period);
+			String tableName = record.getValue(Fields.TABLE_NAME).getString();
+			DataInfo infoPrice = new PriceInfo(session, instrument, period);
+			Persistor persistor = PersistorUtils.getPersistorDataPrice(session, server, instrument, tableName);
+			price = new PersistorDataList(session, infoPrice, persistor);
+		}
+		return price;
+	}
+
+	/**
+	 * Returns the data list for the given average, built once for each distinct average.
+	 *
+	 * @param average The average.
+	 * @return The average data list.
+	 * @throws Exception If any error occurs accessing the database.
+	 */
+	public synchronized IndicatorDataList getDataListAverage(Average average) throws Exception {
+		IndicatorDataList dataList = averages.get(average);
+		if (dataList == null) {
+			dataList = getDataListAverage(getDataListPrice(), average);
+			averages.put(average, dataList);
+		}
+		return dataList;
+	}
+
+	/**
+	 * Returns a new data list for the given average calculated over the close of the price data list.
+	 *
+	 * @param price The price data list.
+	 * @param average The average.
+	 * @return The average data list.
+	 */
+	public static IndicatorDataList getDataListAverage(DataList price, Average average) {
+		if (average.getType().equals(Average.Type.WMA)) {
+			return IndicatorUtils.getSmoothedWeightedMovingAverage(
+				price,
+				Data.CLOSE,
+				average.getPeriod(),
+				average.getSmooths());
+		}
+		return IndicatorUtils.getSmoothedSimpleMovingAverage(
+			price,
+			Data.CLOSE,
+			average.getPeriod(),
+			average.getSmooths());
+	}
+}
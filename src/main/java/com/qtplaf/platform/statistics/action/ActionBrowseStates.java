@@ -48,7 +48,7 @@ public class ActionBrowseStates extends ActionBrowse {
 	@Override
 	public RecordSet getRecordSet() {
 		States states = (States) getStatistics();
-		DataPersistor persistor = new DataPersistor(states.getTableStates().getPersistor());
+		DataPersistor persistor = new DataPersistor(states.getPersistorStates());
 		return new DataRecordSet(persistor);
 	}
 
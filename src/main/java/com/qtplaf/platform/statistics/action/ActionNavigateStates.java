@@ -66,7 +66,7 @@ public class ActionNavigateStates extends ActionNavigate {
 	 */
 	@Override
 	public RecordSet getRecordSet() {
-		DataPersistor persistor = new DataPersistor(getStates().getTableStates().getPersistor());
+		DataPersistor persistor = new DataPersistor(getStates().getPersistorStates());
 		return new DataRecordSet(persistor);
 	}
 
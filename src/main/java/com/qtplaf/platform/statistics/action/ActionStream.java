@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ * 
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.platform.statistics.action;
+
+import java.awt.event.ActionEvent;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.qtplaf.library.swing.MessageBox;
+import com.qtplaf.platform.statistics.States;
+import com.qtplaf.platform.statistics.StatesStream;
+
+/**
+ * Start streaming the states live, or stop the running stream.
+ *
+ * @author Miquel Sas
+ */
+public class ActionStream extends ActionTickerStatistics {
+
+	/** Logger instance. */
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	/**
+	 * Runnable to launch it in a thread, seeding and backfilling may take a while.
+	 */
+	class RunAction implements Runnable {
+		@Override
+		public void run() {
+			States states = (States) getStatistics();
+			try {
+				StatesStream stream = StatesStream.getStream(states);
+				if (stream != null) {
+					stream.stop();
+				} else {
+					StatesStream.start(states);
+				}
+			} catch (Exception exc) {
+				LOGGER.catching(exc);
+				MessageBox.error(getSession(), exc.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param states The source states.
+	 */
+	public ActionStream(States states) {
+		super(states);
+	}
+
+	/**
+	 * Perform the action.
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		new Thread(new RunAction()).start();
+	}
+}
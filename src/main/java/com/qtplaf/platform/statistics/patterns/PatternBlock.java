@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.platform.statistics.patterns;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.qtplaf.library.trading.data.Data;
+import com.qtplaf.library.trading.data.info.DataInfo;
+import com.qtplaf.library.trading.data.info.OutputInfo;
+import com.qtplaf.library.util.NumberUtils;
+
+/**
+ * A block of consecutive source rows in primitive columns, to extract the inputs of all the patterns of the block in
+ * one pass. The first <i>lookBackward - 1</i> rows are only look backward rows, and each subsequent row is the current
+ * row of a pattern. Derived candle quantities (body, range, body center) are calculated once per row and shared by
+ * the inputs.
+ *
+ * @author Miquel Sas
+ */
+public class PatternBlock {
+
+	/**
+	 * Returns a block built from the list of consecutive datas.
+	 *
+	 * @param datas The list of datas in ascending order.
+	 * @param lookBackward The look backward of the patterns.
+	 * @param dataInfo The data info of the datas.
+	 * @return The block.
+	 */
+	public static PatternBlock getBlock(List<Data> datas, int lookBackward, DataInfo dataInfo) {
+		int size = datas.size();
+		Map<String, double[]> columns = new HashMap<>();
+		for (int i = 0; i < dataInfo.getOutputCount(); i++) {
+			OutputInfo output = dataInfo.getOutput(i);
+			double[] values = new double[size];
+			for (int row = 0; row < size; row++) {
+				values[row] = datas.get(row).getValue(output.getIndex());
+			}
+			columns.put(output.getName(), values);
+		}
+		double[][] ohlc = new double[4][size];
+		for (int row = 0; row < size; row++) {
+			Data data = datas.get(row);
+			ohlc[0][row] = Data.getOpen(data);
+			ohlc[1][row] = Data.getHigh(data);
+			ohlc[2][row] = Data.getLow(data);
+			ohlc[3][row] = Data.getClose(data);
+		}
+		PatternBlock block = new PatternBlock(lookBackward, dataInfo, ohlc[0], ohlc[1], ohlc[2], ohlc[3]);
+		block.columns.putAll(columns);
+		return block;
+	}
+
+	/** Look backward. */
+	private int lookBackward;
+	/** Data info of the source rows. */
+	private DataInfo dataInfo;
+	/** Number of source rows. */
+	private int size;
+	/** Open values. */
+	private double[] open;
+	/** High values. */
+	private double[] high;
+	/** Low values. */
+	private double[] low;
+	/** Close values. */
+	private double[] close;
+	/** Bodies, absolute close minus open. */
+	private double[] body;
+	/** Ranges, high minus low. */
+	private double[] range;
+	/** Body centers, the average of open and close. */
+	private double[] bodyCenter;
+	/** Other columns by data output name. */
+	private Map<String, double[]> columns = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param lookBackward The look backward of the patterns.
+	 * @param dataInfo The data info of the source rows.
+	 * @param open Open values.
+	 * @param high High values.
+	 * @param low Low values.
+	 * @param close Close values.
+	 */
+	public PatternBlock(
+		int lookBackward,
+		DataInfo dataInfo,
+		double[] open,
+		double[] high,
+		double[] low,
+		double[] close) {
+		super();
+		this.lookBackward = lookBackward;
+		this.dataInfo = dataInfo;
+		this.size = open.length;
+		this.open = open;
+		this.high = high;
+		this.low = low;
+		this.close = close;
+		this.body = new double[size];
+		this.range = new double[size];
+		this.bodyCenter = new double[size];
+		for (int row = 0; row < size; row++) {
+			body[row] = Math.abs(close[row] - open[row]);
+			range[row] = high[row] - low[row];
+			bodyCenter[row] = (open[row] + close[row]) / 2;
+		}
+	}
+
+	/**
+	 * Set a column of values, that must have the same size than the block.
+	 *
+	 * @param name The data output name.
+	 * @param values The values.
+	 */
+	public void setColumn(String name, double[] values) {
+		columns.put(name, values);
+	}
+
+	/**
+	 * Returns the column of values of the data output.
+	 *
+	 * @param name The data output name.
+	 * @return The values.
+	 */
+	public double[] getColumn(String name) {
+		double[] values = columns.get(name);
+		if (values == null) {
+			throw new IllegalArgumentException("Column not available: " + name);
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the number of patterns of the block.
+	 *
+	 * @return The number of patterns.
+	 */
+	public int getPatternCount() {
+		return Math.max(0, size - lookBackward + 1);
+	}
+
+	/**
+	 * Returns the source row of the candle of the pattern. Candles are indexed like the list of datas passed to
+	 * {@link PatternInput#getInput(List)}: the current first and then the previous in ascending order.
+	 *
+	 * @param pattern The pattern.
+	 * @param candle The candle index.
+	 * @return The source row.
+	 */
+	public int getRow(int pattern, int candle) {
+		if (candle == 0) {
+			return pattern + lookBackward - 1;
+		}
+		return pattern + candle - 1;
+	}
+
+	/**
+	 * Returns the list of datas of the pattern, for inputs that are not calculated on columns.
+	 *
+	 * @param pattern The pattern.
+	 * @return The list of datas.
+	 */
+	public List<Data> getDatas(int pattern) {
+		List<Data> datas = new ArrayList<>(lookBackward);
+		for (int candle = 0; candle < lookBackward; candle++) {
+			datas.add(getData(getRow(pattern, candle)));
+		}
+		return datas;
+	}
+
+	/**
+	 * Returns the data of a source row, built from the columns.
+	 *
+	 * @param row The source row.
+	 * @return The data.
+	 */
+	private Data getData(int row) {
+		double[] values = new double[Math.max(4, dataInfo.getOutputCount())];
+		for (int i = 0; i < dataInfo.getOutputCount(); i++) {
+			OutputInfo output = dataInfo.getOutput(i);
+			double[] column = columns.get(output.getName());
+			if (column != null) {
+				values[output.getIndex()] = column[row];
+			}
+		}
+		values[Data.OPEN] = open[row];
+		values[Data.HIGH] = high[row];
+		values[Data.LOW] = low[row];
+		values[Data.CLOSE] = close[row];
+		Data data = new Data();
+		data.setValues(values);
+		return data;
+	}
+
+	/**
+	 * Returns the open value.
+	 *
+	 * @param row The source row.
+	 * @return The open value.
+	 */
+	public double getOpen(int row) {
+		return open[row];
+	}
+
+	/**
+	 * Returns the close value.
+	 *
+	 * @param row The source row.
+	 * @return The close value.
+	 */
+	public double getClose(int row) {
+		return close[row];
+	}
+
+	/**
+	 * Returns the body factor, body vs range.
+	 *
+	 * @param row The source row.
+	 * @return The body factor.
+	 */
+	public double getBodyFactor(int row) {
+		return Math.min(1.0, NumberUtils.zeroDiv(body[row], range[row]));
+	}
+
+	/**
+	 * Returns the body center factor, position of the body center within the range.
+	 *
+	 * @param row The source row.
+	 * @return The body center factor.
+	 */
+	public double getBodyCenterFactor(int row) {
+		return NumberUtils.zeroDiv(bodyCenter[row] - low[row], range[row]);
+	}
+}
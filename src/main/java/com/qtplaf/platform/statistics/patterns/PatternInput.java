@@ -54,4 +54,19 @@ public abstract class PatternInput {
 	 * @return The input value.
 	 */
 	public abstract double getInput(List<Data> datas);
+
+	/**
+	 * Calculate the input for all the patterns of the block, writing it into the column of the inputs matrix. This
+	 * default implementation calls {@link #getInput(List)} per pattern, inputs that can be calculated on the columns
+	 * of the block should override it.
+	 * 
+	 * @param block The block of source rows.
+	 * @param inputs The inputs matrix, one row per pattern of the block.
+	 * @param column The column of this input in the matrix.
+	 */
+	public void getInputs(PatternBlock block, double[][] inputs, int column) {
+		for (int pattern = 0; pattern < block.getPatternCount(); pattern++) {
+			inputs[pattern][column] = getInput(block.getDatas(pattern));
+		}
+	}
 }
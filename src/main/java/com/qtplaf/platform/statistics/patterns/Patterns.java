@@ -42,6 +42,8 @@ public class Patterns {
 	private static final int INPUT_FUNCTION = 2;
 	/** Pattern record property. */
 	private static final int PATTERN_RECORD = 3;
+	/** Pattern index property. */
+	private static final int PATTERN_INDEX = 4;
 
 	/**
 	 * Returns the data info stored in the pattern info.
@@ -123,6 +125,26 @@ public class Patterns {
 		pattern.getProperties().setObject(PATTERN_RECORD, record);
 	}
 
+	/**
+	 * Returns the index (primary key) of the source record stored in the pattern.
+	 * 
+	 * @param pattern The pattern.
+	 * @return The index of the source record.
+	 */
+	public static long getPatternIndex(Pattern pattern) {
+		return (Long) pattern.getProperties().getObject(PATTERN_INDEX);
+	}
+
+	/**
+	 * Set the index (primary key) of the source record.
+	 * 
+	 * @param pattern The pattern.
+	 * @param index The index of the source record.
+	 */
+	public static void setPatternIndex(Pattern pattern, long index) {
+		pattern.getProperties().setObject(PATTERN_INDEX, index);
+	}
+
 	/**
 	 * Pattern informaction for a single/multiple candle patterns.
 	 * <p>
@@ -213,6 +235,22 @@ public class Patterns {
 		}
 	}
 
+	/**
+	 * Extract the inputs of all the patterns of the block in one pass per input, into a matrix with one row per
+	 * pattern and one column per input of the pattern info.
+	 * 
+	 * @param patternInfo The pattern info.
+	 * @param block The block of source rows.
+	 * @return The inputs matrix.
+	 */
+	public static double[][] getInputs(PatternInfo patternInfo, PatternBlock block) {
+		double[][] inputs = new double[block.getPatternCount()][patternInfo.getInputCount()];
+		for (int i = 0; i < patternInfo.getInputCount(); i++) {
+			getPatternInput(patternInfo.getInput(i)).getInputs(block, inputs, i);
+		}
+		return inputs;
+	}
+
 	/**
 	 * Returns the pattern.
 	 * 
@@ -15,30 +15,80 @@
 package com.qtplaf.platform.statistics.patterns;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.qtplaf.library.ai.data.DefaultPattern;
 import com.qtplaf.library.ai.data.Pattern;
 import com.qtplaf.library.ai.data.PatternSource;
 import com.qtplaf.library.ai.data.info.PatternInfo;
 import com.qtplaf.library.database.Criteria;
+import com.qtplaf.library.database.Order;
 import com.qtplaf.library.database.Persistor;
+import com.qtplaf.library.database.PersistorException;
 import com.qtplaf.library.database.Record;
-import com.qtplaf.library.database.Value;
-import com.qtplaf.library.util.map.CacheMap;
+import com.qtplaf.library.database.RecordIterator;
+import com.qtplaf.platform.database.Fields;
 
 /**
  * Source of patterns from a table (created with a pattern info). The primary key of the persistor must be the index.
+ * <p>
+ * The source holds a sample of the table in memory, with inputs and outputs as primitive matrices. The sample is
+ * loaded in bulk with a single scan of the table ordered by index, that skips the rows not sampled.
  *
  * @author Miquel Sas
  */
 public class TablePatternSource extends PatternSource {
 
+	/**
+	 * A batch or partition of the parent source, a range of consecutive patterns.
+	 */
+	class Batch extends PatternSource {
+
+		/** Start index, inclusive. */
+		private int start;
+		/** End index, exclusive. */
+		private int end;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param start Start index, inclusive.
+		 * @param end End index, exclusive.
+		 */
+		Batch(int start, int end) {
+			super();
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public Pattern get(int index) {
+			return TablePatternSource.this.get(start + index);
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size() == 0;
+		}
+
+		@Override
+		public List<PatternSource> getBatches() {
+			List<PatternSource> batches = new ArrayList<>();
+			batches.add(this);
+			return batches;
+		}
+	}
+
 	/** Logger instance. */
 	private static final Logger LOGGER = LogManager.getLogger();
 
@@ -46,10 +96,12 @@ public class TablePatternSource extends PatternSource {
 	private PatternInfo patternInfo;
 	/** Underlying persistor. */
 	private Persistor persistor;
-	/** A map to cache retrieved records by relative index. */
-	private CacheMap<Integer, Record> map = new CacheMap<>();
-	/** Mapping of pattern source indexes to persistor indexes. */
-	private List<Integer> indexes = new ArrayList<>();
+	/** Matrix of inputs, one row per pattern. */
+	private double[][] inputs = new double[0][];
+	/** Matrix of outputs, one row per pattern. */
+	private double[][] outputs = new double[0][];
+	/** Patterns that share the rows of the input and output matrices. */
+	private Pattern[] patterns = new Pattern[0];
 
 	/**
 	 * Constructor.
@@ -82,12 +134,21 @@ public class TablePatternSource extends PatternSource {
 	}
 
 	/**
-	 * Set the cache size.
+	 * Returns the matrix of inputs, one row per pattern. Rows are shared with the patterns.
 	 * 
-	 * @param cacheSize The cache size.
+	 * @return The matrix of inputs.
 	 */
-	public void setCacheSize(int cacheSize) {
-		map.setCacheSize(cacheSize);
+	public double[][] getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * Returns the matrix of outputs, one row per pattern. Rows are shared with the patterns.
+	 * 
+	 * @return The matrix of outputs.
+	 */
+	public double[][] getOutputs() {
+		return outputs;
 	}
 
 	/**
@@ -98,13 +159,7 @@ public class TablePatternSource extends PatternSource {
 	 */
 	@Override
 	public Pattern get(int index) {
-		int persistorIndex = indexes.get(index);
-		Record record = map.get(persistorIndex);
-		if (record == null) {
-			record = getRecord(persistorIndex);
-			map.put(persistorIndex, record);
-		}
-		return Patterns.getPattern(patternInfo, record);
+		return patterns[index];
 	}
 
 	/**
@@ -114,7 +169,7 @@ public class TablePatternSource extends PatternSource {
 	 */
 	@Override
 	public int size() {
-		return indexes.size();
+		return patterns.length;
 	}
 
 	/**
@@ -124,33 +179,40 @@ public class TablePatternSource extends PatternSource {
 	 */
 	@Override
 	public boolean isEmpty() {
-		return false;
+		return size() == 0;
 	}
 
 	/**
-	 * Returns a list of size pattern batches used to process patterns concurrently.
+	 * Returns a list of balanced pattern batches, one per available processor, used to process patterns concurrently.
 	 * 
-	 * @param size The number of pattern batches.
+	 * @return The list of sub-pattern sources.
 	 */
 	@Override
 	public List<PatternSource> getBatches() {
-		return null;
+		return getBatches(Runtime.getRuntime().availableProcessors());
 	}
 
 	/**
-	 * Returns the record at the given index from the underlying persistor.
+	 * Returns a list of balanced pattern batches, whose sizes differ at most by one.
 	 * 
-	 * @param index The record index.
-	 * @return The record.
+	 * @param count The number of batches.
+	 * @return The list of sub-pattern sources.
 	 */
-	private Record getRecord(int index) {
-		Record record = null;
-		try {
-			record = persistor.getRecord(new Value(index));
-		} catch (Exception exc) {
-			LOGGER.catching(exc);
+	public List<PatternSource> getBatches(int count) {
+		List<PatternSource> batches = new ArrayList<>();
+		int size = size();
+		if (count > size) {
+			count = Math.max(size, 1);
+		}
+		int batchSize = size / count;
+		int remainder = size % count;
+		int start = 0;
+		for (int i = 0; i < count; i++) {
+			int end = start + batchSize + (i < remainder ? 1 : 0);
+			batches.add(new Batch(start, end));
+			start = end;
 		}
-		return record;
+		return batches;
 	}
 
 	/**
@@ -169,7 +231,8 @@ public class TablePatternSource extends PatternSource {
 	}
 
 	/**
-	 * Fill the list of indexes to retrieve randomly within the persistor.
+	 * Fill the source with a random sample of the persistor records. The sampled positions are sorted and the records
+	 * loaded with a single scan ordered by index, and then the patterns are shuffled.
 	 * 
 	 * @param size The size to fill.
 	 */
@@ -178,15 +241,165 @@ public class TablePatternSource extends PatternSource {
 		if (size > count) {
 			size = count;
 		}
+		if (size < 0) {
+			size = 0;
+		}
+
+		// Sampled positions, sorted.
 		Random random = new Random();
-		Map<Integer, Integer> mapIndexes = new HashMap<>();
-		indexes.clear();
-		while (indexes.size() < size) {
-			int index = random.nextInt(count);
-			if (!mapIndexes.containsKey(index)) {
-				mapIndexes.put(index, index);
-				indexes.add(index);
+		boolean[] sampled = new boolean[Math.max(count, 0)];
+		int[] positions = new int[size];
+		int filled = 0;
+		while (filled < size) {
+			int position = random.nextInt(count);
+			if (!sampled[position]) {
+				sampled[position] = true;
+				positions[filled++] = position;
+			}
+		}
+		Arrays.sort(positions);
+
+		load(positions);
+		shuffle(random);
+	}
+
+	/**
+	 * Load the records at the given sorted positions, scanning the persistor ordered by index. The records are loaded
+	 * into new arrays that replace the current ones only if the scan succeeds, so a failure leaves the source as it was.
+	 * If the table has less records than expected, the arrays are truncated to the records read.
+	 * 
+	 * @param positions The sorted list of positions.
+	 */
+	private void load(int[] positions) {
+
+		int inputCount = patternInfo.getInputCount();
+		int outputCount = patternInfo.getOutputCount();
+		double[][] inputs = new double[positions.length][inputCount];
+		double[][] outputs = new double[positions.length][outputCount];
+		Pattern[] patterns = new Pattern[positions.length];
+
+		// Field indexes.
+		int[] inputIndexes = new int[inputCount];
+		for (int i = 0; i < inputCount; i++) {
+			inputIndexes[i] = persistor.getFieldIndex(patternInfo.getInput(i).getId());
+		}
+		int[] outputIndexes = new int[outputCount];
+		for (int i = 0; i < outputCount; i++) {
+			outputIndexes[i] = persistor.getFieldIndex(patternInfo.getOutput(i).getId());
+		}
+		int indexIndex = persistor.getFieldIndex(Fields.INDEX);
+		int labelIndex = persistor.getFieldIndex(Fields.LABEL);
+
+		if (positions.length == 0) {
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.patterns = patterns;
+			return;
+		}
+
+		Order order = new Order();
+		order.add(persistor.getField(Fields.INDEX));
+
+		RecordIterator iterator = null;
+		try {
+			iterator = persistor.iterator(new Criteria(), order);
+			int position = 0;
+			int row = 0;
+			while (iterator.hasNext() && row < positions.length) {
+				Record record = iterator.next();
+				if (position++ != positions[row]) {
+					continue;
+				}
+				for (int i = 0; i < inputCount; i++) {
+					inputs[row][i] = record.getValue(inputIndexes[i]).getDouble();
+				}
+				for (int i = 0; i < outputCount; i++) {
+					outputs[row][i] = record.getValue(outputIndexes[i]).getDouble();
+				}
+				DefaultPattern pattern = new DefaultPattern();
+				pattern.setInputs(inputs[row]);
+				pattern.setOutputs(outputs[row]);
+				pattern.setLabel(record.getValue(labelIndex).getString());
+				Patterns.setPatternIndex(pattern, record.getValue(indexIndex).getLong());
+				patterns[row] = pattern;
+				row++;
+			}
+			this.inputs = Arrays.copyOf(inputs, row);
+			this.outputs = Arrays.copyOf(outputs, row);
+			this.patterns = Arrays.copyOf(patterns, row);
+		} catch (Exception exc) {
+			LOGGER.catching(exc);
+		} finally {
+			if (iterator != null) {
+				try {
+					iterator.close();
+				} catch (Exception exc) {
+					LOGGER.catching(exc);
+				}
 			}
 		}
 	}
+
+	/**
+	 * Returns an iterator over all the records ordered by index, to stream the table in batches with
+	 * <code>readBatch</code> when it does not fit in memory.
+	 * 
+	 * @return The record iterator.
+	 * @throws PersistorException If a persistor error occurs.
+	 */
+	public RecordIterator iterator() throws PersistorException {
+		Order order = new Order();
+		order.add(persistor.getField(Fields.INDEX));
+		return persistor.iterator(new Criteria(), order);
+	}
+
+	/**
+	 * Read the next batch of records of the iterator, up to the number of rows of the inputs.
+	 * 
+	 * @param iterator The iterator.
+	 * @param inputs The rows of inputs to fill.
+	 * @param indexes The pattern indexes to fill.
+	 * @param clusters The cluster numbers to fill.
+	 * @return The number of rows read, zero at the end of the iterator.
+	 */
+	public int readBatch(RecordIterator iterator, double[][] inputs, long[] indexes, int[] clusters) {
+		int inputCount = patternInfo.getInputCount();
+		int[] inputIndexes = new int[inputCount];
+		for (int i = 0; i < inputCount; i++) {
+			inputIndexes[i] = persistor.getFieldIndex(patternInfo.getInput(i).getId());
+		}
+		int indexIndex = persistor.getFieldIndex(Fields.INDEX);
+		int clusterIndex = persistor.getFieldIndex(Fields.CLUSTER);
+		int row = 0;
+		while (row < inputs.length && iterator.hasNext()) {
+			Record record = iterator.next();
+			for (int i = 0; i < inputCount; i++) {
+				inputs[row][i] = record.getValue(inputIndexes[i]).getDouble();
+			}
+			indexes[row] = record.getValue(indexIndex).getLong();
+			clusters[row] = record.getValue(clusterIndex).getInteger();
+			row++;
+		}
+		return row;
+	}
+
+	/**
+	 * Shuffle the rows of the matrices and the patterns.
+	 * 
+	 * @param random The random generator.
+	 */
+	private void shuffle(Random random) {
+		for (int i = patterns.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			double[] input = inputs[i];
+			inputs[i] = inputs[j];
+			inputs[j] = input;
+			double[] output = outputs[i];
+			outputs[i] = outputs[j];
+			outputs[j] = output;
+			Pattern pattern = patterns[i];
+			patterns[i] = patterns[j];
+			patterns[j] = pattern;
+		}
+	}
 }
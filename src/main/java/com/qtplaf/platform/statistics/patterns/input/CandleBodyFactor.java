@@ -19,6 +19,7 @@ import java.util.List;
 import com.qtplaf.library.ai.data.info.PatternInfo;
 import com.qtplaf.library.ai.function.normalize.StdNormalizer;
 import com.qtplaf.library.trading.data.Data;
+import com.qtplaf.platform.statistics.patterns.PatternBlock;
 
 /**
  * Range factor candle input.
@@ -50,4 +51,20 @@ public class CandleBodyFactor extends Candle {
 		return getNormalizer().normalize(getBodyFactor(data));
 	}
 
+	/**
+	 * Calculate the input for all the patterns of the block.
+	 * 
+	 * @param block The block of source rows.
+	 * @param inputs The inputs matrix, one row per pattern of the block.
+	 * @param column The column of this input in the matrix.
+	 */
+	@Override
+	public void getInputs(PatternBlock block, double[][] inputs, int column) {
+		StdNormalizer normalizer = getNormalizer();
+		for (int pattern = 0; pattern < block.getPatternCount(); pattern++) {
+			int row = block.getRow(pattern, getIndex());
+			inputs[pattern][column] = normalizer.normalize(block.getBodyFactor(row));
+		}
+	}
+
 }
@@ -18,6 +18,7 @@ import java.util.List;
 
 import com.qtplaf.library.ai.data.info.PatternInfo;
 import com.qtplaf.library.trading.data.Data;
+import com.qtplaf.platform.statistics.patterns.PatternBlock;
 
 /**
  * Bullish-Bearish candle input.
@@ -54,4 +55,21 @@ public class CandleBullishBearish extends Candle {
 		return 0;
 	}
 
+	/**
+	 * Calculate the input for all the patterns of the block.
+	 * 
+	 * @param block The block of source rows.
+	 * @param inputs The inputs matrix, one row per pattern of the block.
+	 * @param column The column of this input in the matrix.
+	 */
+	@Override
+	public void getInputs(PatternBlock block, double[][] inputs, int column) {
+		for (int pattern = 0; pattern < block.getPatternCount(); pattern++) {
+			int row = block.getRow(pattern, getIndex());
+			double open = block.getOpen(row);
+			double close = block.getClose(row);
+			inputs[pattern][column] = (close > open ? 0.1 : (close < open ? -0.1 : 0));
+		}
+	}
+
 }
@@ -20,6 +20,7 @@ import com.qtplaf.library.ai.data.info.PatternInfo;
 import com.qtplaf.library.trading.data.Data;
 import com.qtplaf.library.trading.data.info.DataInfo;
 import com.qtplaf.platform.database.Fields;
+import com.qtplaf.platform.statistics.patterns.PatternBlock;
 import com.qtplaf.platform.statistics.patterns.Patterns;
 
 /**
@@ -55,4 +56,19 @@ public class CandleCenterDiff extends Candle {
 		return center_diff;
 	}
 
+	/**
+	 * Calculate the input for all the patterns of the block.
+	 * 
+	 * @param block The block of source rows.
+	 * @param inputs The inputs matrix, one row per pattern of the block.
+	 * @param column The column of this input in the matrix.
+	 */
+	@Override
+	public void getInputs(PatternBlock block, double[][] inputs, int column) {
+		double[] values = block.getColumn(Fields.suffix(Fields.CENTER_DIFF, Fields.Suffix.NRM));
+		for (int pattern = 0; pattern < block.getPatternCount(); pattern++) {
+			inputs[pattern][column] = values[block.getRow(pattern, getIndex())];
+		}
+	}
+
 }
@@ -14,19 +14,24 @@
 
 package com.qtplaf.platform.statistics.task;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import com.qtplaf.library.ai.data.Pattern;
 import com.qtplaf.library.ai.data.info.PatternInfo;
-import com.qtplaf.library.ai.function.Centroid;
-import com.qtplaf.library.ai.function.Distance;
-import com.qtplaf.library.ai.function.centroid.BasicCentroid;
-import com.qtplaf.library.ai.function.distance.EuclideanDistance;
 import com.qtplaf.library.ai.learning.LearningEvent;
 import com.qtplaf.library.ai.learning.LearningListener;
 import com.qtplaf.library.ai.learning.clustering.Cluster;
-import com.qtplaf.library.ai.learning.clustering.centroid.kmeans.KMeansClustering;
+import com.qtplaf.library.ai.learning.clustering.Clustering;
+import com.qtplaf.library.ai.learning.clustering.centroid.kmeans.HamerlyKMeansClustering;
+import com.qtplaf.library.database.Condition;
 import com.qtplaf.library.database.Criteria;
+import com.qtplaf.library.database.Field;
 import com.qtplaf.library.database.Persistor;
 import com.qtplaf.library.database.Record;
+import com.qtplaf.library.database.RecordIterator;
 import com.qtplaf.library.database.Value;
 import com.qtplaf.library.database.ValueMap;
 import com.qtplaf.platform.database.Fields;
@@ -46,6 +51,8 @@ public class TaskClusterKMeans extends TaskAverages {
 	private static final String K_LABEL = "kl";
 	/** Label to notify summary report. */
 	private static final String S_LABEL = "sl";
+	/** Number of cluster number updates sent in a batch. */
+	private static final int BATCH_SIZE = 1000;
 
 	/**
 	 * Clustering listener.
@@ -137,21 +144,18 @@ public class TaskClusterKMeans extends TaskAverages {
 	@Override
 	public void execute() throws Exception {
 
-		// Reset cluster numbers.
-		notifyLabel(S_LABEL, "Reset cluster numbers...");
-		resetClusterNumbers();
+		// Current cluster numbers, to update only the changes when saving.
+		notifyLabel(S_LABEL, "Reading cluster numbers...");
+		Map<Long, Integer> clusters = readClusterNumbers();
 
 		// Start initializing the source randomly
-		int cacheSize = 50000;
+		int sampleSize = 50000;
 		notifyLabel(S_LABEL, "Initializing source");
-		patternSource.setCacheSize(cacheSize);
-		patternSource.fillRandomly(cacheSize);
+		patternSource.fillRandomly(sampleSize);
 		notifyLabel(S_LABEL, "Clustering...");
 
 		int outputCount = patternSource.getPatternInfo().getOutputCount();
-		Distance distance = new EuclideanDistance();
-		Centroid centroid = new BasicCentroid();
-		KMeansClustering km = new KMeansClustering(outputCount, centroid, distance);
+		HamerlyKMeansClustering km = new HamerlyKMeansClustering(outputCount);
 		km.addListener(new Listener());
 		km.initializeClustering(patternSource);
 
@@ -180,43 +184,97 @@ public class TaskClusterKMeans extends TaskAverages {
 			notifyLabel(S_LABEL, b.toString());
 
 			if (changes == 0) {
-				saveClusterNumbers(km);
+				saveClusterNumbers(km, clusters);
 				break;
 			}
 		}
 	}
 
 	/**
-	 * Reset cluster numbers.
+	 * Read the cluster numbers currently stored, keyed by pattern index.
 	 * 
+	 * @return The map of index - cluster number.
 	 * @throws Exception If a db error occurs.
 	 */
-	private void resetClusterNumbers() throws Exception {
+	private Map<Long, Integer> readClusterNumbers() throws Exception {
 		Persistor persistor = patternSource.getPersistor();
-		ValueMap map = new ValueMap();
-		map.put(Fields.CLUSTER, new Value(0));
-		persistor.update(new Criteria(), map);
+		Map<Long, Integer> clusters = new HashMap<>();
+		RecordIterator iterator = null;
+		try {
+			iterator = persistor.iterator(new Criteria());
+			while (iterator.hasNext()) {
+				Record record = iterator.next();
+				long index = record.getValue(Fields.INDEX).getLong();
+				int cluster = record.getValue(Fields.CLUSTER).getInteger();
+				clusters.put(index, cluster);
+			}
+		} finally {
+			if (iterator != null) {
+				iterator.close();
+			}
+		}
+		return clusters;
 	}
 
 	/**
-	 * Save cluster numbers to later analyze the results.
+	 * Save cluster numbers to later analyze the results. Patterns not clustered are reset to zero. Only the rows which
+	 * cluster number changes are updated, in batches of <i>BATCH_SIZE</i> updates.
 	 * 
 	 * @param km The clustering algorithm.
+	 * @param clusters The map of index - cluster number currently stored.
 	 * @throws Exception If an error occurs.
 	 */
-	private void saveClusterNumbers(KMeansClustering km) throws Exception {
+	private void saveClusterNumbers(Clustering km, Map<Long, Integer> clusters) throws Exception {
 		notifyLabel(K_LABEL, "Saving cluster numbers... ");
-		Persistor persistor = patternSource.getPersistor();
+
+		// Target cluster numbers, zero for patterns not clustered.
+		Map<Long, Integer> targets = new HashMap<>();
+		for (Long index : clusters.keySet()) {
+			targets.put(index, 0);
+		}
 		for (int i = 0; i < km.getClusterCount(); i++) {
 			Cluster cluster = km.getCluster(i);
 			for (int j = 0; j < cluster.getPatternCount(); j++) {
-				notifyLabel(S_LABEL, "Cluster " + (i + 1) + " pattern " + (j + 1));
 				Pattern pattern = cluster.getPattern(j);
-				Record record = Patterns.getPatternRecord(pattern);
-				record.getValue(Fields.CLUSTER).setInteger(i + 1);
-				persistor.update(record);
+				targets.put(Patterns.getPatternIndex(pattern), i + 1);
 			}
 		}
+
+		// Changed pairs.
+		List<Long> indexes = new ArrayList<>();
+		for (Map.Entry<Long, Integer> entry : targets.entrySet()) {
+			Integer current = clusters.get(entry.getKey());
+			if (current == null || current.intValue() != entry.getValue().intValue()) {
+				indexes.add(entry.getKey());
+			}
+		}
+
+		// Batch updates.
+		Persistor persistor = patternSource.getPersistor();
+		Field fieldIndex = persistor.getField(Fields.INDEX);
+		List<Criteria> criterias = new ArrayList<>();
+		List<ValueMap> maps = new ArrayList<>();
+		int saved = 0;
+		for (Long index : indexes) {
+			Criteria criteria = new Criteria();
+			criteria.add(Condition.fieldEQ(fieldIndex, new Value(index)));
+			ValueMap map = new ValueMap();
+			map.put(Fields.CLUSTER, new Value(targets.get(index)));
+			criterias.add(criteria);
+			maps.add(map);
+			if (criterias.size() == BATCH_SIZE) {
+				persistor.update(criterias, maps);
+				saved += criterias.size();
+				criterias.clear();
+				maps.clear();
+				notifyLabel(S_LABEL, "Saved " + saved + " of " + indexes.size() + " cluster changes");
+			}
+		}
+		if (!criterias.isEmpty()) {
+			persistor.update(criterias, maps);
+			saved += criterias.size();
+		}
+		notifyLabel(S_LABEL, "Saved " + saved + " cluster changes");
 		clearAdditionalLabels();
 	}
 }
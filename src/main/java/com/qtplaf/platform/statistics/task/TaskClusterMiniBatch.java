@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2015 Miquel Sas
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.qtplaf.platform.statistics.task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.qtplaf.library.ai.data.info.PatternInfo;
+import com.qtplaf.library.ai.learning.clustering.centroid.kmeans.MiniBatchKMeans;
+import com.qtplaf.library.database.Condition;
+import com.qtplaf.library.database.Criteria;
+import com.qtplaf.library.database.Field;
+import com.qtplaf.library.database.Persistor;
+import com.qtplaf.library.database.RecordIterator;
+import com.qtplaf.library.database.Value;
+import com.qtplaf.library.database.ValueMap;
+import com.qtplaf.platform.database.Fields;
+import com.qtplaf.platform.statistics.States;
+import com.qtplaf.platform.statistics.patterns.TablePatternSource;
+
+/**
+ * Perform mini-batch KMeans clustering on all the patterns of the table, streamed in batches, and then register the
+ * suggested cluster with a final streaming pass. Memory use is bound to the batch size by the number of inputs.
+ *
+ * @author Miquel Sas
+ */
+public class TaskClusterMiniBatch extends TaskAverages {
+
+	/** Label to notify clustering messages. */
+	private static final String K_LABEL = "kl";
+	/** Label to notify summary report. */
+	private static final String S_LABEL = "sl";
+
+	/** Underlying states statistics. */
+	private States states;
+	/** Underlying table pattern source. */
+	private TablePatternSource patternSource;
+	/** Batch size. */
+	private int batchSize = 10000;
+	/** Maximum number of passes over the table. */
+	private int maxPasses = 10;
+	/** Maximum centroid shift of a pass to consider the centroids converged. */
+	private double tolerance = 1.0E-3;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param states Underlying states statistics.
+	 * @param patternSource Underlying table pattern source.
+	 */
+	public TaskClusterMiniBatch(States states, TablePatternSource patternSource) {
+		super(states.getSession());
+		this.states = states;
+		this.patternSource = patternSource;
+
+		PatternInfo info = patternSource.getPatternInfo();
+		setNameAndDescription(this.states, "KMeans-MiniBatch-" + info.getId(), info.getDescription());
+
+		addAdditionalLabel(K_LABEL);
+		addAdditionalLabel(S_LABEL);
+	}
+
+	/**
+	 * Set the batch size.
+	 *
+	 * @param batchSize The batch size.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the maximum number of passes over the table.
+	 *
+	 * @param maxPasses The maximum number of passes.
+	 */
+	public void setMaxPasses(int maxPasses) {
+		this.maxPasses = maxPasses;
+	}
+
+	/**
+	 * Set the maximum centroid shift of a pass to consider the centroids converged.
+	 *
+	 * @param tolerance The tolerance.
+	 */
+	public void setTolerance(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Returns a boolean indicating if the task supports counting steps through a call to <code>countSteps()</code>.
+	 * This task does not support counting steps.
+	 *
+	 * @return A boolean.
+	 */
+	@Override
+	public boolean isCountStepsSupported() {
+		return false;
+	}
+
+	/**
+	 * Returns a boolean indicating if the task is indeterminate, that is, the task can not count its number of steps.
+	 * This task is indeterminate.
+	 *
+	 * @return A boolean indicating if the task is indeterminate.
+	 */
+	@Override
+	public boolean isIndeterminate() {
+		return true;
+	}
+
+	/**
+	 * Count the steps.
+	 *
+	 * @return The number of steps.
+	 * @throws Exception If an unrecoverable error occurs during execution.
+	 */
+	@Override
+	public long countSteps() throws Exception {
+		notifyCounting();
+		long count = patternSource.getPersistor().count(new Criteria());
+		notifyStepCount(count);
+		return getSteps();
+	}
+
+	/**
+	 * Executes the underlying task processing.
+	 *
+	 * @throws Exception If an unrecoverable error occurs during execution.
+	 */
+	@Override
+	public void execute() throws Exception {
+
+		PatternInfo info = patternSource.getPatternInfo();
+		MiniBatchKMeans km = new MiniBatchKMeans(info.getOutputCount(), info.getInputCount());
+
+		// Batch buffers, reused along the passes.
+		double[][] inputs = new double[batchSize][info.getInputCount()];
+		long[] indexes = new long[batchSize];
+		int[] clusters = new int[batchSize];
+
+		// Passes updating the centroids until they do not move. Each pass restarts the rates, and the shift of the first
+		// pass is measured from the centroids seeded with its first batch.
+		for (int pass = 1; pass <= maxPasses; pass++) {
+			double[] previous = (km.isInitialized() ? km.getCentroids() : null);
+			km.resetCounts();
+			int batch = 0;
+			RecordIterator iterator = null;
+			try {
+				iterator = patternSource.iterator();
+				while (true) {
+
+					// Check request of cancel.
+					if (checkCancel()) {
+						return;
+					}
+
+					// Check pause resume.
+					if (checkPause()) {
+						continue;
+					}
+
+					int size = patternSource.readBatch(iterator, inputs, indexes, clusters);
+					if (size == 0) {
+						break;
+					}
+					if (!km.isInitialized()) {
+						km.initialize(inputs, size);
+						previous = km.getCentroids();
+					}
+					km.update(inputs, size);
+					notifyLabel(K_LABEL, "Pass " + pass + " batch " + (++batch));
+				}
+			} finally {
+				if (iterator != null) {
+					iterator.close();
+				}
+			}
+			if (previous == null) {
+				break;
+			}
+			double shift = km.getShift(previous);
+			notifyLabel(S_LABEL, "Pass " + pass + ": centroid shift " + shift);
+			if (shift < tolerance) {
+				break;
+			}
+		}
+
+		saveClusterNumbers(km, inputs, indexes, clusters);
+	}
+
+	/**
+	 * Save cluster numbers with a final streaming pass, updating only the rows which cluster number changes.
+	 *
+	 * @param km The mini-batch KMeans.
+	 * @param inputs The inputs buffer.
+	 * @param indexes The indexes buffer.
+	 * @param clusters The cluster numbers buffer.
+	 * @throws Exception If an error occurs.
+	 */
+	private void saveClusterNumbers(MiniBatchKMeans km, double[][] inputs, long[] indexes, int[] clusters)
+		throws Exception {
+		notifyLabel(K_LABEL, "Saving cluster numbers... ");
+		Persistor persistor = patternSource.getPersistor();
+		Field fieldIndex = persistor.getField(Fields.INDEX);
+		int saved = 0;
+		RecordIterator iterator = null;
+		try {
+			iterator = patternSource.iterator();
+			while (true) {
+
+				// Check request of cancel.
+				if (checkCancel()) {
+					break;
+				}
+
+				int size = patternSource.readBatch(iterator, inputs, indexes, clusters);
+				if (size == 0) {
+					break;
+				}
+				List<Criteria> criterias = new ArrayList<>();
+				List<ValueMap> maps = new ArrayList<>();
+				for (int i = 0; i < size; i++) {
+					int cluster = km.assign(inputs[i]) + 1;
+					if (cluster == clusters[i]) {
+						continue;
+					}
+					Criteria criteria = new Criteria();
+					criteria.add(Condition.fieldEQ(fieldIndex, new Value(indexes[i])));
+					ValueMap map = new ValueMap();
+					map.put(Fields.CLUSTER, new Value(cluster));
+					criterias.add(criteria);
+					maps.add(map);
+				}
+				if (!criterias.isEmpty()) {
+					persistor.update(criterias, maps);
+					saved += criterias.size();
+				}
+				notifyLabel(S_LABEL, "Saved " + saved + " cluster changes");
+			}
+		} finally {
+			if (iterator != null) {
+				iterator.close();
+			}
+		}
+		clearAdditionalLabels();
+	}
+}
@@ -14,8 +14,6 @@
 
 package com.qtplaf.platform.statistics.task;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import com.qtplaf.library.ai.function.normalize.StdNormalizer;
@@ -23,10 +21,10 @@ import com.qtplaf.library.database.Criteria;
 import com.qtplaf.library.database.Order;
 import com.qtplaf.library.database.Record;
 import com.qtplaf.library.database.RecordIterator;
-import com.qtplaf.library.database.RecordSet;
 import com.qtplaf.library.trading.data.DataPersistor;
 import com.qtplaf.platform.database.Fields;
 import com.qtplaf.platform.statistics.States;
+import com.qtplaf.platform.statistics.StatesCalculator;
 
 /**
  *
@@ -73,43 +71,6 @@ public class TaskNormalize extends TaskAverages {
 		return getSteps();
 	}
 
-	/**
-	 * Returns the normalizers map.
-	 * 
-	 * @return The normalizers map.
-	 */
-	private Map<String, StdNormalizer> getNormalizersMap() {
-		Map<String, StdNormalizer> map = new HashMap<>();
-
-		RecordSet recordSet = states.getRecordSetRanges(false);
-		for (int i = 0; i < recordSet.size(); i++) {
-			Record record = recordSet.get(i);
-			String name = record.getValue(Fields.NAME).getString();
-			String min_max = record.getValue(Fields.MIN_MAX).getString();
-			double average = record.getValue(Fields.AVERAGE).getDouble();
-			double stddev = record.getValue(Fields.STDDEV).getDouble();
-
-			StdNormalizer normalizer = map.get(name);
-			if (normalizer == null) {
-				normalizer = new StdNormalizer();
-				normalizer.setNormalizedHigh(1);
-				normalizer.setNormalizedLow(-1);
-				normalizer.setDataHigh(0);
-				normalizer.setDataLow(0);
-				map.put(name, normalizer);
-			}
-			if (min_max.equals("min")) {
-				double dataLow = average - (3.0 * stddev);
-				normalizer.setDataLow(dataLow);
-			} else {
-				double dataHigh = average + (3.0 * stddev);
-				normalizer.setDataHigh(dataHigh);
-			}
-		}
-
-		return map;
-	}
-
 	/**
 	 * Returns the select order.
 	 * 
@@ -135,15 +96,12 @@ public class TaskNormalize extends TaskAverages {
 		try {
 
 			// Normalizers map.
-			Map<String, StdNormalizer> map = getNormalizersMap();
+			Map<String, StdNormalizer> map = states.getNormalizers();
+			StatesCalculator calculator = new StatesCalculator(states);
 
 			// Count steps.
 			countSteps();
 
-			// Field names raw and nrm.
-			List<String> fieldNamesRaw = states.getFieldsToNormalize(Fields.Suffix.RAW);
-			List<String> fieldNamesNrm = states.getFieldsToNormalize(Fields.Suffix.NRM);
-
 			// Source iterator.
 			iterator = persistor.iterator(new Criteria(), getSelectOrder());
 
@@ -174,14 +132,7 @@ public class TaskNormalize extends TaskAverages {
 				Record record = iterator.next();
 
 				// Normalize raw fields.
-				for (int i = 0; i < fieldNamesRaw.size(); i++) {
-					String nameRaw = fieldNamesRaw.get(i);
-					String nameNrm = fieldNamesNrm.get(i);
-					StdNormalizer normalizer = map.get(nameRaw);
-					double valueRaw = record.getValue(nameRaw).getDouble();
-					double valueNrm = normalizer.normalize(valueRaw);
-					record.getValue(nameNrm).setDouble(valueNrm);
-				}
+				calculator.normalize(record, map);
 
 				// Update the record.
 				persistor.update(record);
@@ -190,6 +141,13 @@ public class TaskNormalize extends TaskAverages {
 				notifyStepEnd();
 			}
 
+			// Export the normalized states to the columnar snapshot, to reload them with a sequential file read.
+			iterator.close();
+			iterator = null;
+			if (!isCancelled()) {
+				states.exportSnapshotStates();
+			}
+
 		} finally {
 			if (iterator != null) {
 				iterator.close();
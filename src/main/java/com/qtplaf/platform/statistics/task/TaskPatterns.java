@@ -17,23 +17,21 @@ package com.qtplaf.platform.statistics.task;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.qtplaf.library.ai.data.info.InputInfo;
 import com.qtplaf.library.ai.data.info.PatternInfo;
-import com.qtplaf.library.database.Condition;
 import com.qtplaf.library.database.Criteria;
-import com.qtplaf.library.database.Field;
 import com.qtplaf.library.database.Order;
 import com.qtplaf.library.database.Persistor;
+import com.qtplaf.library.database.PersistorException;
 import com.qtplaf.library.database.Record;
 import com.qtplaf.library.database.RecordIterator;
-import com.qtplaf.library.database.RecordSet;
 import com.qtplaf.library.database.Table;
 import com.qtplaf.library.database.Value;
+import com.qtplaf.library.database.ValueMap;
 import com.qtplaf.library.trading.data.Data;
 import com.qtplaf.library.trading.data.DataPersistor;
 import com.qtplaf.platform.database.Fields;
 import com.qtplaf.platform.statistics.States;
-import com.qtplaf.platform.statistics.patterns.PatternInput;
+import com.qtplaf.platform.statistics.patterns.PatternBlock;
 import com.qtplaf.platform.statistics.patterns.Patterns;
 
 /**
@@ -43,6 +41,9 @@ import com.qtplaf.platform.statistics.patterns.Patterns;
  */
 public class TaskPatterns extends TaskAverages {
 
+	/** Number of patterns inserted per batch. */
+	private static final int BATCH_SIZE = 500;
+
 	/** Underlying states statistics. */
 	private States states;
 	/** Pattern info. */
@@ -58,9 +59,9 @@ public class TaskPatterns extends TaskAverages {
 		super(states.getSession());
 		this.states = states;
 		this.patternInfo = patternInfo;
-		this.statesPersistor = new DataPersistor(states.getTableStates().getPersistor());
+		this.statesPersistor = new DataPersistor(states.getPersistorStates());
 
-		Patterns.setDataInfo(patternInfo, states.getDataListStates().getDataInfo());
+		Patterns.setDataInfo(patternInfo, states.getDataInfoStates());
 
 		setNameAndDescription(states, "patterns-" + patternInfo.getId(), patternInfo.getDescription());
 	}
@@ -96,6 +97,23 @@ public class TaskPatterns extends TaskAverages {
 		return order;
 	}
 
+	/**
+	 * Returns the maximum time already present in the patterns table, or -1 if the table is empty. Patterns are
+	 * generated sequentially by index, so the generation resumes after that time.
+	 * 
+	 * @param persistor The patterns persistor.
+	 * @return The maximum time or -1.
+	 * @throws Exception If any error occurs.
+	 */
+	private long getMaximumPatternTime(Persistor persistor) throws Exception {
+		ValueMap map = persistor.max(new Criteria(), Fields.TIME);
+		Value time = map.get(Fields.TIME);
+		if (time == null || time.isNull()) {
+			return -1;
+		}
+		return time.getLong();
+	}
+
 	/**
 	 * Executes the underlying task processing.
 	 * 
@@ -109,6 +127,9 @@ public class TaskPatterns extends TaskAverages {
 
 		try {
 
+			// States persistor, the snapshot if the states have been exported after the task was created.
+			statesPersistor = new DataPersistor(states.getPersistorStates());
+
 			// Source iterator.
 			iterator = statesPersistor.iterator(new Criteria(), getSelectOrder());
 
@@ -124,8 +145,15 @@ public class TaskPatterns extends TaskAverages {
 				persistor.getDDL().buildTable(table);
 			}
 
-			// Look backward property.
+			// Time of the last already generated pattern, to resume after it.
+			long maximumTime = getMaximumPatternTime(persistor);
+
+			// Look backward property, the block of source datas with the look backward datas first, and the pending
+			// patterns of the block with the position of their current data.
 			int lookBackward = Patterns.getLookBackward(patternInfo);
+			List<Data> block = new ArrayList<>(BATCH_SIZE + lookBackward);
+			List<Record> patterns = new ArrayList<>(BATCH_SIZE);
+			List<Integer> positions = new ArrayList<>(BATCH_SIZE);
 
 			// Step and steps.
 			long step = 0;
@@ -154,43 +182,42 @@ public class TaskPatterns extends TaskAverages {
 				Record record = iterator.next();
 				int index = record.getValue(Fields.INDEX).getInteger();
 
-				// Skip not enough look backward.
-				if (index + 1 < lookBackward) {
-					notifyStepEnd();
-					continue;
-				}
+				// Push the data into the block.
+				block.add(statesPersistor.getData(record));
 
 				// Data time
 				Value time = record.getValue(Fields.TIME);
 
-				// If the current record exists as a pattern, skip it.
-				if (persistor.exists(time)) {
+				// Skip not enough look backward, or if the current record exists as a pattern.
+				if (index + 1 < lookBackward || block.size() < lookBackward || time.getLong() <= maximumTime) {
+					if (patterns.isEmpty()) {
+						trim(block, lookBackward - 1);
+					}
 					notifyStepEnd();
-					index++;
 					continue;
 				}
 
-				// Get the list of datas involved in the pattern.
-				List<Data> datas = getDatas(record, index, lookBackward);
-
-				// Default pattern record.
+				// Default pattern record, inputs are extracted for the whole block.
 				Record pattern = table.getDefaultRecord();
 				pattern.setValue(Fields.INDEX, index);
 				pattern.setValue(Fields.TIME, time);
+				patterns.add(pattern);
+				positions.add(block.size() - 1);
 
-				for (int i = 0; i < patternInfo.getInputCount(); i++) {
-					InputInfo input = patternInfo.getInput(i);
-					String alias = input.getId();
-					PatternInput function = Patterns.getPatternInput(input);
-					double inputValue = function.getInput(datas);
-					pattern.setValue(alias, inputValue);
+				// Flush the batch when full.
+				if (patterns.size() >= BATCH_SIZE) {
+					insertPatterns(persistor, block, patterns, positions, lookBackward);
 				}
-				persistor.insert(pattern);
 
 				// Notify step end.
 				notifyStepEnd();
 			}
 
+			// Flush pending patterns.
+			if (!patterns.isEmpty()) {
+				insertPatterns(persistor, block, patterns, positions, lookBackward);
+			}
+
 		} finally {
 			if (iterator != null) {
 				iterator.close();
@@ -200,35 +227,47 @@ public class TaskPatterns extends TaskAverages {
 	}
 
 	/**
-	 * Returns the list of datas involved in the pattern
+	 * Extract the inputs of the pending patterns for the whole block, insert them in a single batch and keep only the
+	 * look backward datas in the block.
 	 * 
-	 * @param record Current record.
-	 * @param index The current index.
-	 * @param lookBackward The number of records to look backward.
-	 * @return The list of datas.
-	 * @throws Exception If any error occurs.
+	 * @param persistor The patterns persistor.
+	 * @param block The block of source datas.
+	 * @param patterns The pending pattern records.
+	 * @param positions The positions in the block of the current data of the pending patterns.
+	 * @param lookBackward The look backward.
+	 * @throws PersistorException If a persistor error occurs.
 	 */
-	private List<Data> getDatas(Record record, int index, int lookBackward) throws Exception {
-		List<Data> datas = new ArrayList<>();
-		datas.add(statesPersistor.getData(record));
-
-		// If look backward == 1, we are done.
-		if (lookBackward == 1) {
-			return datas;
+	private void insertPatterns(
+		Persistor persistor,
+		List<Data> block,
+		List<Record> patterns,
+		List<Integer> positions,
+		int lookBackward) throws PersistorException {
+
+		PatternBlock patternBlock = PatternBlock.getBlock(block, lookBackward, Patterns.getDataInfo(patternInfo));
+		double[][] inputs = Patterns.getInputs(patternInfo, patternBlock);
+		for (int i = 0; i < patterns.size(); i++) {
+			Record pattern = patterns.get(i);
+			double[] patternInputs = inputs[positions.get(i) - lookBackward + 1];
+			for (int j = 0; j < patternInfo.getInputCount(); j++) {
+				pattern.setValue(patternInfo.getInput(j).getId(), patternInputs[j]);
+			}
 		}
+		persistor.insert(patterns);
+		patterns.clear();
+		positions.clear();
+		trim(block, lookBackward - 1);
+	}
 
-		// Retrieve previous look bacward records.
-		int startIndex = index - lookBackward + 1;
-		int endIndex = index - 1;
-		Field fIndex = statesPersistor.getField(Fields.INDEX);
-		Criteria criteria = new Criteria();
-		criteria.add(Condition.fieldGE(fIndex, new Value(startIndex)));
-		criteria.add(Condition.fieldLE(fIndex, new Value(endIndex)));
-		RecordSet rs = statesPersistor.select(criteria, getSelectOrder());
-		for (int i = 0; i < rs.size(); i++) {
-			record = rs.get(i);
-			datas.add(statesPersistor.getData(record));
+	/**
+	 * Remove the first datas of the block, keeping the last ones.
+	 * 
+	 * @param block The block.
+	 * @param size The number of datas to keep.
+	 */
+	private static void trim(List<Data> block, int size) {
+		if (block.size() > size) {
+			block.subList(0, block.size() - size).clear();
 		}
-		return datas;
 	}
 }
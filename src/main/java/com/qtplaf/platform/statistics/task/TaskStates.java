@@ -14,7 +14,9 @@
 
 package com.qtplaf.platform.statistics.task;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.qtplaf.library.database.Record;
 import com.qtplaf.library.database.Table;
@@ -22,11 +24,12 @@ import com.qtplaf.library.trading.data.Data;
 import com.qtplaf.library.trading.data.DataPersistor;
 import com.qtplaf.library.trading.data.IndicatorDataList;
 import com.qtplaf.library.trading.data.PersistorDataList;
-import com.qtplaf.library.trading.data.info.IndicatorInfo;
+import com.qtplaf.library.util.math.QuantileSketch;
 import com.qtplaf.platform.database.Fields;
 import com.qtplaf.platform.indicators.StatesIndicator;
-import com.qtplaf.platform.statistics.Average;
 import com.qtplaf.platform.statistics.States;
+import com.qtplaf.platform.statistics.StatesCalculator;
+import com.qtplaf.platform.statistics.TickerDataContext;
 
 /**
  * Calculates source states values.
@@ -86,6 +89,25 @@ public class TaskStates extends TaskAverages {
 	@Override
 	public void execute() throws Exception {
 
+		// Keep the shared ticker price and average data lists resident while calculating, and have the indicator use
+		// them instead of any context looked up before, when counting steps.
+		TickerDataContext context = TickerDataContext.acquire(states);
+		indicator.setContext(context);
+		try {
+			calculate(context);
+		} finally {
+			context.release();
+		}
+	}
+
+	/**
+	 * Calculates the states, resolving the price and averages from the shared ticker data context.
+	 * 
+	 * @param context The ticker data context.
+	 * @throws Exception If an unrecoverable error occurs during execution.
+	 */
+	private void calculate(TickerDataContext context) throws Exception {
+
 		// Count steps.
 		countSteps();
 
@@ -98,15 +120,20 @@ public class TaskStates extends TaskAverages {
 			persistor.getDDL().dropTable(table);
 		}
 		persistor.getDDL().buildTable(table);
+		states.deleteSnapshotStates();
 
-		// And the result indicator info and data list.
-		IndicatorInfo info = indicator.getIndicatorInfo();
+		// And the result indicator data list and the calculator of the raw values.
 		IndicatorDataList indicatorList = indicator.getDataList();
 		// The list of indicator data lists that must be calculated prior as sources.
 		List<IndicatorDataList> sources = indicator.getIndicatorDataListsToCalculate();
+		StatesCalculator calculator = new StatesCalculator(states);
 
-		// Averages.
-		List<Average> averages = states.getAverages();
+		// Quantile sketches of the raw values to normalize, maintained along the pass.
+		List<String> sketchNames = states.getFieldsToNormalize(Fields.Suffix.RAW);
+		Map<String, QuantileSketch> sketches = new HashMap<>();
+		for (String name : sketchNames) {
+			sketches.put(name, new QuantileSketch());
+		}
 
 		// The current index to calculate.
 		int index = 0;
@@ -131,95 +158,32 @@ public class TaskStates extends TaskAverages {
 			// Notify step start.
 			notifyStepStart(step, getStepMessage(step, steps, null, null));
 
-			// Calculate required sources for the current index.
-			for (IndicatorDataList source : sources) {
-				source.calculate(index);
+			// Calculate required sources for the current index, unless already calculated by a task that shares
+			// them, and then the result indicator.
+			Data data;
+			Data previous;
+			synchronized (context) {
+				for (IndicatorDataList source : sources) {
+					if (!source.hasCalculated(index)) {
+						source.calculate(index);
+					}
+				}
+				data = indicatorList.calculate(index);
+				previous = (index > 0 ? indicatorList.get(index - 1) : null);
 			}
-			// Calculate the result indicator and save the data.
-			Data data = indicatorList.calculate(index);
 
-			// Indicator data contains open, high, low, close and the averages. Raw spreads and slopes will be
-			// calculated here.
+			// Indicator data contains open, high, low, close and the averages. Raw spreads and slopes are
+			// calculated from the current and previous data.
 			Record record = persistor.getDefaultRecord();
+			calculator.calculate(record, data, previous);
 
-			// Time.
-			record.getValue(Fields.TIME).setLong(data.getTime());
-
-			// Open, high, low, close.
-			double open = data.getValue(info.getOutputIndex(Fields.OPEN));
-			double high = data.getValue(info.getOutputIndex(Fields.HIGH));
-			double low = data.getValue(info.getOutputIndex(Fields.LOW));
-			double close = data.getValue(info.getOutputIndex(Fields.CLOSE));
-			record.getValue(Fields.OPEN).setDouble(open);
-			record.getValue(Fields.HIGH).setDouble(high);
-			record.getValue(Fields.LOW).setDouble(low);
-			record.getValue(Fields.CLOSE).setDouble(close);
-
-			// Averages.
-			for (int i = 0; i < averages.size(); i++) {
-				Average average = averages.get(i);
-				String name = Fields.averageName(average);
-				record.getValue(name).setDouble(data.getValue(info.getOutputIndex(name)));
-			}
-			
-			// Range
-			double range = high - low;
-			if (index == 0) {
-				range = 0;
-			}
-			String range_raw = Fields.suffix(Fields.RANGE, Fields.Suffix.RAW);
-			record.getValue(range_raw).setDouble(range);
-
-			// Raw spread WCP fast average.
-			double wcp = (high + low + (2 * close)) / 4;
-			Average fastAvg = states.getAverages().get(0);
-			String spread_wcp_fast = Fields.spread(Fields.WCP, fastAvg, Fields.Suffix.RAW);
-			String fast_avg_name = Fields.averageName(fastAvg);
-			double fastAvgValue = record.getValue(fast_avg_name).getDouble();
-			double spreadWCPFast = (wcp / fastAvgValue) - 1;
-			record.getValue(spread_wcp_fast).setDouble(spreadWCPFast);
-
-			// Raw spreads between averages.
-			for (int i = 0; i < averages.size(); i++) {
-				Average avgFast = averages.get(i);
-				String avgFastName = Fields.averageName(avgFast);
-				for (int j = i + 1; j < averages.size(); j++) {
-					Average avgSlow = averages.get(j);
-					String avgSlowName = Fields.averageName(avgSlow);
-					String spreadName = Fields.spreadName(avgFast, avgSlow, Fields.Suffix.RAW);
-					double valueFast = data.getValue(info.getOutputIndex(avgFastName));
-					double valueSlow = data.getValue(info.getOutputIndex(avgSlowName));
-					double valueSpread = (valueFast / valueSlow) - 1;
-					record.getValue(spreadName).setDouble(valueSpread);
-				}
-			}
-
-			// Raw slopes of averages.
+			// Update sketches, the first record has no previous to calculate slopes and differences.
 			if (index > 0) {
-				Data prev = indicatorList.get(index - 1);
-				for (int i = 0; i < averages.size(); i++) {
-					Average average = averages.get(i);
-					String avgName = Fields.averageName(average);
-					String slopeName = Fields.slopeName(average, Fields.Suffix.RAW);
-					double valueCurr = data.getValue(info.getOutputIndex(avgName));
-					double valuePrev = prev.getValue(info.getOutputIndex(avgName));
-					double valueSlope = (valueCurr / valuePrev) - 1;
-					record.getValue(slopeName).setDouble(valueSlope);
+				for (String name : sketchNames) {
+					sketches.get(name).add(record.getValue(name).getDouble());
 				}
 			}
 
-			// Raw differences between current and previous centers.
-			if (index > 0) {
-				String center_diff_raw = Fields.suffix(Fields.CENTER_DIFF, Fields.Suffix.RAW);
-				Record recordPrev = persistor.getRecord(Long.valueOf(index - 1));
-				double highPrev = recordPrev.getValue(Fields.HIGH).getDouble();
-				double lowPrev = recordPrev.getValue(Fields.LOW).getDouble();
-				double centerPrev = (highPrev + lowPrev) / 2;
-				double centerCurr = (high + low) / 2;
-				double centerDiff = (centerCurr / centerPrev) - 1;
-				record.getValue(center_diff_raw).setDouble(centerDiff);
-			}
-
 			// Insert.
 			persistor.insert(record);
 
@@ -230,6 +194,11 @@ public class TaskStates extends TaskAverages {
 			notifyStepEnd();
 		}
 
+		// Save the sketches used to normalize, only if all the values have been added.
+		if (!isCancelled()) {
+			states.saveSketches(sketches);
+		}
+
 	}
 
 }
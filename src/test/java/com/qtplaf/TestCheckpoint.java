@@ -0,0 +1,89 @@
+package com.qtplaf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.qtplaf.library.ai.data.DefaultPattern;
+import com.qtplaf.library.ai.data.ListPatternSource;
+import com.qtplaf.library.ai.data.Pattern;
+import com.qtplaf.library.ai.function.activation.ActivationSigmoid;
+import com.qtplaf.library.ai.function.activation.ActivationTANH;
+import com.qtplaf.library.ai.learning.Checkpoint;
+import com.qtplaf.library.ai.learning.propagation.ResilientPropagation;
+import com.qtplaf.library.ai.neural.Network;
+
+public class TestCheckpoint {
+
+	public static void main(String[] args) throws Exception {
+		File directory = new File(System.getProperty("java.io.tmpdir"), "TestCheckpoint");
+		directory.mkdirs();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+
+		// A first run leaves checkpoints up to a high sequence.
+		ResilientPropagation first = getPropagation();
+		Checkpoint checkpoint = new Checkpoint(first, directory, "xor");
+		checkpoint.setIterationInterval(10);
+		first.addStrategy(checkpoint);
+		first.initialize();
+		for (int i = 0; i < 50; i++) {
+			first.iteration();
+		}
+		checkpoint.close();
+		System.out.println("First run: " + Arrays.toString(sortedNames(directory)));
+
+		// A second run started without resume must not have its checkpoints pruned by the stale ones.
+		ResilientPropagation second = getPropagation();
+		checkpoint = new Checkpoint(second, directory, "xor");
+		checkpoint.setIterationInterval(10);
+		second.addStrategy(checkpoint);
+		second.initialize();
+		for (int i = 0; i < 10; i++) {
+			second.iteration();
+		}
+		checkpoint.close();
+		String[] names = sortedNames(directory);
+		System.out.println("Second run: " + Arrays.toString(names));
+
+		// Resume must restore the checkpoint of the second run.
+		ResilientPropagation resumed = getPropagation();
+		long iteration = new Checkpoint(resumed, directory, "xor").resume();
+		boolean equal = Arrays.equals(second.getNetwork().getWeights(), resumed.getNetwork().getWeights());
+		System.out.println("Resumed iteration " + iteration + ", weights of the second run: " + equal);
+		System.out.println(iteration == 10 && equal ? "OK" : "FAILED");
+	}
+
+	private static ResilientPropagation getPropagation() {
+		List<Pattern> patterns = new ArrayList<>();
+		double[][] inputs = { { 0, 0 }, { 0, 1 }, { 1, 0 }, { 1, 1 } };
+		double[] outputs = { 0, 1, 1, 0 };
+		for (int i = 0; i < inputs.length; i++) {
+			DefaultPattern pattern = new DefaultPattern();
+			pattern.setInputs(inputs[i]);
+			pattern.setOutputs(new double[] { outputs[i] });
+			patterns.add(pattern);
+		}
+		Network network = new Network();
+		network.addLayer(2);
+		network.addLayer(8, new ActivationTANH(), 0.3);
+		network.addLayer(1, new ActivationSigmoid(), 0.7);
+		Random random = new Random(1);
+		double[] weights = network.getWeights();
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = random.nextGaussian();
+		}
+		ResilientPropagation propagation = new ResilientPropagation(network);
+		propagation.setLearningData(new ListPatternSource(patterns));
+		return propagation;
+	}
+
+	private static String[] sortedNames(File directory) {
+		String[] names = directory.list();
+		Arrays.sort(names);
+		return names;
+	}
+}
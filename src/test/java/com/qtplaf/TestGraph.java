@@ -0,0 +1,122 @@
+package com.qtplaf;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.qtplaf.library.util.math.tensor.Edge;
+import com.qtplaf.library.util.math.tensor.Graph;
+import com.qtplaf.library.util.math.tensor.Tensor;
+
+public class TestGraph {
+
+	private static Random random = new Random(1);
+
+	private static Tensor randomTensor(int rows, int columns) {
+		Tensor tensor = new Tensor(rows, columns);
+		double[] data = tensor.getData();
+		for (int i = 0; i < data.length; i++) {
+			data[i] = random.nextGaussian() * 0.5;
+		}
+		return tensor;
+	}
+
+	private static double loss(Graph graph, Edge loss) {
+		graph.forward();
+		return loss.getValue().getData()[0];
+	}
+
+	// Central difference check of the gradients of all the parameters.
+	private static double gradientCheck(Graph graph, Edge loss) {
+		double epsilon = 1e-6;
+		graph.forward();
+		graph.backward(loss);
+		double maxError = 0;
+		List<Edge> parameters = graph.getParameters();
+		for (Edge parameter : parameters) {
+			double[] values = parameter.getValue().getData();
+			double[] gradients = parameter.getGradient().getData().clone();
+			for (int i = 0; i < values.length; i++) {
+				double value = values[i];
+				values[i] = value + epsilon;
+				double plus = loss(graph, loss);
+				values[i] = value - epsilon;
+				double minus = loss(graph, loss);
+				values[i] = value;
+				double numeric = (plus - minus) / (2 * epsilon);
+				double scale = Math.max(1e-8, Math.abs(numeric) + Math.abs(gradients[i]));
+				maxError = Math.max(maxError, Math.abs(numeric - gradients[i]) / scale);
+			}
+		}
+		return maxError;
+	}
+
+	// A branching graph where the hidden layer feeds two heads.
+	private static void testBranching() {
+		Graph graph = new Graph();
+		Edge x = graph.input(4, 3);
+		Edge y = graph.input(4, 2);
+		Edge w1 = graph.parameter(randomTensor(3, 5));
+		Edge b1 = graph.parameter(randomTensor(1, 5));
+		Edge w2 = graph.parameter(randomTensor(5, 2));
+		Edge w3 = graph.parameter(randomTensor(5, 2));
+		Edge b3 = graph.parameter(randomTensor(1, 2));
+		Edge h = graph.tanh(graph.add(graph.matmul(x, w1), b1));
+		Edge a = graph.sigmoid(graph.matmul(h, w2));
+		Edge c = graph.relu(graph.add(graph.matmul(h, w3), b3));
+		Edge loss = graph.meanSquared(graph.add(a, c), y);
+		x.setValue(randomTensor(4, 3).getData());
+		y.setValue(randomTensor(4, 2).getData());
+		System.out.println("Branching graph, max relative error " + gradientCheck(graph, loss));
+	}
+
+	private static void testSoftmax() {
+		Graph graph = new Graph();
+		Edge x = graph.input(3, 4);
+		Edge y = graph.input(3, 3);
+		Edge w = graph.parameter(randomTensor(4, 3));
+		Edge b = graph.parameter(randomTensor(1, 3));
+		Edge loss = graph.softmaxCrossEntropy(graph.add(graph.matmul(x, w), b), y);
+		x.setValue(randomTensor(3, 4).getData());
+		y.setValue(new double[] { 1, 0, 0, 0, 1, 0, 0, 0, 1 });
+		System.out.println("Softmax cross entropy, max relative error " + gradientCheck(graph, loss));
+	}
+
+	private static void testXOR() {
+		Graph graph = new Graph();
+		Edge x = graph.input(4, 2);
+		Edge y = graph.input(4, 1);
+		Edge w1 = graph.parameter(randomTensor(2, 8));
+		Edge b1 = graph.parameter(randomTensor(1, 8));
+		Edge w2 = graph.parameter(randomTensor(8, 1));
+		Edge b2 = graph.parameter(randomTensor(1, 1));
+		Edge h = graph.tanh(graph.add(graph.matmul(x, w1), b1));
+		Edge output = graph.sigmoid(graph.add(graph.matmul(h, w2), b2));
+		output.keep();
+		Edge loss = graph.meanSquared(output, y);
+		x.setValue(new double[] { 0, 0, 0, 1, 1, 0, 1, 1 });
+		y.setValue(new double[] { 0, 1, 1, 0 });
+
+		double learningRate = 0.5;
+		for (int epoch = 0; epoch < 5000; epoch++) {
+			graph.forward();
+			graph.backward(loss);
+			for (Edge parameter : graph.getParameters()) {
+				double[] values = parameter.getValue().getData();
+				double[] gradients = parameter.getGradient().getData();
+				for (int i = 0; i < values.length; i++) {
+					values[i] -= learningRate * gradients[i];
+				}
+			}
+		}
+		graph.forward();
+		System.out.println("XOR, mean squared error " + loss.getValue().getData()[0]);
+		System.out.println("XOR, outputs " + Arrays.toString(output.getValue().getData()));
+	}
+
+	public static void main(String[] args) {
+		testBranching();
+		testSoftmax();
+		testXOR();
+	}
+}
@@ -0,0 +1,110 @@
+package com.qtplaf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.qtplaf.library.ai.data.DefaultPattern;
+import com.qtplaf.library.ai.data.ListPatternSource;
+import com.qtplaf.library.ai.data.Pattern;
+import com.qtplaf.library.ai.function.distance.EuclideanDistance;
+import com.qtplaf.library.ai.learning.clustering.centroid.CentroidCluster;
+import com.qtplaf.library.ai.learning.clustering.centroid.kmeans.LloydKMeansClustering;
+import com.qtplaf.library.ai.learning.clustering.index.KDTree;
+import com.qtplaf.library.ai.learning.clustering.index.NeighbourIndex;
+import com.qtplaf.library.ai.learning.clustering.index.VPTree;
+
+public class TestKMeansIndex {
+
+	public static void main(String[] args) {
+		int mismatches = 0;
+
+		// Indexes over centroids with duplicates and points on a grid, so there are ties to resolve.
+		for (int dimension : new int[] { 2, 24 }) {
+			Random random = new Random(dimension);
+			int count = 200;
+			double[] centroids = new double[count * dimension];
+			for (int i = 0; i < count; i++) {
+				int source = (i % 5 == 4 ? random.nextInt(i) : i);
+				for (int d = 0; d < dimension; d++) {
+					centroids[i * dimension + d] =
+						(source == i ? random.nextInt(8) : centroids[source * dimension + d]);
+				}
+			}
+			double[] queries = new double[5000 * dimension];
+			for (int i = 0; i < queries.length; i++) {
+				queries[i] = random.nextInt(16) * 0.5;
+			}
+			NeighbourIndex[] indexes = {
+				new KDTree(centroids, dimension),
+				new VPTree(centroids, dimension, new EuclideanDistance()) };
+			for (NeighbourIndex index : indexes) {
+				int bad = 0;
+				for (int q = 0; q < queries.length / dimension; q++) {
+					if (index.nearestIndex(queries, q * dimension) != scan(centroids, queries, q * dimension, dimension)) {
+						bad++;
+					}
+				}
+				System.out.println(index.getClass().getSimpleName() + " dimension " + dimension + ": " + bad);
+				mismatches += bad;
+			}
+		}
+
+		// Lloyd assignments with the centroid index against a scan of the centroids of the previous iteration.
+		for (int dimension : new int[] { 2, 40 }) {
+			Random random = new Random(dimension);
+			int clusters = 64;
+			List<Pattern> patterns = new ArrayList<>();
+			double[] data = new double[5000 * dimension];
+			for (int i = 0; i < 5000; i++) {
+				double[] inputs = new double[dimension];
+				for (int d = 0; d < dimension; d++) {
+					inputs[d] = random.nextGaussian() + (i % 50);
+					data[i * dimension + d] = inputs[d];
+				}
+				DefaultPattern pattern = new DefaultPattern();
+				pattern.setInputs(inputs);
+				pattern.setOutputs(new double[0]);
+				patterns.add(pattern);
+			}
+			LloydKMeansClustering clustering = new LloydKMeansClustering(clusters);
+			clustering.setRandom(new Random(1));
+			clustering.initializeClustering(new ListPatternSource(patterns));
+			int bad = 0;
+			for (int iteration = 0; iteration < 5; iteration++) {
+				double[] centroids = new double[clusters * dimension];
+				for (int c = 0; c < clusters; c++) {
+					double[] centroid = ((CentroidCluster) clustering.getCluster(c)).getCentroid();
+					System.arraycopy(centroid, 0, centroids, c * dimension, dimension);
+				}
+				clustering.performIteration();
+				for (int p = 0; p < patterns.size(); p++) {
+					if (clustering.getAssignment(p) != scan(centroids, data, p * dimension, dimension)) {
+						bad++;
+					}
+				}
+			}
+			System.out.println("Lloyd dimension " + dimension + ": " + bad);
+			mismatches += bad;
+		}
+
+		System.out.println(mismatches == 0 ? "OK" : "FAILED");
+	}
+
+	private static int scan(double[] centroids, double[] queries, int offset, int dimension) {
+		int best = 0;
+		double bestDistance = Double.MAX_VALUE;
+		for (int c = 0; c < centroids.length / dimension; c++) {
+			double distance = 0;
+			for (int d = 0; d < dimension; d++) {
+				double diff = queries[offset + d] - centroids[c * dimension + d];
+				distance += diff * diff;
+			}
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				best = c;
+			}
+		}
+		return best;
+	}
+}